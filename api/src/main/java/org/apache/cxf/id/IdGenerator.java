@@ -0,0 +1,36 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.id;
+
+/**
+ * Bus extension that hands out the unique identifiers used for WS-Addressing
+ * message IDs, WS-RM sequence identifiers and the like.  Implementations are
+ * called on every message, from any number of threads, so they should not
+ * serialize callers on a shared lock.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return a new identifier in the textual UUID format, i.e. 36 characters of
+     * hex digits and dashes, that will not be returned again by this or any
+     * other generator
+     */
+    String generateId();
+}
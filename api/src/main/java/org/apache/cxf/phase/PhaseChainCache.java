@@ -19,10 +19,9 @@
 
 package org.apache.cxf.phase;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.cxf.common.util.ModCountCopyOnWriteArrayList;
@@ -34,10 +33,32 @@ import org.apache.cxf.interceptor.Interceptor;
  * phases supplied in the get() methods of this class are defined by default
  * within org.apache.cxf.phase.PhaseManagerImpl.  For an example of this class 
  * in use, check the sourcecode of org.apache.cxf.endpoint.ClientImpl.
+ * <p>
+ * The cache holds a bounded number of prebuilt chains so that observers shared
+ * by several endpoints (or clients whose interceptor lists change between
+ * invocations) do not rebuild a chain for every message.  Entries are matched
+ * on the phase list and on the interceptors supplied by each provider list; when
+ * a provider list is the same ModCountCopyOnWriteArrayList instance the chain
+ * was built from, its modification count is used instead of walking the list.
+ * Lookups are lock free, the oldest entry is dropped once the cache is full.
  */
 public final class PhaseChainCache {
-    AtomicReference<ChainHolder> lastData = new AtomicReference<ChainHolder>();
+    public static final int DEFAULT_MAX_SIZE = 16;
     
+    private static final ChainHolder[] EMPTY = new ChainHolder[0];
+    
+    private final int maxSize;
+    private final AtomicReference<ChainHolder[]> entries = new AtomicReference<ChainHolder[]>(EMPTY);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    
+    public PhaseChainCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+    
+    public PhaseChainCache(int max) {
+        maxSize = max < 1 ? 1 : max;
+    }
     
     @SuppressWarnings("unchecked")
     public PhaseInterceptorChain get(SortedSet<Phase> phaseList,
@@ -76,62 +97,139 @@ public final class PhaseChainCache {
         return getChain(phaseList, p1, p2, p3, p4, p5);
     }
     
+    /**
+     * Returns the number of lookups answered from a cached chain.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+    
+    /**
+     * Returns the number of lookups that had to build a new chain.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    public int size() {
+        return entries.get().length;
+    }
+    
+    public void clear() {
+        entries.set(EMPTY);
+    }
+    
     private PhaseInterceptorChain getChain(SortedSet<Phase> phaseList, List<Interceptor> ... providers) {
-        ChainHolder last = lastData.get();
-        
-        if (last == null 
-            || !last.matches(providers)) {
-            
-            PhaseInterceptorChain chain = new PhaseInterceptorChain(phaseList);
-            List<ModCountCopyOnWriteArrayList<Interceptor>> copy 
-                = new ArrayList<ModCountCopyOnWriteArrayList<Interceptor>>(providers.length);
-            for (List<Interceptor> p : providers) {
-                copy.add(new ModCountCopyOnWriteArrayList<Interceptor>(p));
-                chain.add(p);
+        ChainHolder[] current = entries.get();
+        for (ChainHolder holder : current) {
+            if (holder.matches(phaseList, providers)) {
+                hits.incrementAndGet();
+                return holder.chain.cloneChain();
             }
-            last = new ChainHolder(chain, copy);
-            lastData.set(last);
         }
+        misses.incrementAndGet();
         
-        
-        return last.chain.cloneChain();
+        PhaseInterceptorChain chain = new PhaseInterceptorChain(phaseList);
+        ChainHolder holder = new ChainHolder(chain, phaseList, providers);
+        for (List<Interceptor> p : providers) {
+            chain.add(p);
+        }
+        publish(holder);
+        return chain.cloneChain();
+    }
+    
+    private void publish(ChainHolder holder) {
+        while (true) {
+            ChainHolder[] current = entries.get();
+            ChainHolder[] updated = new ChainHolder[Math.min(current.length + 1, maxSize)];
+            updated[0] = holder;
+            int idx = 1;
+            for (int x = 0; x < current.length && idx < updated.length; x++) {
+                //entries built from the very same provider lists are stale now
+                if (!current[x].sameSources(holder)) {
+                    updated[idx++] = current[x];
+                }
+            }
+            if (idx < updated.length) {
+                ChainHolder[] trimmed = new ChainHolder[idx];
+                System.arraycopy(updated, 0, trimmed, 0, idx);
+                updated = trimmed;
+            }
+            if (entries.compareAndSet(current, updated)) {
+                return;
+            }
+        }
     }
     
     private static class ChainHolder {
-        List<ModCountCopyOnWriteArrayList<Interceptor>> lists;
-        PhaseInterceptorChain chain;
+        final PhaseInterceptorChain chain;
+        final SortedSet<Phase> phases;
+        final List<Interceptor>[] sources;
+        final Interceptor[][] contents;
+        final int[] modCounts;
         
-        ChainHolder(PhaseInterceptorChain c, List<ModCountCopyOnWriteArrayList<Interceptor>> l) {
-            lists = l;
+        @SuppressWarnings("unchecked")
+        ChainHolder(PhaseInterceptorChain c, SortedSet<Phase> p, List<Interceptor> ... providers) {
             chain = c;
+            phases = p;
+            sources = providers.clone();
+            contents = new Interceptor[providers.length][];
+            modCounts = new int[providers.length];
+            for (int x = 0; x < providers.length; x++) {
+                if (providers[x].getClass() == ModCountCopyOnWriteArrayList.class) {
+                    //read the count first, a concurrent add will then only cause a miss
+                    modCounts[x] = ((ModCountCopyOnWriteArrayList)providers[x]).getModCount();
+                }
+                contents[x] = providers[x].toArray(new Interceptor[providers[x].size()]);
+            }
         }
         
-        boolean matches(List<Interceptor> ... providers) {
-            if (lists.size() == providers.length) {
-                for (int x = 0; x < providers.length; x++) {
-                    if (lists.get(x).size() != providers[x].size()) {
+        boolean sameSources(ChainHolder other) {
+            if (phases != other.phases || sources.length != other.sources.length) {
+                return false;
+            }
+            for (int x = 0; x < sources.length; x++) {
+                if (sources[x] != other.sources[x]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        boolean matches(SortedSet<Phase> phaseList, List<Interceptor> ... providers) {
+            if (phases != phaseList || contents.length != providers.length) {
+                return false;
+            }
+            for (int x = 0; x < providers.length; x++) {
+                List<Interceptor> p = providers[x];
+                if (p == sources[x] 
+                    && p.getClass() == ModCountCopyOnWriteArrayList.class) {
+                    if (((ModCountCopyOnWriteArrayList)p).getModCount() != modCounts[x]
+                        || p.size() != contents[x].length) {
                         return false;
                     }
-                    
-                    if (providers[x].getClass() == ModCountCopyOnWriteArrayList.class) {
-                        if (((ModCountCopyOnWriteArrayList)providers[x]).getModCount()
-                            != lists.get(x).getModCount()) {
-                            return false;
-                        }
-                    } else {
-                        ListIterator<Interceptor> i1 = lists.get(x).listIterator();
-                        ListIterator<Interceptor> i2 = providers[x].listIterator();
-                        
-                        while (i1.hasNext()) {
-                            if (i1.next() != i2.next()) {
-                                return false;
-                            }
-                        }
-                    }
+                } else if (!sameInterceptors(contents[x], p)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private static boolean sameInterceptors(Interceptor[] cached, List<Interceptor> p) {
+            if (cached.length != p.size()) {
+                return false;
+            }
+            int idx = 0;
+            for (Interceptor i : p) {
+                if (idx == cached.length || cached[idx++] != i) {
+                    return false;
                 }
-                return true;
             }
-            return false;
+            return idx == cached.length;
         }
     }
 }
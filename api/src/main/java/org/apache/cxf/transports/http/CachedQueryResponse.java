@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transports.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An immutable, fully serialized query response as kept by a 
+ * {@link CachingQueryHandler}. 
+ */
+public final class CachedQueryResponse {
+    private final byte[] content;
+    private final String contentType;
+    private final String etag;
+    private final long lastModified;
+
+    public CachedQueryResponse(byte[] content, String contentType, long lastModified) {
+        this.content = content;
+        this.contentType = contentType;
+        this.lastModified = lastModified;
+        this.etag = "\"" + Integer.toHexString(Arrays.hashCode(content)) 
+            + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+    
+    /**
+     * @return the quoted entity tag for the content
+     */
+    public String getETag() {
+        return etag;
+    }
+    
+    public long getLastModified() {
+        return lastModified;
+    }
+    
+    public int getContentLength() {
+        return content.length;
+    }
+    
+    /**
+     * Checks the conditional headers of a request against this response.
+     * @param ifNoneMatch the value of the If-None-Match header, or null
+     * @param ifModifiedSince the value of the If-Modified-Since header in 
+     * milliseconds, or -1
+     * @return true iff the client copy is still current and a 304 can be sent
+     */
+    public boolean isNotModified(String ifNoneMatch, long ifModifiedSince) {
+        if (ifNoneMatch != null) {
+            if ("*".equals(ifNoneMatch.trim())) {
+                return true;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                if (etag.equals(tag.trim())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        // HTTP dates only have a resolution of seconds
+        return ifModifiedSince != -1 && ifModifiedSince >= (lastModified / 1000) * 1000;
+    }
+    
+    public void writeTo(OutputStream os) throws IOException {
+        os.write(content);
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transports.http;
+
+import org.apache.cxf.service.model.EndpointInfo;
+
+/**
+ * A QueryHandler that keeps the fully rendered response of a query so that 
+ * repeated queries can be answered by copying bytes and validated with the 
+ * HTTP ETag and Last-Modified headers.
+ */
+public interface CachingQueryHandler extends QueryHandler {
+
+    /**
+     * @param fullQueryString the target full query string (with params) of the request
+     * @param ctx the context that was set for this invokation
+     * @param endpoint the current endpoint for this context (e.g. the endpoint this
+     * Destination was activated for). Null if no current endpoint.
+     * @return the cached response, or null if the query has not been answered yet 
+     * (in which case writeResponse should be called)
+     */
+    CachedQueryResponse getCachedResponse(String fullQueryString, String ctx, EndpointInfo endpoint);
+
+    /**
+     * Like getCachedResponse, but renders and caches the response first if the query
+     * has not been answered yet, so that the first client gets the same ETag and 
+     * Last-Modified headers as the ones that follow.
+     * @param fullQueryString the target full query string (with params) of the request
+     * @param ctx the context that was set for this invokation
+     * @param endpoint the current endpoint for this context
+     * @return the response, never null
+     */
+    CachedQueryResponse getResponse(String fullQueryString, String ctx, EndpointInfo endpoint);
+    
+    /**
+     * Discards every cached response of the endpoint, e.g. when it is republished. 
+     * @param endpoint the endpoint
+     */
+    void clearCache(EndpointInfo endpoint);
+}
@@ -20,6 +20,7 @@
 package org.apache.cxf.ws.policy;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -41,10 +42,17 @@ public class AssertionInfoMap extends HashMap<QName, Collection<AssertionInfo>>
     
     private static final ResourceBundle BUNDLE = BundleUtils.getBundle(AssertionInfoMap.class, "APIMessages");
     
+    private final Collection<Assertion> indexedAssertions;
+    private final AssertionInfo[] indexed;
+    
     public AssertionInfoMap(Collection<Assertion> assertions) {
         super(assertions.size());
+        indexedAssertions = assertions;
+        indexed = new AssertionInfo[assertions.size()];
+        int idx = 0;
         for (Assertion a : assertions) {
             AssertionInfo ai = new AssertionInfo(a);
+            indexed[idx++] = ai;
             Collection<AssertionInfo> ais = get(a.getName());
             if (null == ais) {
                 ais = new ArrayList<AssertionInfo>();
@@ -54,6 +62,42 @@ public class AssertionInfoMap extends HashMap<QName, Collection<AssertionInfo>>
         }
     }
     
+    /**
+     * @return the collection of assertions this map was created from
+     */
+    public Collection<Assertion> getIndexedAssertions() {
+        return indexedAssertions;
+    }
+    
+    /**
+     * Returns the positions, in the iteration order of the collection this map was created from,
+     * of the assertions that have been asserted so far. 
+     * 
+     * @param assertions the collection the caller has indexed
+     * @return the asserted positions, or null if this map was created from a different collection
+     * or assertion infos have since been added to or removed from it
+     */
+    public BitSet getAssertedIndices(Collection<Assertion> assertions) {
+        if (assertions != indexedAssertions || !isIndexed()) {
+            return null;
+        }
+        BitSet asserted = new BitSet(indexed.length);
+        for (int i = 0; i < indexed.length; i++) {
+            if (indexed[i].isAsserted()) {
+                asserted.set(i);
+            }
+        }
+        return asserted;
+    }
+    
+    private boolean isIndexed() {
+        int count = 0;
+        for (Collection<AssertionInfo> ais : values()) {
+            count += ais.size();
+        }
+        return count == indexed.length;
+    }
+    
     public boolean supportsAlternative(Collection<Assertion> alternative) {
         for (Assertion a : alternative) {          
             boolean asserted = false;
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.phase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.cxf.common.util.ModCountCopyOnWriteArrayList;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Message;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhaseChainCacheTest extends Assert {
+
+    private SortedSet<Phase> phases;
+
+    @Before
+    public void setUp() {
+        phases = new TreeSet<Phase>();
+        phases.add(new Phase("phase1", 1));
+        phases.add(new Phase("phase2", 2));
+    }
+
+    @Test
+    public void testMultipleEndpointsDoNotThrash() {
+        PhaseChainCache cache = new PhaseChainCache();
+        List<Interceptor> bus = new ModCountCopyOnWriteArrayList<Interceptor>();
+        bus.add(new TestInterceptor("phase1", "b1"));
+        List<Interceptor> ep1 = new ModCountCopyOnWriteArrayList<Interceptor>();
+        ep1.add(new TestInterceptor("phase2", "e1"));
+        List<Interceptor> ep2 = new ModCountCopyOnWriteArrayList<Interceptor>();
+        ep2.add(new TestInterceptor("phase2", "e2"));
+
+        for (int x = 0; x < 10; x++) {
+            assertNotNull(cache.get(phases, bus, ep1));
+            assertNotNull(cache.get(phases, bus, ep2));
+        }
+        assertEquals(2, cache.getMisses());
+        assertEquals(18, cache.getHits());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testModifiedListRebuildsChain() {
+        PhaseChainCache cache = new PhaseChainCache();
+        List<Interceptor> bus = new ModCountCopyOnWriteArrayList<Interceptor>();
+        bus.add(new TestInterceptor("phase1", "b1"));
+
+        PhaseInterceptorChain chain = cache.get(phases, bus);
+        assertEquals(1, count(chain));
+        bus.add(new TestInterceptor("phase2", "b2"));
+        chain = cache.get(phases, bus);
+        assertEquals(2, count(chain));
+        assertEquals(2, cache.getMisses());
+        //the entry built from the old contents of the list is replaced
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testPlainListsMatchOnContent() {
+        PhaseChainCache cache = new PhaseChainCache();
+        Interceptor i1 = new TestInterceptor("phase1", "i1");
+        List<Interceptor> l1 = new ArrayList<Interceptor>();
+        l1.add(i1);
+        List<Interceptor> l2 = new ArrayList<Interceptor>();
+        l2.add(i1);
+
+        cache.get(phases, l1);
+        cache.get(phases, l2);
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+
+        l2.set(0, new TestInterceptor("phase1", "i2"));
+        cache.get(phases, l2);
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testBounded() {
+        PhaseChainCache cache = new PhaseChainCache(2);
+        for (int x = 0; x < 5; x++) {
+            List<Interceptor> l = new ArrayList<Interceptor>();
+            l.add(new TestInterceptor("phase1", "i" + x));
+            cache.get(phases, l);
+        }
+        assertEquals(2, cache.size());
+        assertEquals(5, cache.getMisses());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    private int count(PhaseInterceptorChain chain) {
+        int i = 0;
+        for (Interceptor<?> interceptor : chain) {
+            assertNotNull(interceptor);
+            i++;
+        }
+        return i;
+    }
+
+    private static class TestInterceptor extends AbstractPhaseInterceptor<Message> {
+        TestInterceptor(String phase, String id) {
+            super(id, phase);
+        }
+
+        public void handleMessage(Message message) {
+        }
+    }
+}
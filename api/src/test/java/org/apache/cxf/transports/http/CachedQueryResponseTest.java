@@ -0,0 +1,66 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transports.http;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CachedQueryResponseTest extends Assert {
+
+    @Test
+    public void testWriteTo() throws Exception {
+        byte[] content = "<definitions/>".getBytes("UTF-8");
+        CachedQueryResponse response = new CachedQueryResponse(content, "text/xml", 1000L);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        response.writeTo(bout);
+        response.writeTo(bout);
+        assertEquals("<definitions/><definitions/>", bout.toString("UTF-8"));
+        assertEquals(content.length, response.getContentLength());
+        assertEquals("text/xml", response.getContentType());
+    }
+    
+    @Test
+    public void testETag() throws Exception {
+        CachedQueryResponse r1 = new CachedQueryResponse("a".getBytes(), "text/xml", 1000L);
+        CachedQueryResponse r2 = new CachedQueryResponse("a".getBytes(), "text/xml", 1000L);
+        CachedQueryResponse r3 = new CachedQueryResponse("b".getBytes(), "text/xml", 1000L);
+        assertTrue(r1.getETag().startsWith("\"") && r1.getETag().endsWith("\""));
+        assertEquals(r1.getETag(), r2.getETag());
+        assertFalse(r1.getETag().equals(r3.getETag()));
+        
+        assertTrue(r1.isNotModified(r1.getETag(), -1));
+        assertTrue(r1.isNotModified("\"x\", " + r1.getETag(), -1));
+        assertTrue(r1.isNotModified("*", -1));
+        assertFalse(r1.isNotModified(r3.getETag(), -1));
+        //If-None-Match wins over If-Modified-Since
+        assertFalse(r1.isNotModified(r3.getETag(), 5000L));
+    }
+    
+    @Test
+    public void testIfModifiedSince() throws Exception {
+        CachedQueryResponse response = new CachedQueryResponse("a".getBytes(), "text/xml", 10500L);
+        assertFalse(response.isNotModified(null, -1));
+        assertTrue(response.isNotModified(null, 10000L));
+        assertTrue(response.isNotModified(null, 20000L));
+        assertFalse(response.isNotModified(null, 9000L));
+    }
+}
@@ -20,6 +20,7 @@
 package org.apache.cxf.ws.policy;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -152,4 +153,31 @@ public class AssertionInfoMapTest extends Assert {
         aim.get(aqn).iterator().next().setAsserted(true);
         aim.check();
     }
+    
+    @Test
+    public void testGetAssertedIndices() {
+        QName aqn = new QName("http://x.y.z", "a");
+        QName bqn = new QName("http://x.y.z", "b");
+        List<Assertion> assertions = new ArrayList<Assertion>();
+        assertions.add(new PrimitiveAssertion(aqn));
+        assertions.add(new PrimitiveAssertion(bqn));
+        assertions.add(new PrimitiveAssertion(aqn));
+        AssertionInfoMap aim = new AssertionInfoMap(assertions);
+        assertSame(assertions, aim.getIndexedAssertions());
+        
+        assertTrue(aim.getAssertedIndices(assertions).isEmpty());
+        assertNull(aim.getAssertedIndices(new ArrayList<Assertion>(assertions)));
+        
+        for (AssertionInfo ai : aim.get(aqn)) {
+            if (ai.getAssertion() == assertions.get(2)) {
+                ai.setAsserted(true);
+            }
+        }
+        BitSet asserted = aim.getAssertedIndices(assertions);
+        assertEquals(1, asserted.cardinality());
+        assertTrue(asserted.get(2));
+        
+        aim.get(bqn).add(new AssertionInfo(new PrimitiveAssertion(bqn)));
+        assertNull(aim.getAssertedIndices(assertions));
+    }
 }
@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.performance.attachment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.cxf.attachment.AttachmentDeserializer;
+import org.apache.cxf.message.Attachment;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+
+/**
+ * Measures the throughput of parsing MTOM messages with a single binary 
+ * attachment through the AttachmentDeserializer.  The messages are 
+ * generated on the fly so that attachments larger than the heap can be
+ * used.  Sizes are passed as arguments, e.g. "1K,64K,1M,64M,1G".
+ */
+public final class AttachmentBenchmark {
+    private static final String BOUNDARY = "----=_Part_4_701508.1145579811786";
+    private static final String CONTENT_TYPE = "multipart/related; type=\"application/xop+xml\"; "
+        + "start=\"<soap.xml@cxf.apache.org>\"; start-info=\"text/xml\"; boundary=\"" + BOUNDARY + "\"";
+    private static final long MIN_TOTAL = 256L * 1024 * 1024;
+    private static final int MIN_RUNS = 3;
+    
+    private AttachmentBenchmark() {
+        //utility class
+    }
+    
+    public static void main(String[] args) throws Exception {
+        String sizes = args.length > 0 ? args[0] : "1K,64K,1M,64M,1G";
+        byte[] block = new byte[64 * 1024];
+        new Random(1).nextBytes(block);
+        byte[] buf = new byte[8192];
+        
+        System.out.println("size(bytes)\truns\tMB/s");
+        for (String s : sizes.split(",")) {
+            long size = parseSize(s.trim());
+            int runs = (int)Math.max(MIN_RUNS, MIN_TOTAL / size);
+            
+            //warm up
+            for (int x = 0; x < Math.min(runs, 100); x++) {
+                parse(size, block, buf);
+            }
+            long start = System.nanoTime();
+            for (int x = 0; x < runs; x++) {
+                if (parse(size, block, buf) != size) {
+                    throw new IllegalStateException("Attachment was not read correctly");
+                }
+            }
+            long time = System.nanoTime() - start;
+            double mbs = (double)size * runs / (1024 * 1024) / (time / 1000000000.0);
+            System.out.println(size + "\t" + runs + "\t" + Math.round(mbs * 10) / 10.0);
+        }
+    }
+    
+    private static long parseSize(String s) {
+        long mult = 1;
+        char c = Character.toUpperCase(s.charAt(s.length() - 1));
+        if (c == 'K') {
+            mult = 1024;
+        } else if (c == 'M') {
+            mult = 1024 * 1024;
+        } else if (c == 'G') {
+            mult = 1024 * 1024 * 1024;
+        }
+        if (mult != 1) {
+            s = s.substring(0, s.length() - 1);
+        }
+        return Long.parseLong(s) * mult;
+    }
+    
+    private static long parse(long size, byte[] block, byte[] buf) throws IOException {
+        Message msg = new MessageImpl();
+        Exchange exchange = new ExchangeImpl();
+        msg.setExchange(exchange);
+        msg.put(Message.CONTENT_TYPE, CONTENT_TYPE);
+        msg.setContent(InputStream.class, new MessageInputStream(size, block));
+        
+        AttachmentDeserializer deserializer = new AttachmentDeserializer(msg);
+        deserializer.initializeAttachments();
+        InputStream body = msg.getContent(InputStream.class);
+        while (body.read(buf) != -1) {
+            //discard the root part
+        }
+        
+        long count = 0;
+        for (Attachment a : msg.getAttachments()) {
+            InputStream in = a.getDataHandler().getInputStream();
+            for (int n = in.read(buf); n != -1; n = in.read(buf)) {
+                count += n;
+            }
+            in.close();
+        }
+        return count;
+    }
+    
+    /**
+     * Generates a multipart message with a root part and one attachment of
+     * the given size.
+     */
+    private static class MessageInputStream extends InputStream {
+        private final byte[] head;
+        private final byte[] tail;
+        private final byte[] block;
+        private final long size;
+        private long pos;
+        
+        MessageInputStream(long size, byte[] block) throws IOException {
+            this.size = size;
+            this.block = block;
+            head = ("--" + BOUNDARY + "\r\n"
+                + "Content-Type: application/xop+xml; charset=UTF-8; type=\"text/xml\"\r\n"
+                + "Content-Transfer-Encoding: binary\r\n"
+                + "Content-ID: <soap.xml@cxf.apache.org>\r\n\r\n"
+                + "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">"
+                + "<soap:Body><data><xop:Include xmlns:xop=\"http://www.w3.org/2004/08/xop/include\" "
+                + "href=\"cid:data@cxf.apache.org\"/></data></soap:Body></soap:Envelope>\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + "Content-Transfer-Encoding: binary\r\n"
+                + "Content-ID: <data@cxf.apache.org>\r\n\r\n").getBytes("ISO-8859-1");
+            tail = ("\r\n--" + BOUNDARY + "--\r\n").getBytes("ISO-8859-1");
+        }
+        
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+        
+        public int read(byte[] b, int off, int len) throws IOException {
+            long total = head.length + size + tail.length;
+            if (pos >= total) {
+                return -1;
+            }
+            int n;
+            if (pos < head.length) {
+                n = (int)Math.min(len, head.length - pos);
+                System.arraycopy(head, (int)pos, b, off, n);
+            } else if (pos < head.length + size) {
+                long p = pos - head.length;
+                int blockPos = (int)(p % block.length);
+                n = (int)Math.min(Math.min(len, block.length - blockPos), size - p);
+                System.arraycopy(block, blockPos, b, off, n);
+            } else {
+                int tailPos = (int)(pos - head.length - size);
+                n = Math.min(len, tail.length - tailPos);
+                System.arraycopy(tail, tailPos, b, off, n);
+            }
+            pos += n;
+            return n;
+        }
+    }
+}
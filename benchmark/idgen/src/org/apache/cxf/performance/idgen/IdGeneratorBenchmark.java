@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.performance.idgen;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.cxf.id.IdGenerator;
+import org.apache.cxf.id.IdGeneratorImpl;
+
+/**
+ * Compares the throughput of UUID.randomUUID(), which WS-Addressing message 
+ * IDs and WS-RM sequence identifiers used to be generated with, to the default
+ * IdGenerator as the number of generating threads grows.  Thread counts are
+ * passed as arguments, e.g. "1,2,4,8,16,32,64".
+ */
+public final class IdGeneratorBenchmark {
+    private static final long RUN_MILLIS = 2000;
+    
+    private IdGeneratorBenchmark() {
+        //utility class
+    }
+    
+    public static void main(String[] args) throws Exception {
+        String threads = args.length > 0 ? args[0] : "1,2,4,8,16,32,64";
+        final IdGenerator generator = new IdGeneratorImpl();
+        IdGenerator random = new IdGenerator() {
+            public String generateId() {
+                return UUID.randomUUID().toString();
+            }
+        };
+        
+        //warm up
+        run(random, 4, RUN_MILLIS / 2);
+        run(generator, 4, RUN_MILLIS / 2);
+        
+        System.out.println("threads\trandomUUID ops/s\tIdGenerator ops/s");
+        for (String s : threads.split(",")) {
+            int n = Integer.parseInt(s.trim());
+            long r = run(random, n, RUN_MILLIS);
+            long g = run(generator, n, RUN_MILLIS);
+            System.out.println(n + "\t" + r + "\t" + g);
+        }
+    }
+    
+    private static long run(final IdGenerator generator, int threads, final long millis) 
+        throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        final AtomicLong total = new AtomicLong();
+        final long[] end = new long[1];
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long count = 0;
+                    int hash = 0;
+                    while (System.currentTimeMillis() < end[0]) {
+                        for (int x = 0; x < 1000; x++) {
+                            hash += generator.generateId().hashCode();
+                        }
+                        count += 1000;
+                    }
+                    total.addAndGet(count + (hash == 42 ? 1 : 0));
+                    done.countDown();
+                }
+            };
+            t.start();
+        }
+        end[0] = System.currentTimeMillis() + millis;
+        start.countDown();
+        done.await();
+        return total.get() * 1000 / millis;
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.performance.rmack;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.cxf.ws.rm.MessageNumberSet;
+import org.apache.cxf.ws.rm.ObjectFactory;
+import org.apache.cxf.ws.rm.SequenceAcknowledgement;
+import org.apache.cxf.ws.rm.SequenceAcknowledgement.AcknowledgementRange;
+
+/**
+ * Measures how many message numbers per second a WS-RM destination sequence can record
+ * when messages arrive out of order. Messages 1..n are shuffled within consecutive windows
+ * of the given sizes, and in a second run every 1000th message is lost so that the number
+ * of ranges keeps growing. Three ways of keeping the acknowledgement state are compared: the
+ * JAXB range list that DestinationSequence used to scan, insert into and merge on every
+ * message, a MessageNumberSet alone, and a MessageNumberSet that is materialized into a
+ * SequenceAcknowledgement after every message as if an acknowledgement header were sent
+ * on every response. Arguments are the number of messages and the window sizes, 
+ * e.g. "100000 1,8,64,512".
+ */
+public final class AcknowledgementBenchmark {
+    private static final int ROUNDS = 5;
+    private static final ObjectFactory FACTORY = new ObjectFactory();
+    
+    private AcknowledgementBenchmark() {
+        //utility class
+    }
+    
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        String windows = args.length > 1 ? args[1] : "1,8,64,512";
+        
+        //warm up
+        BigInteger[] warmup = arrivals(messages / 10, 16, false);
+        for (int i = 0; i < ROUNDS; i++) {
+            runRanges(warmup);
+            runSet(warmup, false);
+            runSet(warmup, true);
+        }
+        
+        System.out.println("window\tloss\tranges acks/s\tset acks/s\tset+ack header acks/s");
+        for (String s : windows.split(",")) {
+            int window = Integer.parseInt(s.trim());
+            for (int loss = 0; loss < 2; loss++) {
+                BigInteger[] numbers = arrivals(messages, window, loss == 1);
+                long r = 0;
+                long n = 0;
+                long m = 0;
+                for (int i = 0; i < ROUNDS; i++) {
+                    r = Math.max(r, rate(numbers.length, runRanges(numbers)));
+                    n = Math.max(n, rate(numbers.length, runSet(numbers, false)));
+                    m = Math.max(m, rate(numbers.length, runSet(numbers, true)));
+                }
+                System.out.println(window + "\t" + (loss == 1 ? "0.1%" : "none") 
+                                   + "\t" + r + "\t" + n + "\t" + m);
+            }
+        }
+    }
+    
+    private static long rate(int count, long nanos) {
+        return nanos == 0 ? 0 : count * 1000000000L / nanos;
+    }
+    
+    private static BigInteger[] arrivals(int messages, int window, boolean loss) {
+        Random random = new Random(window);
+        BigInteger[] numbers = new BigInteger[messages];
+        int count = 0;
+        for (int i = 1; i <= messages; i++) {
+            if (!loss || i % 1000 != 0) {
+                numbers[count++] = BigInteger.valueOf(i);
+            }
+        }
+        for (int start = 0; start < count; start += window) {
+            int end = Math.min(start + window, count);
+            for (int i = end - 1; i > start; i--) {
+                int j = start + random.nextInt(i - start + 1);
+                BigInteger tmp = numbers[i];
+                numbers[i] = numbers[j];
+                numbers[j] = tmp;
+            }
+        }
+        BigInteger[] result = new BigInteger[count];
+        System.arraycopy(numbers, 0, result, 0, count);
+        return result;
+    }
+    
+    private static long runSet(BigInteger[] numbers, boolean materialize) {
+        long start = System.nanoTime();
+        MessageNumberSet set = new MessageNumberSet();
+        int ranges = 0;
+        for (BigInteger n : numbers) {
+            set.add(n);
+            if (materialize) {
+                SequenceAcknowledgement ack = FACTORY.createSequenceAcknowledgement();
+                set.writeTo(ack.getAcknowledgementRange());
+                ranges += ack.getAcknowledgementRange().size();
+            }
+        }
+        long time = System.nanoTime() - start;
+        return ranges + set.getRangeCount() == 42 ? time + 1 : time;
+    }
+    
+    /**
+     * The bookkeeping DestinationSequence.acknowledge used to do on the JAXB range list.
+     */
+    private static long runRanges(BigInteger[] numbers) {
+        long start = System.nanoTime();
+        SequenceAcknowledgement ack = FACTORY.createSequenceAcknowledgement();
+        List<AcknowledgementRange> ranges = ack.getAcknowledgementRange();
+        for (BigInteger messageNumber : numbers) {
+            boolean done = false;
+            int i = 0;
+            for (; i < ranges.size(); i++) {
+                AcknowledgementRange r = ranges.get(i);
+                if (r.getLower().compareTo(messageNumber) <= 0 
+                    && r.getUpper().compareTo(messageNumber) >= 0) {
+                    done = true;
+                    break;
+                } else {
+                    BigInteger diff = r.getLower().subtract(messageNumber);
+                    if (diff.signum() == 1) {
+                        if (diff.equals(BigInteger.ONE)) {
+                            r.setLower(messageNumber);
+                            done = true;
+                        }
+                        break;
+                    } else if (messageNumber.subtract(r.getUpper()).equals(BigInteger.ONE)) {
+                        r.setUpper(messageNumber);
+                        done = true;
+                        break;
+                    }
+                }
+            }
+            if (!done) {
+                AcknowledgementRange range = FACTORY.createSequenceAcknowledgementAcknowledgementRange();
+                range.setLower(messageNumber);
+                range.setUpper(messageNumber);
+                ranges.add(i, range);
+            }
+            for (int j = ranges.size() - 1; j > 0; j--) {
+                AcknowledgementRange current = ranges.get(j);
+                AcknowledgementRange previous = ranges.get(j - 1);
+                if (current.getLower().subtract(previous.getUpper()).equals(BigInteger.ONE)) {
+                    previous.setUpper(current.getUpper());
+                    ranges.remove(j);
+                }
+            }
+        }
+        long time = System.nanoTime() - start;
+        return ranges.size() == 42 ? time + 1 : time;
+    }
+}
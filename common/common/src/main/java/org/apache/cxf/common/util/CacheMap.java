@@ -39,7 +39,8 @@ import java.util.WeakHashMap;
  * <b>
  * Note that this implementation is not synchronized. Not even a little. 
  * 'Read-only' operations can trigger internal modifications. If you share this 
- * class between threads, you must protect every operation.
+ * class between threads, you must protect every operation, or use 
+ * {@link ConcurrentCacheMap} instead.
  * </b>
  */
 public class CacheMap<K, V> implements Map<K, V> {
@@ -0,0 +1,590 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.common.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.logging.LogUtils;
+
+/**
+ * A thread safe replacement for {@link CacheMap}. Keys are held through weak (or soft)
+ * references and compared with equals; every key object that an entry has been stored or
+ * successfully looked up with keeps the entry alive, so that the entry survives as long as
+ * any of the equal keys in use is reachable. Entries whose keys have all been collected are
+ * removed on the next access.
+ * 
+ * Lookups go straight to a ConcurrentHashMap and do not lock. If a maximum size is given,
+ * the least recently used entry is evicted whenever a put takes the map beyond it; finding
+ * that entry is a scan, which is fine for the small caches of expensive objects this class
+ * is meant for. An {@link EvictionListener} is told about entries removed either way, and
+ * hit, miss, eviction and collection counts are kept.
+ * 
+ * Null keys and values are not supported.
+ * 
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class ConcurrentCacheMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(ConcurrentCacheMap.class);
+
+    private final ConcurrentHashMap<Key, Entry> map = new ConcurrentHashMap<Key, Entry>();
+    private final ReferenceQueue<K> queue = new ReferenceQueue<K>();
+    private final int maxSize;
+    private final boolean softKeys;
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong collections = new AtomicLong();
+    private volatile EvictionListener<K, V> evictionListener;
+    private Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * Creates an unbounded map with weakly referenced keys.
+     */
+    public ConcurrentCacheMap() {
+        this(0, false);
+    }
+
+    /**
+     * @param maxSize maximum number of entries, 0 for no limit
+     */
+    public ConcurrentCacheMap(int maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * @param maxSize maximum number of entries, 0 for no limit
+     * @param softKeys true to hold keys through soft references, which are only cleared when
+     *        memory runs low, rather than weak ones
+     */
+    public ConcurrentCacheMap(int maxSize, boolean softKeys) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.softKeys = softKeys;
+    }
+
+    /**
+     * Notified of entries that are removed from the map other than by remove or clear.
+     */
+    public interface EvictionListener<K, V> {
+        /**
+         * @param key the key of the entry, or null if it has been garbage collected
+         * @param value the value of the entry
+         */
+        void evicted(K key, V value);
+    }
+
+    public void setEvictionListener(EvictionListener<K, V> listener) {
+        evictionListener = listener;
+    }
+
+    public EvictionListener<K, V> getEvictionListener() {
+        return evictionListener;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public boolean isSoftKeys() {
+        return softKeys;
+    }
+
+    /**
+     * @return number of calls to get that found an entry
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of calls to get that found no entry
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries removed to keep the map within its maximum size
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of entries removed because their keys were garbage collected
+     */
+    public long getCollectedCount() {
+        return collections.get();
+    }
+
+    public V get(Object key) {
+        expungeStaleEntries();
+        Entry e = key == null ? null : map.get(new LookupKey(key));
+        if (e == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        e.touch();
+        e.addKey(key);
+        return e.value;
+    }
+
+    public boolean containsKey(Object key) {
+        expungeStaleEntries();
+        return key != null && map.containsKey(new LookupKey(key));
+    }
+
+    public V put(K key, V value) {
+        return doPut(key, value, false);
+    }
+
+    public V putIfAbsent(K key, V value) {
+        return doPut(key, value, true);
+    }
+
+    public V remove(Object key) {
+        expungeStaleEntries();
+        Entry e = key == null ? null : map.remove(new LookupKey(key));
+        return e == null ? null : e.value;
+    }
+
+    public boolean remove(Object key, Object value) {
+        expungeStaleEntries();
+        Entry e = key == null ? null : map.get(new LookupKey(key));
+        if (e == null) {
+            return false;
+        }
+        synchronized (e) {
+            return e.value.equals(value) && map.remove(e, e);
+        }
+    }
+
+    public V replace(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        expungeStaleEntries();
+        Entry e = key == null ? null : map.get(new LookupKey(key));
+        if (e == null) {
+            return null;
+        }
+        synchronized (e) {
+            V old = e.value;
+            e.value = value;
+            return old;
+        }
+    }
+
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null) {
+            throw new NullPointerException();
+        }
+        expungeStaleEntries();
+        Entry e = key == null ? null : map.get(new LookupKey(key));
+        if (e == null) {
+            return false;
+        }
+        synchronized (e) {
+            if (e.value.equals(oldValue)) {
+                e.value = newValue;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public void clear() {
+        map.clear();
+    }
+
+    public int size() {
+        expungeStaleEntries();
+        return map.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private V doPut(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        expungeStaleEntries();
+        LookupKey lookup = new LookupKey(key);
+        Entry created = null;
+        while (true) {
+            Entry e = map.get(lookup);
+            if (e != null) {
+                V old;
+                synchronized (e) {
+                    old = e.value;
+                    if (!onlyIfAbsent) {
+                        e.value = value;
+                    }
+                }
+                e.touch();
+                e.addKey(key);
+                // the entry may have been expunged before our key was added to it
+                if (map.get(lookup) == e) {
+                    return old;
+                }
+            } else {
+                if (created == null) {
+                    created = new Entry(key, value);
+                }
+                if (map.putIfAbsent(created, created) == null) {
+                    break;
+                }
+            }
+        }
+        if (maxSize > 0 && map.size() > maxSize) {
+            evict();
+        }
+        return null;
+    }
+
+    private void evict() {
+        while (map.size() > maxSize) {
+            Entry eldest = null;
+            for (Entry e : map.values()) {
+                if (eldest == null || e.lastAccess < eldest.lastAccess) {
+                    eldest = e;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            if (map.remove(eldest, eldest)) {
+                evictions.incrementAndGet();
+                fireEvicted(eldest.getKey(), eldest.value);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void expungeStaleEntries() {
+        Reference<? extends K> ref = queue.poll();
+        while (ref != null) {
+            Entry e = (Entry)((KeyReference)ref).getEntry();
+            if (e.removeClearedKeys() && map.remove(e, e)) {
+                collections.incrementAndGet();
+                fireEvicted(null, e.value);
+            }
+            ref = queue.poll();
+        }
+    }
+
+    private void fireEvicted(K key, V value) {
+        EvictionListener<K, V> listener = evictionListener;
+        if (listener != null) {
+            try {
+                listener.evicted(key, value);
+            } catch (RuntimeException ex) {
+                LOG.log(Level.WARNING, "Eviction listener " + listener + " failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Hash key of the backing map. Two keys are equal if the objects they refer to are equal.
+     */
+    abstract static class Key {
+        final int hash;
+
+        Key(int hash) {
+            this.hash = hash;
+        }
+
+        abstract Object getKeyObject();
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key) || ((Key)o).hash != hash) {
+                return false;
+            }
+            Object k = getKeyObject();
+            return k != null && k.equals(((Key)o).getKeyObject());
+        }
+    }
+
+    /**
+     * A strongly held key, only used to look entries up.
+     */
+    static final class LookupKey extends Key {
+        private final Object key;
+
+        LookupKey(Object key) {
+            super(key.hashCode());
+            this.key = key;
+        }
+
+        Object getKeyObject() {
+            return key;
+        }
+    }
+
+    /**
+     * A map entry, which is also its own key in the backing map. It holds a reference to
+     * every key object it has been used with and compares like the first of them that has
+     * not been collected.
+     */
+    private final class Entry extends Key {
+        volatile V value;
+        volatile long lastAccess;
+        private volatile List<Reference<K>> keys;
+
+        Entry(K key, V value) {
+            super(key.hashCode());
+            this.value = value;
+            this.keys = Collections.singletonList(newReference(key));
+            touch();
+        }
+
+        Object getKeyObject() {
+            return getKey();
+        }
+
+        K getKey() {
+            List<Reference<K>> refs = keys;
+            for (int i = 0; i < refs.size(); i++) {
+                K k = refs.get(i).get();
+                if (k != null) {
+                    return k;
+                }
+            }
+            return null;
+        }
+
+        void touch() {
+            if (maxSize > 0) {
+                lastAccess = clock.incrementAndGet();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void addKey(Object key) {
+            List<Reference<K>> refs = keys;
+            for (int i = 0; i < refs.size(); i++) {
+                if (refs.get(i).get() == key) {
+                    return;
+                }
+            }
+            synchronized (this) {
+                List<Reference<K>> updated = new ArrayList<Reference<K>>(keys.size() + 1);
+                for (Reference<K> ref : keys) {
+                    Object k = ref.get();
+                    if (k == key) {
+                        return;
+                    } else if (k != null) {
+                        updated.add(ref);
+                    }
+                }
+                updated.add(newReference((K)key));
+                keys = updated;
+            }
+        }
+
+        /**
+         * @return true if all keys of this entry have been collected
+         */
+        synchronized boolean removeClearedKeys() {
+            List<Reference<K>> updated = new ArrayList<Reference<K>>(keys.size());
+            for (Reference<K> ref : keys) {
+                if (ref.get() != null) {
+                    updated.add(ref);
+                }
+            }
+            keys = updated;
+            return updated.isEmpty();
+        }
+
+        private Reference<K> newReference(K key) {
+            return softKeys ? new SoftKey<K>(key, this, queue) : new WeakKey<K>(key, this, queue);
+        }
+    }
+
+    /**
+     * A reference to a key object that knows the entry it keeps alive.
+     */
+    interface KeyReference {
+        Key getEntry();
+    }
+
+    static final class WeakKey<K> extends WeakReference<K> implements KeyReference {
+        private final Key entry;
+
+        WeakKey(K key, Key entry, ReferenceQueue<K> queue) {
+            super(key, queue);
+            this.entry = entry;
+        }
+
+        public Key getEntry() {
+            return entry;
+        }
+    }
+
+    static final class SoftKey<K> extends SoftReference<K> implements KeyReference {
+        private final Key entry;
+
+        SoftKey(K key, Key entry, ReferenceQueue<K> queue) {
+            super(key, queue);
+            this.entry = entry;
+        }
+
+        public Key getEntry() {
+            return entry;
+        }
+    }
+
+    /**
+     * A view of the live entries. Its iterator is weakly consistent, like that of
+     * ConcurrentHashMap, and returns snapshots of the entries.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        public Iterator<Map.Entry<K, V>> iterator() {
+            expungeStaleEntries();
+            return new EntryIterator();
+        }
+
+        public int size() {
+            return ConcurrentCacheMap.this.size();
+        }
+
+        public void clear() {
+            ConcurrentCacheMap.this.clear();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Iterator<Entry> it = map.values().iterator();
+        private Entry nextEntry;
+        private K nextKey;
+        private Entry lastReturned;
+
+        public boolean hasNext() {
+            while (nextEntry == null && it.hasNext()) {
+                Entry e = it.next();
+                K k = e.getKey();
+                if (k != null) {
+                    nextEntry = e;
+                    nextKey = k;
+                }
+            }
+            return nextEntry != null;
+        }
+
+        public Map.Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> result = new SnapshotEntry(nextKey, nextEntry.value);
+            lastReturned = nextEntry;
+            nextEntry = null;
+            nextKey = null;
+            return result;
+        }
+
+        public void remove() {
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            map.remove(lastReturned, lastReturned);
+            lastReturned = null;
+        }
+    }
+
+    private final class SnapshotEntry implements Map.Entry<K, V> {
+        private final K key;
+        private V value;
+
+        SnapshotEntry(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public V setValue(V v) {
+            V old = value;
+            put(key, v);
+            value = v;
+            return old;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> other = (Map.Entry<?, ?>)o;
+            return key.equals(other.getKey()) && value.equals(other.getValue());
+        }
+
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.common.util;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.common.logging.LogUtils;
+
+/**
+ * A timer for large numbers of short lived timeouts that are usually cancelled before they
+ * fire, such as request timeouts or retransmission intervals.
+ *
+ * Timeouts are hashed into a fixed ring of buckets by their deadline. A single daemon thread
+ * advances one bucket per tick and fires whatever has expired in it, so scheduling and
+ * cancelling are O(1) and do not contend on a shared lock. The price is that a timeout fires
+ * up to one tick late. Expired tasks are run on the executor if one is set, otherwise on
+ * the timer thread itself, in which case they must not block.
+ */
+public class HashedWheelTimer {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(HashedWheelTimer.class);
+
+    private final String name;
+    private final long tickNanos;
+    private final Queue<TimeoutImpl>[] wheel;
+    private final int mask;
+    private final Queue<TimeoutImpl> newTimeouts = new ConcurrentLinkedQueue<TimeoutImpl>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile Executor executor;
+    private volatile boolean stopped;
+    private Thread worker;
+    private long startTime;
+
+    /**
+     * @param name name of the timer thread
+     * @param tickDuration resolution of the timer
+     * @param unit unit of tickDuration
+     * @param ticksPerWheel number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new LinkedList<TimeoutImpl>();
+        }
+        this.mask = size - 1;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Schedule task to run once after the given delay. The timer thread is started on the
+     * first call.
+     *
+     * @return a handle that can be used to cancel the task
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("Timer " + name + " has been stopped");
+        }
+        TimeoutImpl timeout = new TimeoutImpl(task, System.nanoTime() + unit.toNanos(delay));
+        pending.incrementAndGet();
+        newTimeouts.add(timeout);
+        start();
+        return timeout;
+    }
+
+    /**
+     * @return the number of scheduled timeouts that have neither fired nor been cancelled
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Stop the timer thread. Timeouts that have not fired yet are dropped.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private synchronized void start() {
+        if (worker == null && !stopped) {
+            startTime = System.nanoTime();
+            worker = new Thread(new Worker(), name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void expire(final TimeoutImpl timeout) {
+        Executor ex = executor;
+        if (ex != null) {
+            try {
+                ex.execute(timeout);
+                return;
+            } catch (RuntimeException e) {
+                LOG.log(Level.FINE, "Executor rejected timeout task, running it on the timer thread", e);
+            }
+        }
+        timeout.run();
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public interface Timeout {
+        /**
+         * @return true if the task was cancelled by this call, false if it had already
+         *         fired or been cancelled
+         */
+        boolean cancel();
+
+        boolean isCancelled();
+
+        boolean isExpired();
+    }
+
+    private final class TimeoutImpl implements Timeout, Runnable {
+        static final int INIT = 0;
+        static final int CANCELLED = 1;
+        static final int EXPIRED = 2;
+
+        final Runnable task;
+        final long deadline;
+        final AtomicInteger state = new AtomicInteger(INIT);
+        long remainingRounds;
+
+        TimeoutImpl(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public boolean cancel() {
+            if (state.compareAndSet(INIT, CANCELLED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        boolean markExpired() {
+            if (state.compareAndSet(INIT, EXPIRED)) {
+                pending.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        public void run() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOG.log(Level.WARNING, "Timeout task " + task + " failed", t);
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private long tick;
+
+        public void run() {
+            while (!stopped) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                transferNewTimeouts();
+                expireBucket(wheel[(int)(tick & mask)]);
+                tick++;
+            }
+        }
+
+        private boolean waitForNextTick() {
+            long deadline = startTime + tickNanos * (tick + 1);
+            long sleepNanos = deadline - System.nanoTime();
+            while (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return false;
+                    }
+                }
+                sleepNanos = deadline - System.nanoTime();
+            }
+            return true;
+        }
+
+        private void transferNewTimeouts() {
+            TimeoutImpl timeout = newTimeouts.poll();
+            while (timeout != null) {
+                if (!timeout.isCancelled()) {
+                    long ticks = (timeout.deadline - startTime) / tickNanos;
+                    // a deadline already behind us goes into the current bucket
+                    long target = Math.max(ticks, tick);
+                    timeout.remainingRounds = (target - tick) / wheel.length;
+                    wheel[(int)(target & mask)].add(timeout);
+                }
+                timeout = newTimeouts.poll();
+            }
+        }
+
+        private void expireBucket(Queue<TimeoutImpl> bucket) {
+            for (Iterator<TimeoutImpl> it = bucket.iterator(); it.hasNext();) {
+                TimeoutImpl timeout = it.next();
+                if (timeout.isCancelled()) {
+                    it.remove();
+                } else if (timeout.remainingRounds <= 0) {
+                    it.remove();
+                    if (timeout.markExpired()) {
+                        expire(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+        }
+    }
+}
@@ -39,7 +39,7 @@ import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
 import org.apache.cxf.common.logging.LogUtils;
-import org.apache.cxf.common.util.CacheMap;
+import org.apache.cxf.common.util.ConcurrentCacheMap;
 import org.apache.cxf.common.util.PackageUtils;
 import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.staxutils.StaxUtils;
@@ -56,7 +56,8 @@ public abstract class AbstractBeanDefinitionParser
     extends org.springframework.beans.factory.xml.AbstractSingleBeanDefinitionParser {
     public static final String WIRE_BUS_ATTRIBUTE = AbstractBeanDefinitionParser.class.getName() + ".wireBus";
 
-    private static Map<String, JAXBContext> packageContextCache = new CacheMap<String, JAXBContext>(); 
+    private static Map<String, JAXBContext> packageContextCache 
+        = new ConcurrentCacheMap<String, JAXBContext>();
     
     private static final Logger LOG = LogUtils.getL7dLogger(AbstractBeanDefinitionParser.class);
     
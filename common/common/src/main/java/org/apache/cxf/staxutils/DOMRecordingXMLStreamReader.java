@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.staxutils;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Reads a single element from an XMLStreamReader while copying every event that passes through
+ * into DOM, so that the element can be decoded straight from the stream and still be there as DOM
+ * afterwards. The copy is built the same way {@link StaxUtils#readDocElements} builds it.
+ * <p>
+ * Once the end of the element has been read this reader reports END_DOCUMENT and no longer
+ * advances the underlying reader, which is left on the END_ELEMENT.
+ * <p>
+ * Without a parent node nothing is copied, the reader then only keeps the decoding from
+ * running past the end of the element.
+ */
+public class DOMRecordingXMLStreamReader extends DepthXMLStreamReader {
+    private final Element element;
+    private final boolean repairing;
+    private Node current;
+    private int open = 1;
+
+    /**
+     * @param r the reader, positioned on the START_ELEMENT of the element to record
+     * @param parent the node the copy of the element is appended to, or null to not copy it
+     */
+    public DOMRecordingXMLStreamReader(XMLStreamReader r, Node parent, boolean repairing) {
+        super(r);
+        this.repairing = repairing;
+        element = parent == null ? null : StaxUtils.createElement(parent, r, repairing);
+        current = element;
+    }
+
+    /**
+     * Read whatever is left of the element.
+     *
+     * @return the complete copy of the element, or null if it was not copied
+     */
+    public Element finish() throws XMLStreamException {
+        while (open > 0) {
+            next();
+        }
+        return element;
+    }
+
+    @Override
+    public int getEventType() {
+        return open == 0 ? END_DOCUMENT : super.getEventType();
+    }
+
+    @Override
+    public boolean hasNext() throws XMLStreamException {
+        return open > 0;
+    }
+
+    @Override
+    public int next() throws XMLStreamException {
+        if (open == 0) {
+            return END_DOCUMENT;
+        }
+        int event = super.next();
+        if (event == START_ELEMENT) {
+            open++;
+        } else if (event == END_ELEMENT) {
+            open--;
+        }
+        if (element == null) {
+            return event;
+        }
+        Document doc = element.getOwnerDocument();
+        switch (event) {
+        case START_ELEMENT:
+            current = StaxUtils.createElement(current, reader, repairing);
+            break;
+        case END_ELEMENT:
+            current = current.getParentNode();
+            break;
+        case CHARACTERS:
+            current.appendChild(doc.createTextNode(reader.getText()));
+            break;
+        case CDATA:
+            current.appendChild(doc.createCDATASection(reader.getText()));
+            break;
+        case COMMENT:
+            current.appendChild(doc.createComment(reader.getText()));
+            break;
+        case PROCESSING_INSTRUCTION:
+            current.appendChild(doc.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+            break;
+        default:
+            break;
+        }
+        return event;
+    }
+
+    /**
+     * Reads the text through {@link #next()}, the underlying reader would skip the recording.
+     */
+    @Override
+    public String getElementText() throws XMLStreamException {
+        if (getEventType() != START_ELEMENT) {
+            throw new XMLStreamException("Parser must be on START_ELEMENT to read next text",
+                                         getLocation());
+        }
+        StringBuilder buf = new StringBuilder();
+        int event = next();
+        while (event != END_ELEMENT) {
+            if (event == CHARACTERS || event == CDATA || event == SPACE || event == ENTITY_REFERENCE) {
+                buf.append(getText());
+            } else if (event == START_ELEMENT || event == END_DOCUMENT) {
+                throw new XMLStreamException("Element text expected, found " + event, getLocation());
+            }
+            event = next();
+        }
+        return buf.toString();
+    }
+}
@@ -679,6 +679,24 @@ public final class StaxUtils {
      */
     private static Element startElement(Node parent, XMLStreamReader reader, boolean repairing)
         throws XMLStreamException {
+        Element e = createElement(parent, reader, repairing);
+
+        reader.next();
+
+        readDocElements(e, reader, repairing);
+
+        return e;
+    }
+
+    /**
+     * Append a copy of the start tag the reader is positioned on, with its namespace
+     * declarations and attributes, to parent without reading any further.
+     *
+     * @param parent the node to append the element to
+     * @param reader the reader, positioned on a START_ELEMENT
+     * @return the new element
+     */
+    public static Element createElement(Node parent, XMLStreamReader reader, boolean repairing) {
         Document doc = getDocument(parent);
 
         Element e = doc.createElementNS(reader.getNamespaceURI(), reader.getLocalName());
@@ -710,11 +728,6 @@ public final class StaxUtils {
         if (repairing && !isDeclared(e, reader.getNamespaceURI(), reader.getPrefix())) {
             declare(e, reader.getNamespaceURI(), reader.getPrefix());
         }
-
-        reader.next();
-
-        readDocElements(e, reader, repairing);
-
         return e;
     }
 
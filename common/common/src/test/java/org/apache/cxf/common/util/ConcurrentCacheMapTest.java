@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.common.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentCacheMapTest extends Assert {
+
+    @Test
+    public void testPutGetRemove() {
+        ConcurrentCacheMap<String, String> map = new ConcurrentCacheMap<String, String>();
+        String key = new String("a");
+        assertNull(map.put(key, "1"));
+        assertEquals("1", map.get(new String("a")));
+        assertNull(map.get("b"));
+        assertEquals(1, map.getHitCount());
+        assertEquals(1, map.getMissCount());
+        assertTrue(map.containsKey("a"));
+        assertEquals(1, map.size());
+        
+        assertEquals("1", map.put(key, "2"));
+        assertEquals("2", map.putIfAbsent("a", "3"));
+        assertEquals("2", map.get("a"));
+        assertFalse(map.replace("a", "3", "4"));
+        assertTrue(map.replace("a", "2", "4"));
+        assertEquals("4", map.replace("a", "5"));
+        assertFalse(map.remove("a", "4"));
+        assertTrue(map.remove("a", "5"));
+        assertTrue(map.isEmpty());
+        
+        map.put(key, "6");
+        assertEquals("6", map.remove("a"));
+        assertNull(map.remove("a"));
+        assertNull(map.get(null));
+    }
+    
+    @Test
+    public void testEntrySet() {
+        ConcurrentCacheMap<String, Integer> map = new ConcurrentCacheMap<String, Integer>();
+        String[] keys = new String[] {"a", "b", "c"};
+        for (int i = 0; i < keys.length; i++) {
+            map.put(keys[i], i);
+        }
+        int sum = 0;
+        for (Iterator<Map.Entry<String, Integer>> it = map.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Integer> e = it.next();
+            sum += e.getValue();
+            if ("b".equals(e.getKey())) {
+                it.remove();
+            } else if ("c".equals(e.getKey())) {
+                e.setValue(10);
+            }
+        }
+        assertEquals(3, sum);
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey("b"));
+        assertEquals(Integer.valueOf(10), map.get("c"));
+        assertEquals(2, map.keySet().size());
+        assertTrue(map.containsValue(10));
+    }
+    
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        final List<String> evicted = new ArrayList<String>();
+        ConcurrentCacheMap<String, String> map = new ConcurrentCacheMap<String, String>(2);
+        map.setEvictionListener(new ConcurrentCacheMap.EvictionListener<String, String>() {
+            public void evicted(String key, String value) {
+                evicted.add(key + "=" + value);
+            }
+        });
+        String a = "a";
+        String b = "b";
+        String c = "c";
+        map.put(a, "1");
+        map.put(b, "2");
+        map.get(a);
+        map.put(c, "3");
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey(a));
+        assertFalse(map.containsKey(b));
+        assertTrue(map.containsKey(c));
+        assertEquals(1, map.getEvictionCount());
+        assertEquals("[b=2]", evicted.toString());
+    }
+    
+    @Test
+    public void testCollectedKeysAreExpunged() throws Exception {
+        final AtomicInteger collected = new AtomicInteger();
+        ConcurrentCacheMap<Object, String> map = new ConcurrentCacheMap<Object, String>();
+        map.setEvictionListener(new ConcurrentCacheMap.EvictionListener<Object, String>() {
+            public void evicted(Object key, String value) {
+                assertNull(key);
+                collected.incrementAndGet();
+            }
+        });
+        Object kept = new Object();
+        map.put(kept, "kept");
+        map.put(new Object(), "lost");
+        for (int i = 0; i < 50 && map.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, map.size());
+        assertEquals("kept", map.get(kept));
+        assertEquals(1, map.getCollectedCount());
+        assertEquals(1, collected.get());
+    }
+    
+    @Test
+    public void testEqualKeysKeepEntryAlive() throws Exception {
+        ConcurrentCacheMap<List<String>, String> map = new ConcurrentCacheMap<List<String>, String>();
+        List<String> first = new ArrayList<String>();
+        first.add("x");
+        map.put(first, "value");
+        List<String> second = new ArrayList<String>(first);
+        assertEquals("value", map.get(second));
+        
+        first = null;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(1, map.size());
+        assertEquals("value", map.get(second));
+        assertEquals(0, map.getCollectedCount());
+    }
+    
+    @Test
+    public void testConcurrentPutIfAbsent() throws Exception {
+        final ConcurrentCacheMap<Integer, Object> map = new ConcurrentCacheMap<Integer, Object>();
+        final Integer[] keys = new Integer[100];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new Integer(i + 1000);
+        }
+        final Object[][] winners = new Object[4][keys.length];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[winners.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int n = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < keys.length; i++) {
+                        Object value = new Object();
+                        Object existing = map.putIfAbsent(keys[i], value);
+                        winners[n][i] = existing == null ? value : existing;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals(keys.length, map.size());
+        for (int i = 0; i < keys.length; i++) {
+            for (int t = 0; t < winners.length; t++) {
+                assertSame(map.get(keys[i]), winners[t][i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.common.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HashedWheelTimerTest extends Assert {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testTimeoutFires() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        assertTrue("Timeout did not fire", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Timeout fired too early", System.currentTimeMillis() - start >= 50);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.getPendingCount());
+    }
+
+    @Test
+    public void testDelayLongerThanOneRound() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.currentTimeMillis();
+        // 8 buckets of 10ms, so this has to survive two passes of the wheel
+        timer.newTimeout(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 200, TimeUnit.MILLISECONDS);
+        assertTrue("Timeout did not fire", latch.await(5, TimeUnit.SECONDS));
+        assertTrue("Timeout fired too early", System.currentTimeMillis() - start >= 200);
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        final AtomicInteger fired = new AtomicInteger();
+        Runnable task = new Runnable() {
+            public void run() {
+                fired.incrementAndGet();
+            }
+        };
+        HashedWheelTimer.Timeout cancelled = timer.newTimeout(task, 30, TimeUnit.MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 100, TimeUnit.MILLISECONDS);
+        assertEquals(2, timer.getPendingCount());
+        assertTrue(cancelled.cancel());
+        assertTrue(cancelled.isCancelled());
+        assertEquals(1, timer.getPendingCount());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("Cancelled task must not run", 0, fired.get());
+    }
+}
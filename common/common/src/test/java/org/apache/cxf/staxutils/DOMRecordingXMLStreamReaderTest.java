@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.staxutils;
+
+import java.io.StringReader;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import org.apache.cxf.helpers.DOMUtils;
+import org.apache.cxf.helpers.XMLUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DOMRecordingXMLStreamReaderTest extends Assert {
+
+    private static final String XML = 
+        "<root><a:item xmlns:a=\"urn:a\" id=\"1\"><a:name>foo<!-- c --></a:name>"
+        + "<a:rest><x>bar</x></a:rest></a:item><next/></root>";
+
+    @Test
+    public void testRecordsWhatIsReadAndTheRest() throws Exception {
+        XMLStreamReader reader = StaxUtils.createXMLStreamReader(new StringReader(XML));
+        reader.nextTag();
+        reader.nextTag();
+        assertEquals("item", reader.getLocalName());
+
+        Document doc = DOMUtils.createDocument();
+        Element parent = doc.createElement("parent");
+        doc.appendChild(parent);
+        DOMRecordingXMLStreamReader recorder = new DOMRecordingXMLStreamReader(reader, parent, true);
+        assertEquals(XMLStreamReader.START_ELEMENT, recorder.nextTag());
+        assertEquals("foo", recorder.getElementText());
+        Element item = recorder.finish();
+
+        assertSame(item, parent.getFirstChild());
+        assertEquals("urn:a", item.getNamespaceURI());
+        assertEquals("1", item.getAttribute("id"));
+        Element name = DOMUtils.getFirstElement(item);
+        assertEquals("name", name.getLocalName());
+        assertEquals("foo", name.getTextContent());
+        Element rest = DOMUtils.getNextElement(name);
+        assertEquals("bar", rest.getTextContent());
+
+        // the reader is left on the end of the recorded element
+        assertEquals(XMLStreamReader.END_ELEMENT, reader.getEventType());
+        assertEquals("item", reader.getLocalName());
+        assertFalse(recorder.hasNext());
+        assertEquals(XMLStreamReader.END_DOCUMENT, recorder.next());
+        assertEquals(XMLStreamReader.END_DOCUMENT, recorder.getEventType());
+        assertEquals("item", reader.getLocalName());
+        reader.nextTag();
+        assertEquals("next", reader.getLocalName());
+    }
+
+    @Test
+    public void testWithoutParentOnlyReadsTheElement() throws Exception {
+        XMLStreamReader reader = StaxUtils.createXMLStreamReader(new StringReader(XML));
+        reader.nextTag();
+        reader.nextTag();
+
+        DOMRecordingXMLStreamReader recorder = new DOMRecordingXMLStreamReader(reader, null, true);
+        assertEquals(XMLStreamReader.START_ELEMENT, recorder.nextTag());
+        assertEquals("foo", recorder.getElementText());
+        assertNull(recorder.finish());
+
+        assertEquals(XMLStreamReader.END_ELEMENT, reader.getEventType());
+        assertEquals("item", reader.getLocalName());
+        assertFalse(recorder.hasNext());
+        reader.nextTag();
+        assertEquals("next", reader.getLocalName());
+    }
+
+    @Test
+    public void testRecordingMatchesRead() throws Exception {
+        XMLStreamReader reader = StaxUtils.createXMLStreamReader(new StringReader(XML));
+        reader.nextTag();
+        Document doc = DOMUtils.createDocument();
+        new DOMRecordingXMLStreamReader(reader, doc, true).finish();
+
+        Document expected = StaxUtils.read(StaxUtils.createXMLStreamReader(new StringReader(XML)));
+        assertEquals(XMLUtils.toString(expected.getDocumentElement()),
+                     XMLUtils.toString(doc.getDocumentElement()));
+    }
+}
@@ -19,7 +19,6 @@
 package org.apache.cxf.binding.coloc;
 
 import java.util.SortedSet;
-import java.util.TreeSet;
 //import java.util.ResourceBundle;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -28,12 +27,13 @@ import org.apache.cxf.Bus;
 //import org.apache.cxf.common.i18n.BundleUtils;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.interceptor.Fault;
-import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.interceptor.ServiceInvokerInterceptor;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseChainCache;
+import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.apache.cxf.phase.PhaseManager;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.MessageInfo;
@@ -41,7 +41,9 @@ import org.apache.cxf.service.model.MessageInfo;
 public class ColocInInterceptor extends AbstractPhaseInterceptor<Message> {
     
     private static final Logger LOG = LogUtils.getL7dLogger(ColocInInterceptor.class);
-
+    
+    private final ColocUtil.PhaseRange phaseRange = new ColocUtil.PhaseRange(Phase.SETUP, Phase.USER_LOGICAL);
+    private final PhaseChainCache chainCache = new PhaseChainCache();
     
     public ColocInInterceptor() {
         super(Phase.INVOKE);
@@ -55,11 +57,10 @@ public class ColocInInterceptor extends AbstractPhaseInterceptor<Message> {
         }
 
         Bus bus = ex.get(Bus.class);
-        SortedSet<Phase> phases = new TreeSet<Phase>(bus.getExtension(PhaseManager.class).getOutPhases());
+        SortedSet<Phase> phases = phaseRange.getPhases(bus.getExtension(PhaseManager.class).getOutPhases());
 
         //TODO Set Coloc FaultObserver chain
-        ColocUtil.setPhases(phases, Phase.SETUP, Phase.USER_LOGICAL);
-        InterceptorChain chain = ColocUtil.getOutInterceptorChain(ex, phases);
+        PhaseInterceptorChain chain = ColocUtil.getOutInterceptorChain(ex, phases, chainCache);
 
         if (LOG.isLoggable(Level.FINER)) {
             LOG.finer("Processing Message at collocated endpoint.  Response message: " + msg);
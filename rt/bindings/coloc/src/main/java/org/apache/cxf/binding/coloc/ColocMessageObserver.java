@@ -21,7 +21,6 @@ package org.apache.cxf.binding.coloc;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,12 +32,13 @@ import org.apache.cxf.binding.Binding;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.interceptor.Interceptor;
-import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.ExchangeImpl;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseChainCache;
+import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.apache.cxf.phase.PhaseManager;
 import org.apache.cxf.service.Service;
 import org.apache.cxf.service.model.BindingInfo;
@@ -46,11 +46,18 @@ import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.MessageInfo;
 import org.apache.cxf.service.model.OperationInfo;
 import org.apache.cxf.transport.ChainInitiationObserver;
+import org.apache.cxf.transport.MessageObserver;
 
 public class ColocMessageObserver extends ChainInitiationObserver {
     private static final Logger LOG = LogUtils.getL7dLogger(ColocMessageObserver.class);
     private static final String COLOCATED = Message.class.getName() + ".COLOCATED";
     
+    private final ColocUtil.PhaseRange phaseRange 
+        = new ColocUtil.PhaseRange(Phase.USER_LOGICAL, Phase.INVOKE);
+    private final PhaseChainCache colocChainCache = new PhaseChainCache();
+    private volatile List<Interceptor> colocInterceptors;
+    private volatile MessageObserver faultObserver;
+    
     public ColocMessageObserver(Endpoint endpoint, Bus bus) {
         super(endpoint, bus);
     }
@@ -87,10 +94,11 @@ public class ColocMessageObserver extends ChainInitiationObserver {
             }
     
             //Add all interceptors between USER_LOGICAL and INVOKE.
-            SortedSet<Phase> phases = new TreeSet<Phase>(bus.getExtension(PhaseManager.class).getInPhases());
-            ColocUtil.setPhases(phases, Phase.USER_LOGICAL, Phase.INVOKE);
-            InterceptorChain chain = ColocUtil.getInInterceptorChain(ex, phases);
-            chain.add(addColocInterceptors());
+            PhaseManager pm = bus.getExtension(PhaseManager.class);
+            SortedSet<Phase> phases = phaseRange.getPhases(pm.getInPhases());
+            PhaseInterceptorChain chain = ColocUtil.getInInterceptorChain(ex, phases, colocChainCache,
+                                                                          getColocInterceptors());
+            chain.setFaultObserver(getFaultObserver());
             inMsg.setInterceptorChain(chain);
     
             chain.doIntercept(inMsg);
@@ -129,9 +137,32 @@ public class ColocMessageObserver extends ChainInitiationObserver {
         exchange.put(OperationInfo.class, boi.getOperationInfo());
     }
     
+    /**
+     * Returns the interceptors that are added to the inbound chain after those of the
+     * endpoint, service and bus. It is called once, the interceptors are then reused for 
+     * every message.
+     */
     protected List<Interceptor> addColocInterceptors() {
         List<Interceptor> list = new ArrayList<Interceptor>();
         list.add(new ColocInInterceptor());
         return list;
     }
+    
+    private List<Interceptor> getColocInterceptors() {
+        List<Interceptor> list = colocInterceptors;
+        if (list == null) {
+            list = addColocInterceptors();
+            colocInterceptors = list;
+        }
+        return list;
+    }
+    
+    private MessageObserver getFaultObserver() {
+        MessageObserver observer = faultObserver;
+        if (observer == null) {
+            observer = new ColocOutFaultObserver(bus);
+            faultObserver = observer;
+        }
+        return observer;
+    }
 }
@@ -21,7 +21,6 @@ package org.apache.cxf.binding.coloc;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.SortedSet;
-import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,7 +40,8 @@ import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
-//import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.cxf.phase.PhaseChainCache;
+import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.apache.cxf.phase.PhaseManager;
 import org.apache.cxf.service.Service;
 import org.apache.cxf.service.model.BindingOperationInfo;
@@ -55,6 +55,11 @@ public class ColocOutInterceptor extends AbstractPhaseInterceptor<Message> {
     private static final String COLOCATED = Message.class.getName() + ".COLOCATED";
     private MessageObserver colocObserver;
     private Bus bus; 
+    private final ColocUtil.PhaseRange inPhaseRange 
+        = new ColocUtil.PhaseRange(Phase.USER_LOGICAL, Phase.PRE_INVOKE);
+    private final PhaseChainCache inboundChainCache = new PhaseChainCache();
+    private volatile MessageObserver inFaultObserver;
+    private volatile MessageObserver outFaultObserver;
     
     public ColocOutInterceptor() {
         super(Phase.POST_LOGICAL);
@@ -66,6 +71,8 @@ public class ColocOutInterceptor extends AbstractPhaseInterceptor<Message> {
 
     public void setBus(Bus bus) {
         this.bus = bus; 
+        inFaultObserver = null;
+        outFaultObserver = null;
     }
     
     public void handleMessage(Message message) throws Fault {
@@ -153,16 +160,26 @@ public class ColocOutInterceptor extends AbstractPhaseInterceptor<Message> {
         Exception exc = inMsg.getContent(Exception.class);
         if (exc != null) {
             ex.setInFaultMessage(inMsg);
-            ColocInFaultObserver observer = new ColocInFaultObserver(bus);
+            MessageObserver observer = inFaultObserver;
+            if (observer == null) {
+                observer = new ColocInFaultObserver(bus);
+                inFaultObserver = observer;
+            }
             observer.onMessage(inMsg);            
         } else {
             //Handle Response
             ex.setInMessage(inMsg);
             PhaseManager pm = bus.getExtension(PhaseManager.class);
-            SortedSet<Phase> phases = new TreeSet<Phase>(pm.getInPhases());
-            ColocUtil.setPhases(phases, Phase.USER_LOGICAL, Phase.PRE_INVOKE);
+            SortedSet<Phase> phases = inPhaseRange.getPhases(pm.getInPhases());
             
-            InterceptorChain chain = ColocUtil.getInInterceptorChain(ex, phases);        
+            PhaseInterceptorChain chain 
+                = ColocUtil.getInInterceptorChain(ex, phases, inboundChainCache, null);
+            MessageObserver observer = outFaultObserver;
+            if (observer == null) {
+                observer = new ColocOutFaultObserver(bus);
+                outFaultObserver = observer;
+            }
+            chain.setFaultObserver(observer);
             inMsg.setInterceptorChain(chain);        
             chain.doIntercept(inMsg);
         }
@@ -19,9 +19,11 @@
 package org.apache.cxf.binding.coloc;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,6 +34,7 @@ import org.apache.cxf.interceptor.Interceptor;
 import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseChainCache;
 import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.apache.cxf.service.model.FaultInfo;
 import org.apache.cxf.service.model.MessageInfo;
@@ -112,6 +115,56 @@ public final class ColocUtil {
         return chain;
     }    
     
+    /**
+     * Like {@link #getOutInterceptorChain(Exchange, SortedSet)}, but the chain is taken from 
+     * cache, so that it is only built again when one of the interceptor lists has changed.
+     * 
+     * @param phases the phases of the chain, which should be the same set instance on every 
+     *        call, e.g. one obtained from a {@link PhaseRange}
+     */
+    public static PhaseInterceptorChain getOutInterceptorChain(Exchange ex, SortedSet<Phase> phases,
+                                                               PhaseChainCache cache) {
+        Bus bus = ex.get(Bus.class);
+        Endpoint ep = ex.get(Endpoint.class);
+        List<Interceptor> il1 = ep.getOutInterceptors();
+        List<Interceptor> il2 = ep.getService().getOutInterceptors();
+        List<Interceptor> il3 = bus.getOutInterceptors();
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Interceptors contributed by endpoint: " + il1);
+            LOG.fine("Interceptors contributed by service: " + il2);
+            LOG.fine("Interceptors contributed by bus: " + il3);
+        }
+        return cache.get(phases, il1, il2, il3);
+    }
+
+    /**
+     * Like {@link #getInInterceptorChain(Exchange, SortedSet)}, but the chain is taken from 
+     * cache, so that it is only built again when one of the interceptor lists has changed. 
+     * No fault observer is set on the chain.
+     * 
+     * @param phases the phases of the chain, which should be the same set instance on every 
+     *        call, e.g. one obtained from a {@link PhaseRange}
+     * @param extra interceptors to add after those of the endpoint, service and bus, may be null
+     */
+    public static PhaseInterceptorChain getInInterceptorChain(Exchange ex, SortedSet<Phase> phases,
+                                                              PhaseChainCache cache,
+                                                              List<Interceptor> extra) {
+        Bus bus = ex.get(Bus.class);
+        Endpoint ep = ex.get(Endpoint.class);
+        List<Interceptor> il1 = ep.getInInterceptors();
+        List<Interceptor> il2 = ep.getService().getInInterceptors();
+        List<Interceptor> il3 = bus.getInInterceptors();
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Interceptors contributed by endpoint: " + il1);
+            LOG.fine("Interceptors contributed by service: " + il2);
+            LOG.fine("Interceptors contributed by bus: " + il3);
+        }
+        if (extra == null) {
+            return cache.get(phases, il1, il2, il3);
+        }
+        return cache.get(phases, il1, il2, il3, extra);
+    }
+    
     public static boolean isSameOperationInfo(OperationInfo oi1, OperationInfo oi2) {
         return  oi1.getName().equals(oi2.getName())
                 && isSameMessageInfo(oi1.getInput(), oi2.getInput())
@@ -177,4 +230,46 @@ public final class ColocUtil {
         }
         return true;
     }
+
+    /**
+     * The phases from start to end of a phase list, as set up by 
+     * {@link ColocUtil#setPhases(SortedSet, String, String)}. The trimmed set is computed on 
+     * the first call and handed out again for as long as the same phase list is passed in, 
+     * so that collocated calls neither copy the phase list nor defeat a PhaseChainCache.
+     */
+    public static final class PhaseRange {
+        private final String start;
+        private final String end;
+        private volatile PhaseRangeSnapshot snapshot;
+
+        public PhaseRange(String start, String end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @param source the full phase list, usually from the PhaseManager of the bus
+         * @return an unmodifiable set of the phases from start to end
+         */
+        public SortedSet<Phase> getPhases(SortedSet<Phase> source) {
+            PhaseRangeSnapshot s = snapshot;
+            if (s == null || s.source != source) {
+                SortedSet<Phase> phases = new TreeSet<Phase>(source);
+                setPhases(phases, start, end);
+                s = new PhaseRangeSnapshot(source, Collections.unmodifiableSortedSet(phases));
+                snapshot = s;
+            }
+            return s.phases;
+        }
+    }
+
+    private static final class PhaseRangeSnapshot {
+        final SortedSet<Phase> source;
+        final SortedSet<Phase> phases;
+
+        PhaseRangeSnapshot(SortedSet<Phase> source, SortedSet<Phase> phases) {
+            this.source = source;
+            this.phases = phases;
+        }
+    }
 }
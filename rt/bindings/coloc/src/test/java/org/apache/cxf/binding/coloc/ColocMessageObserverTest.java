@@ -151,6 +151,39 @@ public class ColocMessageObserverTest extends Assert {
         assertNotNull("Exchange should be set", ex1);
     }
     
+    @Test
+    public void testObserverReusesChain() throws Exception {
+        observer = new TestColocMessageObserver(ep, bus);
+        
+        Binding binding = control.createMock(Binding.class);
+        EasyMock.expect(ep.getBinding()).andReturn(binding).anyTimes();
+        Message in1 = new MessageImpl();
+        Message in2 = new MessageImpl();
+        EasyMock.expect(binding.createMessage()).andReturn(in1);
+        EasyMock.expect(binding.createMessage()).andReturn(in2);
+        EasyMock.expect(ep.getService()).andReturn(srv).anyTimes();
+        EasyMock.expect(bus.getExtension(PhaseManager.class)).andReturn(new PhaseManagerImpl()).anyTimes();
+        List<Interceptor> il = new ArrayList<Interceptor>();
+        EasyMock.expect(bus.getInInterceptors()).andReturn(il).anyTimes();
+        EasyMock.expect(ep.getInInterceptors()).andReturn(il).anyTimes();
+        EasyMock.expect(srv.getInInterceptors()).andReturn(il).anyTimes();
+        
+        control.replay();
+        msg.setExchange(ex);
+        observer.onMessage(msg);
+        Message msg2 = new MessageImpl();
+        msg2.setExchange(new ExchangeImpl());
+        observer.onMessage(msg2);
+        control.verify();
+        
+        assertNotNull(in1.getInterceptorChain());
+        assertNotSame("Each message should get its own chain",
+                      in1.getInterceptorChain(), in2.getInterceptorChain());
+        assertSame("The fault observer should be reused",
+                   in1.getInterceptorChain().getFaultObserver(), 
+                   in2.getInterceptorChain().getFaultObserver());
+    }
+    
     class TestColocMessageObserver extends ColocMessageObserver {
         public TestColocMessageObserver(Endpoint endpoint, Bus bus) {
             super(endpoint, bus);
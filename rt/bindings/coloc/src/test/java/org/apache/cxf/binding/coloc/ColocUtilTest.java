@@ -34,6 +34,8 @@ import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.ExchangeImpl;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseChainCache;
+import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.apache.cxf.phase.PhaseManager;
 import org.apache.cxf.phase.PhaseManagerImpl;
 import org.apache.cxf.service.Service;
@@ -104,6 +106,28 @@ public class ColocUtilTest extends Assert {
 
     }
     
+    @Test
+    public void testPhaseRange() throws Exception {
+        PhaseManagerImpl phaseMgr = new PhaseManagerImpl();
+        ColocUtil.PhaseRange range = new ColocUtil.PhaseRange(Phase.USER_LOGICAL, Phase.INVOKE);
+        SortedSet<Phase> list = range.getPhases(phaseMgr.getInPhases());
+        
+        assertEquals("Expecting Phase.USER_LOGICAL",
+                     Phase.USER_LOGICAL,
+                     list.first().getName());
+        assertEquals("Expecting Phase.INVOKE",
+                     Phase.INVOKE,
+                     list.last().getName());
+        assertTrue("The phase list of the PhaseManager should not be trimmed",
+                   phaseMgr.getInPhases().size() > list.size());
+        assertSame("Expecting the same phases for the same phase list",
+                   list, range.getPhases(phaseMgr.getInPhases()));
+        
+        SortedSet<Phase> other = range.getPhases(new PhaseManagerImpl().getInPhases());
+        assertNotSame("Expecting new phases for a new phase list", list, other);
+        assertEquals(list, other);
+    }
+
     @Test
     public void testGetOutInterceptorChain() throws Exception {
         PhaseManagerImpl phaseMgr = new PhaseManagerImpl();
@@ -164,6 +188,38 @@ public class ColocUtilTest extends Assert {
         assertNotNull("OutFaultObserver should be set", chain.getFaultObserver());
     }
     
+    @Test
+    public void testGetCachedInInterceptorChain() throws Exception {
+        SortedSet<Phase> list = new ColocUtil.PhaseRange(Phase.USER_LOGICAL, Phase.INVOKE)
+            .getPhases(new PhaseManagerImpl().getInPhases());
+        
+        Endpoint ep = control.createMock(Endpoint.class);
+        Service srv = control.createMock(Service.class);
+        Exchange ex = new ExchangeImpl();
+        ex.put(Bus.class, bus);
+        ex.put(Endpoint.class, ep);
+        
+        List<Interceptor> il = new ArrayList<Interceptor>();
+        EasyMock.expect(ep.getInInterceptors()).andReturn(il).atLeastOnce();
+        EasyMock.expect(ep.getService()).andReturn(srv).atLeastOnce();
+        EasyMock.expect(srv.getInInterceptors()).andReturn(il).atLeastOnce();
+        EasyMock.expect(bus.getInInterceptors()).andReturn(il).atLeastOnce();
+        
+        control.replay();
+        PhaseChainCache cache = new PhaseChainCache();
+        List<Interceptor> extra = new ArrayList<Interceptor>();
+        extra.add(new ColocInInterceptor());
+        PhaseInterceptorChain chain1 = ColocUtil.getInInterceptorChain(ex, list, cache, extra);
+        PhaseInterceptorChain chain2 = ColocUtil.getInInterceptorChain(ex, list, cache, extra);
+        control.verify();
+        
+        assertNotSame("Each call should get its own chain", chain1, chain2);
+        assertEquals("The chain should only have been built once", 1, cache.getMisses());
+        Iterator<Interceptor<? extends Message>> iter = chain2.iterator();
+        assertSame(extra.get(0), iter.next());
+        assertFalse(iter.hasNext());
+    }
+
     @Test
     public void testIsSameFaultInfo() {
         OperationInfo oi = control.createMock(OperationInfo.class);
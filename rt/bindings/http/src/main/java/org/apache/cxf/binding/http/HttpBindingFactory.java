@@ -116,6 +116,7 @@ public class HttpBindingFactory extends AbstractBindingFactory {
                 }
             }
         }
+        mapper.compile();
         
         return info;
     }
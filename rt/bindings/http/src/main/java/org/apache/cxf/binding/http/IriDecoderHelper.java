@@ -372,7 +372,13 @@ public final class IriDecoderHelper {
     }
 
     public static List<Param> decode(String uri, String loc, InputStream is) {
-        List<Param> params = IriDecoderHelper.decodeIri(uri, loc);
+        return decode(IriDecoderHelper.decodeIri(uri, loc), is);
+    }
+
+    /**
+     * Adds the form parameters in the body to the parameters taken from the path.
+     */
+    public static List<Param> decode(List<Param> params, InputStream is) {
         if (is != null) {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             try {
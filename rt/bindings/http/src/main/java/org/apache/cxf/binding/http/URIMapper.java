@@ -31,13 +31,29 @@ import org.apache.cxf.service.model.OperationInfo;
 import org.codehaus.jra.ResourceUtil;
 
 public class URIMapper {
+    
+    /**
+     * Message key under which getOperation leaves the List of IriDecoderHelper.Param 
+     * values it extracted from the request path, if the compiled templates matched it.
+     */
+    public static final String PATH_PARAMETERS = URIMapper.class.getName() + ".PATH_PARAMETERS";
+    
     private List<ResourceInfo> resources = new ArrayList<ResourceInfo>();
+    private volatile URITemplateRouter router;
     private Map<OperationInfo, String> locations = 
         new HashMap<OperationInfo, String>();
     private Map<OperationInfo, String> verbs = 
         new HashMap<OperationInfo, String>();
     
     public BindingOperationInfo getOperation(String uri, String verb, Message m) {
+        URITemplateRouter.Match match = getRouter().match(uri, verb);
+        if (match != null) {
+            if (m != null) {
+                m.put(PATH_PARAMETERS, match.getParameters());
+            }
+            return match.getOperation();
+        }
+        
         List<ResourceInfo> bestMatch = new ArrayList<ResourceInfo>();
         int bestScore = 0;
         for (ResourceInfo r : resources) {
@@ -91,6 +107,24 @@ public class URIMapper {
             verbs.put(bop.getUnwrappedOperation().getOperationInfo(), verb);
         }
         resources.add(info);
+        router = null;
+    }
+    
+    /**
+     * Compiles the bound URI templates. This happens by itself on the first request after
+     * a bind, HttpBindingFactory calls it once all operations are bound.
+     */
+    public void compile() {
+        getRouter();
+    }
+    
+    private URITemplateRouter getRouter() {
+        URITemplateRouter r = router;
+        if (r == null) {
+            r = new URITemplateRouter(resources);
+            router = r;
+        }
+        return r;
     }
     
     public String getLocation(BindingOperationInfo bop) {
@@ -0,0 +1,290 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.binding.http;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.cxf.binding.http.IriDecoderHelper.Param;
+import org.apache.cxf.binding.http.URIMapper.ResourceInfo;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+/**
+ * The URI templates bound in a URIMapper, compiled into one segment trie per HTTP verb.
+ * A request path is matched by walking its segments down the trie, trying literal segments
+ * before template segments, which yields the operation and its path parameters in one pass.
+ * <p>
+ * Only templates whose parameters each sit within one path segment are compiled. If a verb
+ * has a template that isn't, such as one with escaped braces or two adjacent parameters, that
+ * verb is left to the scoring match in URIMapper, and so is any path the trie doesn't match.
+ */
+final class URITemplateRouter {
+    
+    private final Map<String, Node> roots = new HashMap<String, Node>();
+    
+    URITemplateRouter(List<ResourceInfo> resources) {
+        Set<String> uncompilable = new HashSet<String>();
+        for (ResourceInfo r : resources) {
+            if (uncompilable.contains(r.getVerb())) {
+                continue;
+            }
+            if (!add(r)) {
+                uncompilable.add(r.getVerb());
+                roots.remove(r.getVerb());
+            }
+        }
+        for (Node root : roots.values()) {
+            root.sort();
+        }
+    }
+    
+    /**
+     * @param uri the request path relative to the endpoint address
+     * @param verb the HTTP method
+     * @return the matching operation and its path parameters, or null if the trie has no match
+     */
+    Match match(String uri, String verb) {
+        Node root = roots.get(verb);
+        if (root == null) {
+            return null;
+        }
+        List<String> segments = split(uri);
+        List<Param> params = new ArrayList<Param>(4);
+        ResourceInfo r = root.match(segments, 0, params);
+        return r == null ? null : new Match(r.getOperation(), params);
+    }
+    
+    private boolean add(ResourceInfo r) {
+        Node root = roots.get(r.getVerb());
+        if (root == null) {
+            root = new Node();
+            roots.put(r.getVerb(), root);
+        }
+        Node node = root;
+        for (String segment : split(r.getUri())) {
+            if (segment.indexOf('{') == -1 && segment.indexOf('}') == -1) {
+                Node child = node.literals.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.literals.put(segment, child);
+                }
+                node = child;
+            } else {
+                SegmentTemplate template = SegmentTemplate.compile(segment);
+                if (template == null) {
+                    return false;
+                }
+                node = node.getTemplateChild(template);
+            }
+        }
+        if (node.resource == null) {
+            // as with the scoring match, the first of two identical bindings wins
+            node.resource = r;
+        }
+        return true;
+    }
+    
+    private static List<String> split(String path) {
+        List<String> segments = new ArrayList<String>();
+        int start = path.startsWith("/") ? 1 : 0;
+        if (start == path.length()) {
+            return segments;
+        }
+        int idx = path.indexOf('/', start);
+        while (idx != -1) {
+            segments.add(path.substring(start, idx));
+            start = idx + 1;
+            idx = path.indexOf('/', start);
+        }
+        segments.add(path.substring(start));
+        return segments;
+    }
+    
+    static final class Match {
+        private final BindingOperationInfo operation;
+        private final List<Param> parameters;
+        
+        Match(BindingOperationInfo operation, List<Param> parameters) {
+            this.operation = operation;
+            this.parameters = parameters;
+        }
+        
+        BindingOperationInfo getOperation() {
+            return operation;
+        }
+        
+        List<Param> getParameters() {
+            return parameters;
+        }
+    }
+    
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<String, Node>();
+        final List<SegmentTemplate> templates = new ArrayList<SegmentTemplate>(1);
+        ResourceInfo resource;
+        
+        Node getTemplateChild(SegmentTemplate template) {
+            for (SegmentTemplate t : templates) {
+                if (t.sameAs(template)) {
+                    return t.child;
+                }
+            }
+            templates.add(template);
+            return template.child;
+        }
+        
+        /**
+         * Orders the templates so that the one with the most literal text is tried first.
+         */
+        void sort() {
+            Collections.sort(templates, new Comparator<SegmentTemplate>() {
+                public int compare(SegmentTemplate t1, SegmentTemplate t2) {
+                    return t2.literalLength - t1.literalLength;
+                }
+            });
+            for (Node child : literals.values()) {
+                child.sort();
+            }
+            for (SegmentTemplate t : templates) {
+                t.child.sort();
+            }
+        }
+        
+        ResourceInfo match(List<String> segments, int idx, List<Param> params) {
+            if (idx == segments.size()) {
+                return resource;
+            }
+            String segment = segments.get(idx);
+            Node child = literals.get(segment);
+            if (child != null) {
+                ResourceInfo r = child.match(segments, idx + 1, params);
+                if (r != null) {
+                    return r;
+                }
+            }
+            for (SegmentTemplate t : templates) {
+                int mark = params.size();
+                if (t.match(segment, params)) {
+                    ResourceInfo r = t.child.match(segments, idx + 1, params);
+                    if (r != null) {
+                        return r;
+                    }
+                }
+                while (params.size() > mark) {
+                    params.remove(params.size() - 1);
+                }
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * One path segment of a URI template holding at least one parameter, such as "{id}" or
+     * "{id}.xml", held as the literal pieces around its parameter names, and the trie node
+     * it leads to.
+     */
+    private static final class SegmentTemplate {
+        final String[] literals;
+        final String[] names;
+        final int literalLength;
+        final Node child = new Node();
+        
+        private SegmentTemplate(List<String> literals, List<String> names) {
+            this.literals = literals.toArray(new String[literals.size()]);
+            this.names = names.toArray(new String[names.size()]);
+            int length = 0;
+            for (String literal : literals) {
+                length += literal.length();
+            }
+            this.literalLength = length;
+        }
+        
+        /**
+         * @return the compiled segment, or null if it can't be matched without backtracking
+         */
+        static SegmentTemplate compile(String segment) {
+            List<String> literals = new ArrayList<String>();
+            List<String> names = new ArrayList<String>();
+            int pos = 0;
+            int open = segment.indexOf('{');
+            while (open != -1) {
+                int close = segment.indexOf('}', open);
+                if (close == -1 || segment.startsWith("{{", open)) {
+                    return null;
+                }
+                String literal = segment.substring(pos, open);
+                if (literal.indexOf('}') != -1 || !names.isEmpty() && literal.length() == 0) {
+                    // a stray brace or two parameters in a row
+                    return null;
+                }
+                literals.add(literal);
+                names.add(segment.substring(open + 1, close));
+                pos = close + 1;
+                open = segment.indexOf('{', pos);
+            }
+            String tail = segment.substring(pos);
+            if (tail.indexOf('}') != -1) {
+                return null;
+            }
+            literals.add(tail);
+            return new SegmentTemplate(literals, names);
+        }
+        
+        boolean match(String segment, List<Param> params) {
+            if (!segment.startsWith(literals[0])) {
+                return false;
+            }
+            int pos = literals[0].length();
+            int last = names.length - 1;
+            for (int i = 0; i <= last; i++) {
+                String next = literals[i + 1];
+                int end;
+                if (i == last) {
+                    end = segment.length() - next.length();
+                    if (end < pos || !segment.endsWith(next)) {
+                        return false;
+                    }
+                } else {
+                    end = segment.indexOf(next, pos);
+                    if (end == -1) {
+                        return false;
+                    }
+                }
+                if (end == pos) {
+                    // no empty parameter values
+                    return false;
+                }
+                params.add(new Param(names[i], segment.substring(pos, end)));
+                pos = end + next.length();
+            }
+            return true;
+        }
+        
+        boolean sameAs(SegmentTemplate t) {
+            return Arrays.equals(literals, t.literals) && Arrays.equals(names, t.names);
+        }
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.cxf.binding.http.interceptor;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -36,6 +37,7 @@ import org.apache.cxf.binding.http.IriDecoderHelper.Param;
 import org.apache.cxf.binding.http.URIMapper;
 import org.apache.cxf.binding.xml.interceptor.XMLMessageInInterceptor;
 import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.interceptor.DocLiteralInInterceptor;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.interceptor.StaxInInterceptor;
@@ -87,15 +89,19 @@ public class URIParameterInInterceptor extends AbstractPhaseInterceptor<Message>
 
         MessagePartInfo part = parts.get(0);
 
+        // the path parameters are already there if DispatchInterceptor's lookup matched a
+        // compiled template
+        List<Param> pathParams = CastUtils.cast((List<?>)message.get(URIMapper.PATH_PARAMETERS));
         List<Param> params = null;
         if ("application/x-www-form-urlencoded".equals(contentType)) {
-            params = IriDecoderHelper.decode(path, location, message.getContent(InputStream.class));
-        } else if ("application/xml".equals(contentType)) {
-            params = IriDecoderHelper.decodeIri(path, location);
-        } else if ("text/xml".equals(contentType)) {
-            params = IriDecoderHelper.decodeIri(path, location);
+            params = pathParams == null
+                ? IriDecoderHelper.decode(path, location, message.getContent(InputStream.class))
+                : IriDecoderHelper.decode(new ArrayList<Param>(pathParams), 
+                                          message.getContent(InputStream.class));
         } else if ("multipart/form-data".equals(contentType)) {
             // TODO
+        } else if (pathParams != null) {
+            params = pathParams;
         } else {
             params = IriDecoderHelper.decodeIri(path, location);
         }
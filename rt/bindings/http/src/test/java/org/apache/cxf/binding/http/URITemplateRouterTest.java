@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.binding.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.cxf.binding.http.IriDecoderHelper.Param;
+import org.apache.cxf.binding.http.URIMapper.ResourceInfo;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.easymock.classextension.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class URITemplateRouterTest extends Assert {
+    
+    private List<ResourceInfo> resources = new ArrayList<ResourceInfo>();
+    
+    @Test
+    public void testLiteralsBeforeTemplates() {
+        BindingOperationInfo getCustomers = bind("/customers", "GET");
+        BindingOperationInfo addCustomer = bind("/customers", "POST");
+        BindingOperationInfo getCustomer = bind("/customers/{id}", "GET");
+        BindingOperationInfo getDetails = bind("/customers/details/{id}", "GET");
+        BindingOperationInfo getAll = bind("/customers/all", "GET");
+        URITemplateRouter router = new URITemplateRouter(resources);
+        
+        assertSame(getCustomers, router.match("/customers", "GET").getOperation());
+        assertSame(addCustomer, router.match("/customers", "POST").getOperation());
+        assertSame(getAll, router.match("/customers/all", "GET").getOperation());
+        
+        URITemplateRouter.Match match = router.match("/customers/123", "GET");
+        assertSame(getCustomer, match.getOperation());
+        assertEquals(1, match.getParameters().size());
+        assertEquals(new Param("id", "123"), match.getParameters().get(0));
+        
+        // "details" is tried as a literal first, then as the value of {id}
+        match = router.match("/customers/details/7", "GET");
+        assertSame(getDetails, match.getOperation());
+        assertEquals(new Param("id", "7"), match.getParameters().get(0));
+        match = router.match("/customers/details", "GET");
+        assertSame(getCustomer, match.getOperation());
+        assertEquals(new Param("id", "details"), match.getParameters().get(0));
+        
+        assertNull(router.match("/customers/1/2", "GET"));
+        assertNull(router.match("/orders", "GET"));
+        assertNull(router.match("/customers", "DELETE"));
+    }
+    
+    @Test
+    public void testMixedSegments() {
+        BindingOperationInfo xml = bind("/test/{id}.xml", "GET");
+        BindingOperationInfo any = bind("/test/{name}", "GET");
+        BindingOperationInfo login = bind("/login/{username}/{password}", "GET");
+        URITemplateRouter router = new URITemplateRouter(resources);
+        
+        URITemplateRouter.Match match = router.match("/test/123.xml", "GET");
+        assertSame(xml, match.getOperation());
+        assertEquals(new Param("id", "123"), match.getParameters().get(0));
+        match = router.match("/test/123.json", "GET");
+        assertSame(any, match.getOperation());
+        assertEquals(new Param("name", "123.json"), match.getParameters().get(0));
+        
+        match = router.match("/login/dan/secret", "GET");
+        assertSame(login, match.getOperation());
+        assertEquals(2, match.getParameters().size());
+        assertEquals(new Param("username", "dan"), match.getParameters().get(0));
+        assertEquals(new Param("password", "secret"), match.getParameters().get(1));
+    }
+    
+    @Test
+    public void testUncompilableTemplateLeavesVerbToScoring() {
+        bind("/customers", "GET");
+        bind("/files/{{raw}}", "GET");
+        BindingOperationInfo put = bind("/customers/{id}", "PUT");
+        URITemplateRouter router = new URITemplateRouter(resources);
+        
+        assertNull(router.match("/customers", "GET"));
+        assertSame(put, router.match("/customers/1", "PUT").getOperation());
+    }
+    
+    private BindingOperationInfo bind(String uri, String verb) {
+        BindingOperationInfo bop = EasyMock.createMock(BindingOperationInfo.class);
+        ResourceInfo info = new ResourceInfo();
+        info.setUri(uri);
+        info.setVerb(verb);
+        info.setOperation(bop);
+        resources.add(info);
+        return bop;
+    }
+}
@@ -20,7 +20,11 @@
 package org.apache.cxf.binding.soap.interceptor;
 
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import javax.xml.namespace.QName;
@@ -42,20 +46,34 @@ import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.SoapVersion;
 import org.apache.cxf.binding.soap.SoapVersionFactory;
+import org.apache.cxf.binding.soap.saaj.SAAJInInterceptor;
 import org.apache.cxf.common.i18n.Message;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.databinding.DataBinding;
+import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.headers.HeaderManager;
 import org.apache.cxf.headers.HeaderProcessor;
 import org.apache.cxf.helpers.DOMUtils;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.phase.PhaseInterceptor;
+import org.apache.cxf.staxutils.DOMRecordingXMLStreamReader;
 import org.apache.cxf.staxutils.PartialXMLStreamReader;
 import org.apache.cxf.staxutils.StaxUtils;
 
 
 public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
+    /**
+     * The message property listing the decoded headers that were not copied into the
+     * envelope document, SAAJInInterceptor writes them into the SOAPMessage it builds.
+     */
+    public static final String UNRECORDED_HEADERS = ReadHeadersInterceptor.class.getName()
+        + ".UNRECORDED_HEADERS";
+
     private static final Logger LOG = LogUtils.getL7dLogger(ReadHeadersInterceptor.class);
+    private static final String HEADER_DECODERS = ReadHeadersInterceptor.class.getName() + ".HEADER_DECODERS";
 
     private Bus bus;
     public ReadHeadersInterceptor(Bus b) {
@@ -100,75 +118,51 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
                 XMLStreamReader filteredReader = new PartialXMLStreamReader(xmlReader, message.getVersion()
                     .getBody());
 
-                Document doc = StaxUtils.read(filteredReader);
+                HeaderDecoders decoders = getHeaderDecoders(message);
+                List<Object> decoded = null;
+                Document doc;
+                if (decoders == null) {
+                    doc = StaxUtils.read(filteredReader);
+                } else {
+                    decoded = new ArrayList<Object>();
+                    doc = readEnvelope(filteredReader, soapVersion, decoders, decoded);
+                }
 
                 message.setContent(Node.class, doc);
 
-                // Find header
-                // TODO - we could stream read the "known" headers and just DOM read the 
-                // unknown ones
-                Element element = doc.getDocumentElement();
-                QName header = soapVersion.getHeader();                
-                List<Element> elemList = 
-                    DOMUtils.findAllElementsByTagNameNS(element, 
-                                                        header.getNamespaceURI(), 
-                                                        header.getLocalPart());
-                for (Element elem : elemList) {
-                    Element hel = DOMUtils.getFirstElement(elem);
-                    while (hel != null) {
-                        // Need to add any attributes that are present on the parent element
-                        // which otherwise would be lost.
-                        if (elem.hasAttributes()) {
-                            NamedNodeMap nnp = elem.getAttributes();
-                            for (int ct = 0; ct < nnp.getLength(); ct++) {
-                                Node attr = nnp.item(ct);
-                                Node headerAttrNode = hel.hasAttributes() 
-                                        ?  hel.getAttributes().getNamedItemNS(
-                                                        attr.getNamespaceURI(), attr.getLocalName()) 
-                                        : null;
-                                
-                                if (headerAttrNode == null) {
-                                    Attr attribute = hel.getOwnerDocument().createAttributeNS(
-                                            attr.getNamespaceURI(), 
-                                            attr.getNodeName());
-                                    attribute.setNodeValue(attr.getNodeValue());
-                                    hel.setAttributeNodeNS(attribute);
-                                }
-                            }
+                if (decoded == null) {
+                    // Find header
+                    Element element = doc.getDocumentElement();
+                    QName header = soapVersion.getHeader();
+                    List<Element> elemList =
+                        DOMUtils.findAllElementsByTagNameNS(element,
+                                                            header.getNamespaceURI(),
+                                                            header.getLocalPart());
+                    for (Element elem : elemList) {
+                        Element hel = DOMUtils.getFirstElement(elem);
+                        while (hel != null) {
+                            addHeader(message, elem, hel);
+                            hel = DOMUtils.getNextElement(hel);
                         }
-                        
-                        HeaderProcessor p = bus.getExtension(HeaderManager.class)
-                            .getHeaderProcessor(hel.getNamespaceURI());
-
-                        Object obj;
-                        DataBinding dataBinding = null;
-                        if (p == null || p.getDataBinding() == null) {
-                            obj = hel;
+                    }
+                } else {
+                    List<SoapHeader> unrecorded = null;
+                    for (Object o : decoded) {
+                        if (o instanceof Element) {
+                            Element hel = (Element)o;
+                            addHeader(message, (Element)hel.getParentNode(), hel);
                         } else {
-                            dataBinding = p.getDataBinding();
-                            obj = dataBinding.createReader(Node.class).read(hel);
-                        }
-                        //TODO - add the interceptors
-                        
-                        SoapHeader shead = new SoapHeader(new QName(hel.getNamespaceURI(),
-                                                                    hel.getLocalName()),
-                                                           obj,
-                                                           dataBinding);
-                        String mu = hel.getAttributeNS(soapVersion.getNamespace(),
-                                                      soapVersion.getAttrNameMustUnderstand());
-                        String act = hel.getAttributeNS(soapVersion.getNamespace(),
-                                                        soapVersion.getAttrNameRole());
-
-                        if (!StringUtils.isEmpty(act)) {
-                            shead.setActor(act);
+                            message.getHeaders().add((SoapHeader)o);
+                            if (!decoders.record) {
+                                if (unrecorded == null) {
+                                    unrecorded = new ArrayList<SoapHeader>();
+                                }
+                                unrecorded.add((SoapHeader)o);
+                            }
                         }
-                        shead.setMustUnderstand(Boolean.valueOf(mu) || "1".equals(mu));
-                        //mark header as inbound header.(for distinguishing between the  direction to 
-                        //avoid piggybacking of headers from request->server->response.
-                        shead.setDirection(SoapHeader.Direction.DIRECTION_IN);
-                        message.getHeaders().add(shead);
-                        
-                        hel = DOMUtils.getNextElement(hel);
+                    }
+                    if (unrecorded != null) {
+                        message.put(UNRECORDED_HEADERS, unrecorded);
                     }
                 }
                 //advance to just outside the <soap:body> opening tag, but not 
@@ -184,4 +178,192 @@ public class ReadHeadersInterceptor extends AbstractSoapInterceptor {
             throw new SoapFault(new Message("XML_STREAM_EXC", LOG), e, message.getVersion().getSender());
         }
     }
+
+    private void addHeader(SoapMessage message, Element elem, Element hel) {
+        SoapVersion soapVersion = message.getVersion();
+        // Need to add any attributes that are present on the parent element
+        // which otherwise would be lost.
+        if (elem.hasAttributes()) {
+            NamedNodeMap nnp = elem.getAttributes();
+            for (int ct = 0; ct < nnp.getLength(); ct++) {
+                Node attr = nnp.item(ct);
+                Node headerAttrNode = hel.hasAttributes()
+                        ?  hel.getAttributes().getNamedItemNS(
+                                        attr.getNamespaceURI(), attr.getLocalName())
+                        : null;
+
+                if (headerAttrNode == null) {
+                    Attr attribute = hel.getOwnerDocument().createAttributeNS(
+                            attr.getNamespaceURI(),
+                            attr.getNodeName());
+                    attribute.setNodeValue(attr.getNodeValue());
+                    hel.setAttributeNodeNS(attribute);
+                }
+            }
+        }
+
+        Object obj;
+        DataBinding dataBinding = null;
+        HeaderProcessor p = bus.getExtension(HeaderManager.class)
+            .getHeaderProcessor(hel.getNamespaceURI());
+        if (p == null || p.getDataBinding() == null) {
+            obj = hel;
+        } else {
+            dataBinding = p.getDataBinding();
+            obj = dataBinding.createReader(Node.class).read(hel);
+        }
+        //TODO - add the interceptors
+
+        SoapHeader shead = new SoapHeader(new QName(hel.getNamespaceURI(),
+                                                    hel.getLocalName()),
+                                           obj,
+                                           dataBinding);
+        String mu = hel.getAttributeNS(soapVersion.getNamespace(),
+                                      soapVersion.getAttrNameMustUnderstand());
+        String act = hel.getAttributeNS(soapVersion.getNamespace(),
+                                        soapVersion.getAttrNameRole());
+
+        setAttributes(shead, mu, act);
+        message.getHeaders().add(shead);
+    }
+
+    private static void setAttributes(SoapHeader shead, String mu, String act) {
+        if (!StringUtils.isEmpty(act)) {
+            shead.setActor(act);
+        }
+        shead.setMustUnderstand(Boolean.valueOf(mu) || "1".equals(mu));
+        //mark header as inbound header.(for distinguishing between the  direction to
+        //avoid piggybacking of headers from request->server->response.
+        shead.setDirection(SoapHeader.Direction.DIRECTION_IN);
+    }
+
+    /**
+     * The decoders are taken from the chain of the first message of an endpoint and kept on
+     * the endpoint, the chains of its later messages are not walked again.
+     *
+     * @return the decoders, or null if there are none on the chain
+     */
+    private static HeaderDecoders getHeaderDecoders(SoapMessage message) {
+        if (message.getInterceptorChain() == null) {
+            return null;
+        }
+        Endpoint endpoint = message.getExchange() == null
+            ? null : message.getExchange().get(Endpoint.class);
+        HeaderDecoders decoders = endpoint == null ? null : (HeaderDecoders)endpoint.get(HEADER_DECODERS);
+        if (decoders == null) {
+            decoders = new HeaderDecoders(message.getInterceptorChain());
+            if (endpoint != null) {
+                endpoint.put(HEADER_DECODERS, decoders);
+            }
+        }
+        return decoders.decoders.isEmpty() ? null : decoders;
+    }
+
+    /**
+     * SAAJInInterceptor and the interceptors that run after it, such as the WS-Security ones,
+     * work on the envelope document and need every header in it.
+     */
+    private static boolean needsEnvelope(Interceptor interceptor) {
+        return interceptor instanceof SAAJInInterceptor
+            || interceptor instanceof PhaseInterceptor
+                && ((PhaseInterceptor)interceptor).getAfter().contains(SAAJInInterceptor.class.getName());
+    }
+
+    /**
+     * Read the envelope up to the body into DOM as StaxUtils.read does, handing each header
+     * one of the decoders decodes to it while the header is being read. A decoded header is
+     * only copied into DOM as well if an interceptor on the chain needs the whole envelope,
+     * SAAJ and WS-Security work from the complete document.
+     *
+     * @param headers filled with the headers in the order they were read, the decoded
+     *        SoapHeaders and the Elements of the others
+     */
+    private static Document readEnvelope(XMLStreamReader reader,
+                                         SoapVersion soapVersion,
+                                         HeaderDecoders decoders,
+                                         List<Object> headers) throws XMLStreamException {
+        Document doc = DOMUtils.createDocument();
+        Node parent = doc;
+        boolean inHeader = false;
+        int event = reader.getEventType();
+        while (true) {
+            switch (event) {
+            case XMLStreamConstants.START_ELEMENT:
+                if (inHeader) {
+                    QName name = reader.getName();
+                    StreamingHeaderInterceptor decoder = decoders.decoders.get(name);
+                    if (decoder == null) {
+                        headers.add(new DOMRecordingXMLStreamReader(reader, parent, true).finish());
+                        break;
+                    }
+                    String mu = reader.getAttributeValue(soapVersion.getNamespace(),
+                                                         soapVersion.getAttrNameMustUnderstand());
+                    String act = reader.getAttributeValue(soapVersion.getNamespace(),
+                                                          soapVersion.getAttrNameRole());
+                    DOMRecordingXMLStreamReader recorder = 
+                        new DOMRecordingXMLStreamReader(reader, decoders.record ? parent : null, true);
+                    SoapHeader value = decoder.decodeHeader(name, recorder);
+                    Element hel = recorder.finish();
+                    if (value != null) {
+                        setAttributes(value, mu, act);
+                        headers.add(value);
+                    } else if (hel != null) {
+                        headers.add(hel);
+                    } else {
+                        throw new XMLStreamException(name + " could not be decoded", reader.getLocation());
+                    }
+                } else {
+                    parent = StaxUtils.createElement(parent, reader, true);
+                    inHeader = soapVersion.getHeader().equals(reader.getName());
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                inHeader = false;
+                parent = parent.getParentNode();
+                break;
+            case XMLStreamConstants.CHARACTERS:
+                if (parent != doc) {
+                    parent.appendChild(doc.createTextNode(reader.getText()));
+                }
+                break;
+            case XMLStreamConstants.COMMENT:
+                if (parent != doc) {
+                    parent.appendChild(doc.createComment(reader.getText()));
+                }
+                break;
+            default:
+                break;
+            }
+            if (!reader.hasNext()) {
+                return doc;
+            }
+            event = reader.next();
+        }
+    }
+
+    /**
+     * The decoders of a chain, keyed by the headers they decode, and whether an interceptor
+     * on it needs the decoded headers in the envelope document.
+     */
+    private static final class HeaderDecoders {
+        final Map<QName, StreamingHeaderInterceptor> decoders
+            = new HashMap<QName, StreamingHeaderInterceptor>();
+        final boolean record;
+
+        HeaderDecoders(InterceptorChain chain) {
+            boolean r = false;
+            for (Interceptor interceptor : chain) {
+                if (interceptor instanceof StreamingHeaderInterceptor) {
+                    Set<QName> names = ((StreamingHeaderInterceptor)interceptor).getDecodedHeaders();
+                    if (names != null) {
+                        for (QName name : names) {
+                            decoders.put(name, (StreamingHeaderInterceptor)interceptor);
+                        }
+                    }
+                }
+                r |= needsEnvelope(interceptor);
+            }
+            record = r;
+        }
+    }
 }
@@ -21,8 +21,10 @@ package org.apache.cxf.binding.soap.interceptor;
 
 import java.util.List;
 
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -42,6 +44,7 @@ import org.apache.cxf.service.model.BindingMessageInfo;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.MessagePartInfo;
 import org.apache.cxf.staxutils.W3CDOMStreamReader;
+import org.apache.cxf.staxutils.W3CDOMStreamWriter;
 
 /**
  * Perform databinding of the SOAP headers.
@@ -95,8 +98,8 @@ public class SoapHeaderInterceptor extends AbstractInDatabindingInterceptor {
             if (param != null) {
                 message.getHeaders().remove(param);
                 
-                if (param.getDataBinding() == null) {
-                    Node source = (Node)param.getObject();
+                if (param.getDataBinding() == null || !isOfPartType(mpi, param.getObject())) {
+                    Node source = getNode(param);
                     if (supportsNode) {
                         object = getNodeDataReader(message).read(mpi, source);
                     } else {
@@ -125,4 +128,29 @@ public class SoapHeaderInterceptor extends AbstractInDatabindingInterceptor {
     private Header findHeader(SoapMessage message, MessagePartInfo mpi) {
         return message.getHeader(mpi.getConcreteName());
     }
+
+    private static boolean isOfPartType(MessagePartInfo mpi, Object object) {
+        return mpi.getTypeClass() == null || mpi.getTypeClass().isInstance(object);
+    }
+
+    /**
+     * @return the header as DOM. A header that was decoded into an object of another data
+     *         binding, such as a WS-Addressing header bound as a parameter, is written back
+     *         with that data binding so that the service's data binding can read it.
+     */
+    private static Node getNode(Header param) {
+        if (param.getDataBinding() == null) {
+            return (Node)param.getObject();
+        }
+        W3CDOMStreamWriter writer;
+        try {
+            writer = new W3CDOMStreamWriter();
+        } catch (ParserConfigurationException e) {
+            throw new Fault(e);
+        }
+        MessagePartInfo part = new MessagePartInfo(param.getName(), null);
+        part.setConcreteName(param.getName());
+        param.getDataBinding().createWriter(XMLStreamWriter.class).write(param.getObject(), part, writer);
+        return writer.getDocument().getDocumentElement();
+    }
 }
@@ -0,0 +1,56 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.binding.soap.interceptor;
+
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.cxf.binding.soap.SoapHeader;
+
+/**
+ * A SoapInterceptor that decodes headers straight from the XMLStreamReader while
+ * {@link ReadHeadersInterceptor} reads the SOAP header, instead of from the DOM element
+ * afterwards. The decoded header replaces the DOM element in the inbound headers; it carries
+ * the DataBinding its object is written back to XML with, so that SoapHeaderInterceptor,
+ * SAAJ and JAX-WS handlers can still bind it.
+ * <p>
+ * Unless an interceptor on the chain works on the whole envelope document, such as
+ * SAAJInInterceptor or the WS-Security interceptors ordered after it, a decoded header is
+ * not copied into that document.
+ */
+public interface StreamingHeaderInterceptor extends SoapInterceptor {
+
+    /**
+     * @return the headers this interceptor decodes, a subset of the understood headers
+     */
+    Set<QName> getDecodedHeaders();
+
+    /**
+     * @param name the name of the header, one of the decoded headers
+     * @param reader the reader, positioned on the START_ELEMENT of the header. It ends
+     *        with the header, anything left of the header when this returns is skipped.
+     * @return the decoded header, carrying a DataBinding. If null the copy of the header in
+     *         the envelope document is used instead; the message fails when no copy was made.
+     */
+    SoapHeader decodeHeader(QName name, XMLStreamReader reader) throws XMLStreamException;
+}
@@ -22,6 +22,7 @@ package org.apache.cxf.binding.soap.saaj;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.ResourceBundle;
 
 import javax.xml.namespace.QName;
@@ -36,6 +37,7 @@ import javax.xml.soap.SOAPMessage;
 import javax.xml.soap.SOAPPart;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.dom.DOMSource;
 
 import org.w3c.dom.Document;
@@ -47,7 +49,9 @@ import org.apache.cxf.binding.soap.Soap11;
 import org.apache.cxf.binding.soap.SoapFault;
 import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.SoapVersion;
 import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
+import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
 import org.apache.cxf.binding.soap.interceptor.Soap11FaultInInterceptor;
 import org.apache.cxf.binding.soap.interceptor.Soap12FaultInInterceptor;
 import org.apache.cxf.common.i18n.BundleUtils;
@@ -55,11 +59,14 @@ import org.apache.cxf.databinding.DataBinding;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.headers.HeaderManager;
 import org.apache.cxf.headers.HeaderProcessor;
+import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Attachment;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.MessagePartInfo;
 import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.staxutils.W3CDOMStreamWriter;
 
 /**
  * Builds a SAAJ tree from the Document fragment inside the message which contains
@@ -101,6 +108,7 @@ public class SAAJInInterceptor extends AbstractSoapInterceptor {
             SOAPPart part = soapMessage.getSOAPPart();
             
             Document node = (Document) message.getContent(Node.class);
+            writeUnrecordedHeaders(message, node);
             DOMSource source = new DOMSource(node);
             part.setContent(source);
             Collection<Attachment> atts = message.getAttachments();
@@ -182,6 +190,41 @@ public class SAAJInInterceptor extends AbstractSoapInterceptor {
         }
     }
 
+    /**
+     * Writes the headers ReadHeadersInterceptor decoded without copying them into the
+     * envelope document back into it, with their data bindings.
+     */
+    private static void writeUnrecordedHeaders(SoapMessage message, Document doc) {
+        List<SoapHeader> headers = CastUtils.cast((List)message.remove(
+            ReadHeadersInterceptor.UNRECORDED_HEADERS));
+        if (headers == null) {
+            return;
+        }
+        SoapVersion version = message.getVersion();
+        Element headerElement = DOMUtils.getFirstChildWithName(doc.getDocumentElement(),
+                                                               version.getHeader());
+        if (headerElement == null) {
+            return;
+        }
+        for (SoapHeader header : headers) {
+            MessagePartInfo part = new MessagePartInfo(header.getName(), null);
+            part.setConcreteName(header.getName());
+            header.getDataBinding().createWriter(XMLStreamWriter.class)
+                .write(header.getObject(), part, new W3CDOMStreamWriter(headerElement));
+            Element hel = (Element)headerElement.getLastChild();
+            if (header.isMustUnderstand()) {
+                hel.setAttributeNS(version.getNamespace(),
+                                   version.getPrefix() + ":" + version.getAttrNameMustUnderstand(),
+                                   version instanceof Soap11 ? "1" : "true");
+            }
+            if (header.getActor() != null) {
+                hel.setAttributeNS(version.getNamespace(),
+                                   version.getPrefix() + ":" + version.getAttrNameRole(),
+                                   header.getActor());
+            }
+        }
+    }
+
     public static void replaceHeaders(SOAPMessage soapMessage, SoapMessage message) throws SOAPException {
         SOAPHeader header = soapMessage.getSOAPHeader();
         if (header == null) {
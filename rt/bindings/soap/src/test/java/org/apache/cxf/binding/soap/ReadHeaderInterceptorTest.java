@@ -22,29 +22,46 @@ package org.apache.cxf.binding.soap;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import javax.activation.DataHandler;
 import javax.mail.util.ByteArrayDataSource;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import org.apache.cxf.BusFactory;
 import org.apache.cxf.attachment.AttachmentImpl;
 import org.apache.cxf.attachment.AttachmentUtil;
+import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
 import org.apache.cxf.binding.soap.interceptor.CheckFaultInterceptor;
 import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
+import org.apache.cxf.binding.soap.interceptor.StreamingHeaderInterceptor;
+import org.apache.cxf.binding.soap.saaj.SAAJInInterceptor;
+import org.apache.cxf.databinding.stax.StaxDataBinding;
+import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.interceptor.StaxInInterceptor;
 import org.apache.cxf.message.Attachment;
+import org.easymock.Capture;
+import org.easymock.classextension.EasyMock;
+import org.easymock.classextension.IMocksControl;
 import org.junit.Before;
 import org.junit.Test;
 
 public class ReadHeaderInterceptorTest extends TestBase {
 
+    private static final String RESERVATION_NS = "http://travelcompany.example.org/reservation";
+    private static final QName PASSENGER = new QName("http://mycompany.example.com/employees", "passenger");
+
     private ReadHeadersInterceptor rhi;
     private StaxInInterceptor staxIntc = new StaxInInterceptor();
 
@@ -131,6 +148,79 @@ public class ReadHeaderInterceptorTest extends TestBase {
         }
     }
 
+    @Test
+    public void testDecodedHeaderIsNotRecorded() throws Exception {
+        chain.add(new PassengerDecoder());
+        prepareSoapMessage("test-soap-header.xml");
+
+        staxIntc.handleMessage(soapMessage);
+        rhi.handleMessage(soapMessage);
+
+        List<Header> headers = soapMessage.getHeaders();
+        assertEquals(2, headers.size());
+        assertTrue(headers.get(0).getObject() instanceof Element);
+        SoapHeader passenger = (SoapHeader)headers.get(1);
+        assertEquals(PASSENGER, passenger.getName());
+        assertEquals("Bob", passenger.getObject());
+        assertTrue(passenger.isMustUnderstand());
+        assertEquals("http://schemas.xmlsoap.org/soap/actor/next", passenger.getActor());
+        Document doc = (Document)soapMessage.getContent(Node.class);
+        assertEquals(1, doc.getElementsByTagNameNS(RESERVATION_NS, "reservation").getLength());
+        assertEquals(0, doc.getElementsByTagNameNS(PASSENGER.getNamespaceURI(),
+                                                   PASSENGER.getLocalPart()).getLength());
+    }
+
+    @Test
+    public void testDecodedHeaderIsRecordedForSAAJ() throws Exception {
+        chain.add(new PassengerDecoder());
+        AbstractSoapInterceptor envelopeConsumer = new AbstractSoapInterceptor("envelopeConsumer", "phase2") {
+            public void handleMessage(SoapMessage message) {
+            }
+        };
+        envelopeConsumer.addAfter(SAAJInInterceptor.class.getName());
+        chain.add(envelopeConsumer);
+        prepareSoapMessage("test-soap-header.xml");
+
+        staxIntc.handleMessage(soapMessage);
+        rhi.handleMessage(soapMessage);
+
+        assertEquals("Bob", soapMessage.getHeaders().get(1).getObject());
+        Document doc = (Document)soapMessage.getContent(Node.class);
+        assertEquals(1, doc.getElementsByTagNameNS(PASSENGER.getNamespaceURI(),
+                                                   PASSENGER.getLocalPart()).getLength());
+    }
+
+    @Test
+    public void testDecodersAreKeptOnTheEndpoint() throws Exception {
+        PassengerDecoder decoder = new PassengerDecoder();
+        chain.add(decoder);
+        IMocksControl control = EasyMock.createNiceControl();
+        Endpoint endpoint = control.createMock(Endpoint.class);
+        Capture<Object> decoders = new Capture<Object>();
+        EasyMock.expect(endpoint.get(EasyMock.isA(String.class))).andReturn(null);
+        EasyMock.expect(endpoint.put(EasyMock.isA(String.class), EasyMock.capture(decoders)))
+            .andReturn(null);
+        control.replay();
+        prepareSoapMessage("test-soap-header.xml");
+        staxIntc.handleMessage(soapMessage);
+        soapMessage.getExchange().put(Endpoint.class, endpoint);
+        rhi.handleMessage(soapMessage);
+        control.verify();
+        assertEquals("Bob", soapMessage.getHeaders().get(1).getObject());
+
+        // the chain of a later message is not walked again
+        chain.remove(decoder);
+        control.reset();
+        EasyMock.expect(endpoint.get(EasyMock.isA(String.class))).andReturn(decoders.getValue());
+        control.replay();
+        prepareSoapMessage("test-soap-header.xml");
+        staxIntc.handleMessage(soapMessage);
+        soapMessage.getExchange().put(Endpoint.class, endpoint);
+        rhi.handleMessage(soapMessage);
+        control.verify();
+        assertEquals("Bob", soapMessage.getHeaders().get(1).getObject());
+    }
+
     private void prepareSoapMessage(String message) throws IOException {
 
         soapMessage = TestUtil.createEmptySoapMessage(Soap12.getInstance(), chain);
@@ -141,4 +231,24 @@ public class ReadHeaderInterceptorTest extends TestBase {
         soapMessage.setContent(InputStream.class, bads.getInputStream());
 
     }
+
+    private static class PassengerDecoder extends AbstractSoapInterceptor
+        implements StreamingHeaderInterceptor {
+
+        PassengerDecoder() {
+            super("phase2");
+        }
+
+        public void handleMessage(SoapMessage message) {
+        }
+
+        public Set<QName> getDecodedHeaders() {
+            return Collections.singleton(PASSENGER);
+        }
+
+        public SoapHeader decodeHeader(QName name, XMLStreamReader reader) throws XMLStreamException {
+            reader.nextTag();
+            return new SoapHeader(name, reader.getElementText(), new StaxDataBinding());
+        }
+    }
 }
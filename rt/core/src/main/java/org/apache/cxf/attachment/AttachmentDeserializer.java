@@ -58,7 +58,7 @@ public class AttachmentDeserializer {
 
     private boolean lazyLoading = true;
 
-    private int pbAmount = 2048;
+    private int pbAmount = 16 * 1024;
     private PushbackInputStream stream;
 
     private byte boundary[];
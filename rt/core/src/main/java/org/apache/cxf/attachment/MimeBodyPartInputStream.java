@@ -23,14 +23,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
 
+/**
+ * Reads a single MIME part from a multipart stream, stopping at the 
+ * boundary.  The boundary is located with a Boyer-Moore-Horspool search 
+ * over a reused block of the stream; only the unconsumed tail of a block 
+ * (the following part, or a possible partial boundary) is pushed back.
+ */
 public class MimeBodyPartInputStream extends InputStream {
+    private static final int CR = 13;
+    private static final int LF = 10;
+    private static final int DASH = 45;
 
     PushbackInputStream inStream;
 
     boolean boundaryFound;
     int pbAmount;
     byte[] boundary;
-    byte[] boundaryBuffer;
+    byte[] buffer;
+    
+    private final int[] skip;
+    private final byte[] single = new byte[1];
 
     public MimeBodyPartInputStream(PushbackInputStream inStreamParam, 
                                    byte[] boundaryParam,
@@ -39,212 +51,132 @@ public class MimeBodyPartInputStream extends InputStream {
         this.inStream = inStreamParam;
         this.boundary = boundaryParam;
         this.pbAmount = pbsize;
+        this.skip = createSkipTable(boundaryParam);
+    }
+    
+    static int[] createSkipTable(byte[] pattern) {
+        int[] table = new int[256];
+        int last = pattern.length - 1;
+        for (int i = 0; i < table.length; i++) {
+            table[i] = pattern.length;
+        }
+        for (int i = 0; i < last; i++) {
+            table[pattern[i] & 0xff] = last - i;
+        }
+        return table;
+    }
+    
+    /**
+     * Boyer-Moore-Horspool search for the boundary.
+     * @return the index of the first complete boundary in buf[off, off + len), or -1
+     */
+    int indexOfBoundary(byte[] buf, int off, int len) {
+        int last = boundary.length - 1;
+        int end = off + len;
+        int i = off;
+        while (i + last < end) {
+            int j = last;
+            while (buf[i + j] == boundary[j]) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+            i += skip[buf[i + last] & 0xff];
+        }
+        return -1;
     }
 
-    public int read(byte buf[], int origOff, int origLen) throws IOException {
-        byte b[] = buf;
-        int off = origOff;
-        int len = origLen;
+    public int read(byte buf[], int off, int len) throws IOException {
         if (boundaryFound) {
             return -1;
         }
-        if ((off < 0) || (off > b.length) || (len < 0) 
-            || ((off + len) > b.length) || ((off + len) < 0)) {
+        if ((off < 0) || (off > buf.length) || (len < 0) 
+            || ((off + len) > buf.length) || ((off + len) < 0)) {
 
             throw new IndexOutOfBoundsException();
         }
         if (len == 0) {
             return 0;
         }
-        boolean bufferCreated = false;
-        if (len < boundary.length * 2) {
-            //buffer is too short to detect boundaries with it.  We'll need to create a larger buffer   
-            bufferCreated = true;
-            if (boundaryBuffer == null) {
-                boundaryBuffer = new byte[boundary.length * 2];
-            }
-            b = boundaryBuffer;
-            off = 0;
-            len = boundaryBuffer.length;
-        }
-        if (len > pbAmount) {
-            len = pbAmount;  //can only pushback that much so make sure we can
-        }
-        if (len > 0) {
-            len = inStream.read(b, off, len);
-        }
-        int i = processBuffer(b, off, len);
-        if (bufferCreated && i > 0) {
-            // read more than we need, push it back
-            if (origLen >= i) {
-                System.arraycopy(b, 0, buf, origOff, i);
-            } else {
-                System.arraycopy(b, 0, buf, origOff, origLen);
-                inStream.unread(b, origLen, i - origLen);
-                i = origLen;
+        
+        // enough for a CRLF, the boundary and the "--" CRLF that may follow it
+        int minimum = boundary.length + 6;
+        if (buffer == null) {
+            //can only pushback pbAmount so never read more than that
+            buffer = new byte[Math.max(pbAmount, minimum)];
+        }
+        int wanted = Math.min(buffer.length, Math.max(len + minimum, minimum * 2));
+        int count = 0;
+        boolean eof = false;
+        while (count < minimum) {
+            int c = inStream.read(buffer, count, wanted - count);
+            if (c == -1) {
+                eof = true;
+                break;
             }
-        } else if (i == 0 && boundaryFound) {
+            count += c;
+        }
+        if (count == 0) {
             return -1;
         }
-        return i;
-    }
-
-    //Has Data after encountering CRLF
-    private boolean hasData(byte[] b, int initialPointer, int pointer, int off, int len)
-        throws IOException {
-        if (pointer < (off + len)) {
-            return true;
+        
+        int idx = indexOfBoundary(buffer, 0, count);
+        int dataEnd;
+        if (idx == -1) {
+            // the tail may hold the CRLF and the start of a boundary, keep it for the next read
+            dataEnd = eof ? count : count - (boundary.length + 1);
         } else {
-            inStream.unread(b, initialPointer, (off + len) - initialPointer);
-            return false;
-        }
-    }
-
-    protected int processBuffer(byte[] buffer, int off, int len) throws IOException {
-        for (int i = off; i < (off + len); i++) {
-            boolean needUnread0d0a = false;
-            int value = buffer[i];
-            int initialI = i;
-            if (value == 13) {
-                if (!hasData(buffer, initialI, initialI + 1, off, len)) {
-                    return initialI - off;
-                }
-                value = buffer[initialI + 1];
-                if (value != 10) {
-                    continue;
-                } else {  //if it comes here then 13, 10 are values and will try to match boundaries
-                    if (!hasData(buffer, initialI, initialI + 2, off, len)) {
-                        return initialI - off;
-                    }
-                    value = buffer[initialI + 2];
-                    if ((byte) value != boundary[0]) {
-                        i++;
-                        continue;
-                    } else { //13, 10, boundaries first value matched
-                        needUnread0d0a = true;
-                        i += 2; //i after this points to boundary[0] element
-                    }
-                }
-            } else if (value != boundary[0]) {
-                continue;
-            }
-
-            int boundaryIndex = 0;
-            while ((boundaryIndex < boundary.length) && (value == boundary[boundaryIndex])) {
-                if (!hasData(buffer, initialI, i + 1, off, len)) {
-                    return initialI - off;
-                }                
-                value = buffer[++i];
-                boundaryIndex++;
-            }
-            if (boundaryIndex == boundary.length) {
-                // read the end of line character
-                if (initialI != off) {
-                    i = 1000000000;
-                }
-                if (initialI - off != 0 
-                    && !hasData(buffer, initialI, i + 1, off, len)) {
-                    return initialI - off;
-                }
-                boundaryFound = true;
-                int j = i + 1;
-                if (j < len && buffer[j] == 45 && value == 45) {
-                    // Last mime boundary should have a succeeding "--"
-                    // as we are on it, read the terminating CRLF
-                    i += 2;
-                    //last mime boundary
-                }
-
-                //boundary matched (may or may not be last mime boundary)
-                int processed = initialI - off;
-                if ((len - (i + 2)) > 0) {
-                    inStream.unread(buffer, i + 2, len - (i + 2));
-                }
-                return processed;
+            dataEnd = idx;
+            if (idx >= 2 && buffer[idx - 2] == CR && buffer[idx - 1] == LF) {
+                dataEnd = idx - 2;
             }
-
-            // Boundary not found. Restoring bytes skipped.
-            // write first skipped byte, push back the rest
-            if (value != -1) { //pushing back first byte of boundary
-                // Stream might have ended
-                i--;
-            }
-            if (needUnread0d0a) { //Pushing all,  returning 13
-                i = i - boundaryIndex;
-                i--; //for 10
-                value = 13;
-            } else {
-                i = i - boundaryIndex;
-                i++;
-                value = boundary[0];
+            if (dataEnd == 0) {
+                return consumeBoundary(idx + boundary.length, count);
             }
         }
-        return len;
+        
+        int n = Math.min(dataEnd, len);
+        System.arraycopy(buffer, 0, buf, off, n);
+        if (count > n) {
+            inStream.unread(buffer, n, count - n);
+        }
+        return n;
+    }
+    
+    private int consumeBoundary(int pos, int count) throws IOException {
+        boundaryFound = true;
+        if (pos + 1 < count && buffer[pos] == DASH && buffer[pos + 1] == DASH) {
+            // Last mime boundary should have a succeeding "--"
+            pos += 2;
+        }
+        // and then the terminating CRLF
+        if (pos < count && buffer[pos] == CR) {
+            pos++;
+        }
+        if (pos < count && buffer[pos] == LF) {
+            pos++;
+        }
+        if (count > pos) {
+            inStream.unread(buffer, pos, count - pos);
+        }
+        return -1;
     }
 
     public int read() throws IOException {
-        boolean needUnread0d0a = false;
         if (boundaryFound) {
             return -1;
         }
-
-        // read the next value from stream
         int value = inStream.read();
-        // A problem occurred because all the mime parts tends to have a /r/n
-        // at the end. Making it hard to transform them to correct
-        // DataSources.
-        // This logic introduced to handle it
-        if (value == 13) {
-            value = inStream.read();
-            if (value != 10) {
-                inStream.unread(value);
-                return 13;
-            } else {
-                value = inStream.read();
-                if ((byte) value != boundary[0]) {
-                    inStream.unread(value);
-                    inStream.unread(10);
-                    return 13;
-                } else {
-                    needUnread0d0a = true;
-                }
-            }
-        } else if ((byte) value != boundary[0]) {
-            return value;
-        }
-        // read value is the first byte of the boundary. Start matching the
-        // next characters to find a boundary
-        int boundaryIndex = 0;
-        while ((boundaryIndex < boundary.length) && ((byte) value == boundary[boundaryIndex])) {
-            value = inStream.read();
-            boundaryIndex++;
-        }
-        if (boundaryIndex == boundary.length) {
-            // boundary found
-            boundaryFound = true;
-            // read the end of line character
-            if (inStream.read() == 45 && value == 45) {
-                // Last mime boundary should have a succeeding "--"
-                // as we are on it, read the terminating CRLF
-                inStream.read();
-                inStream.read();
-            }
+        if (value == -1) {
             return -1;
         }
-        // Boundary not found. Restoring bytes skipped.
-        // write first skipped byte, push back the rest
-        if (value != -1) {
-            // Stream might have ended
-            inStream.unread(value);
-        }
-        if (needUnread0d0a) {
-            inStream.unread(boundary, 0, boundaryIndex);
-            inStream.unread(10);
-            value = 13;
-        } else {
-            inStream.unread(boundary, 1, boundaryIndex - 1);                
-            value = boundary[0];
+        if (value != CR && (byte)value != boundary[0]) {
+            // can't be the start of a boundary
+            return value;
         }
-        return value;
+        inStream.unread(value);
+        int i = read(single, 0, 1);
+        return i == -1 ? -1 : single[0] & 0xff;
     }
 }
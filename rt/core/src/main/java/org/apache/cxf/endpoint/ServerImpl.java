@@ -36,6 +36,9 @@ import org.apache.cxf.transport.DestinationFactory;
 import org.apache.cxf.transport.DestinationFactoryManager;
 import org.apache.cxf.transport.MessageObserver;
 import org.apache.cxf.transport.MultipleEndpointObserver;
+import org.apache.cxf.transports.http.CachingQueryHandler;
+import org.apache.cxf.transports.http.QueryHandler;
+import org.apache.cxf.transports.http.QueryHandlerRegistry;
 
 public class ServerImpl implements Server {
     private static final Logger LOG = LogUtils.getL7dLogger(ServerImpl.class);    
@@ -116,6 +119,7 @@ public class ServerImpl implements Server {
     }
 
     public void start() {     
+        clearQueryCaches();
         if (messageObserver != null) {
             destination.setMessageObserver(messageObserver);
         } else {
@@ -153,6 +157,22 @@ public class ServerImpl implements Server {
         }
     }
 
+    /**
+     * Drops responses (e.g. ?wsdl) that were rendered for an earlier 
+     * publication of this endpoint.
+     */
+    private void clearQueryCaches() {
+        QueryHandlerRegistry registry = bus.getExtension(QueryHandlerRegistry.class);
+        if (registry == null || registry.getHandlers() == null) {
+            return;
+        }
+        for (QueryHandler qh : registry.getHandlers()) {
+            if (qh instanceof CachingQueryHandler) {
+                ((CachingQueryHandler)qh).clearCache(endpoint.getEndpointInfo());
+            }
+        }
+    }
+
     public Endpoint getEndpoint() {
         return endpoint;
     }
@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.id;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import org.apache.cxf.Bus;
+
+/**
+ * Default {@link IdGenerator}.
+ * <p>
+ * UUID.randomUUID() sends every caller through one shared SecureRandom, which
+ * stops scaling as soon as a few threads are generating message IDs.  Instead,
+ * the upper half of each identifier is a random node prefix chosen once per
+ * generator, and the lower half is a sequence number.  Threads take blocks of
+ * sequence numbers from a shared counter, that starts at a random offset, and
+ * then count locally, so the shared counter is only touched once per block.
+ * Identifiers are laid out like version 4 UUIDs so that they remain valid in
+ * urn:uuid URIs.
+ * <p>
+ * Unlike random UUIDs, the identifiers of one generator are sequential: once
+ * one identifier is known the following ones are easy to guess.  They are
+ * meant to be unique, not secret, and must not be used as nonces or tokens
+ * where unpredictability matters.
+ */
+public class IdGeneratorImpl implements IdGenerator {
+
+    static final int BLOCK_BITS = 16;
+
+    private static final long SEQUENCE_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // shared by all generators, so a thread holds one block at most and never
+    // keeps a generator (or its bus) reachable
+    private static final ThreadLocal<Sequence> SEQUENCE = new ThreadLocal<Sequence>() {
+        protected Sequence initialValue() {
+            return new Sequence();
+        }
+    };
+
+    private final long mostSigBits;
+    private final AtomicLong nextBlock;
+    private Bus bus;
+
+    public IdGeneratorImpl() {
+        SecureRandom random = new SecureRandom();
+        long node = random.nextLong();
+        node &= 0xFFFFFFFFFFFF0FFFL;  //clear version
+        node |= 0x0000000000004000L;  //set version
+        mostSigBits = node;
+        nextBlock = new AtomicLong((random.nextLong() & SEQUENCE_MASK) >>> BLOCK_BITS);
+    }
+
+    public Bus getBus() {
+        return bus;
+    }
+
+    @Resource
+    public void setBus(Bus bus) {
+        this.bus = bus;
+    }
+
+    @PostConstruct
+    public void register() {
+        if (null != bus) {
+            bus.setExtension(this, IdGenerator.class);
+        }
+    }
+
+    public String generateId() {
+        Sequence s = SEQUENCE.get();
+        if (s.next == s.limit || s.counter != nextBlock) {
+            s.counter = nextBlock;
+            s.next = nextBlock.getAndIncrement() << BLOCK_BITS;
+            s.limit = s.next + (1L << BLOCK_BITS);
+        }
+        long leastSigBits = s.next++ & SEQUENCE_MASK;
+        leastSigBits |= 0x8000000000000000L;  //IETF variant
+        return format(mostSigBits, leastSigBits);
+    }
+
+    static String format(long msb, long lsb) {
+        char[] c = new char[36];
+        toHex(msb >>> 32, c, 0, 8);
+        c[8] = '-';
+        toHex(msb >>> 16, c, 9, 4);
+        c[13] = '-';
+        toHex(msb, c, 14, 4);
+        c[18] = '-';
+        toHex(lsb >>> 48, c, 19, 4);
+        c[23] = '-';
+        toHex(lsb, c, 24, 12);
+        return new String(c);
+    }
+
+    private static void toHex(long value, char[] c, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            c[i] = HEX[(int)value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * The current block of sequence numbers of one thread.
+     */
+    private static class Sequence {
+        // the shared counter of the generator the block was taken from
+        AtomicLong counter;
+        long next;
+        long limit;
+    }
+}
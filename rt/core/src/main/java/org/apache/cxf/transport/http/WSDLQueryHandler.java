@@ -19,6 +19,7 @@
 
 package org.apache.cxf.transport.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
@@ -60,14 +61,18 @@ import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.helpers.XMLUtils;
 import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.transports.http.CachedQueryResponse;
+import org.apache.cxf.transports.http.CachingQueryHandler;
 import org.apache.cxf.transports.http.StemMatchingQueryHandler;
 import org.apache.cxf.wsdl.WSDLManager;
 import org.apache.cxf.wsdl11.ResourceManagerWSDLLocator;
 import org.apache.cxf.wsdl11.ServiceWSDLBuilder;
 
 
-public class WSDLQueryHandler implements StemMatchingQueryHandler {
+public class WSDLQueryHandler implements StemMatchingQueryHandler, CachingQueryHandler {
     private static final Logger LOG = LogUtils.getL7dLogger(WSDLQueryHandler.class, "QueryMessages");
+    private static final String RESPONSE_CACHE = WSDLQueryHandler.class.getName() + ".Responses";
+    private static final int MAX_CACHED_RESPONSES = 64;
     private Bus bus;
 
     public WSDLQueryHandler(Bus b) {
@@ -104,126 +109,201 @@ public class WSDLQueryHandler implements StemMatchingQueryHandler {
         return false;
     }
 
+    public CachedQueryResponse getCachedResponse(String baseUri, String ctxUri,
+                                                 EndpointInfo endpointInfo) {
+        Map<String, CachedQueryResponse> cache = getResponseCache(endpointInfo, false);
+        if (cache == null) {
+            return null;
+        }
+        return cache.get(getCacheKey(baseUri, endpointInfo));
+    }
+    
+    public void clearCache(EndpointInfo endpointInfo) {
+        endpointInfo.setProperty(RESPONSE_CACHE, null);
+        if (endpointInfo.getService() != null) {
+            endpointInfo.getService().setProperty(WSDLQueryHandler.class.getName(), null);
+            endpointInfo.getService().setProperty(WSDLQueryHandler.class.getName() + ".Schemas", null);
+        }
+    }
+
+    public CachedQueryResponse getResponse(String baseUri, String ctxUri,
+                                           EndpointInfo endpointInfo) {
+        try {
+            CachedQueryResponse response = getCachedResponse(baseUri, ctxUri, endpointInfo);
+            if (response == null) {
+                response = buildResponse(baseUri, endpointInfo);
+            }
+            return response;
+        } catch (WSDLQueryException wex) {
+            throw wex;
+        } catch (Exception wex) {
+            throw new WSDLQueryException(new Message("COULD_NOT_PROVIDE_WSDL",
+                                                     LOG,
+                                                     baseUri), wex);
+        }
+    }
+
     public void writeResponse(String baseUri, String ctxUri,
                               EndpointInfo endpointInfo, OutputStream os) {
         try {
-            int idx = baseUri.toLowerCase().indexOf("?");
-            Map<String, String> params = parseQueryString(baseUri.substring(idx + 1));
-
-            String base;
-            
-            if (endpointInfo.getProperty("publishedEndpointUrl") != null) {
-                base = String.valueOf(endpointInfo.getProperty("publishedEndpointUrl"));
-            } else {
-                base = baseUri.substring(0, baseUri.toLowerCase().indexOf("?"));
+            getResponse(baseUri, ctxUri, endpointInfo).writeTo(os);
+        } catch (WSDLQueryException wex) {
+            throw wex;
+        } catch (Exception wex) {
+            throw new WSDLQueryException(new Message("COULD_NOT_PROVIDE_WSDL",
+                                                     LOG,
+                                                     baseUri), wex);
+        }
+    }
+    
+    private static String getBase(String baseUri, EndpointInfo endpointInfo) {
+        if (endpointInfo.getProperty("publishedEndpointUrl") != null) {
+            return String.valueOf(endpointInfo.getProperty("publishedEndpointUrl"));
+        }
+        return baseUri.substring(0, baseUri.indexOf("?"));
+    }
+    
+    private static String getCacheKey(String baseUri, EndpointInfo endpointInfo) {
+        Map<String, String> params = parseQueryString(baseUri.substring(baseUri.indexOf("?") + 1));
+        String xsd = params.get("xsd");
+        if (xsd == null) {
+            return getBase(baseUri, endpointInfo) + "?wsdl=" + params.get("wsdl");
+        }
+        return getBase(baseUri, endpointInfo) + "?xsd=" + xsd;
+    }
+    
+    private static Map<String, CachedQueryResponse> getResponseCache(EndpointInfo endpointInfo,
+                                                                     boolean create) {
+        Map<String, CachedQueryResponse> cache 
+            = CastUtils.cast((Map)endpointInfo.getProperty(RESPONSE_CACHE));
+        if (cache == null && create) {
+            synchronized (endpointInfo) {
+                cache = CastUtils.cast((Map)endpointInfo.getProperty(RESPONSE_CACHE));
+                if (cache == null) {
+                    cache = new ConcurrentHashMap<String, CachedQueryResponse>();
+                    endpointInfo.setProperty(RESPONSE_CACHE, cache);
+                }
             }
+        }
+        return cache;
+    }
+    
+    private CachedQueryResponse buildResponse(String baseUri, EndpointInfo endpointInfo) 
+        throws Exception {
+        int idx = baseUri.indexOf("?");
+        Map<String, String> params = parseQueryString(baseUri.substring(idx + 1));
 
-            String wsdl = params.get("wsdl");
-            String xsd =  params.get("xsd");
-            
-            Map<String, Definition> mp = CastUtils.cast((Map)endpointInfo.getService()
-                                                        .getProperty(WSDLQueryHandler.class.getName()));
-            Map<String, SchemaReference> smp = CastUtils.cast((Map)endpointInfo.getService()
-                                                        .getProperty(WSDLQueryHandler.class.getName() 
-                                                                     + ".Schemas"));
+        String base = getBase(baseUri, endpointInfo);
+        String wsdl = params.get("wsdl");
+        String xsd =  params.get("xsd");
+        
+        Map<String, Definition> mp = CastUtils.cast((Map)endpointInfo.getService()
+                                                    .getProperty(WSDLQueryHandler.class.getName()));
+        Map<String, SchemaReference> smp = CastUtils.cast((Map)endpointInfo.getService()
+                                                    .getProperty(WSDLQueryHandler.class.getName() 
+                                                                 + ".Schemas"));
 
-            if (mp == null) {
-                endpointInfo.getService().setProperty(WSDLQueryHandler.class.getName(),
-                                                      new ConcurrentHashMap());
-                mp = CastUtils.cast((Map)endpointInfo.getService()
-                                    .getProperty(WSDLQueryHandler.class.getName()));
-            }
-            if (smp == null) {
-                endpointInfo.getService().setProperty(WSDLQueryHandler.class.getName()
-                                                      + ".Schemas",
-                                                      new ConcurrentHashMap());
-                smp = CastUtils.cast((Map)endpointInfo.getService()
-                                    .getProperty(WSDLQueryHandler.class.getName()
-                                                 + ".Schemas"));
-            }
-            
-            if (!mp.containsKey("")) {
-                Definition def = new ServiceWSDLBuilder(bus, endpointInfo.getService()).build();
+        if (mp == null) {
+            endpointInfo.getService().setProperty(WSDLQueryHandler.class.getName(),
+                                                  new ConcurrentHashMap());
+            mp = CastUtils.cast((Map)endpointInfo.getService()
+                                .getProperty(WSDLQueryHandler.class.getName()));
+        }
+        if (smp == null) {
+            endpointInfo.getService().setProperty(WSDLQueryHandler.class.getName()
+                                                  + ".Schemas",
+                                                  new ConcurrentHashMap());
+            smp = CastUtils.cast((Map)endpointInfo.getService()
+                                .getProperty(WSDLQueryHandler.class.getName()
+                                             + ".Schemas"));
+        }
+        
+        if (!mp.containsKey("")) {
+            Definition def = new ServiceWSDLBuilder(bus, endpointInfo.getService()).build();
 
-                mp.put("", def);
-                updateDefinition(def, mp, smp, base, endpointInfo);
-            }
-            
-            
-            Document doc;
-            if (xsd == null) {
-                Definition def = mp.get(wsdl);
-                if (def == null) {
-                    String wsdl2 = resolveWithCatalogs(OASISCatalogManager.getCatalogManager(bus),
-                                                       wsdl,
-                                                       base);
-                    if (wsdl2 != null) {
-                        def = mp.get(wsdl2);
-                    }
-                }
-                if (def == null) {
-                    throw new WSDLQueryException(new Message("WSDL_NOT_FOUND", LOG, wsdl), null);
-                }
-                
-                synchronized (def) {
-                    //writing a def is not threadsafe.  Sync on it to make sure
-                    //we don't get any ConcurrentModificationExceptions
-                    if (endpointInfo.getProperty("publishedEndpointUrl") != null) {
-                        String publishingUrl = 
-                            String.valueOf(endpointInfo.getProperty("publishedEndpointUrl"));
-                        updatePublishedEndpointUrl(publishingUrl, def, endpointInfo.getName());
-                    }
+            mp.put("", def);
+            updateDefinition(def, mp, smp, base, endpointInfo);
+        }
         
-                    WSDLWriter wsdlWriter = bus.getExtension(WSDLManager.class)
-                        .getWSDLFactory().newWSDLWriter();
-                    def.setExtensionRegistry(bus.getExtension(WSDLManager.class).getExtensionRegistry());
-                    doc = wsdlWriter.getDocument(def);
-                }
-            } else {
-                SchemaReference si = smp.get(xsd);
-                if (si == null) {
-                    String xsd2 = resolveWithCatalogs(OASISCatalogManager.getCatalogManager(bus),
-                                                       xsd,
-                                                       base);
-                    if (xsd2 != null) { 
-                        si = smp.get(xsd2);
-                    }
+        
+        Document doc;
+        if (xsd == null) {
+            Definition def = mp.get(wsdl);
+            if (def == null) {
+                String wsdl2 = resolveWithCatalogs(OASISCatalogManager.getCatalogManager(bus),
+                                                   wsdl,
+                                                   base);
+                if (wsdl2 != null) {
+                    def = mp.get(wsdl2);
                 }
-                if (si == null) {
-                    throw new WSDLQueryException(new Message("SCHEMA_NOT_FOUND", LOG, wsdl), null);
+            }
+            if (def == null) {
+                throw new WSDLQueryException(new Message("WSDL_NOT_FOUND", LOG, wsdl), null);
+            }
+            
+            synchronized (def) {
+                //writing a def is not threadsafe.  Sync on it to make sure
+                //we don't get any ConcurrentModificationExceptions
+                if (endpointInfo.getProperty("publishedEndpointUrl") != null) {
+                    String publishingUrl = 
+                        String.valueOf(endpointInfo.getProperty("publishedEndpointUrl"));
+                    updatePublishedEndpointUrl(publishingUrl, def, endpointInfo.getName());
                 }
-                
-                String uri = si.getReferencedSchema().getDocumentBaseURI();
-                uri = resolveWithCatalogs(OASISCatalogManager.getCatalogManager(bus),
-                                          uri,
-                                          si.getReferencedSchema().getDocumentBaseURI());
-                if (uri == null) {
-                    uri = si.getReferencedSchema().getDocumentBaseURI();
+    
+                WSDLWriter wsdlWriter = bus.getExtension(WSDLManager.class)
+                    .getWSDLFactory().newWSDLWriter();
+                def.setExtensionRegistry(bus.getExtension(WSDLManager.class).getExtensionRegistry());
+                doc = wsdlWriter.getDocument(def);
+            }
+        } else {
+            SchemaReference si = smp.get(xsd);
+            if (si == null) {
+                String xsd2 = resolveWithCatalogs(OASISCatalogManager.getCatalogManager(bus),
+                                                   xsd,
+                                                   base);
+                if (xsd2 != null) { 
+                    si = smp.get(xsd2);
                 }
-                ResourceManagerWSDLLocator rml = new ResourceManagerWSDLLocator(uri,
-                                                                                bus);
-                
-                InputSource src = rml.getBaseInputSource();
-                doc = XMLUtils.getParser().parse(src);
+            }
+            if (si == null) {
+                throw new WSDLQueryException(new Message("SCHEMA_NOT_FOUND", LOG, wsdl), null);
             }
             
-            updateDoc(doc, base, mp, smp);
-            String enc = doc.getXmlEncoding();
-            if (enc == null) {
-                enc = "utf-8";
+            String uri = si.getReferencedSchema().getDocumentBaseURI();
+            uri = resolveWithCatalogs(OASISCatalogManager.getCatalogManager(bus),
+                                      uri,
+                                      si.getReferencedSchema().getDocumentBaseURI());
+            if (uri == null) {
+                uri = si.getReferencedSchema().getDocumentBaseURI();
             }
+            ResourceManagerWSDLLocator rml = new ResourceManagerWSDLLocator(uri,
+                                                                            bus);
+            
+            InputSource src = rml.getBaseInputSource();
+            doc = XMLUtils.getParser().parse(src);
+        }
+        
+        updateDoc(doc, base, mp, smp);
+        String enc = doc.getXmlEncoding();
+        if (enc == null) {
+            enc = "utf-8";
+        }
 
-            XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(os,
-                                                                     enc);
-            StaxUtils.writeNode(doc, writer, true);
-            writer.flush();
-        } catch (WSDLQueryException wex) {
-            throw wex;
-        } catch (Exception wex) {
-            throw new WSDLQueryException(new Message("COULD_NOT_PROVIDE_WSDL",
-                                                     LOG,
-                                                     baseUri), wex);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(bout, enc);
+        StaxUtils.writeNode(doc, writer, true);
+        writer.flush();
+        
+        CachedQueryResponse response = new CachedQueryResponse(bout.toByteArray(),
+                                                               "text/xml",
+                                                               System.currentTimeMillis());
+        Map<String, CachedQueryResponse> cache = getResponseCache(endpointInfo, true);
+        if (cache.size() >= MAX_CACHED_RESPONSES) {
+            //the base comes from the request URL, don't let odd Host headers grow this forever
+            cache.clear();
         }
+        cache.put(getCacheKey(baseUri, endpointInfo), response);
+        return response;
     }
     
     private void updateDoc(Document doc, String base,
@@ -52,7 +52,7 @@ import org.apache.cxf.Bus;
 import org.apache.cxf.BusException;
 import org.apache.cxf.catalog.CatalogWSDLLocator;
 import org.apache.cxf.common.logging.LogUtils;
-import org.apache.cxf.common.util.CacheMap;
+import org.apache.cxf.common.util.ConcurrentCacheMap;
 import org.apache.cxf.common.util.PropertiesLoaderUtils;
 import org.apache.cxf.service.model.ServiceSchemaInfo;
 import org.apache.cxf.wsdl.JAXBExtensionHelper;
@@ -80,6 +80,12 @@ public class WSDLManagerImpl implements WSDLManager {
      * The key is the same key that is used to hold the definition object into the definitionsMap 
      */
     final Map<Object, ServiceSchemaInfo> schemaCacheMap;
+    
+    /**
+     * Serializes the updates that have to keep definitionsMap and schemaCacheMap in step.
+     * Lookups and plain puts go to the maps without locking.
+     */
+    private final Object schemaLock = new Object();
     private boolean disableSchemaCache;
     
     private Bus bus;
@@ -103,8 +109,8 @@ public class WSDLManagerImpl implements WSDLManager {
         } catch (WSDLException e) {
             throw new BusException(e);
         }
-        definitionsMap = new CacheMap<Object, Definition>();
-        schemaCacheMap = new CacheMap<Object, ServiceSchemaInfo>();
+        definitionsMap = new ConcurrentCacheMap<Object, Definition>();
+        schemaCacheMap = new ConcurrentCacheMap<Object, ServiceSchemaInfo>();
 
         registerInitialExtensions();
     }
@@ -126,9 +132,7 @@ public class WSDLManagerImpl implements WSDLManager {
     }
     
     public Map<Object, Definition> getDefinitions() {
-        synchronized (definitionsMap) {
-            return Collections.unmodifiableMap(definitionsMap);
-        }
+        return Collections.unmodifiableMap(definitionsMap);
     }
     
 
@@ -149,15 +153,12 @@ public class WSDLManagerImpl implements WSDLManager {
      * @see org.apache.cxf.wsdl.WSDLManager#getDefinition(java.net.URL)
      */
     public Definition getDefinition(URL url) throws WSDLException { 
-        synchronized (definitionsMap) {
-            if (definitionsMap.containsKey(url)) {
-                return definitionsMap.get(url);
-            }
-        }
-        Definition def = loadDefinition(url.toString());
-        synchronized (definitionsMap) {
-            definitionsMap.put(url, def);
+        Definition def = definitionsMap.get(url);
+        if (def != null) {
+            return def;
         }
+        def = loadDefinition(url.toString());
+        definitionsMap.put(url, def);
         return def;
     }
 
@@ -167,35 +168,29 @@ public class WSDLManagerImpl implements WSDLManager {
      * @see org.apache.cxf.wsdl.WSDLManager#getDefinition(java.lang.String)
      */
     public Definition getDefinition(String url) throws WSDLException {
-        synchronized (definitionsMap) {
-            if (definitionsMap.containsKey(url)) {
-                return definitionsMap.get(url);
-            }
+        Definition def = definitionsMap.get(url);
+        if (def != null) {
+            return def;
         }
         return loadDefinition(url);
     }
 
     public Definition getDefinition(Element el) throws WSDLException {
-        synchronized (definitionsMap) {
-            if (definitionsMap.containsKey(el)) {
-                return definitionsMap.get(el);
-            }
+        Definition def = definitionsMap.get(el);
+        if (def != null) {
+            return def;
         }
         WSDLReader reader = factory.newWSDLReader();
         reader.setFeature("javax.wsdl.verbose", false);
         reader.setExtensionRegistry(registry);       
-        Definition def = reader.readWSDL("", el);
-        synchronized (definitionsMap) {
-            definitionsMap.put(el, def);
-        }
+        def = reader.readWSDL("", el);
+        definitionsMap.put(el, def);
         return def;
     }
 
 
     public void addDefinition(Object key, Definition wsdl) {
-        synchronized (definitionsMap) {
-            definitionsMap.put(key, wsdl);
-        }
+        definitionsMap.put(key, wsdl);
     }
 
     private Definition loadDefinition(String url) throws WSDLException {
@@ -207,9 +202,7 @@ public class WSDLManagerImpl implements WSDLManager {
                                                                                 catLocator,
                                                                                 bus);
         Definition def = reader.readWSDL(wsdlLocator);
-        synchronized (definitionsMap) {
-            definitionsMap.put(url, def);
-        }
+        definitionsMap.put(url, def);
         return def;
     }
 
@@ -248,13 +241,11 @@ public class WSDLManagerImpl implements WSDLManager {
         if (disableSchemaCache) {
             return null;
         }
-        synchronized (definitionsMap) {
-            for (Map.Entry<Object, Definition> e : definitionsMap.entrySet()) {
-                if (e.getValue() == wsdl) {
-                    ServiceSchemaInfo info = schemaCacheMap.get(e.getKey());
-                    if (info != null) {
-                        return info;
-                    }
+        for (Map.Entry<Object, Definition> e : definitionsMap.entrySet()) {
+            if (e.getValue() == wsdl) {
+                ServiceSchemaInfo info = schemaCacheMap.get(e.getKey());
+                if (info != null) {
+                    return info;
                 }
             }
         }
@@ -263,7 +254,7 @@ public class WSDLManagerImpl implements WSDLManager {
 
     public void putSchemasForDefinition(Definition wsdl, ServiceSchemaInfo schemas) {
         if (!disableSchemaCache) {
-            synchronized (definitionsMap) {
+            synchronized (schemaLock) {
                 for (Map.Entry<Object, Definition> e : definitionsMap.entrySet()) {
                     if (e.getValue() == wsdl) {
                         schemaCacheMap.put(e.getKey(), schemas);
@@ -286,7 +277,7 @@ public class WSDLManagerImpl implements WSDLManager {
     }
 
     public void removeDefinition(Definition wsdl) {
-        synchronized (definitionsMap) {
+        synchronized (schemaLock) {
             List<Object> keys = new ArrayList<Object>();
             for (Map.Entry<Object, Definition> e : definitionsMap.entrySet()) {
                 if (e.getValue() == wsdl) {
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.attachment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MimeBodyPartInputStreamTest extends Assert {
+    private static final byte[] BOUNDARY = "------=_Part_1".getBytes();
+    
+    @Test
+    public void testSkipTable() throws Exception {
+        int[] table = MimeBodyPartInputStream.createSkipTable("abcab".getBytes());
+        assertEquals(1, table['a']);
+        assertEquals(3, table['b']);
+        assertEquals(2, table['c']);
+        assertEquals(5, table['x']);
+        
+        MimeBodyPartInputStream m = new MimeBodyPartInputStream(null, "abcab".getBytes(), 2048);
+        byte[] data = "xxabcaabcabxx".getBytes();
+        assertEquals(6, m.indexOfBoundary(data, 0, data.length));
+        assertEquals(-1, m.indexOfBoundary(data, 0, 10));
+        assertEquals(-1, m.indexOfBoundary(data, 7, 6));
+    }
+    
+    @Test
+    public void testParts() throws Exception {
+        Random random = new Random(42);
+        byte[] part1 = createData(random, 10000);
+        byte[] part2 = createData(random, 3);
+        byte[] part3 = new byte[0];
+        
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        bout.write(part1);
+        bout.write("\r\n".getBytes());
+        bout.write(BOUNDARY);
+        bout.write("\r\n".getBytes());
+        bout.write(part2);
+        bout.write("\r\n".getBytes());
+        bout.write(BOUNDARY);
+        bout.write("\r\n".getBytes());
+        bout.write(part3);
+        bout.write("\r\n".getBytes());
+        bout.write(BOUNDARY);
+        bout.write("--\r\n".getBytes());
+        byte[] message = bout.toByteArray();
+        
+        for (int size : new int[] {1, 7, 100, 4096}) {
+            PushbackInputStream in = new PushbackInputStream(new ByteArrayInputStream(message), 2048);
+            assertTrue(Arrays.equals(part1, readPart(in, size)));
+            assertTrue(Arrays.equals(part2, readPart(in, size)));
+            assertTrue(Arrays.equals(part3, readPart(in, size)));
+            assertEquals(-1, in.read());
+        }
+    }
+    
+    @Test
+    public void testSingleByteRead() throws Exception {
+        byte[] message = ("ab\r\rc\r\n-\r\n------=_Part\r\n" + new String(BOUNDARY) + "\r\nnext").getBytes();
+        PushbackInputStream in = new PushbackInputStream(new ByteArrayInputStream(message), 2048);
+        MimeBodyPartInputStream m = new MimeBodyPartInputStream(in, BOUNDARY, 2048);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        for (int c = m.read(); c != -1; c = m.read()) {
+            bout.write(c);
+        }
+        assertEquals("ab\r\rc\r\n-\r\n------=_Part", bout.toString());
+        assertEquals(-1, m.read());
+        assertEquals('n', in.read());
+    }
+
+    private static byte[] createData(Random random, int size) {
+        // plenty of CRLFs and boundary prefixes to trip up the matcher
+        byte[] alphabet = "\r\n-=_Pa".getBytes();
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return data;
+    }
+    
+    private static byte[] readPart(PushbackInputStream in, int size) throws Exception {
+        MimeBodyPartInputStream m = new MimeBodyPartInputStream(in, BOUNDARY, 2048);
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        byte[] buf = new byte[size];
+        int n = m.read(buf, 0, size);
+        while (n != -1) {
+            bout.write(buf, 0, n);
+            n = m.read(buf, 0, size);
+        }
+        return bout.toByteArray();
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.id;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdGeneratorImplTest extends Assert {
+
+    @Test
+    public void testFormat() {
+        IdGeneratorImpl generator = new IdGeneratorImpl();
+        String id = generator.generateId();
+        assertEquals(36, id.length());
+        UUID uuid = UUID.fromString(id);
+        assertEquals(id, uuid.toString());
+        assertEquals(4, uuid.version());
+        assertEquals(2, uuid.variant());
+
+        UUID random = UUID.randomUUID();
+        assertEquals(random.toString(),
+                     IdGeneratorImpl.format(random.getMostSignificantBits(),
+                                            random.getLeastSignificantBits()));
+    }
+
+    @Test
+    public void testSequential() {
+        IdGeneratorImpl generator = new IdGeneratorImpl();
+        UUID first = UUID.fromString(generator.generateId());
+        UUID second = UUID.fromString(generator.generateId());
+        assertEquals(first.getMostSignificantBits(), second.getMostSignificantBits());
+        assertEquals(first.getLeastSignificantBits() + 1, second.getLeastSignificantBits());
+        assertFalse("generators should not share a node prefix",
+                    first.getMostSignificantBits()
+                    == UUID.fromString(new IdGeneratorImpl().generateId()).getMostSignificantBits());
+    }
+
+    @Test
+    public void testUniqueAcrossThreads() throws Exception {
+        final IdGeneratorImpl generator = new IdGeneratorImpl();
+        // keeping every id would take hundreds of MB, so each thread checks that its ids
+        // count up through whole blocks and only the block numbers are compared across threads
+        final Map<Long, Boolean> blocks = new ConcurrentHashMap<Long, Boolean>();
+        final AtomicInteger blockCount = new AtomicInteger();
+        final List<String> errors = new CopyOnWriteArrayList<String>();
+        final int threads = 8;
+        // cross several block boundaries in every thread
+        final int perThread = 3 * (1 << IdGeneratorImpl.BLOCK_BITS) + 17;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    long expected = 0;
+                    for (int n = 0; n < perThread; n++) {
+                        long lsb = UUID.fromString(generator.generateId()).getLeastSignificantBits();
+                        if (n > 0 && lsb == expected) {
+                            expected++;
+                            continue;
+                        }
+                        if ((lsb & ((1 << IdGeneratorImpl.BLOCK_BITS) - 1)) != 0) {
+                            errors.add("id " + Long.toHexString(lsb) + " does not start a block");
+                        }
+                        blocks.put(lsb >>> IdGeneratorImpl.BLOCK_BITS, Boolean.TRUE);
+                        blockCount.incrementAndGet();
+                        expected = lsb + 1;
+                    }
+                }
+            };
+            t.start();
+            workers.add(t);
+        }
+        start.countDown();
+        for (Thread t : workers) {
+            t.join();
+        }
+        assertEquals(errors.toString(), 0, errors.size());
+        assertEquals("a block was handed to more than one thread", blockCount.get(), blocks.size());
+        assertEquals(threads * 4, blocks.size());
+    }
+}
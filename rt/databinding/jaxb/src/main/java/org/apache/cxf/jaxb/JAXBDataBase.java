@@ -36,6 +36,7 @@ import org.apache.cxf.message.Attachment;
 public abstract class JAXBDataBase {
     
     protected JAXBContext context; 
+    protected JAXBMarshallerPool marshallerPool;
     protected Schema schema;
     protected Collection<Attachment> attachments;
     protected boolean attachmentProcessingEnabled;
@@ -50,9 +51,24 @@ public abstract class JAXBDataBase {
     }
 
     public void setJAXBContext(JAXBContext jc) {
+        if (marshallerPool != null && marshallerPool.getContext() != jc) {
+            marshallerPool = null;
+        }
         this.context = jc;
     }
     
+    /**
+     * Sets the pool the Marshallers/Unmarshallers are taken from.  If no pool
+     * is set, new ones are created from the JAXBContext for every part.
+     */
+    public void setMarshallerPool(JAXBMarshallerPool pool) {
+        this.marshallerPool = pool;
+    }
+    
+    public JAXBMarshallerPool getMarshallerPool() {
+        return marshallerPool;
+    }
+    
     public Schema getSchema() {
         return schema;
     }
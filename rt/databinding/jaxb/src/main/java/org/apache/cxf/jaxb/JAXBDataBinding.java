@@ -36,6 +36,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -61,7 +62,7 @@ import com.sun.xml.bind.v2.runtime.JAXBContextImpl;
 
 import org.apache.cxf.common.i18n.Message;
 import org.apache.cxf.common.logging.LogUtils;
-import org.apache.cxf.common.util.CacheMap;
+import org.apache.cxf.common.util.ConcurrentCacheMap;
 import org.apache.cxf.common.util.PackageUtils;
 import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.common.xmlschema.SchemaCollection;
@@ -129,11 +130,11 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
         }
     }
 
-    private static final Map<Set<Class<?>>, CachedContextAndSchemas> JAXBCONTEXT_CACHE 
-        = new CacheMap<Set<Class<?>>, CachedContextAndSchemas>();
+    private static final ConcurrentMap<Set<Class<?>>, CachedContextAndSchemas> JAXBCONTEXT_CACHE 
+        = new ConcurrentCacheMap<Set<Class<?>>, CachedContextAndSchemas>();
     
-    private static final Map<Package, CachedClassOrNull> OBJECT_FACTORY_CACHE
-        = new CacheMap<Package, CachedClassOrNull>();
+    private static final ConcurrentMap<Package, CachedClassOrNull> OBJECT_FACTORY_CACHE
+        = new ConcurrentCacheMap<Package, CachedClassOrNull>();
 
     Class[] extraClass;
 
@@ -146,6 +147,8 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
     private Map<String, Object> marshallerProperties = Collections.emptyMap();
 
     private boolean qualifiedSchemas;
+    private boolean poolMarshallers = true;
+    private volatile JAXBMarshallerPool marshallerPool;
     private Service service;
 
     public JAXBDataBinding() {
@@ -172,20 +175,16 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
 
     public final void setContext(JAXBContext ctx) {
         context = ctx;
+        marshallerPool = null;
     }
 
     private NamespacePrefixMapper getNamespacePrefixMapper() {
-        Map<String, String> mappings = getDeclaredNamespaceMappings();
-        if (mappings == null) {
-            mappings = Collections.emptyMap();
-        }
-
-        final Map<String, String> closedMappings = mappings;
-
+        //the mapper may live in a pooled Marshaller, so look the mappings up on each call
         NamespacePrefixMapper mapper = new NamespacePrefixMapper() {
             @Override
             public String getPreferredPrefix(String namespaceUri, String suggestion, boolean requirePrefix) {
-                String prefix = closedMappings.get(namespaceUri);
+                Map<String, String> mappings = getDeclaredNamespaceMappings();
+                String prefix = mappings == null ? null : mappings.get(namespaceUri);
                 if (prefix != null) {
                     return prefix;
                 }
@@ -194,25 +193,32 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
         };
         return mapper;
     }
+    
+    private JAXBMarshallerPool getMarshallerPool() {
+        JAXBMarshallerPool pool = marshallerPool;
+        if (pool == null || pool.getContext() != context) {
+            Map<String, Object> currentMarshallerProperties = new HashMap<String, Object>();
+            if (!marshallerProperties.containsKey("com.sun.xml.bind.namespacePrefixMapper")) {
+                currentMarshallerProperties.put("com.sun.xml.bind.namespacePrefixMapper",
+                                                getNamespacePrefixMapper());
+            }
+            currentMarshallerProperties.putAll(marshallerProperties);
+            pool = new JAXBMarshallerPool(context, currentMarshallerProperties, poolMarshallers);
+            marshallerPool = pool;
+        }
+        return pool;
+    }
 
     @SuppressWarnings("unchecked")
     public <T> DataWriter<T> createWriter(Class<T> c) {
-        Map<String, Object> currentMarshallerProperties = new HashMap<String, Object>();
-        if (!marshallerProperties.containsKey("com.sun.xml.bind.namespacePrefixMapper")) {
-            currentMarshallerProperties.put("com.sun.xml.bind.namespacePrefixMapper",
-                                            getNamespacePrefixMapper());
-        }
-        currentMarshallerProperties.putAll(marshallerProperties);
         if (c == XMLStreamWriter.class) {
-            return (DataWriter<T>)new DataWriterImpl<XMLStreamWriter>(context, currentMarshallerProperties);
+            return (DataWriter<T>)new DataWriterImpl<XMLStreamWriter>(getMarshallerPool());
         } else if (c == OutputStream.class) {
-            return (DataWriter<T>)new DataWriterImpl<OutputStream>(context, 
-                currentMarshallerProperties);            
+            return (DataWriter<T>)new DataWriterImpl<OutputStream>(getMarshallerPool());            
         } else if (c == XMLEventWriter.class) {
-            return (DataWriter<T>)new DataWriterImpl<XMLEventWriter>(context,
-                                                                     currentMarshallerProperties);           
+            return (DataWriter<T>)new DataWriterImpl<XMLEventWriter>(getMarshallerPool());           
         } else if (c == Node.class) {
-            return (DataWriter<T>)new DataWriterImpl<Node>(context, currentMarshallerProperties);      
+            return (DataWriter<T>)new DataWriterImpl<Node>(getMarshallerPool());      
         }
         
         return null;
@@ -226,11 +232,11 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
     public <T> DataReader<T> createReader(Class<T> c) {
         DataReader<T> dr = null;
         if (c == XMLStreamReader.class) {
-            dr = (DataReader<T>)new DataReaderImpl<XMLStreamReader>(context);
+            dr = (DataReader<T>)new DataReaderImpl<XMLStreamReader>(getMarshallerPool());
         } else if (c == XMLEventReader.class) {
-            dr = (DataReader<T>)new DataReaderImpl<XMLEventReader>(context);
+            dr = (DataReader<T>)new DataReaderImpl<XMLEventReader>(getMarshallerPool());
         } else if (c == Node.class) {
-            dr = (DataReader<T>)new DataReaderImpl<Node>(context);
+            dr = (DataReader<T>)new DataReaderImpl<Node>(getMarshallerPool());
         }
 
         return dr;
@@ -286,9 +292,7 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
             if (ctx == null) {
                 throw new ServiceConstructionException(e1);
             } else {
-                synchronized (JAXBCONTEXT_CACHE) {
-                    JAXBCONTEXT_CACHE.put(contextClasses, cachedContextAndSchemas);
-                }                
+                JAXBCONTEXT_CACHE.put(contextClasses, cachedContextAndSchemas);
             }
         }
         ctx = cachedContextAndSchemas.getContext();
@@ -430,9 +434,7 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
                 Class<?> ofactory = null;
                 CachedClassOrNull cachedFactory = null;
                 if (pkg != null) {
-                    synchronized (OBJECT_FACTORY_CACHE) {
-                        cachedFactory = OBJECT_FACTORY_CACHE.get(pkg);
-                    }
+                    cachedFactory = OBJECT_FACTORY_CACHE.get(pkg);
                 }
                 if (cachedFactory != null) {
                     ofactory = cachedFactory.getCachedClass();
@@ -511,15 +513,15 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
             map.putAll(contextProperties);
         }
 
-        CachedContextAndSchemas cachedContextAndSchemas = null;
-        synchronized (JAXBCONTEXT_CACHE) {
-            cachedContextAndSchemas = JAXBCONTEXT_CACHE.get(classes);
-        }
+        CachedContextAndSchemas cachedContextAndSchemas = JAXBCONTEXT_CACHE.get(classes);
         if (cachedContextAndSchemas == null) {
             JAXBContext ctx = JAXBContext.newInstance(classes.toArray(new Class[classes.size()]), map);
             cachedContextAndSchemas = new CachedContextAndSchemas(ctx);
-            synchronized (JAXBCONTEXT_CACHE) {
-                JAXBCONTEXT_CACHE.put(classes, cachedContextAndSchemas);
+            // another thread may have created a context for the same classes in the meantime
+            CachedContextAndSchemas existing 
+                = JAXBCONTEXT_CACHE.putIfAbsent(classes, cachedContextAndSchemas);
+            if (existing != null) {
+                cachedContextAndSchemas = existing;
             }
         }
 
@@ -542,10 +544,7 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
         if (objectFactoryPkg == null) {
             return;
         }
-        synchronized (OBJECT_FACTORY_CACHE) {
-            OBJECT_FACTORY_CACHE.put(objectFactoryPkg, 
-                                     new CachedClassOrNull(ofactory));
-        }
+        OBJECT_FACTORY_CACHE.put(objectFactoryPkg, new CachedClassOrNull(ofactory));
     }
 
     private void addWsAddressingTypes(Set<Class<?>> classes) {
@@ -635,15 +634,34 @@ public class JAXBDataBinding extends AbstractDataBinding implements DataBinding
      */
     public void setMarshallerProperties(Map<String, Object> marshallerProperties) {
         this.marshallerProperties = marshallerProperties;
+        marshallerPool = null;
+    }
+    
+    /**
+     * Return true if the readers and writers of this data binding reuse
+     * Marshallers and Unmarshallers (one idle instance per thread).
+     * 
+     * @return true if pooling is enabled (the default).
+     */
+    public boolean isPoolMarshallers() {
+        return poolMarshallers;
+    }
+
+    /**
+     * Controls whether the readers and writers of this data binding reuse
+     * Marshallers and Unmarshallers instead of creating new ones from the
+     * JAXBContext for every message part.
+     * 
+     * @param pool false to create a new Marshaller/Unmarshaller for every part.
+     */
+    public void setPoolMarshallers(boolean pool) {
+        this.poolMarshallers = pool;
+        marshallerPool = null;
     }
     
     
     public static void clearCaches() {
-        synchronized (JAXBCONTEXT_CACHE) {
-            JAXBCONTEXT_CACHE.clear();
-        }
-        synchronized (OBJECT_FACTORY_CACHE) {
-            OBJECT_FACTORY_CACHE.clear();
-        }
+        JAXBCONTEXT_CACHE.clear();
+        OBJECT_FACTORY_CACHE.clear();
     }
 }
@@ -36,14 +36,12 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
-import javax.xml.bind.PropertyException;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.bind.ValidationEvent;
 import javax.xml.bind.ValidationEventHandler;
@@ -88,30 +86,6 @@ public final class JAXBEncoderDecoder {
     private JAXBEncoderDecoder() {
     }
 
-    private static Marshaller createMarshaller(JAXBContext context, Class<?> cls,
-                                               Map<String, Object> marshallerProperties)
-        throws JAXBException {
-        Marshaller jm = null;
-        if (context == null) {
-            context = JAXBContext.newInstance(cls);
-        }
-
-        jm = context.createMarshaller();
-        jm.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
-        jm.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        if (marshallerProperties != null) {
-            for (Map.Entry<String, Object> propEntry : marshallerProperties.entrySet()) {
-                try {
-                    jm.setProperty(propEntry.getKey(), propEntry.getValue());
-                } catch (PropertyException pe) {
-                    LOG.log(Level.INFO, "PropertyException setting Marshaller properties", pe);
-                }
-            }
-        }
-
-        return jm;
-    }
-
     private static class MtomValidationHandler implements ValidationEventHandler {
         ValidationEventHandler origHandler;
         JAXBAttachmentMarshaller marshaller;
@@ -135,7 +109,6 @@ public final class JAXBEncoderDecoder {
         
     }
 
-    @SuppressWarnings("unchecked")
     public static void marshall(JAXBContext context, 
                                 Schema schema, 
                                 Object elValue, 
@@ -143,6 +116,17 @@ public final class JAXBEncoderDecoder {
                                 Object source, 
                                 AttachmentMarshaller am,
                                 Map<String, Object> marshallerProperties) {
+        marshall(new JAXBMarshallerPool(context, marshallerProperties, false),
+                 schema, elValue, part, source, am);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static void marshall(JAXBMarshallerPool pool, 
+                                Schema schema, 
+                                Object elValue, 
+                                MessagePartInfo part,
+                                Object source, 
+                                AttachmentMarshaller am) {
         Class<?> cls = null;
         if (part != null) {
             cls = part.getTypeClass();
@@ -158,15 +142,7 @@ public final class JAXBEncoderDecoder {
         }
         
         try {
-            Marshaller u = createMarshaller(context, cls, marshallerProperties);
-            try {
-                // The Marshaller.JAXB_FRAGMENT will tell the Marshaller not to
-                // generate the xml declaration.
-                u.setProperty(Marshaller.JAXB_FRAGMENT, true);
-                u.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-            } catch (javax.xml.bind.PropertyException e) {
-                // intentionally empty.
-            }
+            Marshaller u = pool.acquireMarshaller(cls);
             Object mObj = elValue;
             QName elName = null;
             if (part != null) {
@@ -231,6 +207,8 @@ public final class JAXBEncoderDecoder {
             } else {
                 writeObject(u, source, mObj);
             }
+            //only hand back marshallers that completed normally
+            pool.releaseMarshaller(u);
         } catch (Fault ex) {
             throw (Fault)ex.fillInStackTrace();
         } catch (Exception ex) {
@@ -244,7 +222,6 @@ public final class JAXBEncoderDecoder {
             }                       
         }
     }
-    @SuppressWarnings("unchecked")
     public static void marshallException(JAXBContext context, 
                                 Schema schema, 
                                 Exception elValue, 
@@ -252,6 +229,17 @@ public final class JAXBEncoderDecoder {
                                 Object source, 
                                 AttachmentMarshaller am,
                                 Map<String, Object> marshallerProperties) {
+        marshallException(new JAXBMarshallerPool(context, marshallerProperties, false),
+                          schema, elValue, part, source, am);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static void marshallException(JAXBMarshallerPool pool, 
+                                Schema schema, 
+                                Exception elValue, 
+                                MessagePartInfo part,
+                                Object source, 
+                                AttachmentMarshaller am) {
         XMLStreamWriter writer = getStreamWriter(source);
         QName qn = part.getElementQName();
         try {
@@ -276,18 +264,7 @@ public final class JAXBEncoderDecoder {
             }
             
             
-            Marshaller u = createMarshaller(context, cls, marshallerProperties);
-            try {
-                // override anything the user asked us to set.
-                // The Marshaller.JAXB_FRAGMENT will tell the Marshaller not to
-                // generate the xml declaration.
-                u.setProperty(Marshaller.JAXB_FRAGMENT, true);
-                u.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-            } catch (javax.xml.bind.PropertyException e) {
-                // intentionally empty.
-            }
-
-            
+            Marshaller u = pool.acquireMarshaller(cls);
             for (Field f : cls.getDeclaredFields()) {
                 if (JAXBContextInitializer.isFieldAccepted(f, accessType)) {
                     QName fname = new QName(namespace, f.getName());
@@ -307,6 +284,7 @@ public final class JAXBEncoderDecoder {
             
             writer.writeEndElement();
             writer.flush();
+            pool.releaseMarshaller(u);
         } catch (Exception e) {
             throw new Fault(new Message("MARSHAL_ERROR", BUNDLE, e.getMessage()), e);
         }
@@ -316,6 +294,15 @@ public final class JAXBEncoderDecoder {
                                     Object source,
                                     MessagePartInfo part, 
                                     AttachmentUnmarshaller au) {
+        return unmarshallException(new JAXBMarshallerPool(context, null, false),
+                                   schema, source, part, au);
+    }
+    
+    public static Exception unmarshallException(JAXBMarshallerPool pool, 
+                                    Schema schema, 
+                                    Object source,
+                                    MessagePartInfo part, 
+                                    AttachmentUnmarshaller au) {
         XMLStreamReader reader;
         if (source instanceof XMLStreamReader) {
             reader = (XMLStreamReader)source;
@@ -352,15 +339,7 @@ public final class JAXBEncoderDecoder {
             }
             XmlAccessType accessType = accessorType != null 
                 ? accessorType.value() : XmlAccessType.PUBLIC_MEMBER;
-            Unmarshaller u = createUnmarshaller(context, cls);
-            try {
-                // The Marshaller.JAXB_FRAGMENT will tell the Marshaller not to
-                // generate the xml declaration.
-                u.setProperty(Marshaller.JAXB_FRAGMENT, true);
-                u.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-            } catch (javax.xml.bind.PropertyException e) {
-                // intentionally empty.
-            }
+            Unmarshaller u = pool.acquireUnmarshaller(cls);
             reader.nextTag();
             while (reader.getEventType() == XMLStreamReader.START_ELEMENT) {
                 QName q = reader.getName();
@@ -384,6 +363,7 @@ public final class JAXBEncoderDecoder {
                     m2.invoke(obj, o);
                 }
             }
+            pool.releaseUnmarshaller(u);
             return (Exception)obj;
         } catch (Exception e) {
             throw new Fault(new Message("MARSHAL_ERROR", BUNDLE, e.getMessage()), e);
@@ -419,23 +399,22 @@ public final class JAXBEncoderDecoder {
         marshall(context, schema, elValue, null, source, null, marshallerProperties);
     }
     
-    @SuppressWarnings("unchecked")
     public static void marshallNullElement(JAXBContext context, Schema schema, 
                                            Object source, MessagePartInfo part,
                                            Map<String, Object> marshallerProperties) {
+        marshallNullElement(new JAXBMarshallerPool(context, marshallerProperties, false),
+                            schema, source, part);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static void marshallNullElement(JAXBMarshallerPool pool, Schema schema, 
+                                           Object source, MessagePartInfo part) {
         Class<?> clazz = part != null ? (Class) part.getTypeClass() : null;
         try {
-            Marshaller u = createMarshaller(context, clazz, marshallerProperties);
+            Marshaller u = pool.acquireMarshaller(clazz);
             u.setSchema(schema);
-            try {
-                // The Marshaller.JAXB_FRAGMENT will tell the Marshaller not to
-                // generate the xml declaration.
-                u.setProperty(Marshaller.JAXB_FRAGMENT, true);
-                u.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
-            } catch (javax.xml.bind.PropertyException e) {
-                // intentionally empty.
-            }
             writeObject(u, source, new JAXBElement(part.getElementQName(), clazz, null));
+            pool.releaseMarshaller(u);
         } catch (JAXBException e) {
             throw new Fault(new Message("MARSHAL_ERROR", BUNDLE, e.getMessage()), e);
         } 
@@ -449,38 +428,34 @@ public final class JAXBEncoderDecoder {
         marshall(context, schema, elValue, part, source, null, marshallerProperties);
     }
 
-    private static Unmarshaller createUnmarshaller(JAXBContext context, Class<?> cls) throws JAXBException {
-        Unmarshaller um = null;
-        if (context == null) {
-            if (cls == null) {
-                throw new IllegalStateException("A JAXBContext or Class to unmarshal must be provided!");
-            }
-            context = JAXBContext.newInstance(cls);
-        }
-
-        um = context.createUnmarshaller();
-
-        return um;
-    }
-
     public static Object unmarshall(JAXBContext context, Schema schema, Object source) {
         return unmarshall(context, schema, source, null, null, true);
     }
 
-    @SuppressWarnings("unchecked")
     public static Object unmarshall(JAXBContext context, 
                                     Schema schema, 
                                     Object source,
                                     MessagePartInfo part, 
                                     AttachmentUnmarshaller au, 
                                     boolean unwrap) {
+        return unmarshall(new JAXBMarshallerPool(context, null, false),
+                          schema, source, part, au, unwrap);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static Object unmarshall(JAXBMarshallerPool pool, 
+                                    Schema schema, 
+                                    Object source,
+                                    MessagePartInfo part, 
+                                    AttachmentUnmarshaller au, 
+                                    boolean unwrap) {
         Class<?> clazz = part != null ? (Class) part.getTypeClass() : null;
         if (clazz != null 
             && Exception.class.isAssignableFrom(clazz)
             && part != null
             && Boolean.TRUE.equals(part.getProperty(JAXBDataBinding.class.getName() 
                                                     + ".CUSTOM_EXCEPTION"))) {
-            return unmarshallException(context, schema, source, part, au);
+            return unmarshallException(pool, schema, source, part, au);
         }
         
         QName elName = part != null ? part.getConcreteName() : null;
@@ -494,7 +469,7 @@ public final class JAXBEncoderDecoder {
                 && ((XmlSchemaSimpleType)el.getSchemaType()).getContent()
                 instanceof XmlSchemaSimpleTypeList) {
                 
-                Object obj = unmarshall(context, schema, source, elName, null, au, unwrap);
+                Object obj = unmarshall(pool, schema, source, elName, null, au, unwrap);
                 if (clazz.isArray()
                     && obj instanceof List) {
                     return ((List)obj).toArray((Object[])Array.newInstance(clazz.getComponentType(),
@@ -505,7 +480,7 @@ public final class JAXBEncoderDecoder {
             } else if (part.getMessageInfo().getOperation().isUnwrapped()
                         && el.getMaxOccurs() != 1) {
                 //must read ourselves....
-                List<Object> ret = unmarshallArray(context, schema, source,
+                List<Object> ret = unmarshallArray(pool, schema, source,
                                                    elName, clazz.getComponentType(),
                                                    au, createList(part));
                 Object o = ret;
@@ -528,11 +503,11 @@ public final class JAXBEncoderDecoder {
             && part.getTypeQName() != null
             && part.getTypeQName().getLocalPart().equals("hexBinary")) {
             
-            String obj = (String)unmarshall(context, schema, source, elName, String.class, au, unwrap);
+            String obj = (String)unmarshall(pool, schema, source, elName, String.class, au, unwrap);
             return new HexBinaryAdapter().unmarshal(obj);
         }
 
-        Object o = unmarshall(context, schema, source, elName, clazz, au, unwrap);
+        Object o = unmarshall(pool, schema, source, elName, clazz, au, unwrap);
         if (o != null
             && o.getClass().isArray()
             && isList(part)) {
@@ -587,10 +562,21 @@ public final class JAXBEncoderDecoder {
                                     Class<?> clazz,
                                     AttachmentUnmarshaller au, 
                                     boolean unwrap) {
+        return unmarshall(new JAXBMarshallerPool(context, null, false),
+                          schema, source, elName, clazz, au, unwrap);
+    }
+    
+    public static Object unmarshall(JAXBMarshallerPool pool, 
+                                    Schema schema, 
+                                    Object source,
+                                    QName elName,
+                                    Class<?> clazz,
+                                    AttachmentUnmarshaller au, 
+                                    boolean unwrap) {
         Object obj = null;
         
         try {
-            Unmarshaller u = createUnmarshaller(context, clazz);
+            Unmarshaller u = pool.acquireUnmarshaller(clazz);
             u.setSchema(schema);
             if (au != null) {
                 u.setAttachmentUnmarshaller(au);
@@ -624,6 +610,7 @@ public final class JAXBEncoderDecoder {
             } else {
                 throw new Fault(new Message("UNKNOWN_SOURCE", BUNDLE, source.getClass().getName()));
             }
+            pool.releaseUnmarshaller(u);
         } catch (Fault ex) {
             ex.fillInStackTrace();
             throw ex;
@@ -679,8 +666,19 @@ public final class JAXBEncoderDecoder {
                                     Class<?> clazz,
                                     AttachmentUnmarshaller au,
                                     List<Object> ret) {
+        return unmarshallArray(new JAXBMarshallerPool(context, null, false),
+                               schema, source, elName, clazz, au, ret);
+    }
+    
+    public static List<Object> unmarshallArray(JAXBMarshallerPool pool, 
+                                    Schema schema, 
+                                    Object source,
+                                    QName elName,
+                                    Class<?> clazz,
+                                    AttachmentUnmarshaller au,
+                                    List<Object> ret) {
         try {
-            Unmarshaller u = createUnmarshaller(context, clazz);
+            Unmarshaller u = pool.acquireUnmarshaller(clazz);
             u.setSchema(schema);
             if (au != null) {
                 u.setAttachmentUnmarshaller(au);
@@ -704,6 +702,7 @@ public final class JAXBEncoderDecoder {
                     reader.nextTag();
                 }
             }
+            pool.releaseUnmarshaller(u);
             return ret;
         } catch (Fault ex) {
             ex.fillInStackTrace();
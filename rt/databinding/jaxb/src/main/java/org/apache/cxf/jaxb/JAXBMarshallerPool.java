@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxb;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.PropertyException;
+import javax.xml.bind.Unmarshaller;
+
+import org.apache.cxf.common.logging.LogUtils;
+
+/**
+ * Hands out Marshallers and Unmarshallers for a JAXBContext.  The Marshallers
+ * are configured with the marshaller properties once, when they are created.
+ * <p>
+ * When pooling is enabled idle Marshallers and Unmarshallers are kept in a
+ * queue shared by all threads and reused across messages.  An instance is
+ * taken off the queue while it is in use, so a nested (re-entrant) call simply
+ * gets another one.  At most {@link #MAX_IDLE} idle instances of each kind are
+ * kept; extra ones are dropped on release.  Nothing is held per thread, so a
+ * pool that is replaced (for example when the JAXBContext changes) is garbage
+ * collected with everything it holds.  On release the per-message state
+ * (schema, attachment (un)marshaller and event handler) is reset.
+ */
+public final class JAXBMarshallerPool {
+    public static final int MAX_IDLE = 16;
+    
+    private static final Logger LOG = LogUtils.getLogger(JAXBMarshallerPool.class);
+    
+    private final JAXBContext context;
+    private final Map<String, Object> marshallerProperties;
+    private final Queue<Marshaller> marshallers;
+    private final Queue<Unmarshaller> unmarshallers;
+    private final AtomicInteger idleMarshallers = new AtomicInteger();
+    private final AtomicInteger idleUnmarshallers = new AtomicInteger();
+    
+    public JAXBMarshallerPool(JAXBContext ctx, 
+                              Map<String, Object> marshallerProperties,
+                              boolean pooled) {
+        context = ctx;
+        this.marshallerProperties = marshallerProperties;
+        if (pooled && ctx != null) {
+            marshallers = new ConcurrentLinkedQueue<Marshaller>();
+            unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+        } else {
+            marshallers = null;
+            unmarshallers = null;
+        }
+    }
+    
+    public JAXBContext getContext() {
+        return context;
+    }
+    
+    public Map<String, Object> getMarshallerProperties() {
+        return marshallerProperties;
+    }
+    
+    public boolean isPooled() {
+        return marshallers != null;
+    }
+    
+    /**
+     * Returns a configured Marshaller.  If the pool has no JAXBContext one is
+     * created for the given class.
+     */
+    public Marshaller acquireMarshaller(Class<?> cls) throws JAXBException {
+        if (marshallers != null) {
+            Marshaller m = marshallers.poll();
+            if (m != null) {
+                idleMarshallers.decrementAndGet();
+                return m;
+            }
+        }
+        JAXBContext ctx = context;
+        if (ctx == null) {
+            ctx = JAXBContext.newInstance(cls);
+        }
+        return createMarshaller(ctx);
+    }
+    
+    public void releaseMarshaller(Marshaller m) {
+        if (marshallers == null || m == null) {
+            return;
+        }
+        try {
+            m.setSchema(null);
+            m.setAttachmentMarshaller(null);
+            m.setEventHandler(null);
+        } catch (JAXBException e) {
+            //don't reuse a marshaller we could not reset
+            LOG.log(Level.FINE, "Could not reset Marshaller", e);
+            return;
+        }
+        if (idleMarshallers.incrementAndGet() > MAX_IDLE) {
+            idleMarshallers.decrementAndGet();
+            return;
+        }
+        marshallers.offer(m);
+    }
+    
+    /**
+     * Returns an Unmarshaller.  If the pool has no JAXBContext one is
+     * created for the given class.
+     */
+    public Unmarshaller acquireUnmarshaller(Class<?> cls) throws JAXBException {
+        if (unmarshallers != null) {
+            Unmarshaller u = unmarshallers.poll();
+            if (u != null) {
+                idleUnmarshallers.decrementAndGet();
+                return u;
+            }
+        }
+        JAXBContext ctx = context;
+        if (ctx == null) {
+            if (cls == null) {
+                throw new IllegalStateException("A JAXBContext or Class to unmarshal must be provided!");
+            }
+            ctx = JAXBContext.newInstance(cls);
+        }
+        return ctx.createUnmarshaller();
+    }
+    
+    public void releaseUnmarshaller(Unmarshaller u) {
+        if (unmarshallers == null || u == null) {
+            return;
+        }
+        try {
+            u.setSchema(null);
+            u.setAttachmentUnmarshaller(null);
+            u.setEventHandler(null);
+        } catch (JAXBException e) {
+            LOG.log(Level.FINE, "Could not reset Unmarshaller", e);
+            return;
+        }
+        if (idleUnmarshallers.incrementAndGet() > MAX_IDLE) {
+            idleUnmarshallers.decrementAndGet();
+            return;
+        }
+        unmarshallers.offer(u);
+    }
+    
+    private Marshaller createMarshaller(JAXBContext ctx) throws JAXBException {
+        Marshaller jm = ctx.createMarshaller();
+        jm.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+        jm.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        if (marshallerProperties != null) {
+            for (Map.Entry<String, Object> propEntry : marshallerProperties.entrySet()) {
+                try {
+                    jm.setProperty(propEntry.getKey(), propEntry.getValue());
+                } catch (PropertyException pe) {
+                    LOG.log(Level.INFO, "PropertyException setting Marshaller properties", pe);
+                }
+            }
+        }
+        try {
+            // The Marshaller.JAXB_FRAGMENT will tell the Marshaller not to
+            // generate the xml declaration.
+            jm.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            jm.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, false);
+        } catch (javax.xml.bind.PropertyException e) {
+            // intentionally empty.
+        }
+        return jm;
+    }
+}
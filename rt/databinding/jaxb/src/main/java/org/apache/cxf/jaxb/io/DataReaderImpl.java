@@ -25,6 +25,7 @@ import javax.xml.namespace.QName;
 import org.apache.cxf.databinding.DataReader;
 import org.apache.cxf.jaxb.JAXBDataBase;
 import org.apache.cxf.jaxb.JAXBEncoderDecoder;
+import org.apache.cxf.jaxb.JAXBMarshallerPool;
 import org.apache.cxf.service.model.MessagePartInfo;
 
 public class DataReaderImpl<T> extends JAXBDataBase implements DataReader<T> {
@@ -32,18 +33,29 @@ public class DataReaderImpl<T> extends JAXBDataBase implements DataReader<T> {
         super(ctx);
     }
 
+    public DataReaderImpl(JAXBMarshallerPool pool) {
+        super(pool.getContext());
+        marshallerPool = pool;
+    }
+
     public Object read(T input) {
         return read(null, input);
     }
 
     public Object read(MessagePartInfo part, T reader) {
-        return JAXBEncoderDecoder.unmarshall(getJAXBContext(), getSchema(), reader, part, 
+        return JAXBEncoderDecoder.unmarshall(getPool(), getSchema(), reader, part, 
                                              getAttachmentUnmarshaller(), unwrapJAXBElement);
     }
 
     public Object read(QName name, T input, Class type) {
-        return JAXBEncoderDecoder.unmarshall(getJAXBContext(), getSchema(), input, name, type, 
+        return JAXBEncoderDecoder.unmarshall(getPool(), getSchema(), input, name, type, 
                                              getAttachmentUnmarshaller(), unwrapJAXBElement);
     }
 
+    private JAXBMarshallerPool getPool() {
+        if (marshallerPool != null) {
+            return marshallerPool;
+        }
+        return new JAXBMarshallerPool(getJAXBContext(), null, false);
+    }
 }
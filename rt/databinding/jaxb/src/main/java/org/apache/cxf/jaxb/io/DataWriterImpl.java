@@ -28,6 +28,7 @@ import org.apache.cxf.databinding.DataWriter;
 import org.apache.cxf.jaxb.JAXBDataBase;
 import org.apache.cxf.jaxb.JAXBDataBinding;
 import org.apache.cxf.jaxb.JAXBEncoderDecoder;
+import org.apache.cxf.jaxb.JAXBMarshallerPool;
 import org.apache.cxf.service.model.MessagePartInfo;
 import org.apache.ws.commons.schema.XmlSchemaElement;
 
@@ -44,6 +45,12 @@ public class DataWriterImpl<T> extends JAXBDataBase implements DataWriter<T> {
         this.marshallerProperties = marshallerProperties;
     }
     
+    public DataWriterImpl(JAXBMarshallerPool pool) {
+        super(pool.getContext());
+        marshallerPool = pool;
+        marshallerProperties = pool.getMarshallerProperties();
+    }
+    
     public void write(Object obj, T output) {
         write(obj, null, output);
     }
@@ -56,18 +63,22 @@ public class DataWriterImpl<T> extends JAXBDataBase implements DataWriter<T> {
                 && part != null
                 && Boolean.TRUE.equals(part.getProperty(JAXBDataBinding.class.getName() 
                                                         + ".CUSTOM_EXCEPTION"))) {
-                JAXBEncoderDecoder.marshallException(getJAXBContext(), getSchema(), (Exception)obj,
-                                                     part, output, getAttachmentMarshaller(),
-                                                     marshallerProperties);                
+                JAXBEncoderDecoder.marshallException(getPool(), getSchema(), (Exception)obj,
+                                                     part, output, getAttachmentMarshaller());                
             } else {
-                JAXBEncoderDecoder.marshall(getJAXBContext(), getSchema(), obj, part, output, 
-                                        getAttachmentMarshaller(),
-                                        marshallerProperties);
+                JAXBEncoderDecoder.marshall(getPool(), getSchema(), obj, part, output, 
+                                        getAttachmentMarshaller());
             }
         } else if (obj == null && needToRender(obj, part)) {
-            JAXBEncoderDecoder.marshallNullElement(getJAXBContext(), getSchema(), output, part,
-                                                   marshallerProperties);
+            JAXBEncoderDecoder.marshallNullElement(getPool(), getSchema(), output, part);
+        }
+    }
+
+    private JAXBMarshallerPool getPool() {
+        if (marshallerPool != null) {
+            return marshallerPool;
         }
+        return new JAXBMarshallerPool(getJAXBContext(), marshallerProperties, false);
     }
 
     private boolean needToRender(Object obj, MessagePartInfo part) {
@@ -84,5 +95,7 @@ public class DataWriterImpl<T> extends JAXBDataBase implements DataWriter<T> {
 
     public void setMarshallerProperties(Map<String, Object> marshallerProperties) {
         this.marshallerProperties = marshallerProperties;
+        //the pooled marshallers were configured with the old properties
+        marshallerPool = null;
     }
 }
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.jaxb;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.apache.cxf.jaxb.fortest.QualifiedBean;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JAXBMarshallerPoolTest extends Assert {
+    private JAXBContext context;
+    private Map<String, Object> props = Collections.emptyMap();
+
+    @Before
+    public void setUp() throws Exception {
+        context = JAXBContext.newInstance(QualifiedBean.class);
+    }
+
+    @Test
+    public void testMarshallerIsReused() throws Exception {
+        JAXBMarshallerPool pool = new JAXBMarshallerPool(context, props, true);
+        assertTrue(pool.isPooled());
+        Marshaller m = pool.acquireMarshaller(null);
+        assertEquals(Boolean.TRUE, m.getProperty(Marshaller.JAXB_FRAGMENT));
+        pool.releaseMarshaller(m);
+        assertSame(m, pool.acquireMarshaller(null));
+
+        Unmarshaller u = pool.acquireUnmarshaller(null);
+        pool.releaseUnmarshaller(u);
+        assertSame(u, pool.acquireUnmarshaller(null));
+    }
+
+    @Test
+    public void testNestedAcquireGetsNewMarshaller() throws Exception {
+        JAXBMarshallerPool pool = new JAXBMarshallerPool(context, props, true);
+        Marshaller m1 = pool.acquireMarshaller(null);
+        Marshaller m2 = pool.acquireMarshaller(null);
+        assertNotSame(m1, m2);
+        pool.releaseMarshaller(m2);
+        pool.releaseMarshaller(m1);
+        assertSame(m2, pool.acquireMarshaller(null));
+        assertSame(m1, pool.acquireMarshaller(null));
+    }
+
+    @Test
+    public void testIdleMarshallersAreCapped() throws Exception {
+        JAXBMarshallerPool pool = new JAXBMarshallerPool(context, props, true);
+        Marshaller[] ms = new Marshaller[JAXBMarshallerPool.MAX_IDLE + 1];
+        for (int x = 0; x < ms.length; x++) {
+            ms[x] = pool.acquireMarshaller(null);
+        }
+        for (int x = 0; x < ms.length; x++) {
+            pool.releaseMarshaller(ms[x]);
+        }
+        for (int x = 0; x < JAXBMarshallerPool.MAX_IDLE; x++) {
+            assertSame(ms[x], pool.acquireMarshaller(null));
+        }
+        //the last one was dropped
+        assertNotSame(ms[JAXBMarshallerPool.MAX_IDLE], pool.acquireMarshaller(null));
+    }
+
+    @Test
+    public void testReleaseResetsState() throws Exception {
+        JAXBMarshallerPool pool = new JAXBMarshallerPool(context, props, true);
+        Schema schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema();
+        Marshaller m = pool.acquireMarshaller(null);
+        m.setSchema(schema);
+        pool.releaseMarshaller(m);
+        m = pool.acquireMarshaller(null);
+        assertNull(m.getSchema());
+        assertNull(m.getAttachmentMarshaller());
+    }
+
+    @Test
+    public void testUnpooled() throws Exception {
+        JAXBMarshallerPool pool = new JAXBMarshallerPool(context, props, false);
+        assertFalse(pool.isPooled());
+        Marshaller m = pool.acquireMarshaller(null);
+        pool.releaseMarshaller(m);
+        assertNotSame(m, pool.acquireMarshaller(null));
+    }
+
+    @Test
+    public void testMarshallWithPool() throws Exception {
+        JAXBMarshallerPool pool = new JAXBMarshallerPool(context, props, true);
+        QualifiedBean bean = new QualifiedBean();
+        bean.setAriadne("spider");
+        for (int x = 0; x < 3; x++) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            JAXBEncoderDecoder.marshall(pool, null, bean, null, bos, null);
+            String s = bos.toString();
+            assertTrue(s, s.contains("spider"));
+            assertFalse(s, s.startsWith("<?xml"));
+        }
+    }
+}
@@ -229,6 +229,14 @@ public class SOAPHandlerInterceptor extends
         ContextPropertiesMapping.mapCxf2Jaxws(message.getExchange(), sm, requestor);
         Exchange exch = message.getExchange();
         setupBindingOperationInfo(exch, sm);
+        if (isStreamingInbound(message, sm)) {
+            // leave the body streaming, handlers that only look at the headers
+            // never need the SAAJ model, it is built on the first getMessage()
+            if (isFault(message, getFirstBodyElementName(message))) {
+                return null;
+            }
+            return sm;
+        }
         try {            
             SOAPMessage msg = sm.getMessage();
             if (msg.getSOAPPart().getEnvelope().getBody() != null 
@@ -267,6 +275,12 @@ public class SOAPHandlerInterceptor extends
 
     protected QName getOpQName(Exchange ex, Object data) {
         SOAPMessageContextImpl sm = (SOAPMessageContextImpl)data;
+        SoapMessage message = (SoapMessage)sm.getWrappedMessage();
+        if (isStreamingInbound(message, sm)) {
+            // a fault is not an operation
+            QName name = getFirstBodyElementName(message);
+            return isFault(message, name) ? null : name;
+        }
         try {
             SOAPMessage msg = sm.getMessage();
             if (msg == null) {
@@ -289,6 +303,40 @@ public class SOAPHandlerInterceptor extends
         return null;
     }
 
+    /**
+     * @return true if the inbound body can be looked at on the stream, without SAAJ
+     */
+    private boolean isStreamingInbound(SoapMessage message, SOAPMessageContextImpl sm) {
+        return !isOutbound(message) && sm.getExistingMessage() == null
+            && message.getContent(XMLStreamReader.class) != null;
+    }
+
+    private static boolean isFault(SoapMessage message, QName bodyElementName) {
+        return bodyElementName != null && message.getVersion().getFault().equals(bodyElementName);
+    }
+
+    /**
+     * Advances the inbound reader, which ReadHeadersInterceptor leaves just inside the
+     * body, to the first body element in the same way CheckFaultInterceptor does.
+     *
+     * @return the name of the first body element, which is the fault element for a
+     *         fault, or null if the body is empty
+     */
+    private static QName getFirstBodyElementName(SoapMessage message) {
+        XMLStreamReader xmlReader = message.getContent(XMLStreamReader.class);
+        try {
+            int x = xmlReader.getEventType();
+            while (x != XMLStreamReader.START_ELEMENT
+                && x != XMLStreamReader.END_ELEMENT
+                && xmlReader.hasNext()) {
+                x = xmlReader.next();
+            }
+            return x == XMLStreamReader.START_ELEMENT ? xmlReader.getName() : null;
+        } catch (XMLStreamException e) {
+            return null;
+        }
+    }
+
     private static boolean chainAlreadyContainsSAAJ(SoapMessage message) {
         ListIterator<Interceptor<? extends Message>> listIterator =
             message.getInterceptorChain().getIterator();
@@ -28,20 +28,32 @@ import java.util.Set;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.soap.SOAPException;
 import javax.xml.soap.SOAPHeader;
 import javax.xml.soap.SOAPHeaderElement;
 import javax.xml.soap.SOAPMessage;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.ws.WebServiceException;
 import javax.xml.ws.handler.MessageContext;
 import javax.xml.ws.handler.soap.SOAPMessageContext;
 
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.saaj.SAAJInInterceptor;
+import org.apache.cxf.headers.Header;
 import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.helpers.XMLUtils;
 import org.apache.cxf.jaxws.context.WrappedMessageContext;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.service.model.MessagePartInfo;
+import org.apache.cxf.staxutils.W3CDOMStreamWriter;
 
 public class SOAPMessageContextImpl extends WrappedMessageContext implements SOAPMessageContext {
     private static final SAAJInInterceptor SAAJ_IN = new SAAJInInterceptor();
@@ -62,17 +74,11 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
     }
 
     public SOAPMessage getMessage() {
-        SOAPMessage message = null;
-        if (getWrappedMessage().getContent(Object.class) instanceof SOAPMessage) {
-            message = (SOAPMessage)getWrappedMessage().getContent(Object.class);
-        } else {
-            message = getWrappedMessage().getContent(SOAPMessage.class);
-        }
+        SOAPMessage message = getExistingMessage();
         
         //Only happens to non-Dispatch/Provider case.
         if (null == message) {
-            Boolean outboundProperty = (Boolean)get(MessageContext.MESSAGE_OUTBOUND_PROPERTY);
-            if (outboundProperty == null || !outboundProperty) {
+            if (isInbound()) {
                 //No SOAPMessage exists yet, so lets create one
                 SAAJ_IN.handleMessage(getWrappedSoapMessage());
                 message = getWrappedSoapMessage().getContent(SOAPMessage.class);           
@@ -81,7 +87,24 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
         return message;
     }
 
+    /**
+     * @return the SOAPMessage if there is one already, without building it from the
+     *         inbound stream
+     */
+    SOAPMessage getExistingMessage() {
+        if (getWrappedMessage().getContent(Object.class) instanceof SOAPMessage) {
+            return (SOAPMessage)getWrappedMessage().getContent(Object.class);
+        }
+        return getWrappedMessage().getContent(SOAPMessage.class);
+    }
+
     public Object[] getHeaders(QName name, JAXBContext context, boolean allRoles) {
+        if (isInbound() && getExistingMessage() == null) {
+            Object[] ret = getReadHeaders(name, context, allRoles);
+            if (ret != null) {
+                return ret;
+            }
+        }
         SOAPMessage msg = getMessage();
         SOAPHeader header;
         try {
@@ -90,6 +113,7 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
                 return new Object[0];
             }
             List<Object> ret = new ArrayList<Object>();
+            Unmarshaller u = null;
             Iterator<SOAPHeaderElement> it = CastUtils.cast(header.examineAllHeaderElements());
             while (it.hasNext()) {
                 SOAPHeaderElement she = it.next();
@@ -97,7 +121,10 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
                     || roles.contains(she.getActor())) 
                     && name.equals(she.getElementQName())) {
                     
-                    ret.add(context.createUnmarshaller().unmarshal(she));
+                    if (u == null) {
+                        u = context.createUnmarshaller();
+                    }
+                    ret.add(u.unmarshal(she));
                     
                 }
             }
@@ -106,7 +133,73 @@ public class SOAPMessageContextImpl extends WrappedMessageContext implements SOA
             throw new WebServiceException(e);
         } catch (JAXBException e) {
             throw new WebServiceException(e);
-        } 
+        }
+    }
+
+    /**
+     * Unmarshals the headers that ReadHeadersInterceptor has already read, so that the
+     * inbound body is not pulled into a SAAJ tree just to look at a header. A header that
+     * was decoded into an object is written back to DOM with its data binding first, so
+     * the handler always gets an object of the JAXBContext it asked with.
+     *
+     * @return the headers, or null if a matching header can be neither unmarshalled nor
+     *         written back to DOM
+     */
+    private Object[] getReadHeaders(QName name, JAXBContext context, boolean allRoles) {
+        List<Object> ret = new ArrayList<Object>();
+        Unmarshaller u = null;
+        try {
+            for (Header header : getWrappedSoapMessage().getHeaders()) {
+                if (!name.equals(header.getName())) {
+                    continue;
+                }
+                String actor = header instanceof SoapHeader ? ((SoapHeader)header).getActor() : null;
+                if (!allRoles && !roles.contains(actor)) {
+                    continue;
+                }
+                Element el = getHeaderElement(header, context);
+                if (el == null) {
+                    return null;
+                }
+                if (u == null) {
+                    u = context.createUnmarshaller();
+                }
+                ret.add(u.unmarshal(el));
+            }
+        } catch (JAXBException e) {
+            throw new WebServiceException(e);
+        } catch (XMLStreamException e) {
+            throw new WebServiceException(e);
+        } catch (ParserConfigurationException e) {
+            throw new WebServiceException(e);
+        }
+        return ret.toArray(new Object[ret.size()]);
+    }
+
+    private static Element getHeaderElement(Header header, JAXBContext context)
+        throws JAXBException, XMLStreamException, ParserConfigurationException {
+        Object obj = header.getObject();
+        if (obj instanceof Element) {
+            return (Element)obj;
+        }
+        if (header.getDataBinding() != null) {
+            W3CDOMStreamWriter writer = new W3CDOMStreamWriter();
+            MessagePartInfo part = new MessagePartInfo(header.getName(), null);
+            part.setConcreteName(header.getName());
+            header.getDataBinding().createWriter(XMLStreamWriter.class).write(obj, part, writer);
+            return writer.getDocument().getDocumentElement();
+        }
+        if (obj != null && context.createJAXBIntrospector().isElement(obj)) {
+            Document doc = XMLUtils.newDocument();
+            context.createMarshaller().marshal(obj, doc);
+            return doc.getDocumentElement();
+        }
+        return null;
+    }
+
+    private boolean isInbound() {
+        Boolean outboundProperty = (Boolean)get(MessageContext.MESSAGE_OUTBOUND_PROPERTY);
+        return outboundProperty == null || !outboundProperty;
     }
 
     public Set<String> getRoles() {
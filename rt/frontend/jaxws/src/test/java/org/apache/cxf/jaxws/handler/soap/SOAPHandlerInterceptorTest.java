@@ -23,11 +23,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.annotation.XmlRootElement;
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.soap.MessageFactory;
@@ -54,14 +57,17 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 import org.apache.cxf.binding.soap.Soap11;
+import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.SoapVersion;
 import org.apache.cxf.binding.soap.SoapVersionFactory;
+import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.helpers.DOMUtils;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.io.CachedOutputStream;
+import org.apache.cxf.jaxb.JAXBDataBinding;
 import org.apache.cxf.jaxws.handler.AbstractProtocolHandlerInterceptor;
 import org.apache.cxf.jaxws.handler.HandlerChainInvoker;
 import org.apache.cxf.message.Exchange;
@@ -71,6 +77,7 @@ import org.apache.cxf.phase.PhaseInterceptorChain;
 import org.apache.cxf.phase.PhaseManagerImpl;
 import org.apache.cxf.staxutils.PartialXMLStreamReader;
 import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.transport.MessageObserver;
 import org.easymock.classextension.IMocksControl;
 import org.junit.After;
 import org.junit.Assert;
@@ -439,6 +446,180 @@ public class SOAPHandlerInterceptorTest extends Assert {
         assertEquals("sendReceiveData", qn.getLocalPart());
     }
 
+    @Test
+    public void testGetHeadersInBoundLeavesBodyStreaming() throws Exception {
+        final List<Object> headers = new ArrayList<Object>();
+        List<Handler> list = new ArrayList<Handler>();
+        list.add(new SOAPHandler<SOAPMessageContext>() {
+            public boolean handleMessage(SOAPMessageContext smc) {
+                try {
+                    Object[] h = smc.getHeaders(new QName("http://apache.org/hello_world_rpclit/types",
+                                                          "header1"),
+                                                JAXBContext.newInstance(Header1.class), true);
+                    headers.addAll(Arrays.asList(h));
+                } catch (Exception e) {
+                    throw new Fault(e);
+                }
+                return true;
+            }
+
+            public boolean handleFault(SOAPMessageContext smc) {
+                return true;
+            }
+
+            public Set<QName> getHeaders() {
+                return null;
+            }
+
+            public void close(MessageContext messageContext) {
+            }
+        });
+        HandlerChainInvoker invoker = new HandlerChainInvoker(list);
+
+        IMocksControl control = createNiceControl();
+        Binding binding = control.createMock(Binding.class);
+        Exchange exchange = control.createMock(Exchange.class);
+        expect(exchange.get(HandlerChainInvoker.class)).andReturn(invoker).anyTimes();
+        // This is to set direction to inbound
+        expect(exchange.getOutMessage()).andReturn(null);
+
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        message.setExchange(exchange);
+        XMLStreamReader reader = preparemXMLStreamReader("resources/greetMeRpcLitReq.xml");
+        message.setContent(XMLStreamReader.class, reader);
+        Object[] headerInfo = prepareSOAPHeader();
+        message.setContent(Node.class, headerInfo[0]);
+        Node node = ((Element) headerInfo[1]).getFirstChild();
+        message.getHeaders().add(new Header(new QName(node.getNamespaceURI(), node.getLocalName()), node));
+        control.replay();
+
+        SOAPHandlerInterceptor li = new SOAPHandlerInterceptor(binding);
+        li.handleMessage(message);
+        control.verify();
+
+        assertEquals(1, headers.size());
+        assertTrue(headers.get(0) instanceof Header1);
+        // no SAAJ model was built and the body is still read from the original stream
+        assertNull(message.getContent(SOAPMessage.class));
+        assertSame(reader, message.getContent(XMLStreamReader.class));
+        assertEquals("sendReceiveData", reader.getLocalName());
+    }
+
+    @Test
+    public void testGetHeadersInBoundFromDecodedHeader() throws Exception {
+        final List<Object> headers = new ArrayList<Object>();
+        List<Handler> list = new ArrayList<Handler>();
+        list.add(new SOAPHandler<SOAPMessageContext>() {
+            public boolean handleMessage(SOAPMessageContext smc) {
+                try {
+                    Object[] h = smc.getHeaders(new QName("http://apache.org/hello_world_rpclit/types",
+                                                          "header1"),
+                                                JAXBContext.newInstance(Header1.class), true);
+                    headers.addAll(Arrays.asList(h));
+                } catch (Exception e) {
+                    throw new Fault(e);
+                }
+                return true;
+            }
+
+            public boolean handleFault(SOAPMessageContext smc) {
+                return true;
+            }
+
+            public Set<QName> getHeaders() {
+                return null;
+            }
+
+            public void close(MessageContext messageContext) {
+            }
+        });
+        HandlerChainInvoker invoker = new HandlerChainInvoker(list);
+
+        IMocksControl control = createNiceControl();
+        Binding binding = control.createMock(Binding.class);
+        Exchange exchange = control.createMock(Exchange.class);
+        expect(exchange.get(HandlerChainInvoker.class)).andReturn(invoker).anyTimes();
+        // This is to set direction to inbound
+        expect(exchange.getOutMessage()).andReturn(null);
+
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        message.setExchange(exchange);
+        XMLStreamReader reader = preparemXMLStreamReader("resources/greetMeRpcLitReq.xml");
+        message.setContent(XMLStreamReader.class, reader);
+        message.setContent(Node.class, prepareSOAPHeader()[0]);
+        // a header a streaming header interceptor decoded while it was read
+        Header1 decoded = new Header1();
+        message.getHeaders().add(new SoapHeader(new QName("http://apache.org/hello_world_rpclit/types",
+                                                          "header1"),
+                                                decoded, new JAXBDataBinding(Header1.class)));
+        control.replay();
+
+        SOAPHandlerInterceptor li = new SOAPHandlerInterceptor(binding);
+        li.handleMessage(message);
+        control.verify();
+
+        assertEquals(1, headers.size());
+        assertTrue(headers.get(0) instanceof Header1);
+        assertNotSame(decoded, headers.get(0));
+        assertNull(message.getContent(SOAPMessage.class));
+        assertSame(reader, message.getContent(XMLStreamReader.class));
+    }
+
+    @Test
+    public void testFaultInBoundGoesToFaultObserver() throws Exception {
+        final List<SOAPMessageContext> handled = new ArrayList<SOAPMessageContext>();
+        List<Handler> list = new ArrayList<Handler>();
+        list.add(new SOAPHandler<SOAPMessageContext>() {
+            public boolean handleMessage(SOAPMessageContext smc) {
+                handled.add(smc);
+                return true;
+            }
+
+            public boolean handleFault(SOAPMessageContext smc) {
+                return true;
+            }
+
+            public Set<QName> getHeaders() {
+                return null;
+            }
+
+            public void close(MessageContext messageContext) {
+            }
+        });
+        HandlerChainInvoker invoker = new HandlerChainInvoker(list);
+
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        IMocksControl control = createNiceControl();
+        Binding binding = control.createMock(Binding.class);
+        Exchange exchange = control.createMock(Exchange.class);
+        Endpoint endpoint = control.createMock(Endpoint.class);
+        MessageObserver faultObserver = control.createMock(MessageObserver.class);
+        InterceptorChain chain = control.createMock(InterceptorChain.class);
+        expect(exchange.get(HandlerChainInvoker.class)).andReturn(invoker).anyTimes();
+        // This is to set direction to inbound
+        expect(exchange.getOutMessage()).andReturn(null);
+        expect(exchange.get(Endpoint.class)).andReturn(endpoint).anyTimes();
+        expect(endpoint.getInFaultObserver()).andReturn(faultObserver).anyTimes();
+        chain.abort();
+        faultObserver.onMessage(message);
+
+        message.setExchange(exchange);
+        message.setInterceptorChain(chain);
+        XMLStreamReader reader = preparemXMLStreamReader("resources/greetMeRpcLitFault.xml");
+        message.setContent(XMLStreamReader.class, reader);
+        control.replay();
+
+        SOAPHandlerInterceptor li = new SOAPHandlerInterceptor(binding);
+        li.handleMessage(message);
+        control.verify();
+
+        // the fault is not taken for an operation and goes to the fault chain as it was read
+        assertTrue(handled.isEmpty());
+        assertNull(message.getContent(SOAPMessage.class));
+        assertSame(reader, message.getContent(XMLStreamReader.class));
+        assertEquals(Soap11.getInstance().getFault(), reader.getName());
+    }
+
     @Test
     public void testGetUnderstoodHeadersReturnsNull() {
         List<Handler> list = new ArrayList<Handler>();
@@ -582,4 +763,7 @@ public class SOAPHandlerInterceptorTest extends Assert {
         }
     }
 
+    @XmlRootElement(name = "header1", namespace = "http://apache.org/hello_world_rpclit/types")
+    public static class Header1 {
+    }
 }
@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.management.counters;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records response times into log scaled buckets without locking or
+ * allocating.  Every power of two range is split into eight linear buckets,
+ * so the value reported for a percentile is at most 12.5% above the recorded
+ * one.  The invocation count and the total time are spread over several
+ * padded cells picked by the recording thread, and the buckets over a few
+ * copies of the bucket array, so concurrent threads rarely update the same
+ * cache line.
+ */
+public final class LatencyHistogram {
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // values up to 2^41 - 1 (about 25 days in microseconds) get their own bucket
+    static final int MAX_MAGNITUDE = 40;
+    static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    
+    private static final int STRIPES = 16;
+    // one cell per 64 byte cache line
+    private static final int PAD = 8;
+    // each copy of the buckets is a few KB, so use fewer of them
+    private static final int BUCKET_STRIPES = 4;
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_STRIPES * BUCKET_COUNT);
+    private final AtomicLongArray counts = new AtomicLongArray(STRIPES * PAD);
+    private final AtomicLongArray totals = new AtomicLongArray(STRIPES * PAD);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int id = (int)Thread.currentThread().getId();
+        int cell = (id & (STRIPES - 1)) * PAD;
+        counts.incrementAndGet(cell);
+        totals.addAndGet(cell, value);
+        buckets.incrementAndGet((id & (BUCKET_STRIPES - 1)) * BUCKET_COUNT + indexFor(value));
+        
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+        current = min.get();
+        while (value < current && !min.compareAndSet(current, value)) {
+            current = min.get();
+        }
+    }
+    
+    public long getCount() {
+        return sum(counts);
+    }
+    
+    public long getTotal() {
+        return sum(totals);
+    }
+    
+    /**
+     * Returns the largest recorded value, or Long.MIN_VALUE if nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+    
+    /**
+     * Returns the smallest recorded value, or Long.MAX_VALUE if nothing was recorded.
+     */
+    public long getMin() {
+        return min.get();
+    }
+    
+    /**
+     * Copies the current bucket counts.  The copy is not an atomic view but
+     * every cell is read once, so the counts never go backwards.
+     */
+    public long[] snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int x = 0; x < BUCKET_STRIPES * BUCKET_COUNT; x++) {
+            copy[x % BUCKET_COUNT] += buckets.get(x);
+        }
+        return copy;
+    }
+    
+    public long getPercentile(double percentile) {
+        long value = getPercentile(snapshot(), percentile);
+        long highest = max.get();
+        // the bucket bound may lie above anything actually recorded
+        return value > highest && highest != Long.MIN_VALUE ? highest : value;
+    }
+    
+    /**
+     * Returns the upper bound of the bucket holding the given percentile
+     * (0 - 100) of the counts, or 0 if the counts are empty.
+     */
+    public static long getPercentile(long[] bucketCounts, double percentile) {
+        long total = 0;
+        for (long c : bucketCounts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long)Math.ceil(total * percentile / 100.0);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int x = 0; x < bucketCounts.length; x++) {
+            seen += bucketCounts[x];
+            if (seen >= target) {
+                return highestValueFor(x);
+            }
+        }
+        return highestValueFor(bucketCounts.length - 1);
+    }
+    
+    static int indexFor(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int)value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int sub = (int)(value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+    
+    static long highestValueFor(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+    
+    private static long sum(AtomicLongArray cells) {
+        long sum = 0;
+        for (int x = 0; x < STRIPES; x++) {
+            sum += cells.get(x * PAD);
+        }
+        return sum;
+    }
+}
@@ -18,31 +18,55 @@
  */
 package org.apache.cxf.management.counters;
 
-
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.ObjectName;
 
 import org.apache.cxf.message.FaultMode;
 
+/**
+ * Keeps the response time statistics of a service or an operation.  The
+ * response times go into a {@link LatencyHistogram}, so recording is lock free
+ * and the percentiles can be reported as well as avg/min/max.
+ * <p>
+ * The interval figures describe the invocations of the last closed interval.
+ * An interval is closed by the first invocation recorded after its end, or by
+ * the first read of an interval attribute, whichever comes first.  If a whole
+ * interval passes without invocations the interval figures are zero.
+ */
 public class ResponseTimeCounter implements ResponseTimeCounterMBean, Counter {    
+    public static final long DEFAULT_INTERVAL_LENGTH = 60000L;
     
     private ObjectName objectName;
-    private AtomicInteger invocations = new AtomicInteger();
     private AtomicInteger checkedApplicationFaults = new AtomicInteger();
     private AtomicInteger unCheckedApplicationFaults = new AtomicInteger();
     private AtomicInteger runtimeFaults = new AtomicInteger();
     private AtomicInteger logicalRuntimeFaults = new AtomicInteger();
-    private long totalHandlingTime;    
-    private long maxHandlingTime;
-    private long minHandlingTime = Integer.MAX_VALUE;
+    private LatencyHistogram handlingTimes = new LatencyHistogram();
+    
+    private volatile long intervalLength = DEFAULT_INTERVAL_LENGTH;
+    private volatile long intervalStart = System.currentTimeMillis();
+    private long[] intervalBaseline = new long[LatencyHistogram.BUCKET_COUNT];
+    private long intervalBaselineCount;
+    private long intervalBaselineTotal;
+    private long[] lastInterval = new long[LatencyHistogram.BUCKET_COUNT];
+    private long lastIntervalCount;
+    private long lastIntervalTotal;
     
     public ResponseTimeCounter(ObjectName on) {
         objectName = on;     
     }
     
     public void  increase(MessageHandlingTimeRecorder mhtr) {
-        invocations.getAndIncrement();
+        increase(mhtr, System.currentTimeMillis());
+    }
+    
+    void increase(MessageHandlingTimeRecorder mhtr, long now) {
+        if (now - intervalStart >= intervalLength) {
+            // close the interval before this invocation is counted in it
+            rollInterval(now);
+        }
         FaultMode faultMode = mhtr.getFaultMode();
         if (null == faultMode) {
             // no exception occured
@@ -75,14 +99,8 @@ public class ResponseTimeCounter implements ResponseTimeCounterMBean, Counter {
         } else {
             handlingTime = mhtr.getHandlingTime(); 
         }
-            
-        totalHandlingTime = totalHandlingTime + handlingTime;
-        if (maxHandlingTime < handlingTime) {
-            maxHandlingTime = handlingTime;
-        }
-        if (minHandlingTime > handlingTime) {
-            minHandlingTime = handlingTime;
-        }
+        // this also counts the invocation
+        handlingTimes.record(handlingTime);
     }
     
     public ObjectName getObjectName() {
@@ -90,19 +108,26 @@ public class ResponseTimeCounter implements ResponseTimeCounterMBean, Counter {
     }
 
     public Number getAvgResponseTime() {        
-        return (int)(totalHandlingTime / invocations.get());
+        long count = handlingTimes.getCount();
+        if (count == 0) {
+            return 0;
+        }
+        return (int)(handlingTimes.getTotal() / count);
     }
     
     public Number getMaxResponseTime() {        
-        return maxHandlingTime;
+        long max = handlingTimes.getMax();
+        return max == Long.MIN_VALUE ? 0L : max;
     }
 
     public Number getMinResponseTime() {        
-        return minHandlingTime;
+        long min = handlingTimes.getMin();
+        return min == Long.MAX_VALUE ? (long)Integer.MAX_VALUE : min;
     }
 
     public Number getNumInvocations() {        
-        return invocations.get();
+        long count = handlingTimes.getCount();
+        return count > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int)count;
     }
 
     public Number getNumCheckedApplicationFaults() {
@@ -122,7 +147,102 @@ public class ResponseTimeCounter implements ResponseTimeCounterMBean, Counter {
     }
     
     public Number getTotalHandlingTime() {        
-        return totalHandlingTime;
+        return handlingTimes.getTotal();
     }  
+    
+    public Number getResponseTimePercentile50() {
+        return handlingTimes.getPercentile(50);
+    }
+
+    public Number getResponseTimePercentile90() {
+        return handlingTimes.getPercentile(90);
+    }
+
+    public Number getResponseTimePercentile99() {
+        return handlingTimes.getPercentile(99);
+    }
+
+    public Number getResponseTimePercentile999() {
+        return handlingTimes.getPercentile(99.9);
+    }
+    
+    public synchronized Number getIntervalLength() {
+        return intervalLength;
+    }
+    
+    /**
+     * Sets the length of the reporting interval in milliseconds.
+     */
+    public synchronized void setIntervalLength(long length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("The interval length must be positive");
+        }
+        intervalLength = length;
+    }
+
+    public synchronized Number getIntervalNumInvocations() {
+        rollInterval(System.currentTimeMillis());
+        return lastIntervalCount;
+    }
+
+    public synchronized Number getIntervalAvgResponseTime() {
+        rollInterval(System.currentTimeMillis());
+        if (lastIntervalCount == 0) {
+            return 0L;
+        }
+        return lastIntervalTotal / lastIntervalCount;
+    }
+
+    public synchronized Number getIntervalResponseTimePercentile50() {
+        rollInterval(System.currentTimeMillis());
+        return LatencyHistogram.getPercentile(lastInterval, 50);
+    }
+
+    public synchronized Number getIntervalResponseTimePercentile90() {
+        rollInterval(System.currentTimeMillis());
+        return LatencyHistogram.getPercentile(lastInterval, 90);
+    }
+
+    public synchronized Number getIntervalResponseTimePercentile99() {
+        rollInterval(System.currentTimeMillis());
+        return LatencyHistogram.getPercentile(lastInterval, 99);
+    }
+
+    public synchronized Number getIntervalResponseTimePercentile999() {
+        rollInterval(System.currentTimeMillis());
+        return LatencyHistogram.getPercentile(lastInterval, 99.9);
+    }
+    
+    /**
+     * Closes the current interval if it has ended.  The recording path only
+     * takes the lock once per interval.  Since any invocation after the end
+     * closes the interval first, everything recorded since the last roll
+     * belongs to the interval being closed; if a later interval has ended as
+     * well, that one was idle and becomes the last interval instead.
+     */
+    synchronized void rollInterval(long now) {
+        long elapsed = now - intervalStart;
+        if (elapsed < intervalLength) {
+            return;
+        }
+        long total = handlingTimes.getTotal();
+        long count = handlingTimes.getCount();
+        long[] current = handlingTimes.snapshot();
+        if (elapsed - intervalLength < intervalLength) {
+            for (int x = 0; x < current.length; x++) {
+                lastInterval[x] = current[x] - intervalBaseline[x];
+            }
+            lastIntervalCount = count - intervalBaselineCount;
+            lastIntervalTotal = total - intervalBaselineTotal;
+        } else {
+            Arrays.fill(lastInterval, 0);
+            lastIntervalCount = 0;
+            lastIntervalTotal = 0;
+        }
+        intervalBaseline = current;
+        intervalBaselineCount = count;
+        intervalBaselineTotal = total;
+        intervalStart = now - elapsed % intervalLength;
+    }
 
 }
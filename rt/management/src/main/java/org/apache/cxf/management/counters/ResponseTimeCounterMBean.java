@@ -28,4 +28,19 @@ public interface ResponseTimeCounterMBean {
     Number getMaxResponseTime();
     Number getMinResponseTime();   
     Number getTotalHandlingTime();
+    
+    // percentiles over all invocations, in the same unit as the other times
+    Number getResponseTimePercentile50();
+    Number getResponseTimePercentile90();
+    Number getResponseTimePercentile99();
+    Number getResponseTimePercentile999();
+    
+    // figures for the last completed interval
+    Number getIntervalLength();
+    Number getIntervalNumInvocations();
+    Number getIntervalAvgResponseTime();
+    Number getIntervalResponseTimePercentile50();
+    Number getIntervalResponseTimePercentile90();
+    Number getIntervalResponseTimePercentile99();
+    Number getIntervalResponseTimePercentile999();
 }
\ No newline at end of file
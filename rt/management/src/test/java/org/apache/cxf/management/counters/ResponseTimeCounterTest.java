@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.management.counters;
+
+import javax.management.ObjectName;
+
+import org.easymock.classextension.EasyMock;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResponseTimeCounterTest extends Assert {
+
+    @Test
+    public void testBucketBounds() {
+        long last = -1;
+        for (int x = 0; x < LatencyHistogram.BUCKET_COUNT; x++) {
+            long high = LatencyHistogram.highestValueFor(x);
+            assertTrue(high > last);
+            assertEquals(x, LatencyHistogram.indexFor(last + 1));
+            assertEquals(x, LatencyHistogram.indexFor(high));
+            last = high;
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexFor(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        ResponseTimeCounter counter = new ResponseTimeCounter(new ObjectName("tandoori:type=counter"));
+        assertEquals(0, counter.getAvgResponseTime().intValue());
+        assertEquals(0L, counter.getResponseTimePercentile99().longValue());
+        for (long x = 1; x <= 1000; x++) {
+            counter.increase(createRecorder(x));
+        }
+        assertEquals(1000, counter.getNumInvocations());
+        assertEquals(500, counter.getAvgResponseTime());
+        assertEquals(1000L, counter.getMaxResponseTime());
+        assertEquals(1L, counter.getMinResponseTime());
+        assertEquals(500500L, counter.getTotalHandlingTime());
+        assertWithin(500, counter.getResponseTimePercentile50().longValue());
+        assertWithin(900, counter.getResponseTimePercentile90().longValue());
+        assertWithin(990, counter.getResponseTimePercentile99().longValue());
+        assertEquals(1000L, counter.getResponseTimePercentile999().longValue());
+    }
+
+    @Test
+    public void testInterval() throws Exception {
+        ResponseTimeCounter counter = new ResponseTimeCounter(new ObjectName("tandoori:type=counter"));
+        long start = System.currentTimeMillis();
+        long length = ResponseTimeCounter.DEFAULT_INTERVAL_LENGTH;
+        for (long x = 1; x <= 100; x++) {
+            counter.increase(createRecorder(10000), start);
+        }
+        counter.rollInterval(start + length);
+        assertEquals(100L, counter.getIntervalNumInvocations());
+        assertWithin(10000, counter.getIntervalResponseTimePercentile50().longValue());
+
+        // recorded in the next interval, which is closed by the invocation after it
+        counter.increase(createRecorder(10), start + length + 1);
+        counter.increase(createRecorder(20), start + 2 * length + 1);
+        assertEquals(1L, counter.getIntervalNumInvocations());
+        assertEquals(10L, counter.getIntervalAvgResponseTime());
+        assertEquals(10L, counter.getIntervalResponseTimePercentile999().longValue());
+        assertEquals(102, counter.getNumInvocations());
+
+        // a whole interval without invocations is reported as empty
+        counter.rollInterval(start + 4 * length);
+        assertEquals(0L, counter.getIntervalNumInvocations());
+        assertEquals(0L, counter.getIntervalResponseTimePercentile50().longValue());
+    }
+
+    private void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                   actual >= expected && actual <= expected + expected / 8);
+    }
+
+    private MessageHandlingTimeRecorder createRecorder(long time) {
+        MessageHandlingTimeRecorder mhtr = EasyMock.createMock(MessageHandlingTimeRecorder.class);
+        EasyMock.expect(mhtr.isOneWay()).andReturn(false).anyTimes();
+        EasyMock.expect(mhtr.getHandlingTime()).andReturn(time).anyTimes();
+        EasyMock.expect(mhtr.getFaultMode()).andReturn(null).anyTimes();
+        EasyMock.replay(mhtr);
+        return mhtr;
+    }
+}
@@ -45,6 +45,8 @@ import org.apache.cxf.transport.http.AbstractHTTPDestination;
 import org.apache.cxf.transport.http.HTTPSession;
 import org.apache.cxf.transport.http_jetty.continuations.JettyContinuationProvider;
 import org.apache.cxf.transport.http_jetty.continuations.JettyContinuationWrapper;
+import org.apache.cxf.transports.http.CachedQueryResponse;
+import org.apache.cxf.transports.http.CachingQueryHandler;
 import org.apache.cxf.transports.http.QueryHandler;
 import org.apache.cxf.transports.http.QueryHandlerRegistry;
 import org.apache.cxf.transports.http.StemMatchingQueryHandler;
@@ -230,6 +232,32 @@ public class JettyHTTPDestination extends AbstractHTTPDestination {
                                                                        contextMatchOnExact())
                     : qh.isRecognizedQuery(requestURL, pathInfo, endpointInfo);
                 if (recognized) {
+                    if (qh instanceof CachingQueryHandler) {
+                        CachingQueryHandler cqh = (CachingQueryHandler)qh;
+                        CachedQueryResponse cached = cqh.getCachedResponse(requestURL, pathInfo,
+                                                                            endpointInfo);
+                        if (cached == null) {
+                            //rendering uses the request address, already rendered ones need no lock
+                            try {
+                                synchronized (endpointInfo) {
+                                    String oldAddress = updateEndpointAddress(reqAddr);
+                                    try {
+                                        cached = cqh.getResponse(requestURL, pathInfo, endpointInfo);
+                                    } finally {
+                                        endpointInfo.setAddress(oldAddress);
+                                    }
+                                }
+                            } catch (Exception ex) {
+                                LOG.log(Level.WARNING, "writeResponse failed: ", ex);
+                                resp.sendError(500, ex.getMessage());
+                                baseRequest.setHandled(true);
+                                return;
+                            }
+                        }
+                        sendCachedQueryResponse(cached, req, resp);
+                        baseRequest.setHandled(true);
+                        return;
+                    }
                     //replace the endpointInfo address with request url only for get wsdl
                     String errorMsg = null;
                     CachedOutputStream out = new CachedOutputStream();
@@ -61,6 +61,7 @@ import org.apache.cxf.transport.Conduit;
 import org.apache.cxf.transport.ConduitInitiator;
 import org.apache.cxf.transport.http.policy.PolicyUtils;
 import org.apache.cxf.transport.https.SSLUtils;
+import org.apache.cxf.transports.http.CachedQueryResponse;
 import org.apache.cxf.transports.http.configuration.HTTPServerPolicy;
 import org.apache.cxf.ws.addressing.EndpointReferenceType;
 import org.apache.cxf.ws.policy.Assertor;
@@ -312,6 +313,33 @@ public abstract class AbstractHTTPDestination extends AbstractMultiplexDestinati
         return new URL(endpointInfo.getAddress()).getPath();
     }
     
+    /**
+     * Sends a cached query response (e.g. ?wsdl) to the client, answering 
+     * with 304 Not Modified when the If-None-Match or If-Modified-Since 
+     * headers show that the client copy is still current.
+     */
+    public static void sendCachedQueryResponse(CachedQueryResponse cached,
+                                               HttpServletRequest req,
+                                               HttpServletResponse resp) throws IOException {
+        resp.setHeader("ETag", cached.getETag());
+        resp.setDateHeader("Last-Modified", cached.getLastModified());
+        long ifModifiedSince = -1;
+        try {
+            ifModifiedSince = req.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException ex) {
+            //unparsable date, just send the whole thing
+        }
+        if (cached.isNotModified(req.getHeader("If-None-Match"), ifModifiedSince)) {
+            resp.setStatus(HttpURLConnection.HTTP_NOT_MODIFIED);
+            return;
+        }
+        resp.setContentType(cached.getContentType());
+        resp.setContentLength(cached.getContentLength());
+        OutputStream out = resp.getOutputStream();
+        cached.writeTo(out);
+        out.flush();
+    }
+
     protected static EndpointInfo getAddressValue(EndpointInfo ei) {       
         return getAddressValue(ei, true);
     } 
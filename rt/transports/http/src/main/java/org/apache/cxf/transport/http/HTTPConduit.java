@@ -21,6 +21,7 @@ package org.apache.cxf.transport.http;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.PushbackInputStream;
 import java.net.HttpURLConnection;
@@ -37,12 +38,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
 import javax.xml.namespace.QName;
 
 import org.apache.cxf.Bus;
+import org.apache.cxf.buslifecycle.BusLifeCycleManager;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.common.util.Base64Utility;
 import org.apache.cxf.common.util.StringUtils;
@@ -50,12 +54,17 @@ import org.apache.cxf.configuration.Configurable;
 import org.apache.cxf.configuration.jsse.TLSClientParameters;
 import org.apache.cxf.configuration.security.AuthorizationPolicy;
 import org.apache.cxf.configuration.security.ProxyAuthorizationPolicy;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.ClientCallback;
+import org.apache.cxf.endpoint.ClientImpl;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.helpers.HttpHeaderHelper;
 import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.io.AbstractWrappedOutputStream;
 import org.apache.cxf.io.CacheAndWriteOutputStream;
 import org.apache.cxf.io.CachedOutputStream;
+import org.apache.cxf.management.InstrumentationManager;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.ExchangeImpl;
 import org.apache.cxf.message.Message;
@@ -66,6 +75,9 @@ import org.apache.cxf.transport.Destination;
 import org.apache.cxf.transport.DestinationFactory;
 import org.apache.cxf.transport.DestinationFactoryManager;
 import org.apache.cxf.transport.MessageObserver;
+import org.apache.cxf.transport.http.nio.NioHttpClient;
+import org.apache.cxf.transport.http.nio.NioHttpClientMBeanWrapper;
+import org.apache.cxf.transport.http.nio.NioHttpRequest;
 import org.apache.cxf.transport.http.policy.PolicyUtils;
 import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
 import org.apache.cxf.version.Version;
@@ -478,6 +490,11 @@ public class HTTPConduit
         // with the Conduit.
         URL currentURL = setupURL(message);       
         
+        if (isNonBlocking(message, currentURL)) {
+            prepareNonBlocking(message, currentURL, headers);
+            return;
+        }
+        
         // The need to cache the request is off by default
         boolean needToCacheRequest = false;
         
@@ -850,20 +867,7 @@ public class HTTPConduit
         HttpURLConnection connection = 
             (HttpURLConnection)message.get(KEY_HTTP_CONNECTION);
 
-        String ct  = (String) message.get(Message.CONTENT_TYPE);
-        String enc = (String) message.get(Message.ENCODING);
-        
-        if (null != ct) {
-            if (enc != null 
-                && ct.indexOf("charset=") == -1
-                && !ct.toLowerCase().contains("multipart/related")) {
-                ct = ct + "; charset=" + enc;
-            }
-        } else if (enc != null) {
-            ct = "text/xml; charset=" + enc;
-        } else {
-            ct = "text/xml";
-        }
+        String ct = getRequestContentType(message);
         connection.setRequestProperty(HttpHeaderHelper.CONTENT_TYPE, ct);
         
         if (LOG.isLoggable(Level.FINE)) {
@@ -881,6 +885,28 @@ public class HTTPConduit
         
     }
     
+    /**
+     * @param message The outbound message.
+     * @return the Content-Type of the request, including the charset
+     */
+    private String getRequestContentType(Message message) {
+        String ct  = (String) message.get(Message.CONTENT_TYPE);
+        String enc = (String) message.get(Message.ENCODING);
+        
+        if (null != ct) {
+            if (enc != null 
+                && ct.indexOf("charset=") == -1
+                && !ct.toLowerCase().contains("multipart/related")) {
+                ct = ct + "; charset=" + enc;
+            }
+        } else if (enc != null) {
+            ct = "text/xml; charset=" + enc;
+        } else {
+            ct = "text/xml";
+        }
+        return ct;
+    }
+    
     /**
      * Set up the decoupled Destination if necessary.
      */
@@ -1947,13 +1973,7 @@ public class HTTPConduit
                         }
                     }
                 };
-                WorkQueueManager mgr = outMessage.getExchange().get(Bus.class)
-                    .getExtension(WorkQueueManager.class);
-                AutomaticWorkQueue queue = mgr.getNamedWorkQueue("http-conduit");
-                if (queue == null) {
-                    queue = mgr.getAutomaticWorkQueue();
-                }
-                queue.execute(runnable);
+                getWorkQueue(outMessage.getExchange().get(Bus.class)).execute(runnable);
             }
         }
         protected void handleResponseInternal() throws IOException {
@@ -2097,6 +2117,335 @@ public class HTTPConduit
         }
     }
     
+    /**
+     * @param b the bus of the exchange
+     * @return the queue that responses to asynchronous requests are processed on
+     */
+    private static AutomaticWorkQueue getWorkQueue(Bus b) {
+        WorkQueueManager mgr = b.getExtension(WorkQueueManager.class);
+        AutomaticWorkQueue queue = mgr.getNamedWorkQueue("http-conduit");
+        if (queue == null) {
+            queue = mgr.getAutomaticWorkQueue();
+        }
+        return queue;
+    }
+    
+    /**
+     * A request is sent on the bus-wide NioHttpClient if the client policy
+     * asks for it and the request needs none of the features that only the
+     * URLConnection based client offers: https, proxies, redirects, auth
+     * suppliers, trust deciders and decoupled responses.
+     * <p>
+     * The NioHttpClient buffers the whole request and sends it with a
+     * Content-Length, so AllowChunking does not apply to it.
+     * 
+     * @param message The outbound message.
+     * @param url     The URL the message is going to.
+     * @return true if the message is to be sent on the NioHttpClient
+     */
+    private boolean isNonBlocking(Message message, URL url) {
+        Exchange exchange = message.getExchange();
+        HTTPClientPolicy policy = getClient();
+        return policy.isNonBlocking()
+            && exchange != null
+            && "http".equals(url.getProtocol())
+            && getProxy(policy) == null
+            && !policy.isAutoRedirect()
+            && authSupplier == null
+            && trustDecider == null
+            && !isDecoupled();
+    }
+    
+    /**
+     * Counterpart of prepare() for a request that goes out on the
+     * NioHttpClient. The request is buffered and sent once the output 
+     * stream is closed; the connection comes from the client's pool.
+     */
+    private void prepareNonBlocking(
+        Message message,
+        URL     url,
+        Map<String, List<String>> headers
+    ) {
+        maintainSession = Boolean.TRUE.equals((Boolean)message.get(Message.MAINTAIN_SESSION));
+        setHeadersByPolicy(message, url, headers);
+        message.setContent(OutputStream.class,
+                           new NonBlockingOutputStream(message, url));
+    }
+    
+    /**
+     * @return the NioHttpClient shared by all conduits on the bus, created
+     *         on first use
+     */
+    private NioHttpClient getNioHttpClient() throws IOException {
+        synchronized (bus) {
+            NioHttpClient client = bus.getExtension(NioHttpClient.class);
+            if (client == null) {
+                client = new NioHttpClient();
+                client.setExecutor(getWorkQueue(bus));
+                // the pool is shared by all conduits, the first one to use it sets the limit
+                HTTPClientPolicy policy = getClient();
+                if (policy.isSetMaxConnections()) {
+                    client.getConnectionPool().setMaxConnections(policy.getMaxConnections());
+                }
+                bus.setExtension(client, NioHttpClient.class);
+                BusLifeCycleManager lifeCycleManager = bus.getExtension(BusLifeCycleManager.class);
+                if (lifeCycleManager != null) {
+                    lifeCycleManager.registerLifeCycleListener(client);
+                }
+                InstrumentationManager manager = bus.getExtension(InstrumentationManager.class);
+                if (manager != null) {
+                    try {
+                        manager.register(new NioHttpClientMBeanWrapper(client, bus.getId()));
+                    } catch (JMException jmex) {
+                        LOG.log(Level.WARNING, jmex.getMessage(), jmex);
+                    }
+                }
+            }
+            return client;
+        }
+    }
+    
+    /**
+     * Buffers the request and hands it to the NioHttpClient on close. For an
+     * asynchronous exchange the calling thread returns straight away and the
+     * response is delivered to the incoming observer from the http-conduit
+     * work queue; otherwise the calling thread waits for the response.
+     */
+    protected class NonBlockingOutputStream extends AbstractWrappedOutputStream {
+        
+        protected final Message outMessage;
+        
+        protected final URL url;
+        
+        protected NonBlockingOutputStream(Message m, URL u) {
+            super();
+            outMessage = m;
+            url = u;
+            wrappedStream = new CachedOutputStream();
+        }
+        
+        public void close() throws IOException {
+            CachedOutputStream cached = (CachedOutputStream)wrappedStream;
+            cached.flush();
+            String method = (String)outMessage.get(Message.HTTP_REQUEST_METHOD);
+            NioHttpRequest request = new NioHttpRequest(url);
+            request.setMethod(method == null ? "POST" : method);
+            HTTPClientPolicy policy = getClient();
+            request.setConnectTimeout(policy.getConnectionTimeout());
+            request.setReceiveTimeout(policy.getReceiveTimeout());
+            request.setMaxConnectionsPerHost(policy.getMaxConnectionsPerHost());
+            request.setConnectionIdleTimeout(policy.getConnectionIdleTimeout());
+            
+            Map<String, List<String>> requestHeaders = request.getHeaders();
+            requestHeaders.put(HttpHeaderHelper.CONTENT_TYPE, 
+                               createMutableList(getRequestContentType(outMessage)));
+            for (Map.Entry<String, List<String>> entry 
+                : getSetProtocolHeaders(outMessage).entrySet()) {
+                if (!HttpHeaderHelper.CONTENT_TYPE.equalsIgnoreCase(entry.getKey())) {
+                    requestHeaders.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (maintainSession && sessionCookies.size() > 0) {
+                List<String> cookies = new ArrayList<String>();
+                for (Cookie c : sessionCookies.values()) {
+                    cookies.add(c.requestCookieHeader());
+                }
+                requestHeaders.put(HttpHeaderHelper.COOKIE, cookies);
+            }
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.fine("Sending " + request.getMethod() + " Message without blocking to " 
+                         + url + " Conduit :" + getConduitName());
+                logProtocolHeaders(Level.FINE, outMessage);
+            }
+            if ("GET".equals(request.getMethod())) {
+                cached.close();
+            } else {
+                request.setBody(cached);
+            }
+            NioHttpClient client = getNioHttpClient();
+            if (outMessage.getExchange().isSynchronous()) {
+                SynchronousResponseCallback callback = new SynchronousResponseCallback();
+                client.send(request, callback);
+                callback.await();
+                handleNonBlockingResponse(outMessage, callback.responseCode, callback.responseMessage,
+                                          callback.headers, callback.body);
+                return;
+            }
+            client.send(request, new NioHttpClient.ResponseCallback() {
+                public void responseReceived(int responseCode, String responseMessage,
+                                             Map<String, List<String>> responseHeaders,
+                                             InputStream body) {
+                    try {
+                        handleNonBlockingResponse(outMessage, responseCode, responseMessage,
+                                                  responseHeaders, body);
+                    } catch (IOException e) {
+                        failed(e);
+                    }
+                }
+                
+                public void failed(IOException e) {
+                    handleNonBlockingFailure(outMessage, e);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Parks the calling thread until the NioHttpClient is done with the request.
+     */
+    private static class SynchronousResponseCallback implements NioHttpClient.ResponseCallback {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private int responseCode;
+        private String responseMessage;
+        private Map<String, List<String>> headers;
+        private InputStream body;
+        private IOException exception;
+        
+        public void responseReceived(int code, String message,
+                                     Map<String, List<String>> responseHeaders, 
+                                     InputStream in) {
+            responseCode = code;
+            responseMessage = message;
+            headers = responseHeaders;
+            body = in;
+            latch.countDown();
+        }
+        
+        public void failed(IOException e) {
+            exception = e;
+            latch.countDown();
+        }
+        
+        void await() throws IOException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the HTTP response");
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+    }
+    
+    /**
+     * The NioHttpClient counterpart of WrappedOutputStream.handleResponseInternal().
+     */
+    private void handleNonBlockingResponse(
+        Message outMessage,
+        int responseCode,
+        String responseMessage,
+        Map<String, List<String>> responseHeaders,
+        InputStream in
+    ) throws IOException {
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Response Code: " + responseCode + " Conduit: " + getConduitName());
+            LOG.fine("Header fields: " + responseHeaders);
+        }
+        if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+            in.close();
+            throw new IOException(responseMessage);
+        }
+        if (isOneway(outMessage.getExchange())) {
+            in = getPartialResponse(in, responseCode);
+            if (in == null) {
+                // oneway operation without partial response
+                return;
+            }
+        }
+        outMessage.removeContent(OutputStream.class);
+        
+        Message inMessage = new MessageImpl();
+        inMessage.setExchange(outMessage.getExchange());
+        Map<String, List<String>> headers = new HashMap<String, List<String>>();
+        for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+            headers.put(HttpHeaderHelper.getHeaderKey(entry.getKey()), entry.getValue());
+        }
+        inMessage.put(Message.PROTOCOL_HEADERS, headers);
+        inMessage.put(Message.RESPONSE_CODE, responseCode);
+        String ct = getFirstHeader(responseHeaders, HttpHeaderHelper.CONTENT_TYPE);
+        inMessage.put(Message.CONTENT_TYPE, ct);
+        String charset = HttpHeaderHelper.findCharset(ct);
+        String normalizedEncoding = HttpHeaderHelper.mapCharset(charset);
+        if (normalizedEncoding == null) {
+            String m = new org.apache.cxf.common.i18n.Message("INVALID_ENCODING_MSG",
+                                                               LOG, charset).toString();
+            LOG.log(Level.WARNING, m);
+            in.close();
+            throw new IOException(m);   
+        } 
+        inMessage.put(Message.ENCODING, normalizedEncoding);
+        
+        if (maintainSession) {
+            for (Map.Entry<String, List<String>> entry : responseHeaders.entrySet()) {
+                if ("Set-Cookie".equalsIgnoreCase(entry.getKey())) {
+                    Cookie.handleSetCookie(sessionCookies, entry.getValue());
+                }
+            }
+        }
+        inMessage.setContent(InputStream.class, in);
+        
+        incomingObserver.onMessage(inMessage);
+    }
+    
+    /**
+     * A request sent without blocking failed. There is no caller to throw
+     * to, so the failure goes to the ClientCallback of the exchange or, 
+     * without one, becomes the in fault of the exchange and wakes up 
+     * whoever waits for the exchange to finish.
+     */
+    private void handleNonBlockingFailure(Message outMessage, IOException e) {
+        Exchange exchange = outMessage.getExchange();
+        ClientCallback callback = exchange.get(ClientCallback.class);
+        if (callback == null) {
+            LOG.log(Level.FINE, "Request without blocking failed", e);
+            Message inFault = new MessageImpl();
+            inFault.setExchange(exchange);
+            inFault.setContent(Exception.class, new Fault(e));
+            synchronized (exchange) {
+                exchange.setInFaultMessage(inFault);
+                exchange.put(ClientImpl.FINISHED, Boolean.TRUE);
+                exchange.notifyAll();
+            }
+            return;
+        }
+        Map<String, Object> context = CastUtils.cast((Map<?, ?>)outMessage.get(Message.INVOCATION_CONTEXT));
+        Map<String, Object> responseContext = null;
+        if (context != null) {
+            responseContext = CastUtils.cast((Map<?, ?>)context.get(Client.RESPONSE_CONTEXT));
+        }
+        callback.handleException(responseContext, e);
+    }
+    
+    /**
+     * @param in the response entity
+     * @param responseCode the response code
+     * @return in if it holds a partial response, otherwise null with in closed
+     */
+    private static InputStream getPartialResponse(InputStream in, int responseCode) throws IOException {
+        if (responseCode == HttpURLConnection.HTTP_ACCEPTED
+            || responseCode == HttpURLConnection.HTTP_OK) {
+            PushbackInputStream pin = new PushbackInputStream(in);
+            int c = pin.read();
+            if (c != -1) {
+                pin.unread((byte)c);
+                return pin;
+            }
+        }
+        in.close();
+        return null;
+    }
+    
+    private static String getFirstHeader(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+    
     public void assertMessage(Message message) {
         PolicyUtils.assertClientPolicy(message, clientSidePolicy);
     }
@@ -0,0 +1,310 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cxf.helpers.HttpHeaderHelper;
+import org.apache.cxf.io.CachedOutputStream;
+
+/**
+ * Incremental parser for an HTTP/1.x response. Bytes are fed in as they arrive from the
+ * channel; the body is decoded (Content-Length, chunked or read to end of stream) into a
+ * CachedOutputStream so that large responses spill to disk rather than into the heap.
+ */
+final class HttpResponseParser {
+
+    private static final int STATUS_LINE = 0;
+    private static final int HEADERS = 1;
+    private static final int BODY_LENGTH = 2;
+    private static final int BODY_EOF = 3;
+    private static final int CHUNK_SIZE = 4;
+    private static final int CHUNK_DATA = 5;
+    private static final int CHUNK_END = 6;
+    private static final int TRAILERS = 7;
+    private static final int DONE = 8;
+
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final boolean headRequest;
+    private final StringBuilder line = new StringBuilder();
+    private final Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+    private final CachedOutputStream body = new CachedOutputStream();
+    private int state = STATUS_LINE;
+    private String version;
+    private int responseCode;
+    private String responseMessage;
+    private long remaining;
+    private boolean keepAlive;
+
+    HttpResponseParser(boolean headRequest) {
+        this.headRequest = headRequest;
+    }
+
+    /**
+     * Consume the available bytes of buffer.
+     *
+     * @return true once the complete response has been read; any bytes left in the buffer
+     *         do not belong to this response
+     */
+    boolean parse(ByteBuffer buffer) throws IOException {
+        while (state != DONE && buffer.hasRemaining()) {
+            switch (state) {
+            case STATUS_LINE:
+                if (readLine(buffer)) {
+                    parseStatusLine();
+                }
+                break;
+            case HEADERS:
+                if (readLine(buffer)) {
+                    parseHeaderLine();
+                }
+                break;
+            case BODY_LENGTH:
+                remaining -= copy(buffer, remaining);
+                if (remaining == 0) {
+                    state = DONE;
+                }
+                break;
+            case BODY_EOF:
+                copy(buffer, buffer.remaining());
+                break;
+            case CHUNK_SIZE:
+                if (readLine(buffer)) {
+                    parseChunkSize();
+                }
+                break;
+            case CHUNK_DATA:
+                remaining -= copy(buffer, remaining);
+                if (remaining == 0) {
+                    state = CHUNK_END;
+                }
+                break;
+            case CHUNK_END:
+                if (readLine(buffer)) {
+                    if (line.length() != 0) {
+                        throw new IOException("Malformed chunk, missing CRLF after chunk data");
+                    }
+                    state = CHUNK_SIZE;
+                }
+                break;
+            case TRAILERS:
+                if (readLine(buffer)) {
+                    if (line.length() == 0) {
+                        state = DONE;
+                    }
+                    line.setLength(0);
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown parser state " + state);
+            }
+        }
+        return state == DONE;
+    }
+
+    /**
+     * Signal that the peer closed the connection.
+     *
+     * @return true if this completes the response, false if the response was cut short
+     */
+    boolean endOfStream() {
+        if (state == BODY_EOF) {
+            state = DONE;
+            keepAlive = false;
+        }
+        return state == DONE;
+    }
+
+    /**
+     * @return true if no byte of the response has been seen yet
+     */
+    boolean isEmpty() {
+        return state == STATUS_LINE && line.length() == 0;
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    int getResponseCode() {
+        return responseCode;
+    }
+
+    String getResponseMessage() {
+        return responseMessage;
+    }
+
+    Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    String getHeader(String name) {
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(name) && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the decoded response body
+     */
+    InputStream getBody() throws IOException {
+        InputStream in = body.getInputStream();
+        body.close();
+        return in;
+    }
+
+    void discard() {
+        try {
+            body.close();
+        } catch (IOException e) {
+            // nothing was handed out, nothing to clean up
+        }
+    }
+
+    private boolean readLine(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            char c = (char)(buffer.get() & 0xFF);
+            if (c == '\n') {
+                int len = line.length();
+                if (len > 0 && line.charAt(len - 1) == '\r') {
+                    line.setLength(len - 1);
+                }
+                return true;
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new IOException("HTTP response line exceeds " + MAX_LINE_LENGTH + " characters");
+            }
+            line.append(c);
+        }
+        return false;
+    }
+
+    private long copy(ByteBuffer buffer, long max) throws IOException {
+        int len = (int)Math.min(buffer.remaining(), max);
+        if (buffer.hasArray()) {
+            body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), len);
+            buffer.position(buffer.position() + len);
+        } else {
+            byte[] bytes = new byte[len];
+            buffer.get(bytes);
+            body.write(bytes);
+        }
+        return len;
+    }
+
+    private void parseStatusLine() throws IOException {
+        String status = line.toString();
+        line.setLength(0);
+        if (status.length() == 0) {
+            // tolerate a stray CRLF in front of the status line
+            return;
+        }
+        int sp1 = status.indexOf(' ');
+        if (sp1 < 0 || !status.startsWith("HTTP/")) {
+            throw new IOException("Malformed HTTP status line: " + status);
+        }
+        int sp2 = status.indexOf(' ', sp1 + 1);
+        try {
+            responseCode = Integer.parseInt(status.substring(sp1 + 1, sp2 < 0 ? status.length() : sp2));
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed HTTP status line: " + status);
+        }
+        version = status.substring(0, sp1);
+        responseMessage = sp2 < 0 ? "" : status.substring(sp2 + 1);
+        headers.clear();
+        state = HEADERS;
+    }
+
+    private void parseHeaderLine() throws IOException {
+        if (line.length() == 0) {
+            endOfHeaders();
+            return;
+        }
+        String header = line.toString();
+        line.setLength(0);
+        int colon = header.indexOf(':');
+        if (colon <= 0) {
+            throw new IOException("Malformed HTTP header: " + header);
+        }
+        String name = header.substring(0, colon).trim();
+        String value = header.substring(colon + 1).trim();
+        List<String> values = headers.get(name);
+        if (values == null) {
+            values = new ArrayList<String>(1);
+            headers.put(name, values);
+        }
+        values.add(value);
+    }
+
+    private void endOfHeaders() throws IOException {
+        if (responseCode >= 100 && responseCode < 200) {
+            // interim response such as 100-continue, the real one follows
+            state = STATUS_LINE;
+            return;
+        }
+        String connection = getHeader(HttpHeaderHelper.CONNECTION);
+        if ("HTTP/1.0".equals(version)) {
+            keepAlive = "keep-alive".equalsIgnoreCase(connection);
+        } else {
+            keepAlive = !HttpHeaderHelper.CLOSE.equalsIgnoreCase(connection);
+        }
+        String contentLength = getHeader("Content-Length");
+        if (headRequest || responseCode == 204 || responseCode == 304) {
+            state = DONE;
+        } else if (HttpHeaderHelper.CHUNKED.equalsIgnoreCase(getHeader(HttpHeaderHelper.TRANSFER_ENCODING))) {
+            state = CHUNK_SIZE;
+        } else if (contentLength != null) {
+            try {
+                remaining = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed Content-Length: " + contentLength);
+            }
+            state = remaining > 0 ? BODY_LENGTH : DONE;
+        } else {
+            state = BODY_EOF;
+            keepAlive = false;
+        }
+    }
+
+    private void parseChunkSize() throws IOException {
+        String size = line.toString();
+        line.setLength(0);
+        int ext = size.indexOf(';');
+        if (ext >= 0) {
+            size = size.substring(0, ext);
+        }
+        try {
+            remaining = Long.parseLong(size.trim(), 16);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed chunk size: " + size);
+        }
+        state = remaining == 0 ? TRAILERS : CHUNK_DATA;
+    }
+}
@@ -0,0 +1,381 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.nio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps count of the connections of a {@link NioHttpClient} per route, that is per target
+ * host and port, and holds the idle ones for reuse. A connection is either leased, meaning it
+ * is being connected or carries a request, or idle. The pool bounds the sum of both per route
+ * and in total; when the total is reached the oldest idle connection of another route is
+ * closed to make room.
+ * <p>
+ * Only the selector thread of the client changes the pool. The counters may be read from any
+ * thread, typically through JMX.
+ */
+public class NioConnectionPool {
+
+    private final Map<InetSocketAddress, Route> routes = new ConcurrentHashMap<InetSocketAddress, Route>();
+    private final ByteBuffer probe = ByteBuffer.allocate(1);
+    private final AtomicInteger leasedCount = new AtomicInteger();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong reusedCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong invalidCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitTimeoutCount = new AtomicLong();
+    private volatile int maxConnections = -1;
+
+    /**
+     * @return the maximum number of connections over all routes, negative for no limit
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int max) {
+        this.maxConnections = max;
+    }
+
+    /**
+     * @return number of connections that are being connected or carry a request
+     */
+    public int getLeasedCount() {
+        return leasedCount.get();
+    }
+
+    public int getIdleCount() {
+        return idleCount.get();
+    }
+
+    /**
+     * @return number of requests waiting for a connection
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    /**
+     * @return number of requests that were sent on an idle connection
+     */
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    /**
+     * @return number of idle connections closed because their idle timeout elapsed
+     */
+    public long getExpiredCount() {
+        return expiredCount.get();
+    }
+
+    /**
+     * @return number of idle connections found closed or unusable when borrowed
+     */
+    public long getInvalidCount() {
+        return invalidCount.get();
+    }
+
+    /**
+     * @return number of requests that had to wait for a connection
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return number of requests that gave up waiting for a connection
+     */
+    public long getWaitTimeoutCount() {
+        return waitTimeoutCount.get();
+    }
+
+    /**
+     * @return one line per route with its leased and idle connections and its limit
+     */
+    public List<String> getRouteStatistics() {
+        List<String> stats = new ArrayList<String>(routes.size());
+        for (Route route : routes.values()) {
+            stats.add(route.address.getHostName() + ":" + route.address.getPort()
+                      + " leased=" + route.leased
+                      + " idle=" + route.idleSize
+                      + " max=" + route.maxConnections);
+        }
+        return stats;
+    }
+
+    Route getRoute(InetSocketAddress address) {
+        Route route = routes.get(address);
+        if (route == null) {
+            route = new Route(address);
+            routes.put(address, route);
+        }
+        return route;
+    }
+
+    /**
+     * Take the most recently used idle connection of route that is still usable. Stale
+     * connections found on the way are closed.
+     *
+     * @return a connection now counted as leased, or null
+     */
+    SocketChannel leaseIdle(Route route) {
+        while (!route.idle.isEmpty()) {
+            SocketChannel channel = route.removeLastIdle();
+            idleCount.decrementAndGet();
+            if (isUsable(channel)) {
+                route.leased++;
+                leasedCount.incrementAndGet();
+                reusedCount.incrementAndGet();
+                return channel;
+            }
+            invalidCount.incrementAndGet();
+            close(channel);
+        }
+        return null;
+    }
+
+    /**
+     * Reserve room for a new connection to route.
+     *
+     * @return false if the route or the pool is at its limit
+     */
+    boolean reserve(Route route) {
+        if (route.maxConnections >= 0 && route.leased + route.idleSize >= route.maxConnections) {
+            return false;
+        }
+        int max = maxConnections;
+        if (max >= 0 && leasedCount.get() + idleCount.get() >= max && !closeOldestIdle()) {
+            return false;
+        }
+        route.leased++;
+        leasedCount.incrementAndGet();
+        return true;
+    }
+
+    void connectionCreated() {
+        createdCount.incrementAndGet();
+    }
+
+    /**
+     * Give back a leased connection.
+     *
+     * @param reusable true to keep the connection as idle, false to close it
+     */
+    void release(Route route, SocketChannel channel, boolean reusable) {
+        route.leased--;
+        leasedCount.decrementAndGet();
+        if (reusable && channel.isOpen()) {
+            route.addIdle(channel, System.currentTimeMillis());
+            idleCount.incrementAndGet();
+        } else if (channel != null) {
+            close(channel);
+        }
+    }
+
+    /**
+     * Drop an idle connection, typically because the server closed it.
+     */
+    void removeIdle(Route route, SocketChannel channel) {
+        if (route.removeIdle(channel)) {
+            idleCount.decrementAndGet();
+        }
+        close(channel);
+    }
+
+    /**
+     * Close the idle connections whose idle timeout has elapsed.
+     *
+     * @return the number of connections closed
+     */
+    int closeExpired(long now) {
+        int closed = 0;
+        for (Route route : routes.values()) {
+            if (route.idleTimeout <= 0) {
+                continue;
+            }
+            for (Iterator<IdleChannel> it = route.idle.iterator(); it.hasNext();) {
+                IdleChannel idle = it.next();
+                if (now - idle.since >= route.idleTimeout) {
+                    it.remove();
+                    route.idleSize--;
+                    idleCount.decrementAndGet();
+                    expiredCount.incrementAndGet();
+                    close(idle.channel);
+                    closed++;
+                }
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Close the idle connections to host, or to every host if host is null.
+     *
+     * @return the number of connections closed
+     */
+    int closeIdle(String host) {
+        int closed = 0;
+        for (Route route : routes.values()) {
+            if (host != null && !host.equalsIgnoreCase(route.address.getHostName())) {
+                continue;
+            }
+            while (!route.idle.isEmpty()) {
+                close(route.removeLastIdle());
+                idleCount.decrementAndGet();
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    void waitStarted() {
+        pendingCount.incrementAndGet();
+        waitCount.incrementAndGet();
+    }
+
+    void waitEnded(boolean timedOut) {
+        pendingCount.decrementAndGet();
+        if (timedOut) {
+            waitTimeoutCount.incrementAndGet();
+        }
+    }
+
+    private boolean closeOldestIdle() {
+        Route oldest = null;
+        for (Route route : routes.values()) {
+            if (!route.idle.isEmpty()
+                && (oldest == null || route.idle.getFirst().since < oldest.idle.getFirst().since)) {
+                oldest = route;
+            }
+        }
+        if (oldest == null) {
+            return false;
+        }
+        IdleChannel idle = oldest.idle.removeFirst();
+        oldest.idleSize--;
+        idleCount.decrementAndGet();
+        close(idle.channel);
+        return true;
+    }
+
+    /**
+     * An idle connection must still be open and have nothing to read; a read of -1 means
+     * the server closed it, anything else means it is out of step with us.
+     */
+    private boolean isUsable(SocketChannel channel) {
+        if (!channel.isOpen() || !channel.isConnected()) {
+            return false;
+        }
+        probe.clear();
+        try {
+            return channel.read(probe) == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void close(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * The connections to one host and port.
+     */
+    static final class Route {
+        final InetSocketAddress address;
+        final LinkedList<IdleChannel> idle = new LinkedList<IdleChannel>();
+        volatile int idleSize;
+        volatile int leased;
+        volatile int maxConnections = -1;
+        volatile long idleTimeout;
+        private boolean configured;
+
+        Route(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        /**
+         * Take the limits of the first request to this route. Later requests, possibly from
+         * conduits with other settings, leave them alone.
+         */
+        void configure(NioHttpRequest request) {
+            if (configured) {
+                return;
+            }
+            configured = true;
+            maxConnections = request.getMaxConnectionsPerHost();
+            idleTimeout = request.getConnectionIdleTimeout();
+        }
+
+        void addIdle(SocketChannel channel, long now) {
+            idle.addLast(new IdleChannel(channel, now));
+            idleSize++;
+        }
+
+        SocketChannel removeLastIdle() {
+            idleSize--;
+            return idle.removeLast().channel;
+        }
+
+        boolean removeIdle(SocketChannel channel) {
+            for (Iterator<IdleChannel> it = idle.iterator(); it.hasNext();) {
+                if (it.next().channel == channel) {
+                    it.remove();
+                    idleSize--;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class IdleChannel {
+        final SocketChannel channel;
+        final long since;
+
+        IdleChannel(SocketChannel channel, long since) {
+            this.channel = channel;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,838 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.cxf.buslifecycle.BusLifeCycleListener;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.HashedWheelTimer;
+import org.apache.cxf.transport.http.nio.NioConnectionPool.Route;
+import org.apache.cxf.version.Version;
+
+/**
+ * A non-blocking HTTP/1.1 client for plain http. A single selector thread drives every
+ * connection, so an outstanding request costs a socket and a few buffers rather than a parked
+ * thread. Completed responses are buffered and handed to the callback on the executor, which
+ * is where the interceptor chain for the response runs.
+ * <p>
+ * Connections are kept alive and reused through a {@link NioConnectionPool}. A request that
+ * finds the pool at its limit waits, in arrival order, until a connection is released or its
+ * connect timeout expires. A request that finds its reused connection closed by the server
+ * before any response byte arrived is resent once on a fresh connection.
+ */
+public class NioHttpClient implements BusLifeCycleListener {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(NioHttpClient.class);
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long EVICTION_INTERVAL = 1000L;
+
+    private final Selector selector;
+    private final NioConnectionPool pool = new NioConnectionPool();
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+    // response callbacks the executor turned down, resubmitted whenever the selector wakes up
+    private final Queue<Runnable> rejected = new ConcurrentLinkedQueue<Runnable>();
+    private final Map<Connection, Boolean> active = new ConcurrentHashMap<Connection, Boolean>();
+    // only touched by the selector thread
+    private final LinkedList<Connection> waiting = new LinkedList<Connection>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final HashedWheelTimer timer;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile Executor executor;
+    private volatile boolean stopped;
+    private boolean terminated;
+    private boolean serving;
+    private Thread ioThread;
+
+    public NioHttpClient() throws IOException {
+        selector = Selector.open();
+        timer = new HashedWheelTimer("nio-http-client-timeouts", 100, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * @param executor runs response callbacks, if null they run on the selector thread
+     *        and must not block. Callbacks the executor rejects are queued and resubmitted
+     *        later rather than run on the selector thread.
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public NioConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    /**
+     * @return number of requests that have been sent but not yet completed or failed
+     */
+    public int getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Send request without waiting for the response. Exactly one of the callback methods is
+     * invoked once the exchange is over.
+     *
+     * @throws IOException if the client has been stopped or the host cannot be resolved
+     */
+    public void send(NioHttpRequest request, ResponseCallback callback) throws IOException {
+        if (stopped) {
+            throw new IOException("NIO HTTP client has been stopped");
+        }
+        final Connection connection =
+            new Connection(resolve(request.getURL()), request, encodeHead(request), callback);
+        inFlight.incrementAndGet();
+        execute(new Runnable() {
+            public void run() {
+                connection.start();
+            }
+        });
+    }
+
+    /**
+     * Open up to count connections to the host and port of url and keep them idle, so that
+     * the first requests do not pay for connection setup. Connections that do not fit into
+     * the pool limits are not opened.
+     */
+    public void prestartConnections(URL url, final int count) throws IOException {
+        if (stopped) {
+            throw new IOException("NIO HTTP client has been stopped");
+        }
+        final InetSocketAddress address = resolve(url);
+        execute(new Runnable() {
+            public void run() {
+                Route route = pool.getRoute(address);
+                for (int i = 0; i < count && !stopped && pool.reserve(route); i++) {
+                    prestart(route);
+                }
+            }
+        });
+    }
+
+    /**
+     * Close the idle connections to host, or all idle connections if host is null, for
+     * instance after the address behind a host name has changed.
+     */
+    public void closeIdleConnections(final String host) {
+        execute(new Runnable() {
+            public void run() {
+                if (!stopped) {
+                    pool.closeIdle(host);
+                    serveWaiting();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the selector thread. Requests still in flight fail with an IOException.
+     */
+    public void stop() {
+        stopped = true;
+        selector.wakeup();
+    }
+
+    public void initComplete() {
+        // nothing to do
+    }
+
+    public void preShutdown() {
+        stop();
+    }
+
+    public void postShutdown() {
+        // nothing to do
+    }
+
+    static ByteBuffer encodeHead(NioHttpRequest request) {
+        URL url = request.getURL();
+        StringBuilder sb = new StringBuilder(256);
+        String file = url.getFile();
+        sb.append(request.getMethod()).append(' ')
+            .append(file.length() == 0 ? "/" : file)
+            .append(" HTTP/1.1\r\n");
+        boolean hasHost = false;
+        boolean hasUserAgent = false;
+        for (Map.Entry<String, List<String>> entry : request.getHeaders().entrySet()) {
+            String name = entry.getKey();
+            if ("Content-Length".equalsIgnoreCase(name) || "Transfer-Encoding".equalsIgnoreCase(name)) {
+                continue;
+            }
+            hasHost |= "Host".equalsIgnoreCase(name);
+            hasUserAgent |= "User-Agent".equalsIgnoreCase(name);
+            for (String value : entry.getValue()) {
+                sb.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+        if (!hasHost) {
+            sb.append("Host: ").append(url.getHost());
+            if (url.getPort() != -1) {
+                sb.append(':').append(url.getPort());
+            }
+            sb.append("\r\n");
+        }
+        if (!hasUserAgent) {
+            sb.append("User-Agent: ").append(Version.getCompleteVersionString()).append("\r\n");
+        }
+        if (request.getBody() != null) {
+            sb.append("Content-Length: ").append(request.getBody().size()).append("\r\n");
+        }
+        sb.append("\r\n");
+        return ByteBuffer.wrap(sb.toString().getBytes(ISO_8859_1));
+    }
+
+    private static InetSocketAddress resolve(URL url) throws UnknownHostException {
+        int port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+        InetSocketAddress address = new InetSocketAddress(url.getHost(), port);
+        if (address.isUnresolved()) {
+            throw new UnknownHostException(url.getHost());
+        }
+        return address;
+    }
+
+    private void execute(Runnable task) {
+        tasks.add(task);
+        if (start()) {
+            selector.wakeup();
+        } else {
+            // the selector thread is gone, the task can only fail the connection
+            runTasks();
+        }
+    }
+
+    private synchronized boolean start() {
+        if (terminated) {
+            return false;
+        }
+        if (ioThread == null) {
+            ioThread = new Thread(new Runnable() {
+                public void run() {
+                    select();
+                }
+            }, "nio-http-client");
+            ioThread.setDaemon(true);
+            ioThread.start();
+            scheduleEviction();
+        }
+        return true;
+    }
+
+    private void scheduleEviction() {
+        timer.newTimeout(new Runnable() {
+            public void run() {
+                if (stopped) {
+                    return;
+                }
+                execute(new Runnable() {
+                    public void run() {
+                        if (!stopped && pool.closeExpired(System.currentTimeMillis()) > 0) {
+                            serveWaiting();
+                        }
+                        dispatchRejected();
+                    }
+                });
+                try {
+                    scheduleEviction();
+                } catch (IllegalStateException e) {
+                    // stopped in the meantime
+                }
+            }
+        }, EVICTION_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    private void select() {
+        while (!stopped) {
+            try {
+                selector.select();
+                runTasks();
+                dispatchRejected();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    process(key);
+                }
+                selector.selectedKeys().clear();
+            } catch (Throwable t) {
+                LOG.log(Level.WARNING, "Unexpected error in NIO HTTP client selector loop", t);
+            }
+        }
+        terminate();
+    }
+
+    private void runTasks() {
+        Runnable task = tasks.poll();
+        while (task != null) {
+            task.run();
+            task = tasks.poll();
+        }
+    }
+
+    private void process(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        Object attachment = key.attachment();
+        if (attachment instanceof Route) {
+            // an idle connection that the server closed or wrote to out of turn
+            pool.removeIdle((Route)attachment, (SocketChannel)key.channel());
+            serveWaiting();
+            return;
+        }
+        if (attachment instanceof Prestart) {
+            ((Prestart)attachment).connected(key);
+            return;
+        }
+        Connection connection = (Connection)attachment;
+        try {
+            if (key.isConnectable()) {
+                connection.connected();
+            } else if (key.isWritable()) {
+                connection.write();
+            } else if (key.isReadable()) {
+                connection.read();
+            }
+        } catch (IOException e) {
+            if (connection.isStale()) {
+                connection.retry();
+            } else {
+                connection.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Hand released capacity to the waiting requests, oldest first.
+     */
+    private void serveWaiting() {
+        if (serving || stopped || waiting.isEmpty()) {
+            return;
+        }
+        serving = true;
+        try {
+            boolean progress = true;
+            while (progress && !waiting.isEmpty()) {
+                progress = false;
+                for (Connection connection : new ArrayList<Connection>(waiting)) {
+                    progress |= connection.acquireWaiting();
+                }
+            }
+        } finally {
+            serving = false;
+        }
+    }
+
+    private void prestart(Route route) {
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            pool.connectionCreated();
+            Prestart prestart = new Prestart(route);
+            if (channel.connect(route.address)) {
+                prestart.connected(channel.register(selector, 0, prestart));
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, prestart);
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Could not prestart a connection to " + route.address, e);
+            pool.release(route, channel, false);
+        }
+    }
+
+    private void terminate() {
+        for (Connection connection : new ArrayList<Connection>(active.keySet())) {
+            connection.fail(new IOException("NIO HTTP client has been stopped"));
+        }
+        pool.closeIdle(null);
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        timer.stop();
+        synchronized (this) {
+            terminated = true;
+        }
+        runTasks();
+        // nothing is left to stall on this thread now
+        Runnable task = rejected.poll();
+        while (task != null) {
+            if (!submit(task)) {
+                task.run();
+            }
+            task = rejected.poll();
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        if (executor == null) {
+            task.run();
+        } else if (!rejected.isEmpty() || !submit(task)) {
+            if (stopped) {
+                // the selector loop is ending and will not resubmit it
+                task.run();
+            } else {
+                // running the response chain here would stall every other connection
+                rejected.add(task);
+            }
+        }
+    }
+
+    private void dispatchRejected() {
+        Runnable task = rejected.peek();
+        while (task != null && submit(task)) {
+            rejected.remove(task);
+            task = rejected.peek();
+        }
+    }
+
+    private boolean submit(Runnable task) {
+        Executor ex = executor;
+        if (ex == null) {
+            task.run();
+            return true;
+        }
+        try {
+            ex.execute(task);
+            return true;
+        } catch (RuntimeException e) {
+            LOG.log(Level.FINE, "Executor rejected response task, queueing it", e);
+            return false;
+        }
+    }
+
+    /**
+     * Receives the outcome of a request sent with {@link NioHttpClient#send}.
+     */
+    public interface ResponseCallback {
+
+        /**
+         * @param responseCode the HTTP status code
+         * @param responseMessage the reason phrase
+         * @param headers the response headers, as received
+         * @param body the decoded response entity, possibly empty
+         */
+        void responseReceived(int responseCode, String responseMessage,
+                              Map<String, List<String>> headers, InputStream body);
+
+        void failed(IOException e);
+    }
+
+    /**
+     * A connection being opened ahead of demand. It becomes idle once connected.
+     */
+    private final class Prestart {
+        private final Route route;
+
+        Prestart(Route route) {
+            this.route = route;
+        }
+
+        void connected(SelectionKey key) {
+            SocketChannel channel = (SocketChannel)key.channel();
+            boolean connected = false;
+            try {
+                connected = channel.finishConnect();
+                if (!connected) {
+                    return;
+                }
+                key.attach(route);
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                LOG.log(Level.FINE, "Could not prestart a connection to " + route.address, e);
+            }
+            pool.release(route, channel, connected);
+            serveWaiting();
+        }
+    }
+
+    /**
+     * The state of one request on one channel. Only touched by the selector thread, except
+     * when the client has been stopped.
+     */
+    private final class Connection {
+        private final Route route;
+        private final NioHttpRequest request;
+        private final ByteBuffer head;
+        private final ResponseCallback callback;
+        private SocketChannel channel;
+        private SelectionKey key;
+        private boolean leased;
+        private boolean reused;
+        private boolean retried;
+        private boolean done;
+        private InputStream body;
+        private ByteBuffer bodyBuffer;
+        private HttpResponseParser parser;
+        private TimeoutTask timeout;
+        // System.nanoTime() of the last read or write that moved any bytes
+        private long lastActivity;
+
+        Connection(InetSocketAddress address, NioHttpRequest request, ByteBuffer head,
+                   ResponseCallback callback) {
+            this.route = pool.getRoute(address);
+            this.request = request;
+            this.head = head;
+            this.callback = callback;
+        }
+
+        void start() {
+            if (stopped) {
+                fail(new IOException("NIO HTTP client has been stopped"));
+                return;
+            }
+            active.put(this, Boolean.TRUE);
+            route.configure(request);
+            try {
+                if (!acquire()) {
+                    waiting.addLast(this);
+                    pool.waitStarted();
+                    schedule(request.getConnectTimeout(), "Waiting for a pooled connection");
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * @return true if this waiting request got a connection or failed trying
+         */
+        boolean acquireWaiting() {
+            if (done) {
+                return true;
+            }
+            try {
+                if (!acquire()) {
+                    return false;
+                }
+                if (waiting.remove(this)) {
+                    pool.waitEnded(false);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+            return true;
+        }
+
+        void connected() throws IOException {
+            if (channel.finishConnect()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                scheduleInactivity(request.getReceiveTimeout(), "Read");
+            }
+        }
+
+        void write() throws IOException {
+            if (head.hasRemaining()) {
+                written(channel.write(head));
+                if (head.hasRemaining()) {
+                    return;
+                }
+            }
+            do {
+                if (bodyBuffer != null && bodyBuffer.hasRemaining()) {
+                    written(channel.write(bodyBuffer));
+                    if (bodyBuffer.hasRemaining()) {
+                        return;
+                    }
+                }
+            } while (fillBody());
+            parser = new HttpResponseParser("HEAD".equals(request.getMethod()));
+            key.interestOps(SelectionKey.OP_READ);
+        }
+
+        void read() throws IOException {
+            readBuffer.clear();
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                if (isStale()) {
+                    retry();
+                } else if (parser.endOfStream()) {
+                    complete(false);
+                } else {
+                    throw new EOFException("Connection closed before the HTTP response was complete");
+                }
+                return;
+            }
+            if (n > 0) {
+                lastActivity = System.nanoTime();
+            }
+            readBuffer.flip();
+            if (parser.parse(readBuffer)) {
+                // leftover bytes mean the server is out of step with us, do not reuse
+                complete(parser.isKeepAlive() && !readBuffer.hasRemaining());
+            }
+        }
+
+        /**
+         * @return true if this request went out on a kept-alive connection that failed
+         *         before any of the response was seen
+         */
+        boolean isStale() {
+            return reused && !retried && !done && (parser == null || parser.isEmpty());
+        }
+
+        void retry() {
+            LOG.fine("Kept-alive connection to " + route.address + " was closed, resending on a new one");
+            retried = true;
+            reused = false;
+            NioConnectionPool.close(channel);
+            closeBody();
+            head.rewind();
+            bodyBuffer = null;
+            parser = null;
+            try {
+                open();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        void fail(final IOException e) {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (waiting.remove(this)) {
+                pool.waitEnded(e instanceof SocketTimeoutException);
+            }
+            finish();
+            if (leased) {
+                leased = false;
+                pool.release(route, channel, false);
+                serveWaiting();
+            } else if (channel != null) {
+                NioConnectionPool.close(channel);
+            }
+            if (parser != null) {
+                parser.discard();
+            }
+            dispatch(new Runnable() {
+                public void run() {
+                    callback.failed(e);
+                }
+            });
+        }
+
+        private boolean acquire() throws IOException {
+            SocketChannel idle = pool.leaseIdle(route);
+            if (idle != null) {
+                leased = true;
+                reused = true;
+                channel = idle;
+                key = channel.keyFor(selector);
+                key.attach(this);
+                key.interestOps(SelectionKey.OP_WRITE);
+                scheduleInactivity(request.getReceiveTimeout(), "Read");
+                return true;
+            }
+            if (pool.reserve(route)) {
+                leased = true;
+                open();
+                return true;
+            }
+            return false;
+        }
+
+        private void complete(boolean keepAlive) {
+            done = true;
+            finish();
+            leased = false;
+            if (keepAlive) {
+                key.attach(route);
+                key.interestOps(SelectionKey.OP_READ);
+            }
+            pool.release(route, channel, keepAlive);
+            serveWaiting();
+            final HttpResponseParser response = parser;
+            dispatch(new Runnable() {
+                public void run() {
+                    InputStream in;
+                    try {
+                        in = response.getBody();
+                    } catch (IOException e) {
+                        callback.failed(e);
+                        return;
+                    }
+                    callback.responseReceived(response.getResponseCode(), response.getResponseMessage(),
+                                              response.getHeaders(), in);
+                }
+            });
+        }
+
+        private void finish() {
+            active.remove(this);
+            inFlight.decrementAndGet();
+            if (timeout != null) {
+                timeout.handle.cancel();
+                timeout = null;
+            }
+            closeBody();
+            if (request.getBody() != null) {
+                try {
+                    request.getBody().close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        private void open() throws IOException {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            pool.connectionCreated();
+            if (channel.connect(route.address)) {
+                key = channel.register(selector, SelectionKey.OP_WRITE, this);
+                scheduleInactivity(request.getReceiveTimeout(), "Read");
+            } else {
+                key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                schedule(request.getConnectTimeout(), "Connect");
+            }
+        }
+
+        private boolean fillBody() throws IOException {
+            if (request.getBody() == null) {
+                return false;
+            }
+            if (body == null) {
+                body = request.getBody().getInputStream();
+                bodyBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+            }
+            int n = body.read(bodyBuffer.array(), 0, bodyBuffer.capacity());
+            if (n < 0) {
+                bodyBuffer.limit(0);
+                return false;
+            }
+            bodyBuffer.position(0);
+            bodyBuffer.limit(n);
+            return true;
+        }
+
+        private void written(int n) {
+            if (n > 0) {
+                lastActivity = System.nanoTime();
+            }
+        }
+
+        private void schedule(long millis, String what) {
+            schedule(millis, new TimeoutTask(millis, what, false));
+        }
+
+        /**
+         * Arms a timeout that only fires once nothing has been read or written for
+         * the given time, rather than that long after it was armed.
+         */
+        private void scheduleInactivity(long millis, String what) {
+            lastActivity = System.nanoTime();
+            schedule(millis, new TimeoutTask(millis, what, true));
+        }
+
+        private void schedule(long delay, TimeoutTask task) {
+            if (timeout != null) {
+                timeout.handle.cancel();
+                timeout = null;
+            }
+            if (task.millis <= 0) {
+                return;
+            }
+            task.handle = timer.newTimeout(task, delay, TimeUnit.MILLISECONDS);
+            timeout = task;
+        }
+
+        /**
+         * Runs on the selector thread when a timeout has fired.
+         */
+        void expired(TimeoutTask task) {
+            if (done || timeout != task) {
+                // replaced or cancelled after it had fired
+                return;
+            }
+            if (task.inactivity) {
+                long quiet = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastActivity);
+                if (quiet < task.millis) {
+                    // there was traffic since the timeout was armed, wait for the rest
+                    schedule(task.millis - quiet, task);
+                    return;
+                }
+            }
+            fail(new SocketTimeoutException(task.what + " timed out after " + task.millis
+                                            + " ms to " + request.getURL()));
+        }
+
+        final class TimeoutTask implements Runnable {
+            final long millis;
+            final String what;
+            final boolean inactivity;
+            HashedWheelTimer.Timeout handle;
+
+            TimeoutTask(long millis, String what, boolean inactivity) {
+                this.millis = millis;
+                this.what = what;
+                this.inactivity = inactivity;
+            }
+
+            public void run() {
+                execute(new Runnable() {
+                    public void run() {
+                        expired(TimeoutTask.this);
+                    }
+                });
+            }
+        }
+
+        private void closeBody() {
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+                body = null;
+            }
+        }
+    }
+}
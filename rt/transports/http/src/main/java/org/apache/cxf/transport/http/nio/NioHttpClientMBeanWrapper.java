@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.nio;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.cxf.management.ManagedComponent;
+import org.apache.cxf.management.ManagementConstants;
+import org.apache.cxf.management.annotation.ManagedAttribute;
+import org.apache.cxf.management.annotation.ManagedOperation;
+import org.apache.cxf.management.annotation.ManagedOperationParameter;
+import org.apache.cxf.management.annotation.ManagedOperationParameters;
+import org.apache.cxf.management.annotation.ManagedResource;
+
+@ManagedResource(componentName = "HTTPClient", 
+                 description = "The non-blocking HTTP client and its connection pool", 
+                 currencyTimeLimit = 15, persistPolicy = "OnUpdate", persistPeriod = 200)
+                 
+public class NioHttpClientMBeanWrapper implements ManagedComponent {
+    private static final String TYPE_VALUE = "HTTPClient";
+    private static final String NAME_VALUE = "NioHttpClient";
+
+    private final NioHttpClient client;
+    private final String busId;
+
+    public NioHttpClientMBeanWrapper(NioHttpClient client, String busId) {
+        this.client = client;
+        this.busId = busId;
+    }
+
+    @ManagedAttribute(description = "Requests sent and not yet completed")
+    public int getInFlightCount() {
+        return client.getInFlightCount();
+    }
+
+    @ManagedAttribute(description = "Connections being opened or carrying a request")
+    public int getLeasedConnections() {
+        return client.getConnectionPool().getLeasedCount();
+    }
+
+    @ManagedAttribute(description = "Connections kept open for reuse")
+    public int getIdleConnections() {
+        return client.getConnectionPool().getIdleCount();
+    }
+
+    @ManagedAttribute(description = "Requests waiting for a connection")
+    public int getPendingRequests() {
+        return client.getConnectionPool().getPendingCount();
+    }
+
+    @ManagedAttribute(description = "Maximum number of connections over all hosts, negative for no limit")
+    public int getMaxConnections() {
+        return client.getConnectionPool().getMaxConnections();
+    }
+
+    public void setMaxConnections(int max) {
+        client.getConnectionPool().setMaxConnections(max);
+    }
+
+    @ManagedAttribute(description = "Connections opened")
+    public long getCreatedConnections() {
+        return client.getConnectionPool().getCreatedCount();
+    }
+
+    @ManagedAttribute(description = "Requests sent on a reused connection")
+    public long getReusedConnections() {
+        return client.getConnectionPool().getReusedCount();
+    }
+
+    @ManagedAttribute(description = "Idle connections closed after their idle timeout")
+    public long getExpiredConnections() {
+        return client.getConnectionPool().getExpiredCount();
+    }
+
+    @ManagedAttribute(description = "Idle connections found unusable when borrowed")
+    public long getInvalidConnections() {
+        return client.getConnectionPool().getInvalidCount();
+    }
+
+    @ManagedAttribute(description = "Requests that had to wait for a connection")
+    public long getWaitCount() {
+        return client.getConnectionPool().getWaitCount();
+    }
+
+    @ManagedAttribute(description = "Requests that gave up waiting for a connection")
+    public long getWaitTimeoutCount() {
+        return client.getConnectionPool().getWaitTimeoutCount();
+    }
+
+    @ManagedOperation(description = "Leased, idle and maximum connections per host")
+    public String[] getRouteStatistics() {
+        List<String> stats = client.getConnectionPool().getRouteStatistics();
+        return stats.toArray(new String[stats.size()]);
+    }
+
+    @ManagedOperation(description = "Close the idle connections to a host, or to all hosts if empty")
+    @ManagedOperationParameters({
+        @ManagedOperationParameter(name = "host", description = "The host name")
+        })
+    public void closeIdleConnections(String host) {
+        client.closeIdleConnections(host == null || host.length() == 0 ? null : host);
+    }
+
+    @ManagedOperation(description = "Open idle connections to the host and port of an URL")
+    @ManagedOperationParameters({
+        @ManagedOperationParameter(name = "url", description = "The target URL"),
+        @ManagedOperationParameter(name = "count", description = "Number of connections to open")
+        })
+    public void prestartConnections(String url, int count) throws IOException {
+        client.prestartConnections(new URL(url), count);
+    }
+
+    public ObjectName getObjectName() throws JMException {
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(ManagementConstants.DEFAULT_DOMAIN_NAME + ":");
+        buffer.append(ManagementConstants.BUS_ID_PROP + "=" + busId + ",");
+        buffer.append(ManagementConstants.TYPE_PROP + "=" + TYPE_VALUE + ",");
+        buffer.append(ManagementConstants.NAME_PROP + "=" + NAME_VALUE);
+        return new ObjectName(buffer.toString());
+    }
+}
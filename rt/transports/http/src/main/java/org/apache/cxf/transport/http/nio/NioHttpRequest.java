@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.nio;
+
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.cxf.io.CachedOutputStream;
+
+/**
+ * An HTTP request to be sent by the {@link NioHttpClient}. The body, if any, must already be
+ * fully buffered since it is pulled by the selector thread as the channel becomes writable, and
+ * read again should a kept-alive connection turn out to have been closed by the server. It is
+ * therefore always sent with a Content-Length, never chunked.
+ * <p>
+ * The connection limit and idle timeout apply to the target host and port as a whole. They are
+ * taken from the first request to it; the settings of later requests are ignored.
+ */
+public class NioHttpRequest {
+
+    private final URL url;
+    private String method = "POST";
+    private Map<String, List<String>> headers = new LinkedHashMap<String, List<String>>();
+    private CachedOutputStream body;
+    private long connectTimeout;
+    private long receiveTimeout;
+    private int maxConnectionsPerHost = -1;
+    private long connectionIdleTimeout = 30000L;
+
+    public NioHttpRequest(URL url) {
+        this.url = url;
+    }
+
+    public URL getURL() {
+        return url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public Map<String, List<String>> getHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(Map<String, List<String>> headers) {
+        this.headers = headers;
+    }
+
+    public CachedOutputStream getBody() {
+        return body;
+    }
+
+    /**
+     * @param body the request entity, closed by the client once the exchange is over
+     */
+    public void setBody(CachedOutputStream body) {
+        this.body = body;
+    }
+
+    /**
+     * @return milliseconds allowed for establishing the connection, 0 for no limit
+     */
+    public long getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(long connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return milliseconds allowed between connecting and the end of the response, 0 for no limit
+     */
+    public long getReceiveTimeout() {
+        return receiveTimeout;
+    }
+
+    public void setReceiveTimeout(long receiveTimeout) {
+        this.receiveTimeout = receiveTimeout;
+    }
+
+    /**
+     * @return the limit on connections to the target of this request, negative for no limit
+     */
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int max) {
+        this.maxConnectionsPerHost = max;
+    }
+
+    /**
+     * @return milliseconds a connection to the target may stay idle before it is closed, 0 for no limit
+     */
+    public long getConnectionIdleTimeout() {
+        return connectionIdleTimeout;
+    }
+
+    public void setConnectionIdleTimeout(long connectionIdleTimeout) {
+        this.connectionIdleTimeout = connectionIdleTimeout;
+    }
+}
@@ -381,6 +381,25 @@ public final class PolicyUtils {
         } else if (p2.isSetAutoRedirect()) {
             p.setAutoRedirect(p2.isAutoRedirect());
         } 
+        if (p1.isSetNonBlocking()) {
+            p.setNonBlocking(p1.isNonBlocking());
+        } else if (p2.isSetNonBlocking()) {
+            p.setNonBlocking(p2.isNonBlocking());
+        }
+        if (p1.isSetMaxConnectionsPerHost()) {
+            p.setMaxConnectionsPerHost(p1.getMaxConnectionsPerHost());
+        } else if (p2.isSetMaxConnectionsPerHost()) {
+            p.setMaxConnectionsPerHost(p2.getMaxConnectionsPerHost());
+        }
+        if (p1.isSetMaxConnections()) {
+            p.setMaxConnections(p1.getMaxConnections());
+        } else if (p2.isSetMaxConnections()) {
+            p.setMaxConnections(p2.getMaxConnections());
+        }
+        if (p1.isSetConnectionIdleTimeout() || p2.isSetConnectionIdleTimeout()) {
+            p.setConnectionIdleTimeout(Math.min(p1.getConnectionIdleTimeout(), 
+                                                p2.getConnectionIdleTimeout()));
+        }
         p.setBrowserType(combine(p1.getBrowserType(), p2.getBrowserType()));
         if (p1.isSetCacheControl()) {
             p.setCacheControl(p1.getCacheControl());
@@ -436,6 +455,10 @@ public final class PolicyUtils {
         boolean result = true;
         result &= (p1.isAllowChunking() == p2.isAllowChunking())
             && (p1.isAutoRedirect() == p2.isAutoRedirect())
+            && (p1.isNonBlocking() == p2.isNonBlocking())
+            && (p1.getMaxConnectionsPerHost() == p2.getMaxConnectionsPerHost())
+            && (p1.getMaxConnections() == p2.getMaxConnections())
+            && (p1.getConnectionIdleTimeout() == p2.getConnectionIdleTimeout())
             && equals(p1.getAccept(), p2.getAccept())
             && equals(p1.getAcceptEncoding(), p2.getAcceptEncoding())
             && equals(p1.getAcceptLanguage(), p2.getAcceptLanguage())
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.servlet;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * An immutable character trie over the paths of the servlet destinations. A lookup walks
+ * the request path once, whatever the number of destinations, and takes no locks. The trie
+ * is never changed once built: ServletTransportFactory builds a new one whenever a
+ * destination is added or removed and publishes it through a volatile field.
+ */
+final class DestinationPathTrie {
+    
+    static final DestinationPathTrie EMPTY = 
+        new DestinationPathTrie(new Node(null, new char[0], new Node[0]));
+    
+    private final Node root;
+    
+    private DestinationPathTrie(Node root) {
+        this.root = root;
+    }
+    
+    static DestinationPathTrie build(Map<String, ServletDestination> destinations) {
+        Builder root = new Builder();
+        for (Map.Entry<String, ServletDestination> entry : destinations.entrySet()) {
+            Builder b = root;
+            String path = entry.getKey();
+            for (int i = 0; i < path.length(); i++) {
+                Character c = Character.valueOf(path.charAt(i));
+                Builder child = b.children.get(c);
+                if (child == null) {
+                    child = new Builder();
+                    b.children.put(c, child);
+                }
+                b = child;
+            }
+            b.destination = entry.getValue();
+        }
+        return new DestinationPathTrie(root.toNode());
+    }
+    
+    /**
+     * @param address the request path
+     * @return the destination with the longest path that address starts with, or null
+     */
+    ServletDestination findLongestPrefix(String address) {
+        Node node = root;
+        ServletDestination found = node.destination;
+        for (int i = 0; i < address.length(); i++) {
+            node = node.getChild(address.charAt(i));
+            if (node == null) {
+                break;
+            }
+            if (node.destination != null) {
+                found = node.destination;
+            }
+        }
+        return found;
+    }
+    
+    private static final class Node {
+        final ServletDestination destination;
+        final char[] keys;
+        final Node[] children;
+        
+        Node(ServletDestination destination, char[] keys, Node[] children) {
+            this.destination = destination;
+            this.keys = keys;
+            this.children = children;
+        }
+        
+        Node getChild(char c) {
+            // keys are sorted, most nodes have one or two of them
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < c) {
+                    low = mid + 1;
+                } else if (keys[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+    }
+    
+    private static final class Builder {
+        final SortedMap<Character, Builder> children = new TreeMap<Character, Builder>();
+        ServletDestination destination;
+        
+        Node toNode() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                keys[i] = entry.getKey().charValue();
+                nodes[i] = entry.getValue().toNode();
+                i++;
+            }
+            return new Node(destination, keys, nodes);
+        }
+    }
+}
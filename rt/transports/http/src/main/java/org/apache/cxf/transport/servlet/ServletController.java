@@ -40,6 +40,9 @@ import org.apache.cxf.common.util.StringUtils;
 import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.service.model.OperationInfo;
+import org.apache.cxf.transport.http.AbstractHTTPDestination;
+import org.apache.cxf.transports.http.CachedQueryResponse;
+import org.apache.cxf.transports.http.CachingQueryHandler;
 import org.apache.cxf.transports.http.QueryHandler;
 import org.apache.cxf.transports.http.QueryHandlerRegistry;
 import org.xmlsoap.schemas.wsdl.http.AddressType;
@@ -51,7 +54,7 @@ public class ServletController {
     private ServletTransportFactory transport;
     private ServletContext servletContext;
     private Bus bus;
-    private String lastBase = "";
+    private volatile String lastBase = "";
     private boolean isHideServiceList;
     private boolean disableAddressUpdates;
     private String forcedBaseAddress;
@@ -81,12 +84,20 @@ public class ServletController {
         return lastBase;
     }
     
-    private synchronized void updateDests(HttpServletRequest request) {
+    private void updateDests(HttpServletRequest request) {
         if (disableAddressUpdates) {
             return;
         }
         String base = forcedBaseAddress == null ? getBaseURL(request) : forcedBaseAddress;
                 
+        // nearly every request comes in on the base address seen last time,
+        // only a change of base address needs the lock
+        if (!base.equals(lastBase)) {
+            rewriteAddresses(base);
+        }
+    }
+    
+    private synchronized void rewriteAddresses(String base) {
         if (base.equals(lastBase)) {
             return;
         }
@@ -154,6 +165,20 @@ public class ServletController {
 
                     for (QueryHandler qh : bus.getExtension(QueryHandlerRegistry.class).getHandlers()) {
                         if (qh.isRecognizedQuery(baseUri, ctxUri, ei)) {
+                            if (qh instanceof CachingQueryHandler) {
+                                CachedQueryResponse cached;
+                                try {
+                                    cached = ((CachingQueryHandler)qh).getResponse(baseUri, ctxUri, ei);
+                                } catch (Exception e) {
+                                    LogUtils.log(LOG, Level.WARNING,
+                                                 qh.getClass().getName()
+                                                 + " Exception caught writing response.",
+                                                 e);
+                                    throw new ServletException(e);
+                                }
+                                AbstractHTTPDestination.sendCachedQueryResponse(cached, request, res);
+                                return;
+                            }
                             
                             res.setContentType(qh.getResponseContentType(baseUri, ctxUri));
                             OutputStream out = res.getOutputStream();
@@ -182,13 +207,7 @@ public class ServletController {
     private ServletDestination checkRestfulRequest(HttpServletRequest request) throws IOException {        
         
         String address = request.getPathInfo() == null ? "" : request.getPathInfo();
-        
-        for (String path : transport.getDestinationsPaths()) {           
-            if (address.startsWith(path)) {                
-                return transport.getDestinationForPath(path);
-            }
-        }
-        return null; 
+        return transport.getDestinationForPathPrefix(address);
     }
     
     protected void generateServiceList(HttpServletRequest request, HttpServletResponse response)
@@ -46,6 +46,7 @@ public class ServletTransportFactory extends AbstractHTTPTransportFactory
     
     private Map<String, ServletDestination> destinations = 
         new ConcurrentHashMap<String, ServletDestination>();
+    private volatile DestinationPathTrie pathTrie = DestinationPathTrie.EMPTY;
     
     private ServletController controller;
     
@@ -90,17 +91,20 @@ public class ServletTransportFactory extends AbstractHTTPTransportFactory
         }
     }
     
-    public void removeDestination(String path) {
-        destinations.remove(path);
+    public synchronized void removeDestination(String path) {
+        if (destinations.remove(path) != null) {
+            pathTrie = DestinationPathTrie.build(destinations);
+        }
     }
     
-    public Destination getDestination(EndpointInfo endpointInfo)
+    public synchronized Destination getDestination(EndpointInfo endpointInfo)
         throws IOException {
         ServletDestination d = getDestinationForPath(endpointInfo.getAddress());
         if (d == null) { 
             String path = getTrimmedPath(endpointInfo.getAddress());
             d = new ServletDestination(getBus(), this, endpointInfo, this, path);
             destinations.put(path, d);
+            pathTrie = DestinationPathTrie.build(destinations);
             
             if (controller != null
                 && !StringUtils.isEmpty(controller.getLastBaseURL())) {
@@ -123,6 +127,17 @@ public class ServletTransportFactory extends AbstractHTTPTransportFactory
         // to use the url context match  
         return destinations.get(getTrimmedPath(path));
     }
+    
+    /**
+     * Finds the destination for a request whose path does not name one exactly, such as
+     * a RESTful request below the destination's address.
+     * 
+     * @param address the request path
+     * @return the destination with the longest path that address starts with, or null
+     */
+    public ServletDestination getDestinationForPathPrefix(String address) {
+        return pathTrie.findLongestPrefix(address);
+    }
 
     static String getTrimmedPath(String path) {
         if (path == null) {
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.nio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.cxf.helpers.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HttpResponseParserTest extends Assert {
+
+    @Test
+    public void testContentLength() throws Exception {
+        HttpResponseParser parser = new HttpResponseParser(false);
+        String response = "HTTP/1.1 200 OK\r\nContent-Type: text/xml\r\nContent-Length: 5\r\n\r\nhello";
+        assertTrue(parser.parse(buffer(response + "HTTP/1.1")));
+        assertEquals(200, parser.getResponseCode());
+        assertEquals("OK", parser.getResponseMessage());
+        assertEquals("text/xml", parser.getHeader("content-type"));
+        assertTrue(parser.isKeepAlive());
+        assertEquals("hello", read(parser.getBody()));
+    }
+
+    @Test
+    public void testChunkedAcrossBuffers() throws Exception {
+        HttpResponseParser parser = new HttpResponseParser(false);
+        String response = "HTTP/1.1 500 Internal Server Error\r\nTransfer-Encoding: chunked\r\n\r\n"
+            + "5;ext=1\r\nhello\r\n7\r\n, world\r\n0\r\nX-Trailer: t\r\n\r\n";
+        // feed one byte at a time to exercise every state boundary
+        for (int i = 0; i < response.length() - 1; i++) {
+            assertFalse(parser.parse(buffer(response.substring(i, i + 1))));
+        }
+        assertTrue(parser.parse(buffer(response.substring(response.length() - 1))));
+        assertEquals(500, parser.getResponseCode());
+        assertEquals("hello, world", read(parser.getBody()));
+    }
+
+    @Test
+    public void testBodyToEndOfStream() throws Exception {
+        HttpResponseParser parser = new HttpResponseParser(false);
+        assertFalse(parser.parse(buffer("HTTP/1.1 200 OK\r\n\r\n<a/>")));
+        assertFalse(parser.parse(buffer("<b/>")));
+        assertTrue(parser.endOfStream());
+        assertFalse(parser.isKeepAlive());
+        assertEquals("<a/><b/>", read(parser.getBody()));
+    }
+
+    @Test
+    public void testTruncatedResponse() throws Exception {
+        HttpResponseParser parser = new HttpResponseParser(false);
+        assertTrue(parser.isEmpty());
+        assertFalse(parser.parse(buffer("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nabc")));
+        assertFalse(parser.isEmpty());
+        assertFalse(parser.endOfStream());
+    }
+
+    @Test
+    public void testInterimAndEmptyResponses() throws Exception {
+        HttpResponseParser parser = new HttpResponseParser(false);
+        assertTrue(parser.parse(buffer("HTTP/1.1 100 Continue\r\n\r\n"
+                                       + "HTTP/1.0 202 Accepted\r\nConnection: keep-alive\r\n"
+                                       + "Content-Length: 0\r\n\r\n")));
+        assertEquals(202, parser.getResponseCode());
+        assertTrue(parser.isKeepAlive());
+        assertEquals(-1, parser.getBody().read());
+
+        parser = new HttpResponseParser(true);
+        assertTrue(parser.parse(buffer("HTTP/1.1 200 OK\r\nContent-Length: 42\r\n"
+                                       + "Connection: close\r\n\r\n")));
+        assertFalse(parser.isKeepAlive());
+    }
+
+    @Test
+    public void testMalformedStatusLine() throws Exception {
+        HttpResponseParser parser = new HttpResponseParser(false);
+        try {
+            parser.parse(buffer("SMTP ready\r\n"));
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static ByteBuffer buffer(String s) throws Exception {
+        return ByteBuffer.wrap(s.getBytes("ISO-8859-1"));
+    }
+
+    private static String read(InputStream in) throws Exception {
+        return new String(IOUtils.readBytesFromStream(in), "ISO-8859-1");
+    }
+}
@@ -0,0 +1,412 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.transport.http.nio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.cxf.helpers.IOUtils;
+import org.apache.cxf.io.CachedOutputStream;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NioHttpClientTest extends Assert {
+
+    private NioHttpClient client;
+    private TestServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        client = new NioHttpClient();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.stop();
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testRequestAndKeepAlive() throws Exception {
+        server = new TestServer(false, false);
+        for (int i = 0; i < 3; i++) {
+            Result result = send("<ping>" + i + "</ping>", 0);
+            assertNull(result.failure);
+            assertEquals(200, result.responseCode);
+            assertEquals("<pong><ping>" + i + "</ping></pong>", result.body);
+        }
+        assertEquals(1, server.connections.get());
+        String request = server.requests.get(0);
+        assertTrue(request, request.startsWith("POST /test?x=1 HTTP/1.1\r\n"));
+        assertTrue(request, request.contains("Content-Length: 14\r\n"));
+        assertTrue(request, request.contains("Host: localhost:" + server.getPort() + "\r\n"));
+        assertTrue(request, request.contains("SOAPAction: \"\"\r\n"));
+        assertEquals(0, client.getInFlightCount());
+    }
+
+    @Test
+    public void testStaleConnectionIsRetried() throws Exception {
+        server = new TestServer(true, false);
+        Result first = send("<a/>", 0);
+        assertNull(first.failure);
+        // the server closed the connection behind our back, the request is resent on a new one
+        Result second = send("<b/>", 0);
+        assertNull(second.failure);
+        assertEquals("<pong><b/></pong>", second.body);
+        assertEquals(2, server.connections.get());
+    }
+
+    @Test
+    public void testReceiveTimeout() throws Exception {
+        server = new TestServer(false, true);
+        Result result = send("<a/>", 300);
+        assertTrue(String.valueOf(result.failure), result.failure instanceof SocketTimeoutException);
+        assertEquals(0, client.getInFlightCount());
+    }
+
+    @Test
+    public void testReceiveTimeoutIsPerRead() throws Exception {
+        server = new TestServer(false, false);
+        // the whole response takes well over the receive timeout, but no single gap does
+        server.trickleMillis = 100;
+        Result result = send("<a/>", 500);
+        assertNull(result.failure);
+        assertEquals("<pong><a/></pong>", result.body);
+    }
+
+    @Test
+    public void testConnectionRefused() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        Result result = send(new URL("http://localhost:" + port + "/"), "<a/>", 0);
+        assertNotNull(result.failure);
+    }
+
+    @Test
+    public void testRejectedResponseIsQueued() throws Exception {
+        server = new TestServer(false, false);
+        final AtomicInteger rejections = new AtomicInteger(2);
+        client.setExecutor(new Executor() {
+            public void execute(Runnable task) {
+                if (rejections.getAndDecrement() > 0) {
+                    throw new RejectedExecutionException("busy");
+                }
+                new Thread(task, "response-worker").start();
+            }
+        });
+        Result result = send("<a/>", 0);
+        assertNull(result.failure);
+        assertEquals("<pong><a/></pong>", result.body);
+        assertEquals("the response must not be handled on the selector thread",
+                     "response-worker", result.thread);
+    }
+
+    @Test
+    public void testMaxConnectionsPerHost() throws Exception {
+        server = new TestServer(false, false);
+        Result[] results = new Result[3];
+        for (int i = 0; i < results.length; i++) {
+            NioHttpRequest request = createRequest(localUrl(), "<r" + i + "/>", 0);
+            request.setMaxConnectionsPerHost(1);
+            results[i] = sendAsync(request);
+        }
+        for (int i = 0; i < results.length; i++) {
+            assertTrue("no response", results[i].done.await(10, TimeUnit.SECONDS));
+            assertNull(results[i].failure);
+            assertEquals("<pong><r" + i + "/></pong>", results[i].body);
+        }
+        NioConnectionPool pool = client.getConnectionPool();
+        assertEquals(1, server.connections.get());
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(2, pool.getReusedCount());
+        assertEquals(2, pool.getWaitCount());
+        assertEquals(1, pool.getIdleCount());
+        assertEquals(0, pool.getLeasedCount());
+    }
+
+    @Test
+    public void testRouteLimitsComeFromFirstRequest() throws Exception {
+        server = new TestServer(false, false);
+        NioHttpRequest first = createRequest(localUrl(), "<a/>", 0);
+        first.setMaxConnectionsPerHost(1);
+        assertNull(sendAndWait(first).failure);
+        // another conduit with other settings does not change the limit of the route
+        NioHttpRequest second = createRequest(localUrl(), "<b/>", 0);
+        second.setMaxConnectionsPerHost(5);
+        assertNull(sendAndWait(second).failure);
+        List<String> stats = client.getConnectionPool().getRouteStatistics();
+        assertEquals(1, stats.size());
+        assertTrue(stats.get(0), stats.get(0).endsWith(" max=1"));
+    }
+
+    @Test
+    public void testWaitForConnectionTimesOut() throws Exception {
+        server = new TestServer(false, true);
+        NioHttpRequest first = createRequest(localUrl(), "<a/>", 5000);
+        first.setMaxConnectionsPerHost(1);
+        sendAsync(first);
+        NioHttpRequest second = createRequest(localUrl(), "<b/>", 0);
+        second.setMaxConnectionsPerHost(1);
+        second.setConnectTimeout(300);
+        Result result = sendAsync(second);
+        assertTrue("no response", result.done.await(10, TimeUnit.SECONDS));
+        assertTrue(String.valueOf(result.failure), result.failure instanceof SocketTimeoutException);
+        assertEquals(1, client.getConnectionPool().getWaitTimeoutCount());
+        assertEquals(0, client.getConnectionPool().getPendingCount());
+    }
+
+    @Test
+    public void testPrestartAndCloseIdleConnections() throws Exception {
+        server = new TestServer(false, false);
+        NioConnectionPool pool = client.getConnectionPool();
+        client.prestartConnections(localUrl(), 2);
+        waitFor(pool, 2);
+        assertEquals(2, pool.getCreatedCount());
+
+        Result result = send("<a/>", 0);
+        assertNull(result.failure);
+        assertEquals(1, pool.getReusedCount());
+        assertEquals(2, pool.getCreatedCount());
+
+        client.closeIdleConnections("localhost");
+        waitFor(pool, 0);
+    }
+
+    @Test
+    public void testIdleConnectionsExpire() throws Exception {
+        server = new TestServer(false, false);
+        NioHttpRequest request = createRequest(localUrl(), "<a/>", 0);
+        request.setConnectionIdleTimeout(100);
+        Result result = sendAsync(request);
+        assertTrue("no response", result.done.await(10, TimeUnit.SECONDS));
+        assertNull(result.failure);
+        NioConnectionPool pool = client.getConnectionPool();
+        // the eviction sweep runs once a second
+        waitFor(pool, 0);
+        assertEquals(1, pool.getExpiredCount());
+    }
+
+    private static void waitFor(NioConnectionPool pool, int idle) throws InterruptedException {
+        long end = System.currentTimeMillis() + 10000;
+        while (pool.getIdleCount() != idle && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        assertEquals(idle, pool.getIdleCount());
+    }
+
+    private URL localUrl() throws Exception {
+        return new URL("http://localhost:" + server.getPort() + "/test?x=1");
+    }
+
+    private Result send(String body, long receiveTimeout) throws Exception {
+        return send(localUrl(), body, receiveTimeout);
+    }
+
+    private Result send(URL url, String body, long receiveTimeout) throws Exception {
+        return sendAndWait(createRequest(url, body, receiveTimeout));
+    }
+
+    private Result sendAndWait(NioHttpRequest request) throws Exception {
+        Result result = sendAsync(request);
+        assertTrue("no response", result.done.await(10, TimeUnit.SECONDS));
+        return result;
+    }
+
+    private static NioHttpRequest createRequest(URL url, String body, long receiveTimeout) 
+        throws IOException {
+        NioHttpRequest request = new NioHttpRequest(url);
+        request.getHeaders().put("SOAPAction", Collections.singletonList("\"\""));
+        CachedOutputStream cos = new CachedOutputStream();
+        cos.write(body.getBytes("UTF-8"));
+        request.setBody(cos);
+        request.setReceiveTimeout(receiveTimeout);
+        return request;
+    }
+
+    private Result sendAsync(NioHttpRequest request) throws IOException {
+        final Result result = new Result();
+        client.send(request, new NioHttpClient.ResponseCallback() {
+            public void responseReceived(int responseCode, String responseMessage,
+                                         Map<String, List<String>> headers, InputStream in) {
+                result.thread = Thread.currentThread().getName();
+                try {
+                    result.responseCode = responseCode;
+                    result.body = new String(IOUtils.readBytesFromStream(in), "UTF-8");
+                } catch (IOException e) {
+                    result.failure = e;
+                }
+                result.done.countDown();
+            }
+
+            public void failed(IOException e) {
+                result.thread = Thread.currentThread().getName();
+                result.failure = e;
+                result.done.countDown();
+            }
+        });
+        return result;
+    }
+
+    private static class Result {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile int responseCode;
+        volatile String body;
+        volatile IOException failure;
+        volatile String thread;
+    }
+
+    /**
+     * Echoes each request body inside a pong element, one thread per connection.
+     */
+    private static class TestServer extends Thread {
+        final ServerSocket serverSocket;
+        final boolean closeAfterResponse;
+        final boolean silent;
+        final AtomicInteger connections = new AtomicInteger();
+        final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        // when set, the response body is written a byte at a time with this pause in between
+        volatile long trickleMillis;
+
+        TestServer(boolean closeAfterResponse, boolean silent) throws IOException {
+            this.serverSocket = new ServerSocket(0);
+            this.closeAfterResponse = closeAfterResponse;
+            this.silent = silent;
+            setDaemon(true);
+            start();
+        }
+
+        int getPort() {
+            return serverSocket.getLocalPort();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+
+        public void run() {
+            try {
+                while (true) {
+                    final Socket socket = serverSocket.accept();
+                    connections.incrementAndGet();
+                    Thread handler = new Thread() {
+                        public void run() {
+                            try {
+                                serve(socket);
+                            } catch (IOException e) {
+                                // drop the connection
+                            } finally {
+                                try {
+                                    socket.close();
+                                } catch (IOException e) {
+                                    // ignore
+                                }
+                            }
+                        }
+                    };
+                    handler.setDaemon(true);
+                    handler.start();
+                }
+            } catch (IOException e) {
+                // closed
+            }
+        }
+
+        private void serve(Socket socket) throws IOException {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            while (true) {
+                String head = readHead(in);
+                if (head == null) {
+                    return;
+                }
+                requests.add(head);
+                int idx = head.indexOf("Content-Length: ");
+                int length = Integer.parseInt(head.substring(idx + 16, head.indexOf('\r', idx)));
+                byte[] body = new byte[length];
+                int read = 0;
+                while (read < length) {
+                    read += in.read(body, read, length - read);
+                }
+                if (silent) {
+                    in.read();
+                    return;
+                }
+                byte[] content = ("<pong>" + new String(body, "UTF-8") + "</pong>").getBytes("UTF-8");
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/xml; charset=UTF-8\r\n"
+                    + "Content-Length: " + content.length + "\r\n\r\n").getBytes("ISO-8859-1"));
+                if (trickleMillis > 0) {
+                    trickle(out, content);
+                } else {
+                    out.write(content);
+                }
+                out.flush();
+                if (closeAfterResponse) {
+                    return;
+                }
+            }
+        }
+
+        private void trickle(OutputStream out, byte[] content) throws IOException {
+            for (byte b : content) {
+                out.write(b);
+                out.flush();
+                try {
+                    Thread.sleep(trickleMillis);
+                } catch (InterruptedException e) {
+                    throw new IOException("Interrupted");
+                }
+            }
+        }
+
+        private static String readHead(InputStream in) throws IOException {
+            ByteArrayOutputStream head = new ByteArrayOutputStream();
+            int c = in.read();
+            while (c != -1) {
+                head.write(c);
+                String s = head.toString("ISO-8859-1");
+                if (s.endsWith("\r\n\r\n")) {
+                    return s;
+                }
+                c = in.read();
+            }
+            return null;
+        }
+    }
+}
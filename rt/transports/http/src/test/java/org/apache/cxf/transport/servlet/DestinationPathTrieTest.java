@@ -0,0 +1,75 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.servlet;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.easymock.classextension.EasyMock;
+import org.easymock.classextension.IMocksControl;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DestinationPathTrieTest extends Assert {
+
+    private IMocksControl control;
+    
+    @Before
+    public void setUp() {
+        control = EasyMock.createNiceControl();
+    }
+    
+    @Test
+    public void testEmpty() {
+        assertNull(DestinationPathTrie.EMPTY.findLongestPrefix("/greeter"));
+        assertNull(DestinationPathTrie.EMPTY.findLongestPrefix(""));
+    }
+    
+    @Test
+    public void testLongestPrefixWins() {
+        Map<String, ServletDestination> destinations = new HashMap<String, ServletDestination>();
+        ServletDestination root = control.createMock(ServletDestination.class);
+        ServletDestination greeter = control.createMock(ServletDestination.class);
+        ServletDestination greeterRest = control.createMock(ServletDestination.class);
+        destinations.put("/", root);
+        destinations.put("/greeter", greeter);
+        destinations.put("/greeter/rest", greeterRest);
+        DestinationPathTrie trie = DestinationPathTrie.build(destinations);
+        
+        assertSame(greeter, trie.findLongestPrefix("/greeter"));
+        assertSame(greeter, trie.findLongestPrefix("/greeter/sayHi"));
+        assertSame(greeterRest, trie.findLongestPrefix("/greeter/rest"));
+        assertSame(greeterRest, trie.findLongestPrefix("/greeter/rest/customers/123"));
+        // plain string prefixes, as the servlet has always matched them
+        assertSame(greeter, trie.findLongestPrefix("/greeters"));
+        assertSame(root, trie.findLongestPrefix("/other"));
+        assertNull(trie.findLongestPrefix(""));
+    }
+    
+    @Test
+    public void testNoMatch() {
+        Map<String, ServletDestination> destinations = new HashMap<String, ServletDestination>();
+        destinations.put("/a/b", control.createMock(ServletDestination.class));
+        DestinationPathTrie trie = DestinationPathTrie.build(destinations);
+        assertNull(trie.findLongestPrefix("/a"));
+        assertNull(trie.findLongestPrefix("/a/c"));
+        assertNull(trie.findLongestPrefix("/b"));
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.jms;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
+
+/**
+ * Reads the body of a BytesMessage in place instead of copying it into a byte[] first.
+ */
+class BytesMessageInputStream extends InputStream {
+    private final BytesMessage message;
+    private byte[] scratch;
+    private boolean eof;
+
+    BytesMessageInputStream(BytesMessage message) {
+        this.message = message;
+    }
+
+    public int read() throws IOException {
+        if (eof) {
+            return -1;
+        }
+        try {
+            return message.readUnsignedByte();
+        } catch (MessageEOFException e) {
+            eof = true;
+            return -1;
+        } catch (JMSException e) {
+            throw createIOException(e);
+        }
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (eof) {
+            return -1;
+        }
+        try {
+            int n;
+            if (off == 0) {
+                n = message.readBytes(b, len);
+            } else {
+                // readBytes always fills from the start of the array
+                if (scratch == null || scratch.length < len) {
+                    scratch = new byte[Math.max(len, 4096)];
+                }
+                n = message.readBytes(scratch, len);
+                if (n > 0) {
+                    System.arraycopy(scratch, 0, b, off, n);
+                }
+            }
+            if (n <= 0) {
+                eof = true;
+                return -1;
+            }
+            return n;
+        } catch (JMSException e) {
+            throw createIOException(e);
+        }
+    }
+
+    static IOException createIOException(JMSException e) {
+        IOException ex = new IOException(e.getMessage());
+        ex.initCause(e);
+        return ex;
+    }
+}
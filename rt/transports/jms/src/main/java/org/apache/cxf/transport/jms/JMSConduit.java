@@ -19,7 +19,6 @@
 
 package org.apache.cxf.transport.jms;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,6 +27,9 @@ import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -41,18 +43,26 @@ import org.apache.cxf.Bus;
 import org.apache.cxf.buslifecycle.BusLifeCycleListener;
 import org.apache.cxf.buslifecycle.BusLifeCycleManager;
 import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.HashedWheelTimer;
 import org.apache.cxf.configuration.ConfigurationException;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.ClientCallback;
+import org.apache.cxf.endpoint.ConduitSelector;
+import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.transport.AbstractConduit;
+import org.apache.cxf.transport.MessageObserver;
+import org.apache.cxf.workqueue.WorkQueueManager;
 import org.apache.cxf.ws.addressing.EndpointReferenceType;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.core.MessageCreator;
 import org.springframework.jms.listener.DefaultMessageListenerContainer;
 import org.springframework.jms.support.JmsUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * JMSConduit is instantiated by the JMSTransportfactory which is selected by a client if the transport
@@ -66,20 +76,30 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
     
     private static final String CORRELATED = JMSConduit.class.getName() + ".correlated";
     
+    /**
+     * Used to expire asynchronous requests when no receive timeout is configured. Matches the
+     * default clientReceiveTimeout of the JMS client policy.
+     */
+    private static final long DEFAULT_ASYNC_RECEIVE_TIMEOUT = 60000L;
+    
     private EndpointInfo endpointInfo;
     private JMSConfiguration jmsConfig;
     private Map<String, Exchange> correlationMap;
+    private Map<String, HashedWheelTimer.Timeout> timeouts;
     private DefaultMessageListenerContainer jmsListener;
     private DefaultMessageListenerContainer allListener;
     private String conduitId;
     private AtomicLong messageCount;
     private JMSBusLifeCycleListener listener;
+    private JMSSessionPool sessionPool;
+    private ReplyTimer ownTimer;
 
     public JMSConduit(EndpointInfo endpointInfo, EndpointReferenceType target, JMSConfiguration jmsConfig) {
         super(target);
         this.jmsConfig = jmsConfig;
         this.endpointInfo = endpointInfo;
         correlationMap = new ConcurrentHashMap<String, Exchange>();
+        timeouts = new ConcurrentHashMap<String, HashedWheelTimer.Timeout>();
         conduitId = UUID.randomUUID().toString().replaceAll("-", "");
         messageCount = new AtomicLong(0);
     }
@@ -126,7 +146,9 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
         final JMSMessageHeadersType headers = (JMSMessageHeadersType)outMessage
             .get(JMSConstants.JMS_CLIENT_REQUEST_HEADERS);
 
-        final JmsTemplate jmsTemplate = JMSFactory.createJmsTemplate(jmsConfig, headers);
+        final JMSSessionPool pool = getSessionPool();
+        final JmsTemplate jmsTemplate = pool == null
+            ? JMSFactory.createJmsTemplate(jmsConfig, headers) : null;
         String userCID = headers != null ? headers.getJMSCorrelationID() : null;
         DefaultMessageListenerContainer jmsList = jmsListener;
         if (!exchange.isOneWay()) {
@@ -169,7 +191,9 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
                     if (replyToName == null && jmsConfig.getReplyDestination() != null) {
                         replyToName = jmsConfig.getReplyDestination();
                     }
-                    if (replyToName != null) {
+                    if (replyToName != null && pool != null) {
+                        replyToDestination = pool.resolveDestination(session, replyToName);
+                    } else if (replyToName != null) {
                         replyToDestination = 
                             JMSFactory.resolveOrCreateDestination(jmsTemplate, 
                                                                   replyToName, 
@@ -191,12 +215,24 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
          */
         if (!exchange.isOneWay()) {
             synchronized (exchange) {
+                long receiveTimeout = jmsConfig.getReceiveTimeout() != null
+                    ? jmsConfig.getReceiveTimeout().longValue() : 0;
                 correlationMap.put(correlationId, exchange);
-                jmsTemplate.send(jmsConfig.getTargetDestination(), messageCreator);
+                if (!exchange.isSynchronous()) {
+                    scheduleTimeout(exchange, correlationId, 
+                                    receiveTimeout > 0 ? receiveTimeout : DEFAULT_ASYNC_RECEIVE_TIMEOUT);
+                }
+                try {
+                    send(pool, jmsTemplate, headers, messageCreator);
+                } catch (RuntimeException ex) {
+                    correlationMap.remove(correlationId);
+                    cancelTimeout(correlationId);
+                    throw ex;
+                }
                 
                 if (exchange.isSynchronous()) {
                     try {
-                        exchange.wait(jmsTemplate.getReceiveTimeout());
+                        exchange.wait(receiveTimeout);
                     } catch (InterruptedException e) {
                         correlationMap.remove(correlationId);
                         throw new RuntimeException(e);
@@ -208,11 +244,144 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
                     }
                 }
             }
+        } else {
+            send(pool, jmsTemplate, headers, messageCreator);
+        }
+    }
+
+    /**
+     * Fails an asynchronous exchange if no reply has been correlated with it once the receive
+     * timeout has passed. No thread waits for the reply; the timer wheel only holds a small entry
+     * per request that is cancelled when the reply arrives.
+     */
+    private void scheduleTimeout(final Exchange exchange, final String correlationId, long receiveTimeout) {
+        HashedWheelTimer timer = getReplyTimer(exchange.get(Bus.class));
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(new Runnable() {
+            public void run() {
+                timeouts.remove(correlationId);
+                if (correlationMap.remove(correlationId) == null) {
+                    return;
+                }
+                Runnable fail = new Runnable() {
+                    public void run() {
+                        failExchange(exchange, new TimeoutException(
+                            "Timeout receiving message with correlationId " + correlationId));
+                    }
+                };
+                Bus bus = exchange.get(Bus.class);
+                WorkQueueManager wqm = bus == null ? null : bus.getExtension(WorkQueueManager.class);
+                if (wqm != null) {
+                    try {
+                        wqm.getAutomaticWorkQueue().execute(fail);
+                        return;
+                    } catch (RejectedExecutionException e) {
+                        // fall through and report it on the timer thread
+                    }
+                }
+                fail.run();
+            }
+        }, receiveTimeout, TimeUnit.MILLISECONDS);
+        timeouts.put(correlationId, timeout);
+        if (timeout.isExpired()) {
+            // already fired before we could record it
+            timeouts.remove(correlationId);
+        }
+    }
+
+    /**
+     * Returns the timer shared by the JMS conduits of the bus, which is stopped when the bus shuts
+     * down. Without a bus the conduit uses its own timer, stopped when the conduit is closed.
+     */
+    private HashedWheelTimer getReplyTimer(Bus bus) {
+        if (bus == null) {
+            synchronized (this) {
+                if (ownTimer == null) {
+                    ownTimer = new ReplyTimer();
+                }
+                return ownTimer;
+            }
+        }
+        synchronized (ReplyTimer.class) {
+            ReplyTimer timer = bus.getExtension(ReplyTimer.class);
+            if (timer == null) {
+                timer = new ReplyTimer();
+                bus.setExtension(timer, ReplyTimer.class);
+                BusLifeCycleManager blcm = bus.getExtension(BusLifeCycleManager.class);
+                if (blcm != null) {
+                    blcm.registerLifeCycleListener(timer);
+                }
+            }
+            return timer;
+        }
+    }
+
+    private void cancelTimeout(String correlationId) {
+        HashedWheelTimer.Timeout timeout = timeouts.remove(correlationId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private void failExchange(Exchange exchange, Throwable ex) {
+        ClientCallback callback = exchange.get(ClientCallback.class);
+        if (callback == null || callback.isDone() || callback.isCancelled()) {
+            LOG.log(Level.WARNING, ex.getMessage());
+            return;
+        }
+        Map<String, Object> resCtx = null;
+        Map<String, Object> invCtx = CastUtils.cast((Map<?, ?>)exchange.getOutMessage()
+                                                        .get(Message.INVOCATION_CONTEXT));
+        if (invCtx != null) {
+            resCtx = CastUtils.cast((Map<?, ?>)invCtx.get(Client.RESPONSE_CONTEXT));
+        }
+        ConduitSelector selector = exchange.get(ConduitSelector.class);
+        if (selector != null) {
+            selector.complete(exchange);
+        }
+        callback.handleException(resCtx, ex);
+    }
+
+    private void send(JMSSessionPool pool, JmsTemplate jmsTemplate, JMSMessageHeadersType headers,
+                      MessageCreator messageCreator) {
+        if (pool != null) {
+            pool.send(jmsConfig.getTargetDestination(), headers, messageCreator);
         } else {
             jmsTemplate.send(jmsConfig.getTargetDestination(), messageCreator);
         }
     }
 
+    /**
+     * Returns the session pool used for sending, creating it on first use. Returns null if pooling
+     * is switched off or if a Spring managed transaction is active, as the JmsTemplate then takes
+     * care of enlisting the session in that transaction.
+     */
+    synchronized JMSSessionPool getSessionPool() {
+        if (jmsConfig.getSessionPoolSize() <= 0
+            || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return null;
+        }
+        if (sessionPool == null) {
+            sessionPool = new JMSSessionPool(jmsConfig);
+        }
+        return sessionPool;
+    }
+
+    static final class ReplyTimer extends HashedWheelTimer implements BusLifeCycleListener {
+        ReplyTimer() {
+            super("JMSConduit reply timeout", 50, TimeUnit.MILLISECONDS, 512);
+        }
+
+        public void initComplete() {
+        }
+
+        public void preShutdown() {
+        }
+
+        public void postShutdown() {
+            stop();
+        }
+    }
+
     static class JMSBusLifeCycleListener implements BusLifeCycleListener {
         final WeakReference<JMSConduit> ref;
         BusLifeCycleManager blcm;
@@ -271,15 +440,16 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
             LOG.log(Level.WARNING, "Could not correlate message with correlationId " + correlationId);
             return;
         }
+        cancelTimeout(correlationId);
         Message inMessage = new MessageImpl();
         exchange.setInMessage(inMessage);
         LOG.log(Level.FINE, "client received reply: ", jmsMessage);
         try {
             JMSUtils.populateIncomingContext(jmsMessage, inMessage, JMSConstants.JMS_CLIENT_RESPONSE_HEADERS);
         
-            byte[] response = JMSUtils.retrievePayload(jmsMessage, (String)inMessage.get(Message.ENCODING));
-            LOG.log(Level.FINE, "The Response Message payload is : [" + response + "]");
-            inMessage.setContent(InputStream.class, new ByteArrayInputStream(response));
+            InputStream response =
+                JMSUtils.retrievePayloadStream(jmsMessage, (String)inMessage.get(Message.ENCODING));
+            inMessage.setContent(InputStream.class, response);
 
             if (exchange.isSynchronous()) {
                 synchronized (exchange) {
@@ -288,9 +458,15 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
                 }
             }
         
-            //REVISIT: put on a workqueue?
-            if (incomingObserver != null) {
-                incomingObserver.onMessage(exchange.getInMessage());
+            // an asynchronous client may have registered an observer that hands the
+            // response off to its executor, don't tie up the listener thread in that case
+            MessageObserver observer = exchange.isSynchronous()
+                ? null : exchange.get(MessageObserver.class);
+            if (observer == null) {
+                observer = incomingObserver;
+            }
+            if (observer != null) {
+                observer.onMessage(exchange.getInMessage());
             }
         } catch (UnsupportedEncodingException ex) {
             getLogger().log(Level.WARNING, "can't get the right encoding information " + ex);
@@ -308,6 +484,16 @@ public class JMSConduit extends AbstractConduit implements JMSExchangeSender, Me
         if (allListener != null) {
             allListener.shutdown();
         }
+        synchronized (this) {
+            if (sessionPool != null) {
+                sessionPool.close();
+                sessionPool = null;
+            }
+            if (ownTimer != null) {
+                ownTimer.stop();
+                ownTimer = null;
+            }
+        }
         LOG.log(Level.FINE, "JMSConduit closed ");
     }
 
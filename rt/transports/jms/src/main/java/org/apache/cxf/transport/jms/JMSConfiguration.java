@@ -64,6 +64,8 @@ public class JMSConfiguration implements InitializingBean {
     private int maxConcurrentConsumers = 1;
     private int maxConcurrentTasks = 10;
     private int maxSuspendedContinuations = DEFAULT_VALUE;
+    private int sessionPoolSize = 10;
+    private long sessionPoolMaxWait = 1000;
 
     private volatile String messageSelector;
     private boolean subscriptionDurable;
@@ -359,6 +361,29 @@ public class JMSConfiguration implements InitializingBean {
         this.maxConcurrentTasks = maxConcurrentTasks;
     }
 
+    /**
+     * Maximum number of sessions a JMSConduit keeps open and lends out at once for sending.
+     * A value of 0 or less disables pooling and every request uses a fresh JmsTemplate.
+     */
+    public int getSessionPoolSize() {
+        return sessionPoolSize;
+    }
+
+    public void setSessionPoolSize(int sessionPoolSize) {
+        this.sessionPoolSize = sessionPoolSize;
+    }
+
+    /**
+     * Milliseconds a sender waits for a pooled session before it falls back to an unpooled one.
+     */
+    public long getSessionPoolMaxWait() {
+        return sessionPoolMaxWait;
+    }
+
+    public void setSessionPoolMaxWait(long sessionPoolMaxWait) {
+        this.sessionPoolMaxWait = sessionPoolMaxWait;
+    }
+
     public void setJndiTemplate(JndiTemplate jndiTemplate) {
         this.jndiTemplate = jndiTemplate;
     }
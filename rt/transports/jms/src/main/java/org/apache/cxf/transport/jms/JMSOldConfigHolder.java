@@ -110,6 +110,9 @@ public class JMSOldConfigHolder {
             jmsConfig.setDurableSubscriptionClientId(serverConfig.getDurableSubscriptionClientId());
             if (sessionPool.isSetHighWaterMark()) {
                 jmsConfig.setMaxConcurrentTasks(sessionPool.getHighWaterMark());
+                if (isConduit) {
+                    jmsConfig.setSessionPoolSize(sessionPool.getHighWaterMark());
+                }
             }
             long timeToLive = isConduit ? clientConfig.getMessageTimeToLive() : serverConfig
                 .getMessageTimeToLive();
@@ -59,7 +59,8 @@ class JMSOutputStream extends CachedOutputStream {
     /**
      * Extract the request from the OutputStream
      *
-     * @return for textPayloads a String is returned else a byte[]
+     * @return for textPayloads a String is returned else the stream itself, which is copied
+     *         into the JMS message without an intermediate byte[]
      * @throws IOException
      */
     private Object retrieveRequestFromStream(boolean isTextPayload1) throws IOException {
@@ -70,13 +71,13 @@ class JMSOutputStream extends CachedOutputStream {
                 this.writeCacheTo(builder);
                 request = builder.toString();
             } else {
-                request = getBytes();
+                request = this;
             }
         } catch (IOException ex) {
             throw new IOException("Error creating request Object from Message content, exception " + ex);
         }
         if (LOG.isLoggable(Level.FINE)) {
-            LOG.log(Level.FINE, "Payload to be sent out is :[" + request + "]");
+            LOG.log(Level.FINE, "Payload to be sent out is " + this.size() + " bytes");
         }
         return request;
     }
@@ -0,0 +1,399 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.jms;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.QueueConnection;
+import javax.jms.QueueConnectionFactory;
+import javax.jms.QueueSender;
+import javax.jms.QueueSession;
+import javax.jms.Session;
+import javax.jms.Topic;
+import javax.jms.TopicConnection;
+import javax.jms.TopicConnectionFactory;
+import javax.jms.TopicPublisher;
+import javax.jms.TopicSession;
+
+import org.apache.cxf.common.logging.LogUtils;
+import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.destination.DestinationResolver;
+import org.springframework.jms.support.destination.DynamicDestinationResolver;
+
+/**
+ * Keeps a bounded set of JMS sessions, together with their producers and resolved destinations,
+ * open for the lifetime of a JMSConduit so that a request does not pay for session and producer
+ * setup on every send. At most sessionPoolSize sessions are lent out at once; a sender that has
+ * waited longer than sessionPoolMaxWait milliseconds gets a throwaway session instead of failing.
+ * Borrow, wait and overflow counts are kept so that an undersized pool can be spotted.
+ * <p>
+ * A session that fails is discarded on its own. The connection is only replaced when it is known
+ * to be broken, i.e. when its ExceptionListener fires or it cannot create sessions any more; the
+ * old connection is closed once the sessions that are still leased from it have been returned.
+ */
+public class JMSSessionPool {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(JMSSessionPool.class);
+
+    private final JMSConfiguration jmsConfig;
+    private final DestinationResolver destinationResolver;
+    private final Semaphore permits;
+    private final BlockingQueue<PooledSession> idle = new LinkedBlockingQueue<PooledSession>();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong createCount = new AtomicLong();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitTime = new AtomicLong();
+    private final AtomicLong overflowCount = new AtomicLong();
+    private PooledConnection connection;
+    private volatile boolean closed;
+
+    public JMSSessionPool(JMSConfiguration jmsConfig) {
+        this.jmsConfig = jmsConfig;
+        this.destinationResolver = jmsConfig.getDestinationResolver() != null
+            ? jmsConfig.getDestinationResolver() : new DynamicDestinationResolver();
+        this.permits = new Semaphore(Math.max(1, jmsConfig.getSessionPoolSize()), true);
+    }
+
+    /**
+     * Send a message created by messageCreator to the destination with the given name. The QoS
+     * settings in headers override the settings from jmsConfig in the same way as
+     * {@link JMSFactory#createJmsTemplate(JMSConfiguration, JMSMessageHeadersType)} does.
+     *
+     * @param destinationName name of the target destination
+     * @param headers context headers, may be null
+     * @param messageCreator creates the message from the pooled session
+     */
+    public void send(String destinationName, JMSMessageHeadersType headers, MessageCreator messageCreator) {
+        PooledSession pooled = borrow();
+        boolean broken = false;
+        try {
+            Message message = messageCreator.createMessage(pooled.session);
+            MessageProducer producer = pooled.getProducer(destinationName);
+            if (jmsConfig.isExplicitQosEnabled()) {
+                int priority = (headers != null && headers.isSetJMSPriority())
+                    ? headers.getJMSPriority() : jmsConfig.getPriority();
+                int deliveryMode = (headers != null && headers.isSetJMSDeliveryMode())
+                    ? headers.getJMSDeliveryMode() : jmsConfig.getDeliveryMode();
+                doSend(producer, message, deliveryMode, priority, jmsConfig.getTimeToLive());
+            } else {
+                doSend(producer, message);
+            }
+            if (jmsConfig.isSessionTransacted()) {
+                pooled.session.commit();
+            }
+        } catch (JMSException e) {
+            broken = true;
+            throw JmsUtils.convertJmsAccessException(e);
+        } finally {
+            release(pooled, broken);
+        }
+    }
+
+    /**
+     * Resolve a destination name through the given session using the configured resolver.
+     *
+     * @param session session that was handed to a MessageCreator by this pool
+     * @param destinationName name to resolve
+     * @return resolved destination
+     */
+    public Destination resolveDestination(Session session, String destinationName) throws JMSException {
+        return destinationResolver.resolveDestinationName(session, destinationName,
+                                                          jmsConfig.isPubSubDomain());
+    }
+
+    /**
+     * Close all idle sessions and the connection. Sessions currently lent out are closed
+     * when they are returned.
+     */
+    public synchronized void close() {
+        closed = true;
+        closeIdleSessions();
+        if (connection != null) {
+            JmsUtils.closeConnection(connection.connection);
+            connection = null;
+        }
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    public long getCreateCount() {
+        return createCount.get();
+    }
+
+    /**
+     * @return number of borrows that found no idle permit and had to wait
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * @return total milliseconds spent waiting for a session
+     */
+    public long getWaitTime() {
+        return waitTime.get();
+    }
+
+    /**
+     * @return number of borrows that timed out and used a throwaway session
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    PooledSession borrow() {
+        if (closed) {
+            throw new IllegalStateException("JMS session pool is closed");
+        }
+        borrowCount.incrementAndGet();
+        boolean permitted = permits.tryAcquire();
+        if (!permitted) {
+            waitCount.incrementAndGet();
+            long start = System.currentTimeMillis();
+            try {
+                permitted = permits.tryAcquire(jmsConfig.getSessionPoolMaxWait(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            waitTime.addAndGet(System.currentTimeMillis() - start);
+            if (!permitted) {
+                overflowCount.incrementAndGet();
+                LOG.log(Level.FINE, "JMS session pool exhausted, using an unpooled session");
+            }
+        }
+        try {
+            PooledSession pooled = permitted ? idle.poll() : null;
+            while (pooled != null && pooled.owner.stale) {
+                pooled.close();
+                pooled = idle.poll();
+            }
+            if (pooled == null) {
+                pooled = createSession(permitted);
+            }
+            return pooled;
+        } catch (JMSException e) {
+            if (permitted) {
+                permits.release();
+            }
+            throw JmsUtils.convertJmsAccessException(e);
+        }
+    }
+
+    void release(PooledSession pooled, boolean broken) {
+        if (!pooled.pooled) {
+            pooled.close();
+            return;
+        }
+        if (broken || closed || pooled.owner.stale) {
+            // only this session is discarded, the others may still be fine
+            pooled.close();
+        } else {
+            idle.offer(pooled);
+        }
+        permits.release();
+    }
+
+    private PooledSession createSession(boolean pooled) throws JMSException {
+        // counts the new session up front so that the connection is not closed under it
+        PooledConnection owner = acquireConnection();
+        Connection con = owner.connection;
+        boolean transacted = jmsConfig.isSessionTransacted();
+        Session session;
+        try {
+            if (jmsConfig.isUseJms11()) {
+                session = con.createSession(transacted, Session.AUTO_ACKNOWLEDGE);
+            } else if (jmsConfig.isPubSubDomain()) {
+                session = ((TopicConnection)con).createTopicSession(transacted, Session.AUTO_ACKNOWLEDGE);
+            } else {
+                session = ((QueueConnection)con).createQueueSession(transacted, Session.AUTO_ACKNOWLEDGE);
+            }
+        } catch (JMSException e) {
+            markStale(owner);
+            sessionClosed(owner);
+            throw e;
+        }
+        createCount.incrementAndGet();
+        return new PooledSession(session, owner, pooled);
+    }
+
+    private synchronized PooledConnection acquireConnection() throws JMSException {
+        if (connection == null) {
+            ConnectionFactory cf = jmsConfig.getOrCreateWrappedConnectionFactory();
+            Connection con;
+            if (jmsConfig.isUseJms11()) {
+                con = cf.createConnection();
+            } else if (jmsConfig.isPubSubDomain()) {
+                con = ((TopicConnectionFactory)cf).createTopicConnection();
+            } else {
+                con = ((QueueConnectionFactory)cf).createQueueConnection();
+            }
+            final PooledConnection pc = new PooledConnection(con);
+            try {
+                con.setExceptionListener(new ExceptionListener() {
+                    public void onException(JMSException ex) {
+                        LOG.log(Level.FINE, "JMS connection failed, replacing it", ex);
+                        markStale(pc);
+                    }
+                });
+            } catch (JMSException e) {
+                // not allowed in some containers, a broken connection is then noticed on createSession
+                LOG.log(Level.FINE, "Could not set an ExceptionListener on the JMS connection", e);
+            }
+            connection = pc;
+        }
+        connection.sessions++;
+        return connection;
+    }
+
+    /**
+     * Stops handing out sessions of a broken connection. It is closed as soon as no session
+     * created from it is open any more.
+     */
+    private synchronized void markStale(PooledConnection pc) {
+        if (pc.stale) {
+            return;
+        }
+        pc.stale = true;
+        if (connection == pc) {
+            connection = null;
+        }
+        for (PooledSession pooled : idle) {
+            if (pooled.owner == pc && idle.remove(pooled)) {
+                pooled.close();
+            }
+        }
+        if (pc.sessions == 0) {
+            JmsUtils.closeConnection(pc.connection);
+        }
+    }
+
+    private synchronized void sessionClosed(PooledConnection pc) {
+        pc.sessions--;
+        if (pc.stale && pc.sessions == 0) {
+            JmsUtils.closeConnection(pc.connection);
+        }
+    }
+
+    private void closeIdleSessions() {
+        PooledSession pooled = idle.poll();
+        while (pooled != null) {
+            pooled.close();
+            pooled = idle.poll();
+        }
+    }
+
+    private void doSend(MessageProducer producer, Message message) throws JMSException {
+        if (jmsConfig.isUseJms11()) {
+            producer.send(message);
+        } else if (jmsConfig.isPubSubDomain()) {
+            ((TopicPublisher)producer).publish(message);
+        } else {
+            ((QueueSender)producer).send(message);
+        }
+    }
+
+    private void doSend(MessageProducer producer, Message message, int deliveryMode, int priority,
+                        long timeToLive) throws JMSException {
+        if (jmsConfig.isUseJms11()) {
+            producer.send(message, deliveryMode, priority, timeToLive);
+        } else if (jmsConfig.isPubSubDomain()) {
+            ((TopicPublisher)producer).publish(message, deliveryMode, priority, timeToLive);
+        } else {
+            ((QueueSender)producer).send(message, deliveryMode, priority, timeToLive);
+        }
+    }
+
+    /**
+     * A connection and the number of open sessions that were created from it. Guarded by the pool.
+     */
+    static final class PooledConnection {
+        final Connection connection;
+        int sessions;
+        volatile boolean stale;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * A session and the producers that were created from it, keyed by destination name.
+     * Only ever used by one thread at a time.
+     */
+    final class PooledSession {
+        final Session session;
+        final PooledConnection owner;
+        final boolean pooled;
+        private final Map<String, MessageProducer> producers = new HashMap<String, MessageProducer>();
+
+        PooledSession(Session session, PooledConnection owner, boolean pooled) {
+            this.session = session;
+            this.owner = owner;
+            this.pooled = pooled;
+        }
+
+        MessageProducer getProducer(String destinationName) throws JMSException {
+            MessageProducer producer = producers.get(destinationName);
+            if (producer == null) {
+                Destination destination = resolveDestination(session, destinationName);
+                if (jmsConfig.isUseJms11()) {
+                    producer = session.createProducer(destination);
+                } else if (jmsConfig.isPubSubDomain()) {
+                    producer = ((TopicSession)session).createPublisher((Topic)destination);
+                } else {
+                    producer = ((QueueSession)session).createSender((Queue)destination);
+                }
+                producers.put(destinationName, producer);
+            }
+            return producer;
+        }
+
+        void close() {
+            for (MessageProducer producer : producers.values()) {
+                JmsUtils.closeMessageProducer(producer);
+            }
+            producers.clear();
+            JmsUtils.closeSession(session);
+            sessionClosed(owner);
+        }
+    }
+}
@@ -19,6 +19,9 @@
 
 package org.apache.cxf.transport.jms;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.Principal;
 import java.util.ArrayList;
@@ -42,6 +45,7 @@ import javax.jms.Topic;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.helpers.HttpHeaderHelper;
+import org.apache.cxf.io.CachedOutputStream;
 import org.apache.cxf.security.SecurityContext;
 import org.springframework.jms.support.JmsUtils;
 import org.springframework.jms.support.converter.MessageConversionException;
@@ -81,7 +85,8 @@ public final class JMSUtils {
      * Create a JMS of the appropriate type populated with the given payload.
      * 
      * @param payload the message payload, expected to be either of type String or byte[] depending on payload
-     *            type
+     *            type. For byte and binary messages a CachedOutputStream holding the payload is accepted
+     *            too, it is copied straight into the body of a BytesMessage.
      * @param session the JMS session
      * @param replyTo the ReplyTo destination if any
      * @return a JMS of the appropriate type populated with the given payload
@@ -93,14 +98,65 @@ public final class JMSUtils {
             message = session.createTextMessage((String)payload);
         } else if (JMSConstants.BYTE_MESSAGE_TYPE.equals(messageType)) {
             message = session.createBytesMessage();
-            ((BytesMessage)message).writeBytes((byte[])payload);
+            if (payload instanceof CachedOutputStream) {
+                writeCacheTo((CachedOutputStream)payload, (BytesMessage)message);
+            } else {
+                ((BytesMessage)message).writeBytes((byte[])payload);
+            }
         } else {
             message = session.createObjectMessage();
+            // the body of an ObjectMessage is a serialized byte[], so the payload has to be
+            // copied into one here
+            if (payload instanceof CachedOutputStream) {
+                payload = getBytes((CachedOutputStream)payload);
+            }
             ((ObjectMessage)message).setObject((byte[])payload);
         }
         return message;
     }
 
+    private static void writeCacheTo(CachedOutputStream cos, BytesMessage message) throws JMSException {
+        try {
+            cos.writeCacheTo(new BytesMessageOutputStream(message));
+        } catch (IOException e) {
+            throw createJMSException(e);
+        }
+    }
+
+    private static byte[] getBytes(CachedOutputStream cos) throws JMSException {
+        try {
+            return cos.getBytes();
+        } catch (IOException e) {
+            throw createJMSException(e);
+        }
+    }
+
+    private static JMSException createJMSException(IOException e) {
+        if (e.getCause() instanceof JMSException) {
+            return (JMSException)e.getCause();
+        }
+        JMSException ex = new JMSException(e.getMessage());
+        ex.setLinkedException(e);
+        return ex;
+    }
+
+    /**
+     * Extract the payload of an incoming message as a stream. The body of a BytesMessage is read in
+     * place, other message types are converted as in {@link #retrievePayload(Message, String)}.
+     * 
+     * @param message the incoming message
+     * @param encoding the message encoding
+     * @return a stream over the message payload
+     * @throws UnsupportedEncodingException
+     */
+    public static InputStream retrievePayloadStream(Message message, String encoding)
+        throws UnsupportedEncodingException {
+        if (message instanceof BytesMessage) {
+            return new BytesMessageInputStream((BytesMessage)message);
+        }
+        return new ByteArrayInputStream(retrievePayload(message, encoding));
+    }
+
     /**
      * Extract the payload of an incoming message.
      * 
@@ -24,6 +24,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import javax.jms.BytesMessage;
@@ -33,6 +36,9 @@ import javax.jms.Session;
 import org.apache.cxf.BusFactory;
 import org.apache.cxf.bus.spring.SpringBusFactory;
 import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.endpoint.ClientCallback;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.junit.Assert;
@@ -109,6 +115,50 @@ public class JMSConduitTest extends AbstractJMSTester {
         }
     }
 
+    @Test
+    public void testSessionPoolReuse() throws Exception {
+        setupServiceInfo("http://cxf.apache.org/hello_world_jms", "/wsdl/jms_test.wsdl",
+                         "HelloWorldServiceLoop", "HelloWorldPortLoop");
+        JMSConduit conduit = setupJMSConduit(true, false);
+        conduit.getJmsConfig().setReceiveTimeout(Long.valueOf(10000));
+
+        try {
+            for (int c = 0; c < 5; c++) {
+                inMessage = null;
+                Message message = new MessageImpl();
+                sendoutMessage(conduit, message, false);
+                verifyReceivedMessage(message);
+            }
+            JMSSessionPool pool = conduit.getSessionPool();
+            assertEquals(5, pool.getBorrowCount());
+            assertEquals("Sequential sends should share one session", 1, pool.getCreateCount());
+            assertEquals(1, pool.getIdleCount());
+        } finally {
+            conduit.close();
+        }
+    }
+
+    @Test
+    public void testSessionPoolOverflow() throws Exception {
+        setupServiceInfo("http://cxf.apache.org/hello_world_jms", "/wsdl/jms_test.wsdl",
+                         "HelloWorldService", "HelloWorldPort");
+        JMSConduit conduit = setupJMSConduit(false, false);
+        conduit.getJmsConfig().setSessionPoolSize(1);
+        conduit.getJmsConfig().setSessionPoolMaxWait(10);
+        JMSSessionPool pool = conduit.getSessionPool();
+        try {
+            JMSSessionPool.PooledSession first = pool.borrow();
+            JMSSessionPool.PooledSession second = pool.borrow();
+            assertEquals(1, pool.getWaitCount());
+            assertEquals(1, pool.getOverflowCount());
+            pool.release(second, false);
+            pool.release(first, false);
+            assertEquals("Only the pooled session should be kept", 1, pool.getIdleCount());
+        } finally {
+            conduit.close();
+        }
+    }
+
     /**
      * Sends several messages and verfies the results. The service sends the message to itself. So it should
      * always receive the result
@@ -135,6 +185,39 @@ public class JMSConduitTest extends AbstractJMSTester {
         }
     }
 
+    @Test
+    public void testAsyncTimeoutCompletesCallback() throws Exception {
+        setupServiceInfo("http://cxf.apache.org/hello_world_jms", "/wsdl/jms_test.wsdl",
+                         "HelloWorldService", "HelloWorldPort");
+        JMSConduit conduit = setupJMSConduit(true, false);
+        conduit.getJmsConfig().setReceiveTimeout(Long.valueOf(200));
+        try {
+            // nobody answers on this destination, so only the timer can complete the exchange
+            Exchange exchange = new ExchangeImpl();
+            exchange.setOneWay(false);
+            exchange.setSynchronous(false);
+            ClientCallback callback = new ClientCallback();
+            exchange.put(ClientCallback.class, callback);
+            Message message = new MessageImpl();
+            message.setExchange(exchange);
+            exchange.setOutMessage(message);
+            conduit.prepare(message);
+            OutputStream os = message.getContent(OutputStream.class);
+            os.write(MESSAGE_CONTENT.getBytes());
+            // returns straight after the send, nothing waits for the reply
+            os.close();
+            try {
+                callback.get(10, TimeUnit.SECONDS);
+                fail("Expected the callback to be completed with a timeout");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof TimeoutException);
+            }
+            assertNull(inMessage);
+        } finally {
+            conduit.close();
+        }
+    }
+
     private void verifyReceivedMessage(Message message) throws InterruptedException {
         while (inMessage == null) {
             //the send has completed, but the response might not be back yet.
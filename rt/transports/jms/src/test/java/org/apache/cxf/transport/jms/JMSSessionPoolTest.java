@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.jms;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.ExceptionListener;
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JMSSessionPoolTest extends Assert {
+
+    @Test
+    public void testBrokenSessionKeepsConnection() throws Exception {
+        AtomicInteger connectionCloses = new AtomicInteger();
+        AtomicInteger sessionCloses = new AtomicInteger();
+        Connection con = createConnection(new Capture<ExceptionListener>(), connectionCloses);
+        Session s1 = createSession(sessionCloses);
+        Session s2 = createSession(sessionCloses);
+        EasyMock.expect(con.createSession(false, Session.AUTO_ACKNOWLEDGE)).andReturn(s1);
+        EasyMock.expect(con.createSession(false, Session.AUTO_ACKNOWLEDGE)).andReturn(s2);
+        JMSSessionPool pool = createPool(con);
+        EasyMock.replay(con, s1, s2);
+        
+        JMSSessionPool.PooledSession p1 = pool.borrow();
+        JMSSessionPool.PooledSession p2 = pool.borrow();
+        pool.release(p1, true);
+        assertEquals(1, sessionCloses.get());
+        assertEquals("the other leased session still needs the connection", 0, connectionCloses.get());
+        
+        pool.release(p2, false);
+        assertSame(p2, pool.borrow());
+        EasyMock.verify(con, s1, s2);
+    }
+
+    @Test
+    public void testFailedConnectionReplacedAfterLeasedSessionsReturn() throws Exception {
+        AtomicInteger con1Closes = new AtomicInteger();
+        AtomicInteger con2Closes = new AtomicInteger();
+        AtomicInteger sessionCloses = new AtomicInteger();
+        Capture<ExceptionListener> listener = new Capture<ExceptionListener>();
+        Connection con1 = createConnection(listener, con1Closes);
+        Connection con2 = createConnection(new Capture<ExceptionListener>(), con2Closes);
+        Session s1 = createSession(sessionCloses);
+        Session s2 = createSession(sessionCloses);
+        Session s3 = createSession(sessionCloses);
+        EasyMock.expect(con1.createSession(false, Session.AUTO_ACKNOWLEDGE)).andReturn(s1);
+        EasyMock.expect(con1.createSession(false, Session.AUTO_ACKNOWLEDGE)).andReturn(s2);
+        EasyMock.expect(con2.createSession(false, Session.AUTO_ACKNOWLEDGE)).andReturn(s3);
+        JMSSessionPool pool = createPool(con1, con2);
+        EasyMock.replay(con1, con2, s1, s2, s3);
+        
+        JMSSessionPool.PooledSession p1 = pool.borrow();
+        JMSSessionPool.PooledSession p2 = pool.borrow();
+        pool.release(p2, false);
+        
+        listener.getValue().onException(new JMSException("connection lost"));
+        assertEquals("the idle session of the failed connection is closed", 1, sessionCloses.get());
+        assertEquals("p1 is still leased", 0, con1Closes.get());
+        
+        JMSSessionPool.PooledSession p3 = pool.borrow();
+        assertSame(s3, p3.session);
+        
+        pool.release(p1, false);
+        assertEquals(2, sessionCloses.get());
+        assertEquals(1, con1Closes.get());
+        assertEquals(0, con2Closes.get());
+        EasyMock.verify(con1, con2, s1, s2, s3);
+    }
+    
+    private static JMSSessionPool createPool(Connection... connections) throws JMSException {
+        ConnectionFactory cf = EasyMock.createMock(ConnectionFactory.class);
+        for (Connection con : connections) {
+            EasyMock.expect(cf.createConnection()).andReturn(con);
+        }
+        EasyMock.replay(cf);
+        JMSConfiguration jmsConfig = new JMSConfiguration();
+        jmsConfig.setConnectionFactory(cf);
+        jmsConfig.setWrapInSingleConnectionFactory(false);
+        jmsConfig.setUseJms11(true);
+        jmsConfig.setSessionPoolSize(2);
+        return new JMSSessionPool(jmsConfig);
+    }
+    
+    private static Connection createConnection(Capture<ExceptionListener> listener,
+                                               AtomicInteger closes) throws JMSException {
+        Connection con = EasyMock.createMock(Connection.class);
+        con.setExceptionListener(EasyMock.capture(listener));
+        con.close();
+        EasyMock.expectLastCall().andAnswer(count(closes)).anyTimes();
+        return con;
+    }
+
+    private static Session createSession(AtomicInteger closes) throws JMSException {
+        Session session = EasyMock.createMock(Session.class);
+        session.close();
+        EasyMock.expectLastCall().andAnswer(count(closes)).anyTimes();
+        return session;
+    }
+    
+    private static IAnswer<Object> count(final AtomicInteger counter) {
+        return new IAnswer<Object>() {
+            public Object answer() {
+                counter.incrementAndGet();
+                return null;
+            }
+        };
+    }
+}
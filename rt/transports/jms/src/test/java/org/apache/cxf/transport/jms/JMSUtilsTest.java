@@ -19,14 +19,23 @@
 
 package org.apache.cxf.transport.jms;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.jms.BytesMessage;
+import javax.jms.Session;
 import javax.naming.Context;
 
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.cxf.io.CachedOutputStream;
+import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -51,6 +60,39 @@ public class JMSUtilsTest extends Assert {
         assertTrue("Environemnt should contain NamingBatchSize property", env.get(Context.BATCHSIZE) != null);
     }
     
+    @Test
+    public void testStreamBytesMessagePayload() throws Exception {
+        // larger than the default CachedOutputStream threshold so the payload goes through a temp file
+        byte[] payload = new byte[100 * 1024];
+        for (int x = 0; x < payload.length; x++) {
+            payload[x] = (byte)x;
+        }
+        CachedOutputStream cos = new CachedOutputStream();
+        cos.write(payload);
+        cos.flush();
+
+        Session session = EasyMock.createMock(Session.class);
+        EasyMock.expect(session.createBytesMessage()).andReturn(new ActiveMQBytesMessage());
+        EasyMock.replay(session);
+        BytesMessage message = (BytesMessage)JMSUtils.createAndSetPayload(cos, session,
+                                                                          JMSConstants.BYTE_MESSAGE_TYPE);
+        EasyMock.verify(session);
+        cos.close();
+        message.reset();
+
+        InputStream in = JMSUtils.retrievePayloadStream(message, null);
+        assertFalse(in instanceof ByteArrayInputStream);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // read at an offset to exercise the partial read path as well
+        byte[] buf = new byte[1000];
+        int n = in.read(buf, 10, 990);
+        while (n != -1) {
+            out.write(buf, 10, n);
+            n = in.read(buf, 10, 990);
+        }
+        assertTrue(Arrays.equals(payload, out.toByteArray()));
+    }
+
     @Test
     public void testGetEncoding() throws IOException {                
         assertEquals("Get the wrong encoding", JMSUtils.getEncoding("text/xml; charset=utf-8"), "UTF-8");
@@ -0,0 +1,254 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.local;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * An in-memory pipe between a writing and a reading thread, made of a ring 
+ * of byte chunks that are handed over whole and then reused.  Until the 
+ * reader has started the ring may grow to {@link #MAX_GROWTH} times its size, 
+ * so a writer is not held up by a reader thread that is still starting; 
+ * after that, or once the ring is that large, the writer blocks while it 
+ * is full.
+ */
+final class ChunkedPipe {
+    static final int MAX_GROWTH = 4;
+    
+    private final int chunkSize;
+    private final int maxChunks;
+
+    // filled chunks are at [head, head + count), other slots hold spare chunks
+    private byte[][] chunks;
+    private int[] lengths;
+    private int head;
+    private int count;
+    
+    private boolean writerClosed;
+    private boolean readerClosed;
+    private boolean readerStarted;
+    
+    private final PipeOutputStream out = new PipeOutputStream();
+    private final PipeInputStream in = new PipeInputStream();
+
+    ChunkedPipe(int chunkSize, int maxChunks) {
+        this.chunkSize = chunkSize;
+        this.maxChunks = maxChunks;
+        chunks = new byte[maxChunks][];
+        lengths = new int[maxChunks];
+    }
+    
+    OutputStream getOutputStream() {
+        return out;
+    }
+    
+    InputStream getInputStream() {
+        return in;
+    }
+    
+    /**
+     * Publishes a filled chunk.
+     * @return a spare chunk for the writer to continue with
+     */
+    private synchronized byte[] put(byte[] chunk, int len) throws IOException {
+        while (count == chunks.length && !readerClosed
+            && (readerStarted || chunks.length >= maxChunks * MAX_GROWTH)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        }
+        if (readerClosed) {
+            throw new IOException("Pipe closed");
+        }
+        if (count == chunks.length) {
+            grow();
+        }
+        int slot = (head + count) % chunks.length;
+        byte[] spare = chunks[slot];
+        chunks[slot] = chunk;
+        lengths[slot] = len;
+        count++;
+        notifyAll();
+        return spare == null ? new byte[chunkSize] : spare;
+    }
+    
+    private void grow() {
+        byte[][] newChunks = new byte[chunks.length * 2][];
+        int[] newLengths = new int[newChunks.length];
+        for (int i = 0; i < count; i++) {
+            newChunks[i] = chunks[(head + i) % chunks.length];
+            newLengths[i] = lengths[(head + i) % chunks.length];
+        }
+        chunks = newChunks;
+        lengths = newLengths;
+        head = 0;
+    }
+    
+    private synchronized void closeWriter() {
+        writerClosed = true;
+        notifyAll();
+    }
+    
+    /**
+     * Hands back a consumed chunk and takes the next filled one.
+     * @return the length of the chunk now in in.buf, or -1 at the end of the stream 
+     */
+    private synchronized int take() throws IOException {
+        readerStarted = true;
+        while (count == 0 && !writerClosed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+        }
+        if (count == 0) {
+            return -1;
+        }
+        byte[] chunk = chunks[head];
+        int len = lengths[head];
+        if (in.buf != null && chunks.length <= maxChunks) {
+            chunks[head] = in.buf;
+        } else {
+            // drop the spares of a ring that had to grow
+            chunks[head] = null;
+        }
+        head = (head + 1) % chunks.length;
+        count--;
+        notifyAll();
+        in.buf = chunk;
+        return len;
+    }
+    
+    private synchronized void closeReader() {
+        readerClosed = true;
+        notifyAll();
+    }
+    
+    class PipeOutputStream extends OutputStream {
+        private byte[] buf;
+        private int pos;
+        private boolean closed;
+        
+        public void write(int b) throws IOException {
+            if (closed) {
+                throw new IOException("Pipe closed");
+            }
+            if (buf == null || pos == buf.length) {
+                publish();
+            }
+            buf[pos++] = (byte)b;
+        }
+        
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Pipe closed");
+            }
+            while (len > 0) {
+                if (buf == null || pos == buf.length) {
+                    publish();
+                }
+                int n = Math.min(len, buf.length - pos);
+                System.arraycopy(b, off, buf, pos, n);
+                pos += n;
+                off += n;
+                len -= n;
+            }
+        }
+        
+        public void flush() throws IOException {
+            if (pos > 0) {
+                publish();
+            }
+        }
+        
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flush();
+            } finally {
+                closeWriter();
+            }
+        }
+        
+        private void publish() throws IOException {
+            if (buf == null) {
+                buf = new byte[chunkSize];
+            } else {
+                buf = put(buf, pos);
+            }
+            pos = 0;
+        }
+    }
+    
+    class PipeInputStream extends InputStream {
+        private byte[] buf;
+        private int pos;
+        private int len;
+        
+        public int read() throws IOException {
+            if (pos == len && !fill()) {
+                return -1;
+            }
+            return buf[pos++] & 0xff;
+        }
+        
+        public int read(byte[] b, int off, int l) throws IOException {
+            if (l == 0) {
+                return 0;
+            }
+            if (pos == len && !fill()) {
+                return -1;
+            }
+            int n = Math.min(l, len - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+        
+        public int available() {
+            return len - pos;
+        }
+        
+        public void close() throws IOException {
+            closeReader();
+        }
+        
+        private boolean fill() throws IOException {
+            int l;
+            do {
+                l = take();
+            } while (l == 0);
+            if (l == -1) {
+                return false;
+            }
+            pos = 0;
+            len = l;
+            return true;
+        }
+    }
+}
@@ -22,8 +22,7 @@ package org.apache.cxf.transport.local;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.cxf.common.logging.LogUtils;
@@ -114,13 +113,14 @@ public class LocalConduit extends AbstractConduit {
         AbstractWrappedOutputStream cout 
             = new AbstractWrappedOutputStream() {
                 protected void onFirstWrite() throws IOException {
-                    final PipedInputStream stream = new PipedInputStream();
-                    wrappedStream = new PipedOutputStream(stream);
+                    ChunkedPipe pipe = transportFactory.createPipe();
+                    wrappedStream = pipe.getOutputStream();
+                    final InputStream pipeIn = pipe.getInputStream();
 
                     final MessageImpl inMsg = new MessageImpl();
                     transportFactory.copy(message, inMsg); 
 
-                    inMsg.setContent(InputStream.class, stream);
+                    inMsg.setContent(InputStream.class, pipeIn);
                     inMsg.setDestination(destination);
                     inMsg.put(IN_CONDUIT, conduit);
 
@@ -129,16 +129,30 @@ public class LocalConduit extends AbstractConduit {
                             ExchangeImpl ex = new ExchangeImpl();
                             ex.setInMessage(inMsg);
                             ex.put(IN_EXCHANGE, exchange);
-                            destination.getMessageObserver().onMessage(inMsg);
+                            try {
+                                destination.getMessageObserver().onMessage(inMsg);
+                            } finally {
+                                //fail the writer instead of leaving it waiting for an observer
+                                //that stopped reading
+                                closeQuietly(pipeIn);
+                            }
                         }
                     };
                     
-                    new Thread(receiver).start();
+                    transportFactory.execute(receiver);
                 }
             };
         message.setContent(OutputStream.class, cout);
     }
     
+    static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Could not close the receiving end of a pipe", e);
+        }
+    }
+    
     protected Logger getLogger() {
         return LOG;
     }
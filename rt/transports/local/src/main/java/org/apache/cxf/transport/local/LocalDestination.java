@@ -22,8 +22,6 @@ package org.apache.cxf.transport.local;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.logging.Logger;
 
 import org.apache.cxf.common.logging.LogUtils;
@@ -82,23 +80,28 @@ public class LocalDestination extends AbstractDestination {
                 AbstractWrappedOutputStream cout 
                     = new AbstractWrappedOutputStream() {
                         protected void onFirstWrite() throws IOException {
-                            final PipedInputStream stream = new PipedInputStream();
-                            wrappedStream = new PipedOutputStream(stream);
+                            ChunkedPipe pipe = localDestinationFactory.createPipe();
+                            wrappedStream = pipe.getOutputStream();
+                            final InputStream pipeIn = pipe.getInputStream();
 
                             final MessageImpl m = new MessageImpl();
                             localDestinationFactory.copy(message, m);
-                            m.setContent(InputStream.class, stream);
+                            m.setContent(InputStream.class, pipeIn);
 
                             final Runnable receiver = new Runnable() {
                                 public void run() {                                    
                                     if (exchange != null) {
                                         exchange.setInMessage(m);
                                     }
-                                    conduit.getMessageObserver().onMessage(m);
+                                    try {
+                                        conduit.getMessageObserver().onMessage(m);
+                                    } finally {
+                                        LocalConduit.closeQuietly(pipeIn);
+                                    }
                                 }
                             };
                             
-                            new Thread(receiver).start();
+                            localDestinationFactory.execute(receiver);
                         }
                     };
                 
@@ -26,6 +26,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import javax.annotation.Resource;
@@ -40,6 +47,7 @@ import org.apache.cxf.transport.Conduit;
 import org.apache.cxf.transport.ConduitInitiator;
 import org.apache.cxf.transport.Destination;
 import org.apache.cxf.transport.DestinationFactory;
+import org.apache.cxf.workqueue.WorkQueueManager;
 import org.apache.cxf.ws.addressing.AttributedURIType;
 import org.apache.cxf.ws.addressing.EndpointReferenceType;
 
@@ -52,8 +60,13 @@ public class LocalTransportFactory extends AbstractTransportFactory
     public static final String MESSAGE_INCLUDE_PROPERTIES 
         = LocalTransportFactory.class.getName() + ".includeProperties";
 
+    public static final int DEFAULT_PIPE_CHUNK_SIZE = 8 * 1024;
+    public static final int DEFAULT_PIPE_MAX_CHUNKS = 16;
+
     private static final Logger LOG = LogUtils.getL7dLogger(LocalTransportFactory.class);
     private static final Set<String> URI_PREFIXES = new HashSet<String>();
+    // set while a thread runs the receiving side of a pipe
+    private static final ThreadLocal<Boolean> RECEIVING = new ThreadLocal<Boolean>();
 
     static {
         URI_PREFIXES.add("local://");
@@ -65,6 +78,10 @@ public class LocalTransportFactory extends AbstractTransportFactory
     private Set<String> messageFilterProperties;
     private Set<String> messageIncludeProperties;
     
+    private int pipeChunkSize = DEFAULT_PIPE_CHUNK_SIZE;
+    private int pipeMaxChunks = DEFAULT_PIPE_MAX_CHUNKS;
+    private ExecutorService receiverExecutor;
+    
     public LocalTransportFactory() {
         super();
         List<String> ids = new ArrayList<String>();
@@ -150,6 +167,95 @@ public class LocalTransportFactory extends AbstractTransportFactory
         this.messageIncludeProperties = props;
     }
 
+    public int getPipeChunkSize() {
+        return pipeChunkSize;
+    }
+
+    /**
+     * Sets the size of the chunks that stream messages from a writer to a 
+     * reader when not using direct dispatch.
+     */
+    public void setPipeChunkSize(int pipeChunkSize) {
+        this.pipeChunkSize = pipeChunkSize;
+    }
+
+    public int getPipeMaxChunks() {
+        return pipeMaxChunks;
+    }
+
+    /**
+     * Sets how many chunks a writer may get ahead of the reader before it blocks.
+     */
+    public void setPipeMaxChunks(int pipeMaxChunks) {
+        this.pipeMaxChunks = pipeMaxChunks;
+    }
+    
+    ChunkedPipe createPipe() {
+        return new ChunkedPipe(pipeChunkSize, pipeMaxChunks);
+    }
+    
+    /**
+     * Runs the receiving side of a pipe.  The writer blocks until the receiver
+     * reads, so the receiver must start right away rather than wait in a queue.
+     * It runs on the bus work queue only if that has an idle thread and the
+     * caller is not itself receiving (a nested synchronous local call, whose
+     * receiver could otherwise queue behind its own caller).  Otherwise it runs
+     * on a pool of receiver threads kept by this factory.
+     */
+    void execute(final Runnable receiver) {
+        Runnable r = new Runnable() {
+            public void run() {
+                RECEIVING.set(Boolean.TRUE);
+                try {
+                    receiver.run();
+                } finally {
+                    RECEIVING.remove();
+                }
+            }
+        };
+        Executor queue = getIdleWorkQueue();
+        if (queue != null) {
+            try {
+                queue.execute(r);
+                return;
+            } catch (RejectedExecutionException e) {
+                LOG.fine("Work queue is full, receiving on a dedicated thread");
+            }
+        }
+        getReceiverExecutor().execute(r);
+    }
+    
+    private Executor getIdleWorkQueue() {
+        if (RECEIVING.get() != null) {
+            return null;
+        }
+        WorkQueueManager manager = bus == null ? null : bus.getExtension(WorkQueueManager.class);
+        if (manager == null) {
+            return null;
+        }
+        Executor queue = manager.getAutomaticWorkQueue();
+        if (queue instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor tpe = (ThreadPoolExecutor)queue;
+            if (tpe.getQueue().isEmpty() && tpe.getActiveCount() < tpe.getPoolSize()) {
+                return queue;
+            }
+        }
+        return null;
+    }
+    
+    private synchronized Executor getReceiverExecutor() {
+        if (receiverExecutor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger(1);
+            receiverExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "local-transport-receiver-" + threadNumber.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return receiverExecutor;
+    }
     
     public void copy(Message message, Message copy) {
         Set<String> filter = CastUtils.cast((Set)message.get(MESSAGE_FILTER_PROPERTIES));
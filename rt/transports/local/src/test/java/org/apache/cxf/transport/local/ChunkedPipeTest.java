@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.transport.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkedPipeTest extends Assert {
+
+    @Test
+    public void testWriterDoesNotWaitForUnstartedReader() throws Exception {
+        ChunkedPipe pipe = new ChunkedPipe(16, 2);
+        OutputStream out = pipe.getOutputStream();
+        byte[] data = createData(16 * 2 * ChunkedPipe.MAX_GROWTH);
+        // more than 2 chunks, but the reader hasn't started so this must not block
+        out.write(data);
+        out.close();
+        
+        assertTrue(Arrays.equals(data, readAll(pipe.getInputStream(), 7)));
+    }
+    
+    @Test
+    public void testUnstartedReaderGrowthIsBounded() throws Exception {
+        final ChunkedPipe pipe = new ChunkedPipe(16, 2);
+        final byte[] data = createData(1000);
+        final IOException[] error = new IOException[1];
+        Thread writer = new Thread() {
+            public void run() {
+                try {
+                    OutputStream out = pipe.getOutputStream();
+                    out.write(data);
+                    out.close();
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        };
+        writer.start();
+        writer.join(200);
+        assertTrue("The writer should wait once the ring has grown to its limit", writer.isAlive());
+        
+        assertTrue(Arrays.equals(data, readAll(pipe.getInputStream(), 7)));
+        writer.join();
+        assertNull(error[0]);
+    }
+    
+    @Test
+    public void testStreaming() throws Exception {
+        final ChunkedPipe pipe = new ChunkedPipe(64, 4);
+        final byte[] data = createData(100000);
+        InputStream in = pipe.getInputStream();
+        assertEquals(0, in.available());
+        
+        final IOException[] error = new IOException[1];
+        Thread writer = new Thread() {
+            public void run() {
+                try {
+                    OutputStream out = pipe.getOutputStream();
+                    for (int i = 0; i < data.length; i += 1000) {
+                        out.write(data, i, 999);
+                        out.write(data[i + 999]);
+                        out.flush();
+                    }
+                    out.close();
+                } catch (IOException e) {
+                    error[0] = e;
+                }
+            }
+        };
+        writer.start();
+        assertTrue(Arrays.equals(data, readAll(in, 100)));
+        writer.join();
+        assertNull(error[0]);
+        assertEquals(-1, in.read());
+    }
+    
+    @Test
+    public void testClosedReader() throws Exception {
+        ChunkedPipe pipe = new ChunkedPipe(16, 2);
+        OutputStream out = pipe.getOutputStream();
+        out.write(createData(20));
+        pipe.getInputStream().read();
+        pipe.getInputStream().close();
+        try {
+            out.write(createData(100));
+            fail("Writing to a pipe without reader should fail");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+    
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte)i;
+        }
+        return data;
+    }
+    
+    private static byte[] readAll(InputStream in, int size) throws IOException {
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        byte[] buf = new byte[size];
+        for (int n = in.read(buf); n != -1; n = in.read(buf)) {
+            bout.write(buf, 0, n);
+        }
+        return bout.toByteArray();
+    }
+}
@@ -24,13 +24,19 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.cxf.Bus;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.transport.Conduit;
 
 import org.apache.cxf.transport.MessageObserver;
+import org.apache.cxf.workqueue.AutomaticWorkQueueImpl;
+import org.apache.cxf.workqueue.WorkQueueManager;
+import org.easymock.classextension.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
 import org.xmlsoap.schemas.wsdl.http.AddressType;
@@ -46,6 +52,98 @@ public class LocalTransportFactoryTest extends Assert {
         testInvocation(true);
     }
     
+    @Test
+    public void testWriterFailsWhenObserverStopsReading() throws Exception {
+        testObserverStopsReading(0);
+    }
+
+    @Test
+    public void testWriterFailsWhenObserverStopsReadingEarly() throws Exception {
+        testObserverStopsReading(1);
+    }
+    
+    @Test
+    public void testNestedReceiverDoesNotQueueBehindCaller() throws Exception {
+        // a work queue with a single thread, like a saturated bus work queue
+        final AutomaticWorkQueueImpl queue = new AutomaticWorkQueueImpl(10, 1, 1, 1, 60000L);
+        WorkQueueManager manager = EasyMock.createMock(WorkQueueManager.class);
+        EasyMock.expect(manager.getAutomaticWorkQueue()).andReturn(queue).anyTimes();
+        Bus bus = EasyMock.createMock(Bus.class);
+        EasyMock.expect(bus.getExtension(WorkQueueManager.class)).andReturn(manager).anyTimes();
+        EasyMock.replay(manager, bus);
+        
+        final LocalTransportFactory factory = new LocalTransportFactory();
+        factory.setBus(bus);
+        final CountDownLatch inner = new CountDownLatch(1);
+        final CountDownLatch outer = new CountDownLatch(1);
+        try {
+            factory.execute(new Runnable() {
+                public void run() {
+                    // a synchronous local call made by a receiver waits for its own receiver
+                    factory.execute(new Runnable() {
+                        public void run() {
+                            inner.countDown();
+                        }
+                    });
+                    try {
+                        if (inner.await(10, TimeUnit.SECONDS)) {
+                            outer.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                        // fail below
+                    }
+                }
+            });
+            assertTrue("The nested receiver never ran", outer.await(20, TimeUnit.SECONDS));
+        } finally {
+            queue.shutdown(false);
+        }
+    }
+    
+    private void testObserverStopsReading(final int bytesRead) throws Exception {
+        LocalTransportFactory factory = new LocalTransportFactory();
+        factory.setPipeChunkSize(16);
+        factory.setPipeMaxChunks(2);
+        
+        EndpointInfo ei = new EndpointInfo(null, "http://schemas.xmlsoap.org/soap/http");
+        AddressType a = new AddressType();
+        a.setLocation("http://localhost/test");
+        ei.addExtensor(a);
+
+        LocalDestination d = (LocalDestination) factory.getDestination(ei);
+        d.setMessageObserver(new MessageObserver() {
+            public void onMessage(Message message) {
+                try {
+                    InputStream in = message.getContent(InputStream.class);
+                    for (int x = 0; x < bytesRead; x++) {
+                        in.read();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        
+        Conduit conduit = factory.getConduit(ei);
+        MessageImpl m = new MessageImpl();
+        m.setDestination(d);
+        conduit.prepare(m);
+        
+        OutputStream out = m.getContent(OutputStream.class);
+        byte[] bytes = new byte[16 * 2 * 4];
+        try {
+            // the observer returns at some point, after that the pipe must fail the writer
+            for (int x = 0; x < 10000; x++) {
+                out.write(bytes);
+                out.flush();
+                Thread.sleep(1);
+            }
+            fail("Expected the pipe to be closed by the receiving end");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+    
     private void testInvocation(boolean isDirectDispatch) throws Exception {
         LocalTransportFactory factory = new LocalTransportFactory();
         
@@ -22,7 +22,6 @@ package org.apache.cxf.ws.addressing;
 
 import java.lang.reflect.Method;
 import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -45,6 +44,8 @@ import org.apache.cxf.endpoint.ConduitSelector;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.endpoint.NullConduitSelector;
 import org.apache.cxf.endpoint.PreexistingConduitSelector;
+import org.apache.cxf.id.IdGenerator;
+import org.apache.cxf.id.IdGeneratorImpl;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.interceptor.OutgoingChainInterceptor;
@@ -91,6 +92,7 @@ public final class ContextUtils {
      * Used to fabricate a Uniform Resource Name from a UUID string
      */
     private static final String URN_UUID = "urn:uuid:";
+    private static final IdGenerator ID_GENERATOR = new IdGeneratorImpl();
     
     private static JAXBContext jaxbContext;
      
@@ -672,7 +674,25 @@ public final class ContextUtils {
      * @return a generated UUID
      */
     public static String generateUUID() {
-        return URN_UUID + UUID.randomUUID();
+        return URN_UUID + ID_GENERATOR.generateId();
+    }
+
+    /**
+     * @param message the current message
+     * @return a UUID generated by the IdGenerator of the message's bus, if any
+     */
+    public static String generateUUID(Message message) {
+        Exchange exchange = message.getExchange();
+        return generateUUID(exchange != null ? exchange.get(Bus.class) : null);
+    }
+
+    /**
+     * @param bus the bus, may be null
+     * @return a UUID generated by the IdGenerator of the bus, if any
+     */
+    public static String generateUUID(Bus bus) {
+        IdGenerator generator = bus != null ? bus.getExtension(IdGenerator.class) : null;
+        return URN_UUID + (generator != null ? generator : ID_GENERATOR).generateId();
     }
     
     /**
@@ -378,7 +378,7 @@ public class MAPAggregator extends AbstractPhaseInterceptor<Message> {
         AddressingPropertiesImpl maps = getMAPs(message, true, true);
         // MessageID
         if (maps.getMessageID() == null) {
-            String messageID = ContextUtils.generateUUID();
+            String messageID = ContextUtils.generateUUID(message);
             maps.setMessageID(ContextUtils.getAttributedURI(messageID));
         }
 
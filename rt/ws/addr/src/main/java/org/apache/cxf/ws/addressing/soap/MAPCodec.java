@@ -19,6 +19,7 @@
 
 package org.apache.cxf.ws.addressing.soap;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -34,6 +35,8 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -41,17 +44,22 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.SoapVersion;
 import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
+import org.apache.cxf.binding.soap.interceptor.StreamingHeaderInterceptor;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.common.util.StringUtils;
+import org.apache.cxf.databinding.DataBinding;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.helpers.DOMUtils;
+import org.apache.cxf.jaxb.JAXBDataBinding;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.Phase;
+import org.apache.cxf.staxutils.DOMRecordingXMLStreamReader;
 import org.apache.cxf.ws.addressing.AddressingProperties;
 import org.apache.cxf.ws.addressing.AddressingPropertiesImpl;
 import org.apache.cxf.ws.addressing.AttributedURIType;
@@ -68,10 +76,14 @@ import org.apache.cxf.wsdl.EndpointReferenceUtils;
  * SOAP interceptor responsible for {en|de}coding the Message Addressing 
  * Properties for {outgo|incom}ing messages.
  */
-public class MAPCodec extends AbstractSoapInterceptor {
+public class MAPCodec extends AbstractSoapInterceptor implements StreamingHeaderInterceptor {
 
     private static final Logger LOG = LogUtils.getL7dLogger(MAPCodec.class);
     private static final String IS_REFERENCE_PARAM_ATTR_NAME = "IsReferenceParameter";
+    private static final Set<QName> DECODED_HEADERS = new HashSet<QName>(Names.HEADERS);
+    static {
+        DECODED_HEADERS.add(Names.WSA_RELATESTO_QNAME);
+    }
 
     /**
      * REVISIT: map usage that the *same* interceptor instance 
@@ -82,6 +94,8 @@ public class MAPCodec extends AbstractSoapInterceptor {
 
     private VersionTransformer transformer;
     private HeaderFactory headerFactory;
+    private boolean streaming = true;
+    private DataBinding dataBinding;
     
     /**
      * Constructor.
@@ -92,6 +106,18 @@ public class MAPCodec extends AbstractSoapInterceptor {
         transformer = new VersionTransformer(this);
     } 
 
+    /**
+     * @return true if the 2005/08 and 2004/08 MAPs are {en|de}coded by the 
+     * StaxMAPCodec rather than via JAXB
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
     /**
      * @return the set of SOAP headers understood by this handler 
      */
@@ -154,136 +180,17 @@ public class MAPCodec extends AbstractSoapInterceptor {
                 List<Header> header = message.getHeaders();
                 discardMAPs(header, maps);
 
-                Element hdr = getHeaderFactory().getHeader(message.getVersion());                
-                JAXBContext jaxbContext = 
-                    VersionTransformer.getExposedJAXBContext(
-                                                     maps.getNamespaceURI());
-                Marshaller marshaller = jaxbContext.createMarshaller();
-                QName duplicate = maps.getDuplicate();
-                marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-                encodeAsExposed(maps,
-                                message,
-                                maps.getMessageID(), 
-                                Names.WSA_MESSAGEID_QNAME,
-                                AttributedURIType.class, 
-                                hdr, 
-                                marshaller);
-                if (Names.WSA_MESSAGEID_QNAME.equals(duplicate)) {
-                    encodeAsExposed(maps,
-                                    message,
-                                    maps.getMessageID(), 
-                                    Names.WSA_MESSAGEID_QNAME,
-                                    AttributedURIType.class, 
-                                    hdr, 
-                                    marshaller);
-                }
-                encodeAsExposed(maps,
-                                message,
-                                maps.getTo(), 
-                                Names.WSA_TO_QNAME,
-                                AttributedURIType.class,  
-                                hdr, 
-                                marshaller);
-                if (Names.WSA_TO_QNAME.equals(duplicate)) {
-                    encodeAsExposed(maps,
-                                    message,
-                                    maps.getTo(), 
-                                    Names.WSA_TO_QNAME,
-                                    AttributedURIType.class,  
-                                    hdr, 
-                                    marshaller);
-                }
-                encodeAsExposed(maps,
-                                message,
-                                maps.getFrom(), 
-                                Names.WSA_FROM_QNAME,
-                                EndpointReferenceType.class,  
-                                hdr, 
-                                marshaller);
-                if (Names.WSA_FROM_QNAME.equals(duplicate)) {
-                    encodeAsExposed(maps,
-                                    message,
-                                    maps.getFrom(), 
-                                    Names.WSA_FROM_QNAME,
-                                    EndpointReferenceType.class,  
-                                    hdr, 
-                                    marshaller);
-                }
-                encodeAsExposed(maps,
-                                message,
-                                maps.getReplyTo(), 
-                                Names.WSA_REPLYTO_QNAME, 
-                                EndpointReferenceType.class,
-                                hdr,
-                                marshaller);
-                if (Names.WSA_REPLYTO_QNAME.equals(duplicate)) {
-                    encodeAsExposed(maps,
-                                    message,
-                                    maps.getReplyTo(), 
-                                    Names.WSA_REPLYTO_QNAME, 
-                                    EndpointReferenceType.class,
-                                    hdr,
-                                    marshaller);
-                }
-                encodeAsExposed(maps,
-                                message,
-                                maps.getFaultTo(), 
-                                Names.WSA_FAULTTO_QNAME, 
-                                EndpointReferenceType.class,
-                                hdr,
-                                marshaller);
-                if (Names.WSA_FAULTTO_QNAME.equals(duplicate)) {
-                    encodeAsExposed(maps,
-                                    message,
-                                    maps.getFaultTo(), 
-                                    Names.WSA_FAULTTO_QNAME, 
-                                    EndpointReferenceType.class,
-                                    hdr,
-                                    marshaller);
-                }
-                encodeAsExposed(maps,
-                                message,
-                                maps.getRelatesTo(),
-                                Names.WSA_RELATESTO_QNAME,
-                                RelatesToType.class,
-                                hdr,
-                                marshaller);
-                if (Names.WSA_RELATESTO_QNAME.equals(duplicate)) {
-                    encodeAsExposed(maps,
-                                    message,
-                                    maps.getRelatesTo(),
-                                    Names.WSA_RELATESTO_QNAME,
-                                    RelatesToType.class,
-                                    hdr,
-                                    marshaller);
-                }
-                encodeAsExposed(maps,
-                                message,
-                                maps.getAction(), 
-                                Names.WSA_ACTION_QNAME,
-                                AttributedURIType.class, 
-                                hdr, 
-                                marshaller);
-                if (Names.WSA_ACTION_QNAME.equals(duplicate)) {
-                    encodeAsExposed(maps,
-                                    message,
-                                    maps.getAction(), 
-                                    Names.WSA_ACTION_QNAME,
-                                    AttributedURIType.class, 
-                                    hdr, 
-                                    marshaller);
-                }
-                encodeReferenceParameters(maps, hdr, marshaller);
-                
-                Node childNode = hdr.getFirstChild();
-                
-                while (childNode != null) {
-                    Header holder = new Header(
-                                               new QName(childNode.getNamespaceURI(), 
-                                                         childNode.getLocalName()), 
-                                                         childNode);
-                    header.add(holder);
-                    childNode = childNode.getNextSibling();
+                StaxMAPCodec staxCodec = streaming 
+                    ? StaxMAPCodec.getCodec(maps.getNamespaceURI()) : null;
+                if (staxCodec != null && staxCodec.canEncode(maps)) {
+                    encodeStreamed(staxCodec, maps, header);
+                    if (hasReferenceParameters(maps)) {
+                        Element hdr = getHeaderFactory().getHeader(message.getVersion());
+                        encodeReferenceParameters(maps, hdr, createMarshaller(maps));
+                        addHeaders(hdr, header);
+                    }
+                } else {
+                    encodeMarshalled(maps, message, header);
                 }
                 ((AddressingPropertiesImpl)maps).setDuplicate(null);
                 
@@ -295,6 +202,199 @@ public class MAPCodec extends AbstractSoapInterceptor {
         }
     }
 
+    /**
+     * Encode the MAPs as DOM headers via JAXB.
+     *
+     * @param maps the MAPs to encode
+     * @param message the SOAP message
+     * @param header the SOAP headers to add to
+     */
+    private void encodeMarshalled(AddressingPropertiesImpl maps,
+                                  SoapMessage message,
+                                  List<Header> header) throws JAXBException {
+        Element hdr = getHeaderFactory().getHeader(message.getVersion());                
+        Marshaller marshaller = createMarshaller(maps);
+        QName duplicate = maps.getDuplicate();
+        encodeAsExposed(maps,
+                        message,
+                        maps.getMessageID(), 
+                        Names.WSA_MESSAGEID_QNAME,
+                        AttributedURIType.class, 
+                        hdr, 
+                        marshaller);
+        if (Names.WSA_MESSAGEID_QNAME.equals(duplicate)) {
+            encodeAsExposed(maps,
+                            message,
+                            maps.getMessageID(), 
+                            Names.WSA_MESSAGEID_QNAME,
+                            AttributedURIType.class, 
+                            hdr, 
+                            marshaller);
+        }
+        encodeAsExposed(maps,
+                        message,
+                        maps.getTo(), 
+                        Names.WSA_TO_QNAME,
+                        AttributedURIType.class,  
+                        hdr, 
+                        marshaller);
+        if (Names.WSA_TO_QNAME.equals(duplicate)) {
+            encodeAsExposed(maps,
+                            message,
+                            maps.getTo(), 
+                            Names.WSA_TO_QNAME,
+                            AttributedURIType.class,  
+                            hdr, 
+                            marshaller);
+        }
+        encodeAsExposed(maps,
+                        message,
+                        maps.getFrom(), 
+                        Names.WSA_FROM_QNAME,
+                        EndpointReferenceType.class,  
+                        hdr, 
+                        marshaller);
+        if (Names.WSA_FROM_QNAME.equals(duplicate)) {
+            encodeAsExposed(maps,
+                            message,
+                            maps.getFrom(), 
+                            Names.WSA_FROM_QNAME,
+                            EndpointReferenceType.class,  
+                            hdr, 
+                            marshaller);
+        }
+        encodeAsExposed(maps,
+                        message,
+                        maps.getReplyTo(), 
+                        Names.WSA_REPLYTO_QNAME, 
+                        EndpointReferenceType.class,
+                        hdr,
+                        marshaller);
+        if (Names.WSA_REPLYTO_QNAME.equals(duplicate)) {
+            encodeAsExposed(maps,
+                            message,
+                            maps.getReplyTo(), 
+                            Names.WSA_REPLYTO_QNAME, 
+                            EndpointReferenceType.class,
+                            hdr,
+                            marshaller);
+        }
+        encodeAsExposed(maps,
+                        message,
+                        maps.getFaultTo(), 
+                        Names.WSA_FAULTTO_QNAME, 
+                        EndpointReferenceType.class,
+                        hdr,
+                        marshaller);
+        if (Names.WSA_FAULTTO_QNAME.equals(duplicate)) {
+            encodeAsExposed(maps,
+                            message,
+                            maps.getFaultTo(), 
+                            Names.WSA_FAULTTO_QNAME, 
+                            EndpointReferenceType.class,
+                            hdr,
+                            marshaller);
+        }
+        encodeAsExposed(maps,
+                        message,
+                        maps.getRelatesTo(),
+                        Names.WSA_RELATESTO_QNAME,
+                        RelatesToType.class,
+                        hdr,
+                        marshaller);
+        if (Names.WSA_RELATESTO_QNAME.equals(duplicate)) {
+            encodeAsExposed(maps,
+                            message,
+                            maps.getRelatesTo(),
+                            Names.WSA_RELATESTO_QNAME,
+                            RelatesToType.class,
+                            hdr,
+                            marshaller);
+        }
+        encodeAsExposed(maps,
+                        message,
+                        maps.getAction(), 
+                        Names.WSA_ACTION_QNAME,
+                        AttributedURIType.class, 
+                        hdr, 
+                        marshaller);
+        if (Names.WSA_ACTION_QNAME.equals(duplicate)) {
+            encodeAsExposed(maps,
+                            message,
+                            maps.getAction(), 
+                            Names.WSA_ACTION_QNAME,
+                            AttributedURIType.class, 
+                            hdr, 
+                            marshaller);
+        }
+        encodeReferenceParameters(maps, hdr, marshaller);
+        addHeaders(hdr, header);
+    }
+
+    /**
+     * Encode the MAPs as headers that are written straight to the XMLStreamWriter
+     * when the SOAP envelope is serialized.
+     *
+     * @param staxCodec the codec for the exposed version
+     * @param maps the MAPs to encode
+     * @param header the SOAP headers to add to
+     */
+    private void encodeStreamed(StaxMAPCodec staxCodec,
+                                AddressingPropertiesImpl maps,
+                                List<Header> header) {
+        encodeStreamed(staxCodec, maps, maps.getMessageID(), Names.WSA_MESSAGEID_QNAME, header);
+        encodeStreamed(staxCodec, maps, maps.getTo(), Names.WSA_TO_QNAME, header);
+        encodeStreamed(staxCodec, maps, maps.getFrom(), Names.WSA_FROM_QNAME, header);
+        encodeStreamed(staxCodec, maps, maps.getReplyTo(), Names.WSA_REPLYTO_QNAME, header);
+        encodeStreamed(staxCodec, maps, maps.getFaultTo(), Names.WSA_FAULTTO_QNAME, header);
+        encodeStreamed(staxCodec, maps, maps.getRelatesTo(), Names.WSA_RELATESTO_QNAME, header);
+        encodeStreamed(staxCodec, maps, maps.getAction(), Names.WSA_ACTION_QNAME, header);
+    }
+
+    private void encodeStreamed(StaxMAPCodec staxCodec,
+                                AddressingPropertiesImpl maps,
+                                Object value,
+                                QName name,
+                                List<Header> header) {
+        if (value != null) {
+            LOG.log(Level.INFO,
+                    "{0} : {1}",
+                    new Object[] {name.getLocalPart(), getLogText(value)});
+            boolean mustUnderstand = maps.getMustUnderstand().contains(name);
+            header.add(staxCodec.createHeader(name.getLocalPart(), value, mustUnderstand));
+            if (name.equals(maps.getDuplicate())) {
+                header.add(staxCodec.createHeader(name.getLocalPart(), value, mustUnderstand));
+            }
+        }
+    }
+
+    private Marshaller createMarshaller(AddressingProperties maps) throws JAXBException {
+        JAXBContext jaxbContext = 
+            VersionTransformer.getExposedJAXBContext(maps.getNamespaceURI());
+        Marshaller marshaller = jaxbContext.createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        return marshaller;
+    }
+
+    private void addHeaders(Element hdr, List<Header> header) {
+        Node childNode = hdr.getFirstChild();
+        while (childNode != null) {
+            Header holder = new Header(
+                                       new QName(childNode.getNamespaceURI(), 
+                                                 childNode.getLocalName()), 
+                                                 childNode);
+            header.add(holder);
+            childNode = childNode.getNextSibling();
+        }
+    }
+
+    private boolean hasReferenceParameters(AddressingProperties maps) {
+        EndpointReferenceType toEpr = maps.getToEndpointReference();
+        return toEpr != null 
+            && toEpr.getReferenceParameters() != null
+            && !toEpr.getReferenceParameters().getAny().isEmpty();
+    }
+
     private void encodeReferenceParameters(AddressingProperties maps, Element header, 
                                            Marshaller marshaller) throws JAXBException {
         EndpointReferenceType toEpr = maps.getToEndpointReference();
@@ -427,14 +527,24 @@ public class MAPCodec extends AbstractSoapInterceptor {
                 Iterator<Header> iter = header.iterator();
                 while (iter.hasNext()) {
                     Header hdr = iter.next();
-                    if (hdr.getObject() instanceof Element) {
+                    if (isDecoded(hdr)) {
+                        // already decoded while ReadHeadersInterceptor read the header
+                        String headerURI = hdr.getName().getNamespaceURI();
+                        if (maps == null) {
+                            maps = new AddressingPropertiesImpl();
+                            maps.exposeAs(headerURI);
+                        }
+                        setMAP(maps, hdr.getName().getLocalPart(), hdr.getObject());
+                    } else if (hdr.getObject() instanceof Element) {
                         Element headerElement = (Element)hdr.getObject();
                         String headerURI = headerElement.getNamespaceURI();
                         // Need to check the uri before getting unmarshaller else
                         // would get wrong unmarshaller and fail to process required
                         // headers.
                         if (transformer.isSupported(headerURI)) {
-                            if (unmarshaller == null) {
+                            StaxMAPCodec staxCodec = streaming ? StaxMAPCodec.getCodec(headerURI) : null;
+                            Object value = staxCodec != null ? staxCodec.read(headerElement) : null;
+                            if (value == null && unmarshaller == null) {
                                 JAXBContext jaxbContext = 
                                     VersionTransformer.getExposedJAXBContext(headerURI);
                                 unmarshaller = 
@@ -449,18 +559,21 @@ public class MAPCodec extends AbstractSoapInterceptor {
                                 maps.setMessageID(decodeAsNative(
                                                        headerURI,
                                                        AttributedURIType.class,
+                                                       value,
                                                        headerElement, 
                                                        unmarshaller));
                             } else if (Names.WSA_FROM_NAME.equals(localName)) {
                                 maps.setFrom(decodeAsNative(
                                     headerURI,
                                     EndpointReferenceType.class,
+                                    value,
                                     headerElement,
                                     unmarshaller));
                             } else if (Names.WSA_TO_NAME.equals(localName)) {
                                 AttributedURIType addr = decodeAsNative(
                                                        headerURI,
                                                        AttributedURIType.class,
+                                                       value,
                                                        headerElement, 
                                                        unmarshaller);
                                 maps.setTo(EndpointReferenceUtils.getEndpointReference(addr));
@@ -468,24 +581,28 @@ public class MAPCodec extends AbstractSoapInterceptor {
                                 maps.setReplyTo(decodeAsNative(
                                                        headerURI,
                                                        EndpointReferenceType.class,
+                                                       value,
                                                        headerElement, 
                                                        unmarshaller));
                             } else if (Names.WSA_FAULTTO_NAME.equals(localName)) {
                                 maps.setFaultTo(decodeAsNative(
                                                        headerURI,
                                                        EndpointReferenceType.class,
+                                                       value,
                                                        headerElement, 
                                                        unmarshaller));
                             } else if (Names.WSA_RELATESTO_NAME.equals(localName)) {
                                 maps.setRelatesTo(decodeAsNative(
                                                        headerURI,
                                                        RelatesToType.class,
+                                                       value,
                                                        headerElement, 
                                                        unmarshaller));
                             } else if (Names.WSA_ACTION_NAME.equals(localName)) {
                                 maps.setAction(decodeAsNative(
                                                        headerURI,
                                                        AttributedURIType.class,
+                                                       value,
                                                        headerElement, 
                                                        unmarshaller));
                             }
@@ -502,6 +619,10 @@ public class MAPCodec extends AbstractSoapInterceptor {
                     }
                 }
                 if (null != referenceParameterHeaders && null != maps) {
+                    if (unmarshaller == null) {
+                        unmarshaller = VersionTransformer.getExposedJAXBContext(maps.getNamespaceURI())
+                            .createUnmarshaller();
+                    }
                     decodeReferenceParameters(referenceParameterHeaders, maps, unmarshaller);
                 }
             }
@@ -511,6 +632,85 @@ public class MAPCodec extends AbstractSoapInterceptor {
         return maps;
     }
     
+    /**
+     * @return the 2005/08 MAP headers, when streaming. The 2004/08 ones are left to the DOM
+     * path as their native values would be written back to XML in the 2005/08 namespace.
+     */
+    public Set<QName> getDecodedHeaders() {
+        return streaming ? DECODED_HEADERS : Collections.<QName>emptySet();
+    }
+
+    /**
+     * Decode a 2005/08 MAP header straight from the stream while ReadHeadersInterceptor
+     * reads the SOAP header. Endpoint references the StaxMAPCodec can't read are
+     * unmarshalled via JAXB.
+     */
+    public SoapHeader decodeHeader(QName name, XMLStreamReader reader) throws XMLStreamException {
+        Object value;
+        if (Names.WSA_FROM_NAME.equals(name.getLocalPart())
+            || Names.WSA_REPLYTO_NAME.equals(name.getLocalPart())
+            || Names.WSA_FAULTTO_NAME.equals(name.getLocalPart())) {
+            DOMRecordingXMLStreamReader recorder =
+                new DOMRecordingXMLStreamReader(reader, DOMUtils.createDocument(), true);
+            value = StaxMAPCodec.getCodec(name.getNamespaceURI()).read(recorder);
+            Element headerElement = recorder.finish();
+            if (value == null) {
+                try {
+                    value = ContextUtils.getJAXBContext().createUnmarshaller()
+                        .unmarshal(headerElement, EndpointReferenceType.class).getValue();
+                } catch (JAXBException je) {
+                    XMLStreamException ex = new XMLStreamException(je.getMessage());
+                    ex.initCause(je);
+                    throw ex;
+                }
+            }
+        } else {
+            value = StaxMAPCodec.getCodec(name.getNamespaceURI()).read(reader);
+        }
+        return new SoapHeader(name, value, getDataBinding());
+    }
+
+    private DataBinding getDataBinding() throws XMLStreamException {
+        if (dataBinding == null) {
+            try {
+                dataBinding = new JAXBDataBinding(ContextUtils.getJAXBContext());
+            } catch (JAXBException je) {
+                XMLStreamException ex = new XMLStreamException(je.getMessage());
+                ex.initCause(je);
+                throw ex;
+            }
+        }
+        return dataBinding;
+    }
+
+    private boolean isDecoded(Header hdr) {
+        Object value = hdr.getObject();
+        return hdr.getDataBinding() != null
+            && (value instanceof AttributedURIType
+                || value instanceof RelatesToType
+                || value instanceof EndpointReferenceType)
+            && Names.WSA_NAMESPACE_NAME.equals(hdr.getName().getNamespaceURI());
+    }
+
+    private void setMAP(AddressingPropertiesImpl maps, String localName, Object value) {
+        LOG.log(Level.INFO, "{0} : {1}", new Object[] {localName, getLogText(value)});
+        if (Names.WSA_MESSAGEID_NAME.equals(localName)) {
+            maps.setMessageID((AttributedURIType)value);
+        } else if (Names.WSA_FROM_NAME.equals(localName)) {
+            maps.setFrom((EndpointReferenceType)value);
+        } else if (Names.WSA_TO_NAME.equals(localName)) {
+            maps.setTo(EndpointReferenceUtils.getEndpointReference((AttributedURIType)value));
+        } else if (Names.WSA_REPLYTO_NAME.equals(localName)) {
+            maps.setReplyTo((EndpointReferenceType)value);
+        } else if (Names.WSA_FAULTTO_NAME.equals(localName)) {
+            maps.setFaultTo((EndpointReferenceType)value);
+        } else if (Names.WSA_RELATESTO_NAME.equals(localName)) {
+            maps.setRelatesTo((RelatesToType)value);
+        } else if (Names.WSA_ACTION_NAME.equals(localName)) {
+            maps.setAction((AttributedURIType)value);
+        }
+    }
+
     private void decodeReferenceParameters(Set<Element> referenceParameterHeaders, 
                                            AddressingPropertiesImpl maps, 
                                            Unmarshaller unmarshaller) 
@@ -547,6 +747,25 @@ public class MAPCodec extends AbstractSoapInterceptor {
                 new Object[] {headerElement.getLocalName(), getLogText(value)});
         return value;
     }
+
+    /**
+     * Use a MAP already decoded by the StaxMAPCodec, otherwise decode it via JAXB.
+     */
+    private <T> T decodeAsNative(String encodedAs,
+                                 Class<T> clz,
+                                 Object streamed,
+                                 Element headerElement,
+                                 Unmarshaller unmarshaller) 
+        throws JAXBException {
+        if (clz.isInstance(streamed)) {
+            T value = clz.cast(streamed);
+            LOG.log(Level.INFO,
+                    "{0} : {1}",
+                    new Object[] {headerElement.getLocalName(), getLogText(value)});
+            return value;
+        }
+        return decodeAsNative(encodedAs, clz, headerElement, unmarshaller);
+    }
     
     /**
      * Return a text representation of a header value for logging.
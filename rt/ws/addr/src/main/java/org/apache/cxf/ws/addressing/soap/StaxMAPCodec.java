@@ -0,0 +1,349 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.addressing.soap;
+
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Element;
+
+import org.apache.cxf.binding.soap.SoapHeader;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.databinding.stax.StaxDataBinding;
+import org.apache.cxf.databinding.stax.XMLStreamWriterCallback;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.ws.addressing.AddressingProperties;
+import org.apache.cxf.ws.addressing.AttributedURIType;
+import org.apache.cxf.ws.addressing.ContextUtils;
+import org.apache.cxf.ws.addressing.EndpointReferenceType;
+import org.apache.cxf.ws.addressing.JAXWSAConstants;
+import org.apache.cxf.ws.addressing.MetadataType;
+import org.apache.cxf.ws.addressing.Names;
+import org.apache.cxf.ws.addressing.ReferenceParametersType;
+import org.apache.cxf.ws.addressing.RelatesToType;
+
+/**
+ * Hand-written StAX codec for the Message Addressing Properties of the 2005/08 and 2004/08
+ * WS-Addressing versions.
+ * <p>
+ * The header vocabulary is small and fixed, so the MAPs are written straight to the
+ * XMLStreamWriter and read straight from an XMLStreamReader instead of going through a
+ * JAXB Marshaller and a DOM header element per message. Only endpoint references that
+ * carry nothing but an address are handled here; reference parameters, metadata and
+ * extensions are left to the JAXB based encoding in {@link MAPCodec}.
+ */
+public final class StaxMAPCodec {
+
+    private static final Logger LOG = LogUtils.getL7dLogger(StaxMAPCodec.class);
+    private static final StaxDataBinding DATA_BINDING = new StaxDataBinding();
+    private static final QName RELATIONSHIP_TYPE_QNAME = new QName(Names.WSA_RELATIONSHIPTYPE_NAME);
+
+    private static final StaxMAPCodec NATIVE =
+        new StaxMAPCodec(Names.WSA_NAMESPACE_NAME,
+                         Names.WSA_ANONYMOUS_ADDRESS,
+                         Names.WSA_NONE_ADDRESS);
+    private static final StaxMAPCodec V200408 =
+        new StaxMAPCodec(VersionTransformer.Names200408.WSA_NAMESPACE_NAME,
+                         VersionTransformer.Names200408.WSA_ANONYMOUS_ADDRESS,
+                         VersionTransformer.Names200408.WSA_NONE_ADDRESS);
+
+    private final String namespaceURI;
+    private final String anonymousAddress;
+    private final String noneAddress;
+
+    private StaxMAPCodec(String namespaceURI, String anonymousAddress, String noneAddress) {
+        this.namespaceURI = namespaceURI;
+        this.anonymousAddress = anonymousAddress;
+        this.noneAddress = noneAddress;
+    }
+
+    /**
+     * @param namespaceURI the exposed WS-Addressing namespace
+     * @return the codec for that version, or null if it is only supported via JAXB
+     */
+    public static StaxMAPCodec getCodec(String namespaceURI) {
+        if (Names.WSA_NAMESPACE_NAME.equals(namespaceURI)) {
+            return NATIVE;
+        } else if (VersionTransformer.Names200408.WSA_NAMESPACE_NAME.equals(namespaceURI)) {
+            return V200408;
+        }
+        return null;
+    }
+
+    public String getNamespaceURI() {
+        return namespaceURI;
+    }
+
+    /**
+     * @param maps the MAPs to encode
+     * @return true if all the endpoint references in the MAPs can be written by this codec
+     */
+    public boolean canEncode(AddressingProperties maps) {
+        return isSimple(maps.getFrom())
+            && isSimple(maps.getReplyTo())
+            && isSimple(maps.getFaultTo());
+    }
+
+    /**
+     * Create a SOAP header that streams the given MAP when the envelope is written.
+     *
+     * @param localName the local name of the MAP header
+     * @param value the native MAP value
+     * @param mustUnderstand whether the header is to be flagged as mustUnderstand
+     * @return the header
+     */
+    public SoapHeader createHeader(String localName, Object value, boolean mustUnderstand) {
+        SoapHeader header = new SoapHeader(new QName(namespaceURI, localName),
+                                           new MAPWriter(localName, value),
+                                           DATA_BINDING);
+        header.setMustUnderstand(mustUnderstand);
+        return header;
+    }
+
+    /**
+     * Write a MAP header in the exposed version.
+     *
+     * @param localName the local name of the MAP header
+     * @param value the native value, an AttributedURIType, RelatesToType or EndpointReferenceType
+     * @param writer the writer, positioned inside the SOAP header
+     */
+    public void write(String localName, Object value, XMLStreamWriter writer) throws XMLStreamException {
+        writer.writeStartElement(JAXWSAConstants.WSA_PREFIX, localName, namespaceURI);
+        writer.writeNamespace(JAXWSAConstants.WSA_PREFIX, namespaceURI);
+        if (value instanceof AttributedURIType) {
+            writeURI((AttributedURIType)value, writer);
+        } else if (value instanceof RelatesToType) {
+            writeRelatesTo((RelatesToType)value, writer);
+        } else if (value instanceof EndpointReferenceType) {
+            EndpointReferenceType epr = (EndpointReferenceType)value;
+            writeAttributes(epr.getOtherAttributes(), writer);
+            if (epr.getAddress() != null) {
+                writer.writeStartElement(JAXWSAConstants.WSA_PREFIX, Names.WSA_ADDRESS_NAME, namespaceURI);
+                writeURI(epr.getAddress(), writer);
+                writer.writeEndElement();
+            }
+        } else {
+            throw new IllegalArgumentException("Unexpected MAP type " + value.getClass().getName());
+        }
+        writer.writeEndElement();
+    }
+
+    /**
+     * Read a MAP header that has already been parsed into DOM.
+     *
+     * @param headerElement the header element
+     * @return the native value, or null if the header must be decoded via JAXB
+     */
+    public Object read(Element headerElement) {
+        try {
+            return read(StaxUtils.createXMLStreamReader(headerElement));
+        } catch (XMLStreamException e) {
+            LOG.log(Level.FINE, "Falling back to JAXB for " + headerElement.getLocalName(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Read a MAP header. On return the reader is positioned on the end of the header element,
+     * unless null was returned.
+     *
+     * @param reader the reader, positioned on or before the header element
+     * @return the native value, or null if the header must be decoded via JAXB
+     */
+    public Object read(XMLStreamReader reader) throws XMLStreamException {
+        if (!StaxUtils.skipToStartOfElement(reader)) {
+            return null;
+        }
+        String localName = reader.getLocalName();
+        if (Names.WSA_MESSAGEID_NAME.equals(localName)
+            || Names.WSA_TO_NAME.equals(localName)
+            || Names.WSA_ACTION_NAME.equals(localName)) {
+            return readURI(reader);
+        } else if (Names.WSA_RELATESTO_NAME.equals(localName)) {
+            return readRelatesTo(reader);
+        } else if (Names.WSA_FROM_NAME.equals(localName)
+            || Names.WSA_REPLYTO_NAME.equals(localName)
+            || Names.WSA_FAULTTO_NAME.equals(localName)) {
+            return readEndpointReference(reader);
+        }
+        return null;
+    }
+
+    static boolean isSimple(EndpointReferenceType epr) {
+        if (epr == null) {
+            return true;
+        }
+        ReferenceParametersType params = epr.getReferenceParameters();
+        MetadataType metadata = epr.getMetadata();
+        return (params == null || params.getAny().isEmpty())
+            && (metadata == null
+                || (metadata.getAny().isEmpty() && metadata.getOtherAttributes().isEmpty()))
+            && epr.getAny().isEmpty();
+    }
+
+    private void writeURI(AttributedURIType uri, XMLStreamWriter writer) throws XMLStreamException {
+        writeAttributes(uri.getOtherAttributes(), writer);
+        if (uri.getValue() != null) {
+            writer.writeCharacters(toExposed(uri.getValue()));
+        }
+    }
+
+    private void writeRelatesTo(RelatesToType relatesTo, XMLStreamWriter writer) throws XMLStreamException {
+        String type = relatesTo.getRelationshipType();
+        // 2004/08 expresses the default reply relationship by omitting the attribute
+        if (type != null && (NATIVE == this || !Names.WSA_RELATIONSHIP_REPLY.equals(type))) {
+            writer.writeAttribute(Names.WSA_RELATIONSHIPTYPE_NAME, type);
+        }
+        writeAttributes(relatesTo.getOtherAttributes(), writer);
+        if (relatesTo.getValue() != null) {
+            writer.writeCharacters(relatesTo.getValue());
+        }
+    }
+
+    private void writeAttributes(Map<QName, String> attributes, XMLStreamWriter writer)
+        throws XMLStreamException {
+        for (Map.Entry<QName, String> entry : attributes.entrySet()) {
+            QName name = entry.getKey();
+            String ns = name.getNamespaceURI();
+            if (ns == null || ns.length() == 0) {
+                writer.writeAttribute(name.getLocalPart(), entry.getValue());
+            } else {
+                String prefix = writer.getPrefix(ns);
+                if (prefix == null) {
+                    prefix = name.getPrefix().length() > 0
+                        ? name.getPrefix() : StaxUtils.getUniquePrefix(writer);
+                    writer.writeNamespace(prefix, ns);
+                    writer.setPrefix(prefix, ns);
+                }
+                writer.writeAttribute(prefix, ns, name.getLocalPart(), entry.getValue());
+            }
+        }
+    }
+
+    private AttributedURIType readURI(XMLStreamReader reader) throws XMLStreamException {
+        AttributedURIType uri = ContextUtils.WSA_OBJECT_FACTORY.createAttributedURIType();
+        readAttributes(reader, uri.getOtherAttributes());
+        uri.setValue(toNative(reader.getElementText().trim()));
+        return uri;
+    }
+
+    private RelatesToType readRelatesTo(XMLStreamReader reader) throws XMLStreamException {
+        RelatesToType relatesTo = ContextUtils.WSA_OBJECT_FACTORY.createRelatesToType();
+        readAttributes(reader, relatesTo.getOtherAttributes());
+        String type = relatesTo.getOtherAttributes().remove(RELATIONSHIP_TYPE_QNAME);
+        if (type != null) {
+            relatesTo.setRelationshipType(NATIVE == this ? type.trim() : toNativeRelationship(reader, type));
+        }
+        relatesTo.setValue(reader.getElementText().trim());
+        return relatesTo;
+    }
+
+    private EndpointReferenceType readEndpointReference(XMLStreamReader reader) throws XMLStreamException {
+        EndpointReferenceType epr = ContextUtils.WSA_OBJECT_FACTORY.createEndpointReferenceType();
+        readAttributes(reader, epr.getOtherAttributes());
+        int event = reader.next();
+        while (event != XMLStreamReader.END_ELEMENT) {
+            if (event == XMLStreamReader.START_ELEMENT) {
+                if (!(namespaceURI.equals(reader.getNamespaceURI())
+                    && Names.WSA_ADDRESS_NAME.equals(reader.getLocalName())
+                    && epr.getAddress() == null)) {
+                    // reference parameters, metadata or extensions
+                    return null;
+                }
+                epr.setAddress(readURI(reader));
+            } else if (event == XMLStreamReader.CHARACTERS && !reader.isWhiteSpace()) {
+                return null;
+            }
+            event = reader.next();
+        }
+        return epr;
+    }
+
+    private void readAttributes(XMLStreamReader reader, Map<QName, String> attributes) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String ns = reader.getAttributeNamespace(i);
+            attributes.put(new QName(ns == null ? "" : ns, reader.getAttributeLocalName(i)),
+                           reader.getAttributeValue(i));
+        }
+    }
+
+    private String toExposed(String value) {
+        if (NATIVE == this) {
+            return value;
+        }
+        return Names.WSA_ANONYMOUS_ADDRESS.equals(value)
+            ? anonymousAddress
+            : Names.WSA_NONE_ADDRESS.equals(value) ? noneAddress : value;
+    }
+
+    private String toNative(String value) {
+        if (NATIVE == this) {
+            return value;
+        }
+        return anonymousAddress.equals(value)
+            ? Names.WSA_ANONYMOUS_ADDRESS
+            : noneAddress.equals(value) ? Names.WSA_NONE_ADDRESS : value;
+    }
+
+    /**
+     * The 2004/08 RelationshipType is a QName, see VersionTransformer.convert(Relationship).
+     */
+    private static String toNativeRelationship(XMLStreamReader reader, String type) {
+        String value = type.trim();
+        int idx = value.indexOf(':');
+        QName qname = new QName(value);
+        if (idx > 0) {
+            String ns = reader.getNamespaceURI(value.substring(0, idx));
+            if (ns != null) {
+                qname = new QName(ns, value.substring(idx + 1));
+            }
+        }
+        return Names.WSA_REPLY_NAME.equalsIgnoreCase(qname.getLocalPart())
+            ? Names.WSA_RELATIONSHIP_REPLY : qname.toString();
+    }
+
+    /**
+     * Header content handed to the StaxDataBinding, so that the MAP is only serialized
+     * when SoapOutInterceptor writes the envelope.
+     */
+    private final class MAPWriter implements XMLStreamWriterCallback {
+        private final String localName;
+        private final Object value;
+
+        MAPWriter(String localName, Object value) {
+            this.localName = localName;
+            this.value = value;
+        }
+
+        public void write(XMLStreamWriter writer) throws XMLStreamException {
+            StaxMAPCodec.this.write(localName, value, writer);
+        }
+
+        public String toString() {
+            return localName;
+        }
+    }
+}
@@ -83,6 +83,8 @@ public class MAPCodecTest extends Assert {
     @Before
     public void setUp() {
         codec = new MAPCodec();
+        // these tests cover the JAXB encoding, see StaxMAPCodecTest for the streamed one
+        codec.setStreaming(false);
         control = EasyMock.createNiceControl();
     }
 
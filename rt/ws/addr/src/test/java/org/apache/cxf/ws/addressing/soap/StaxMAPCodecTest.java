@@ -0,0 +1,372 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.addressing.soap;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import org.apache.cxf.BusFactory;
+import org.apache.cxf.binding.soap.Soap11;
+import org.apache.cxf.binding.soap.SoapHeader;
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.interceptor.ReadHeadersInterceptor;
+import org.apache.cxf.binding.soap.interceptor.SoapHeaderInterceptor;
+import org.apache.cxf.binding.soap.model.SoapHeaderInfo;
+import org.apache.cxf.databinding.stax.StaxDataBinding;
+import org.apache.cxf.databinding.stax.XMLStreamWriterCallback;
+import org.apache.cxf.headers.Header;
+import org.apache.cxf.helpers.DOMUtils;
+import org.apache.cxf.jaxb.JAXBDataBinding;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.cxf.phase.PhaseManagerImpl;
+import org.apache.cxf.service.Service;
+import org.apache.cxf.service.model.BindingInfo;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.InterfaceInfo;
+import org.apache.cxf.service.model.MessageInfo;
+import org.apache.cxf.service.model.MessagePartInfo;
+import org.apache.cxf.service.model.OperationInfo;
+import org.apache.cxf.service.model.ServiceInfo;
+import org.apache.cxf.staxutils.StaxUtils;
+import org.apache.cxf.ws.addressing.AddressingProperties;
+import org.apache.cxf.ws.addressing.AddressingPropertiesImpl;
+import org.apache.cxf.ws.addressing.AttributedURIType;
+import org.apache.cxf.ws.addressing.ContextUtils;
+import org.apache.cxf.ws.addressing.EndpointReferenceType;
+import org.apache.cxf.ws.addressing.JAXWSAConstants;
+import org.apache.cxf.ws.addressing.MetadataType;
+import org.apache.cxf.ws.addressing.Names;
+import org.apache.cxf.ws.addressing.RelatesToType;
+import org.apache.cxf.wsdl.EndpointReferenceUtils;
+import org.easymock.classextension.EasyMock;
+import org.easymock.classextension.IMocksControl;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StaxMAPCodecTest extends Assert {
+
+    private static final String NS200408 = VersionTransformer.Names200408.WSA_NAMESPACE_NAME;
+    private static final String ENVELOPE =
+        "<soap:Envelope xmlns:soap=\"" + Soap11.SOAP_NAMESPACE + "\">"
+        + "<soap:Header xmlns:wsa=\"" + Names.WSA_NAMESPACE_NAME + "\">"
+        + "<wsa:MessageID>urn:uuid:12345</wsa:MessageID>"
+        + "<wsa:ReplyTo><wsa:Address>http://localhost:9001/decoupled</wsa:Address>"
+        + "<wsa:ReferenceParameters><foo xmlns=\"urn:foo\">bar</foo></wsa:ReferenceParameters>"
+        + "</wsa:ReplyTo>"
+        + "<wsa:Action>http://foo/bar/SEI/opRequest</wsa:Action>"
+        + "</soap:Header>"
+        + "<soap:Body><greetMe xmlns=\"urn:greeter\"/></soap:Body></soap:Envelope>";
+
+    @Test
+    public void testGetCodec() {
+        assertNotNull(StaxMAPCodec.getCodec(Names.WSA_NAMESPACE_NAME));
+        assertNotNull(StaxMAPCodec.getCodec(NS200408));
+        assertNull(StaxMAPCodec.getCodec(VersionTransformer.Names200403.WSA_NAMESPACE_NAME));
+    }
+
+    @Test
+    public void testRoundTripNative() throws Exception {
+        StaxMAPCodec codec = StaxMAPCodec.getCodec(Names.WSA_NAMESPACE_NAME);
+        Document doc = writeHeaders(codec, getMAPs());
+        Element id = getHeader(doc, Names.WSA_NAMESPACE_NAME, Names.WSA_MESSAGEID_NAME);
+        assertEquals("urn:uuid:12345", id.getTextContent());
+        Element replyTo = getHeader(doc, Names.WSA_NAMESPACE_NAME, Names.WSA_REPLYTO_NAME);
+        assertEquals(Names.WSA_ANONYMOUS_ADDRESS, replyTo.getTextContent());
+        Element relatesTo = getHeader(doc, Names.WSA_NAMESPACE_NAME, Names.WSA_RELATESTO_NAME);
+        assertEquals(Names.WSA_RELATIONSHIP_REPLY, relatesTo.getAttribute(Names.WSA_RELATIONSHIPTYPE_NAME));
+
+        AddressingProperties maps = readHeaders(codec, doc);
+        assertEquals("urn:uuid:12345", maps.getMessageID().getValue());
+        assertEquals("http://localhost:9000/SoapContext/SoapPort", maps.getTo().getValue());
+        assertEquals(Names.WSA_ANONYMOUS_ADDRESS, maps.getReplyTo().getAddress().getValue());
+        assertEquals(Names.WSA_NONE_ADDRESS, maps.getFaultTo().getAddress().getValue());
+        assertEquals("urn:uuid:67890", maps.getRelatesTo().getValue());
+        assertEquals(Names.WSA_RELATIONSHIP_REPLY, maps.getRelatesTo().getRelationshipType());
+        assertEquals("http://foo/bar/SEI/opRequest", maps.getAction().getValue());
+        assertEquals("bar", maps.getMessageID().getOtherAttributes().get(new QName("urn:foo", "foo")));
+    }
+
+    @Test
+    public void testRoundTrip200408() throws Exception {
+        StaxMAPCodec codec = StaxMAPCodec.getCodec(NS200408);
+        Document doc = writeHeaders(codec, getMAPs());
+        Element replyTo = getHeader(doc, NS200408, Names.WSA_REPLYTO_NAME);
+        Element address = DOMUtils.getFirstElement(replyTo);
+        assertEquals(NS200408, address.getNamespaceURI());
+        assertEquals(VersionTransformer.Names200408.WSA_ANONYMOUS_ADDRESS, address.getTextContent());
+        Element relatesTo = getHeader(doc, NS200408, Names.WSA_RELATESTO_NAME);
+        assertFalse("reply relationship is implicit in 2004/08",
+                    relatesTo.hasAttribute(Names.WSA_RELATIONSHIPTYPE_NAME));
+
+        AddressingProperties maps = readHeaders(codec, doc);
+        assertEquals(Names.WSA_ANONYMOUS_ADDRESS, maps.getReplyTo().getAddress().getValue());
+        assertEquals(Names.WSA_NONE_ADDRESS, maps.getFaultTo().getAddress().getValue());
+        assertEquals("urn:uuid:67890", maps.getRelatesTo().getValue());
+        assertEquals(Names.WSA_RELATIONSHIP_REPLY, maps.getRelatesTo().getRelationshipType());
+    }
+
+    @Test
+    public void testRead200408Relationship() throws Exception {
+        StaxMAPCodec codec = StaxMAPCodec.getCodec(NS200408);
+        String xml = "<wsa:RelatesTo xmlns:wsa=\"" + NS200408 + "\" RelationshipType=\"wsa:Reply\">"
+            + " urn:uuid:67890 </wsa:RelatesTo>";
+        RelatesToType relatesTo = (RelatesToType)codec.read(parse(xml));
+        assertEquals("urn:uuid:67890", relatesTo.getValue());
+        assertEquals(Names.WSA_RELATIONSHIP_REPLY, relatesTo.getRelationshipType());
+        assertTrue(relatesTo.getOtherAttributes().isEmpty());
+    }
+
+    @Test
+    public void testComplexEndpointReferenceFallsBack() throws Exception {
+        StaxMAPCodec codec = StaxMAPCodec.getCodec(Names.WSA_NAMESPACE_NAME);
+        String xml = "<wsa:ReplyTo xmlns:wsa=\"" + Names.WSA_NAMESPACE_NAME + "\">"
+            + "<wsa:Address>http://localhost:9001/decoupled</wsa:Address>"
+            + "<wsa:ReferenceParameters><foo xmlns=\"urn:foo\">bar</foo></wsa:ReferenceParameters>"
+            + "</wsa:ReplyTo>";
+        assertNull(codec.read(parse(xml)));
+
+        AddressingPropertiesImpl maps = getMAPs();
+        assertTrue(codec.canEncode(maps));
+        EndpointReferenceType replyTo =
+            EndpointReferenceUtils.getEndpointReference("http://localhost:9001/decoupled");
+        replyTo.setMetadata(new MetadataType());
+        maps.setReplyTo(replyTo);
+        assertTrue("empty metadata is not worth a JAXB round trip", codec.canEncode(maps));
+        replyTo.getMetadata().getAny().add(DOMUtils.createDocument().createElementNS("urn:foo", "foo"));
+        assertFalse(codec.canEncode(maps));
+    }
+
+    @Test
+    public void testMAPCodecStreamsHeaders() throws Exception {
+        MAPCodec mapCodec = new MAPCodec();
+        assertTrue(mapCodec.isStreaming());
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        Exchange exchange = new ExchangeImpl();
+        exchange.setOutMessage(message);
+        exchange.setOneWay(true);
+        message.setExchange(exchange);
+        message.put(Message.REQUESTOR_ROLE, Boolean.TRUE);
+        AddressingPropertiesImpl maps = getMAPs();
+        maps.getMustUnderstand().add(Names.WSA_ACTION_QNAME);
+        message.put(JAXWSAConstants.CLIENT_ADDRESSING_PROPERTIES_OUTBOUND, maps);
+
+        mapCodec.handleMessage(message);
+
+        List<Header> headers = message.getHeaders();
+        assertEquals(6, headers.size());
+        for (Header header : headers) {
+            assertTrue(header instanceof SoapHeader);
+            assertTrue(header.getDataBinding() instanceof StaxDataBinding);
+            assertTrue(header.getObject() instanceof XMLStreamWriterCallback);
+            assertEquals(Names.WSA_ACTION_QNAME.equals(header.getName()),
+                         ((SoapHeader)header).isMustUnderstand());
+        }
+
+        SoapMessage inbound = new SoapMessage(new MessageImpl());
+        inbound.setExchange(new ExchangeImpl());
+        inbound.put(Message.REQUESTOR_ROLE, Boolean.FALSE);
+        Document doc = writeHeaders(headers);
+        Element child = DOMUtils.getFirstElement(doc.getDocumentElement());
+        while (child != null) {
+            inbound.getHeaders().add(new Header(new QName(child.getNamespaceURI(), child.getLocalName()),
+                                                child));
+            child = DOMUtils.getNextElement(child);
+        }
+        AddressingProperties decoded = mapCodec.unmarshalMAPs(inbound);
+        assertEquals(Names.WSA_NAMESPACE_NAME, decoded.getNamespaceURI());
+        assertEquals("urn:uuid:12345", decoded.getMessageID().getValue());
+        assertEquals(Names.WSA_ANONYMOUS_ADDRESS, decoded.getReplyTo().getAddress().getValue());
+        assertEquals("http://foo/bar/SEI/opRequest", decoded.getAction().getValue());
+    }
+
+    @Test
+    public void testReadHeadersDecodesMAPs() throws Exception {
+        MAPCodec mapCodec = new MAPCodec();
+        XMLStreamReader reader = StaxUtils.createXMLStreamReader(new StringReader(ENVELOPE));
+        SoapMessage message = readHeaders(mapCodec, reader);
+
+        List<Header> headers = message.getHeaders();
+        assertEquals(3, headers.size());
+        assertTrue(headers.get(0).getObject() instanceof AttributedURIType);
+        assertTrue("the complex EPR is decoded via JAXB",
+                   headers.get(1).getObject() instanceof EndpointReferenceType);
+        assertTrue(headers.get(2).getObject() instanceof AttributedURIType);
+        for (Header header : headers) {
+            assertNotNull(header.getDataBinding());
+        }
+        // without SAAJ on the chain the decoded headers are not copied into the envelope
+        Document doc = (Document)message.getContent(Node.class);
+        assertEquals(0, doc.getElementsByTagNameNS(Names.WSA_NAMESPACE_NAME, "MessageID").getLength());
+        assertTrue(StaxUtils.skipToStartOfElement(reader));
+        assertEquals("greetMe", reader.getLocalName());
+
+        AddressingProperties decoded = mapCodec.unmarshalMAPs(message);
+        assertEquals("urn:uuid:12345", decoded.getMessageID().getValue());
+        assertEquals("http://localhost:9001/decoupled", decoded.getReplyTo().getAddress().getValue());
+        assertEquals(1, decoded.getReplyTo().getReferenceParameters().getAny().size());
+        assertEquals("http://foo/bar/SEI/opRequest", decoded.getAction().getValue());
+    }
+
+    @Test
+    public void testDecodedMAPBindsAsHeaderParameter() throws Exception {
+        QName opName = new QName("urn:greeter", "greetMe");
+        ServiceInfo si = new ServiceInfo();
+        InterfaceInfo ii = new InterfaceInfo(si, new QName("urn:greeter", "Greeter"));
+        OperationInfo oi = ii.addOperation(opName);
+        MessageInfo mi = oi.createMessage(opName);
+        oi.setInput("greetMeRequest", mi);
+        MessagePartInfo messageID = mi.addMessagePart("messageID");
+        messageID.setElement(true);
+        messageID.setConcreteName(new QName(Names.WSA_NAMESPACE_NAME, "MessageID"));
+        messageID.setTypeClass(AttributedURIType.class);
+        MessagePartInfo action = mi.addMessagePart("action");
+        action.setElement(true);
+        action.setConcreteName(new QName(Names.WSA_NAMESPACE_NAME, "Action"));
+        // a type other than the decoded one, so the header is bound from XML again
+        action.setTypeClass(String.class);
+        BindingInfo bi = new BindingInfo(si, "http://schemas.xmlsoap.org/soap/");
+        BindingOperationInfo bop = bi.buildOperation(opName, "greetMeRequest", null);
+        for (MessagePartInfo part : mi.getMessageParts()) {
+            SoapHeaderInfo header = new SoapHeaderInfo();
+            header.setPart(part);
+            bop.getInput().addExtensor(header);
+        }
+
+        IMocksControl control = EasyMock.createNiceControl();
+        Service service = control.createMock(Service.class);
+        EasyMock.expect(service.getDataBinding())
+            .andReturn(new JAXBDataBinding(ContextUtils.getJAXBContext())).anyTimes();
+        control.replay();
+
+        SoapMessage message = readHeaders(new MAPCodec(),
+                                          StaxUtils.createXMLStreamReader(new StringReader(ENVELOPE)));
+        message.getExchange().put(BindingOperationInfo.class, bop);
+        message.getExchange().put(Service.class, service);
+        new SoapHeaderInterceptor().handleMessage(message);
+
+        MessageContentsList parameters = MessageContentsList.getContentsList(message);
+        assertEquals("urn:uuid:12345", ((AttributedURIType)parameters.get(messageID)).getValue());
+        assertEquals("http://foo/bar/SEI/opRequest", parameters.get(action));
+    }
+
+    private SoapMessage readHeaders(MAPCodec mapCodec, XMLStreamReader reader) {
+        SoapMessage message = new SoapMessage(new MessageImpl());
+        message.setExchange(new ExchangeImpl());
+        message.put(Message.REQUESTOR_ROLE, Boolean.FALSE);
+        PhaseInterceptorChain chain = new PhaseInterceptorChain(new PhaseManagerImpl().getInPhases());
+        chain.add(mapCodec);
+        message.setInterceptorChain(chain);
+        message.setContent(XMLStreamReader.class, reader);
+        new ReadHeadersInterceptor(BusFactory.getDefaultBus()).handleMessage(message);
+        return message;
+    }
+
+    private AddressingPropertiesImpl getMAPs() {
+        AddressingPropertiesImpl maps = new AddressingPropertiesImpl();
+        maps.setMessageID(ContextUtils.getAttributedURI("urn:uuid:12345"));
+        maps.getMessageID().getOtherAttributes().put(new QName("urn:foo", "foo"), "bar");
+        maps.setTo(EndpointReferenceUtils.getEndpointReference(
+            ContextUtils.getAttributedURI("http://localhost:9000/SoapContext/SoapPort")));
+        maps.setReplyTo(EndpointReferenceUtils.getEndpointReference(
+            ContextUtils.getAttributedURI(Names.WSA_ANONYMOUS_ADDRESS)));
+        maps.setFaultTo(EndpointReferenceUtils.getEndpointReference(
+            ContextUtils.getAttributedURI(Names.WSA_NONE_ADDRESS)));
+        RelatesToType relatesTo = new RelatesToType();
+        relatesTo.setValue("urn:uuid:67890");
+        relatesTo.setRelationshipType(Names.WSA_RELATIONSHIP_REPLY);
+        maps.setRelatesTo(relatesTo);
+        maps.setAction(ContextUtils.getAttributedURI("http://foo/bar/SEI/opRequest"));
+        return maps;
+    }
+
+    private Document writeHeaders(StaxMAPCodec codec, AddressingProperties maps) throws Exception {
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(out);
+        writer.writeStartElement("soap", "Header", Soap11.SOAP_NAMESPACE);
+        writer.writeNamespace("soap", Soap11.SOAP_NAMESPACE);
+        codec.write(Names.WSA_MESSAGEID_NAME, maps.getMessageID(), writer);
+        codec.write(Names.WSA_TO_NAME, maps.getTo(), writer);
+        codec.write(Names.WSA_REPLYTO_NAME, maps.getReplyTo(), writer);
+        codec.write(Names.WSA_FAULTTO_NAME, maps.getFaultTo(), writer);
+        codec.write(Names.WSA_RELATESTO_NAME, maps.getRelatesTo(), writer);
+        codec.write(Names.WSA_ACTION_NAME, maps.getAction(), writer);
+        writer.writeEndElement();
+        writer.flush();
+        return DOMUtils.readXml(new StringReader(out.toString()));
+    }
+
+    private Document writeHeaders(List<Header> headers) throws Exception {
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = StaxUtils.createXMLStreamWriter(out);
+        writer.writeStartElement("soap", "Header", Soap11.SOAP_NAMESPACE);
+        writer.writeNamespace("soap", Soap11.SOAP_NAMESPACE);
+        for (Header header : headers) {
+            header.getDataBinding().createWriter(XMLStreamWriter.class).write(header.getObject(), writer);
+        }
+        writer.writeEndElement();
+        writer.flush();
+        return DOMUtils.readXml(new StringReader(out.toString()));
+    }
+
+    private AddressingProperties readHeaders(StaxMAPCodec codec, Document doc) throws Exception {
+        String ns = codec.getNamespaceURI();
+        AddressingPropertiesImpl maps = new AddressingPropertiesImpl();
+        maps.setMessageID((AttributedURIType)
+                          codec.read(getHeader(doc, ns, Names.WSA_MESSAGEID_NAME)));
+        maps.setTo(EndpointReferenceUtils.getEndpointReference(
+            (AttributedURIType)codec.read(getHeader(doc, ns, Names.WSA_TO_NAME))));
+        maps.setReplyTo((EndpointReferenceType)codec.read(getHeader(doc, ns, Names.WSA_REPLYTO_NAME)));
+        maps.setFaultTo((EndpointReferenceType)codec.read(getHeader(doc, ns, Names.WSA_FAULTTO_NAME)));
+        maps.setRelatesTo((RelatesToType)codec.read(getHeader(doc, ns, Names.WSA_RELATESTO_NAME)));
+        maps.setAction((AttributedURIType)
+                       codec.read(getHeader(doc, ns, Names.WSA_ACTION_NAME)));
+        return maps;
+    }
+
+    private Element getHeader(Document doc, String ns, String localName) {
+        Node child = doc.getDocumentElement().getFirstChild();
+        while (child != null) {
+            if (ns.equals(child.getNamespaceURI()) && localName.equals(child.getLocalName())) {
+                return (Element)child;
+            }
+            child = child.getNextSibling();
+        }
+        fail("no " + localName + " header");
+        return null;
+    }
+
+    private Element parse(String xml) throws Exception {
+        return DOMUtils.readXml(new StringReader(xml)).getDocumentElement();
+    }
+}
@@ -76,6 +76,18 @@ public abstract class AbstractPolicyInterceptor extends AbstractPhaseInterceptor
         }
     }
     
+    /**
+     * Checks if the asserted assertions in the map support one of the alternatives of the 
+     * effective policy, using the precomputed assertion table of the policy where available.
+     */
+    protected void checkEffectivePolicy(AssertionInfoMap aim, EffectivePolicy ep) {
+        if (ep instanceof EffectivePolicyImpl) {
+            ((EffectivePolicyImpl)ep).checkAssertions(aim);
+        } else {
+            aim.checkEffectivePolicy(ep.getPolicy());
+        }
+    }
+    
     protected BindingFaultInfo getBindingFaultInfo(Message msg, Exception ex, BindingOperationInfo boi) {
         BindingFaultInfo bfi = msg.get(BindingFaultInfo.class);        
         if (null == bfi) {
@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.policy;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ResourceBundle;
+
+import org.apache.cxf.common.i18n.BundleUtils;
+import org.apache.cxf.common.i18n.Message;
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.neethi.Assertion;
+import org.apache.neethi.Policy;
+
+/**
+ * Precomputed form of {@link AssertionInfoMap#checkEffectivePolicy(Policy)} for one policy and
+ * one collection of assertions from which assertion info maps are created. 
+ * For every assertion of every alternative of the policy, the table holds the positions of the
+ * assertions in the collection that are equal to it, so that checking a message only needs the
+ * set of asserted positions and no longer compares assertions. Alternatives that none of the
+ * assertions can satisfy are dropped up front.
+ */
+public class AssertionTable {
+    
+    private static final ResourceBundle BUNDLE = BundleUtils.getBundle(AssertionTable.class);
+    
+    private final Policy policy;
+    private final Collection<Assertion> assertions;
+    private final BitSet[][] alternatives;
+    
+    public AssertionTable(Policy p, Collection<Assertion> as) {
+        policy = p;
+        assertions = as;
+        
+        List<Assertion> indexed = new ArrayList<Assertion>(as);
+        List<BitSet[]> satisfiable = new ArrayList<BitSet[]>();
+        Iterator alts = p.getAlternatives();
+        while (alts.hasNext()) {
+            List<Assertion> alternative = CastUtils.cast((List)alts.next(), Assertion.class);
+            BitSet[] required = index(alternative, indexed);
+            if (null != required) {
+                satisfiable.add(required);
+            }
+        }
+        alternatives = satisfiable.toArray(new BitSet[satisfiable.size()][]);
+    }
+    
+    public Policy getPolicy() {
+        return policy;
+    }
+    
+    public Collection<Assertion> getAssertions() {
+        return assertions;
+    }
+    
+    /**
+     * Checks if the asserted assertions in the map support one of the alternatives of the policy.
+     * Falls back to {@link AssertionInfoMap#checkEffectivePolicy(Policy)} if the map was not 
+     * created from the collection of assertions this table was built for.
+     *  
+     * @param aim the assertion info map of the message
+     * @throws PolicyException if none of the alternatives is supported
+     */
+    public void check(AssertionInfoMap aim) {
+        BitSet asserted = aim.getAssertedIndices(assertions);
+        if (null == asserted) {
+            aim.checkEffectivePolicy(policy);
+            return;
+        }
+        for (BitSet[] required : alternatives) {
+            if (supportsAlternative(required, asserted)) {
+                return;
+            }
+        }
+        throw new PolicyException(new Message("NO_ALTERNATIVE_EXC", BUNDLE));
+    }
+    
+    private static BitSet[] index(List<Assertion> alternative, List<Assertion> indexed) {
+        BitSet[] required = new BitSet[alternative.size()];
+        for (int i = 0; i < required.length; i++) {
+            Assertion a = alternative.get(i);
+            BitSet candidates = new BitSet(indexed.size());
+            for (int j = 0; j < indexed.size(); j++) {
+                Assertion candidate = indexed.get(j);
+                if (candidate.getName().equals(a.getName()) && candidate.equal(a)) {
+                    candidates.set(j);
+                }
+            }
+            if (candidates.isEmpty()) {
+                return null;
+            }
+            required[i] = candidates;
+        }
+        return required;
+    }
+    
+    private static boolean supportsAlternative(BitSet[] required, BitSet asserted) {
+        for (BitSet candidates : required) {
+            if (!candidates.intersects(asserted)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
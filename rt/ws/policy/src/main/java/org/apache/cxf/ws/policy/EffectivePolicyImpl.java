@@ -52,6 +52,7 @@ public class EffectivePolicyImpl implements EffectivePolicy {
     protected Policy policy;     
     protected Collection<Assertion> chosenAlternative;
     protected List<Interceptor> interceptors;
+    private volatile AssertionTable assertionTable;
     
     public Policy getPolicy() {
         return policy;        
@@ -65,6 +66,23 @@ public class EffectivePolicyImpl implements EffectivePolicy {
         return chosenAlternative;
     }
     
+    /**
+     * Checks if the asserted assertions in the map support one of the alternatives of this policy.
+     * The lookup table for this is computed on first use and kept for as long as maps are created
+     * from the same collection of assertions, which is the vocabulary of the endpoint or the
+     * chosen alternative.
+     * 
+     * @param aim the assertion info map of the message
+     * @throws PolicyException if none of the alternatives is supported
+     */
+    public void checkAssertions(AssertionInfoMap aim) {
+        AssertionTable table = assertionTable;
+        if (null == table || table.getAssertions() != aim.getIndexedAssertions()) {
+            table = new AssertionTable(policy, aim.getIndexedAssertions());
+            assertionTable = table;
+        }
+        table.check(aim);
+    }
     
     void initialise(EndpointPolicyImpl epi, PolicyEngineImpl engine) {
         policy = epi.getPolicy();
@@ -139,7 +157,7 @@ public class EffectivePolicyImpl implements EffectivePolicy {
             QName qn = a.getName();
             PolicyInterceptorProvider pp = reg.get(qn);
             if (null != pp) {
-                out.addAll(pp.getOutInterceptors());
+                PolicyUtils.addInterceptors(out, pp.getOutInterceptors());
             }
         }
         setInterceptors(out);
@@ -149,6 +167,7 @@ public class EffectivePolicyImpl implements EffectivePolicy {
     
     void setPolicy(Policy ep) {
         policy = ep;
+        assertionTable = null;
     }
     
     void setChosenAlternative(Collection<Assertion> c) {
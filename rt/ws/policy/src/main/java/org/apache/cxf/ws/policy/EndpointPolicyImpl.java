@@ -194,7 +194,7 @@ public class EndpointPolicyImpl implements EndpointPolicy {
         for (QName qn : v) {
             PolicyInterceptorProvider pp = reg.get(qn);
             if (null != pp) {
-                interceptors.addAll(pp.getInInterceptors());
+                PolicyUtils.addInterceptors(interceptors, pp.getInInterceptors());
             }
         }
         
@@ -210,7 +210,7 @@ public class EndpointPolicyImpl implements EndpointPolicy {
         for (QName qn : faultV) {
             PolicyInterceptorProvider pp = reg.get(qn);
             if (null != pp) {
-                faultInterceptors.addAll(pp.getInFaultInterceptors());
+                PolicyUtils.addInterceptors(faultInterceptors, pp.getInFaultInterceptors());
             }
         }        
     }
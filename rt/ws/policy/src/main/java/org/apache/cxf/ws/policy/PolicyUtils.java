@@ -25,6 +25,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.interceptor.Interceptor;
 import org.apache.cxf.ws.policy.builder.primitive.NestedPrimitiveAssertion;
 import org.apache.neethi.Assertion;
 import org.apache.neethi.Constants;
@@ -58,6 +59,23 @@ public final class PolicyUtils {
         return false;
     }
     
+    /**
+     * Add interceptors to a list unless they are already in it. Providers that handle several
+     * assertions return the same interceptors for each of them, and a list without duplicates
+     * spares every message the lookups the chain would otherwise need to skip them.
+     * 
+     * @param interceptors the list to add to
+     * @param candidates the interceptors to add
+     */
+    public static void addInterceptors(List<Interceptor> interceptors, 
+                                       Collection<Interceptor> candidates) {
+        for (Interceptor i : candidates) {
+            if (!interceptors.contains(i)) {
+                interceptors.add(i);
+            }
+        }
+    }
+    
     /**
      * Determine if one collection of assertions contains another collection of assertion, using
      * the equal method from the Assertion interface.
@@ -89,7 +89,7 @@ public class PolicyVerificationInInterceptor extends AbstractPolicyInterceptor {
             effectivePolicy = pe.getEffectiveServerRequestPolicy(ei, boi);
         }
                 
-        aim.checkEffectivePolicy(effectivePolicy.getPolicy());
+        checkEffectivePolicy(aim, effectivePolicy);
         LOG.fine("Verified policies for inbound message.");
     }
 
@@ -64,7 +64,7 @@ public class PolicyVerificationOutInterceptor extends AbstractPolicyInterceptor
             return;
         }
         
-        aim.checkEffectivePolicy(policy.getPolicy());
+        checkEffectivePolicy(aim, policy);
         
         LOG.fine("Verified policies for outbound message.");
     }
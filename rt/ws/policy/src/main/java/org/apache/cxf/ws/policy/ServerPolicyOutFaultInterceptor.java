@@ -91,7 +91,9 @@ public class ServerPolicyOutFaultInterceptor extends AbstractPolicyInterceptor {
         List<Interceptor> interceptors = effectivePolicy.getInterceptors();
         for (Interceptor oi : interceptors) {
             msg.getInterceptorChain().add(oi);
-            LOG.log(Level.INFO, "Added interceptor of type {0}", oi.getClass().getSimpleName());
+            if (LOG.isLoggable(Level.FINE)) {
+                LOG.log(Level.FINE, "Added interceptor of type {0}", oi.getClass().getSimpleName());
+            }
         }
         
         // insert assertions of the chosen alternative into the message
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.policy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.ws.policy.builder.primitive.PrimitiveAssertion;
+import org.apache.neethi.All;
+import org.apache.neethi.Assertion;
+import org.apache.neethi.ExactlyOne;
+import org.apache.neethi.Policy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ */
+public class AssertionTableTest extends Assert {
+    
+    private static final QName AQN = new QName("http://x.y.z", "a");
+    private static final QName BQN = new QName("http://x.y.z", "b");
+    private static final QName CQN = new QName("http://x.y.z", "c");
+    private static final QName DQN = new QName("http://x.y.z", "d");
+    
+    private Policy policy;
+    private List<Assertion> vocabulary;
+    
+    @Before
+    public void setUp() {
+        All alt1 = new All();
+        alt1.addAssertion(new PrimitiveAssertion(AQN));
+        alt1.addAssertion(new PrimitiveAssertion(BQN));
+        All alt2 = new All();
+        alt2.addAssertion(new PrimitiveAssertion(CQN));
+        All alt3 = new All();
+        alt3.addAssertion(new PrimitiveAssertion(DQN));
+        ExactlyOne ea = new ExactlyOne();
+        ea.addPolicyComponent(alt1);
+        ea.addPolicyComponent(alt2);
+        ea.addPolicyComponent(alt3);
+        policy = new Policy();
+        policy.addPolicyComponent(ea);
+        
+        vocabulary = new ArrayList<Assertion>();
+        vocabulary.add(new PrimitiveAssertion(AQN));
+        vocabulary.add(new PrimitiveAssertion(BQN));
+        vocabulary.add(new PrimitiveAssertion(CQN));
+    }
+    
+    @Test
+    public void testCheck() {
+        AssertionTable table = new AssertionTable(policy, vocabulary);
+        assertSame(policy, table.getPolicy());
+        assertSame(vocabulary, table.getAssertions());
+        
+        AssertionInfoMap aim = new AssertionInfoMap(vocabulary);
+        assertNotSupported(table, aim);
+        
+        aim.get(AQN).iterator().next().setAsserted(true);
+        assertNotSupported(table, aim);
+        
+        aim.get(BQN).iterator().next().setAsserted(true);
+        table.check(aim);
+        
+        aim = new AssertionInfoMap(vocabulary);
+        aim.get(CQN).iterator().next().setAsserted(true);
+        table.check(aim);
+    }
+    
+    @Test
+    public void testCheckModifiedMap() {
+        AssertionTable table = new AssertionTable(policy, vocabulary);
+        AssertionInfoMap aim = new AssertionInfoMap(vocabulary);
+        
+        // d is not in the vocabulary, only the slow path can find it
+        AssertionInfo di = new AssertionInfo(new PrimitiveAssertion(DQN));
+        di.setAsserted(true);
+        List<AssertionInfo> dis = new ArrayList<AssertionInfo>();
+        dis.add(di);
+        aim.put(DQN, dis);
+        table.check(aim);
+        
+        di.setAsserted(false);
+        assertNotSupported(table, aim);
+    }
+    
+    @Test
+    public void testCheckOtherVocabulary() {
+        AssertionTable table = new AssertionTable(policy, vocabulary);
+        List<Assertion> other = new ArrayList<Assertion>();
+        other.add(new PrimitiveAssertion(CQN));
+        AssertionInfoMap aim = new AssertionInfoMap(other);
+        assertNotSupported(table, aim);
+        aim.get(CQN).iterator().next().setAsserted(true);
+        table.check(aim);
+    }
+    
+    private static void assertNotSupported(AssertionTable table, AssertionInfoMap aim) {
+        try {
+            table.check(aim);
+            fail("Expected PolicyException not thrown.");
+        } catch (PolicyException ex) {
+            assertEquals("NO_ALTERNATIVE_EXC", ex.getCode());
+        }
+    }
+}
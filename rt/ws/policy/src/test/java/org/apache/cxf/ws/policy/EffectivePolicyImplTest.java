@@ -35,7 +35,10 @@ import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.EndpointInfo;
 import org.apache.cxf.transport.Conduit;
 import org.apache.cxf.transport.Destination;
+import org.apache.cxf.ws.policy.builder.primitive.PrimitiveAssertion;
+import org.apache.neethi.All;
 import org.apache.neethi.Assertion;
+import org.apache.neethi.ExactlyOne;
 import org.apache.neethi.Policy;
 import org.easymock.classextension.EasyMock;
 import org.easymock.classextension.IMocksControl;
@@ -305,6 +308,59 @@ public class EffectivePolicyImplTest extends Assert {
         assertEquals(1, epi.getInterceptors().size());
         assertSame(pi, epi.getInterceptors().get(0));
         control.verify();     
+        
+        control.reset();
+        setupPolicyInterceptorProviderRegistry(engine, reg);
+        Assertion b = control.createMock(Assertion.class);        
+        alternative.add(b);
+        QName bqn = new QName("http://x.y.z", "b");
+        EasyMock.expect(a.isOptional()).andReturn(false);
+        EasyMock.expect(a.getName()).andReturn(qn);        
+        EasyMock.expect(b.isOptional()).andReturn(false);
+        EasyMock.expect(b.getName()).andReturn(bqn);        
+        EasyMock.expect(reg.get(qn)).andReturn(pp);
+        EasyMock.expect(reg.get(bqn)).andReturn(pp);
+        EasyMock.expect(pp.getOutInterceptors()).andReturn(Collections.singletonList(pi)).times(2);
+        control.replay();
+        epi.initialiseInterceptors(engine);
+        assertEquals(1, epi.getInterceptors().size());
+        assertSame(pi, epi.getInterceptors().get(0));
+        control.verify();     
+    }
+    
+    @Test
+    public void testCheckAssertions() {
+        QName aqn = new QName("http://x.y.z", "a");
+        Policy p = new Policy();
+        All all = new All();
+        all.addAssertion(new PrimitiveAssertion(aqn));
+        ExactlyOne ea = new ExactlyOne();
+        ea.addPolicyComponent(all);
+        p.addPolicyComponent(ea);
+        List<Assertion> vocabulary = new ArrayList<Assertion>();
+        vocabulary.add(new PrimitiveAssertion(aqn));
+        
+        EffectivePolicyImpl epi = new EffectivePolicyImpl();
+        epi.setPolicy(p);
+        AssertionInfoMap aim = new AssertionInfoMap(vocabulary);
+        try {
+            epi.checkAssertions(aim);
+            fail("Expected PolicyException not thrown.");
+        } catch (PolicyException ex) {
+            assertEquals("NO_ALTERNATIVE_EXC", ex.getCode());
+        }
+        aim = new AssertionInfoMap(vocabulary);
+        aim.get(aqn).iterator().next().setAsserted(true);
+        epi.checkAssertions(aim);
+        
+        all.addAssertion(new PrimitiveAssertion(new QName("http://x.y.z", "b")));
+        epi.setPolicy(p);
+        try {
+            epi.checkAssertions(aim);
+            fail("Expected PolicyException not thrown.");
+        } catch (PolicyException ex) {
+            assertEquals("NO_ALTERNATIVE_EXC", ex.getCode());
+        }
     }
     
     private void setupPolicyInterceptorProviderRegistry(PolicyEngineImpl engine, 
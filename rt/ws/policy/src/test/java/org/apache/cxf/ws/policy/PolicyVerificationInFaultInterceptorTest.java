@@ -28,7 +28,6 @@ import org.apache.cxf.message.Message;
 import org.apache.cxf.service.model.BindingFaultInfo;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.EndpointInfo;
-import org.apache.neethi.Policy;
 import org.easymock.classextension.EasyMock;
 import org.easymock.classextension.IMocksControl;
 import org.junit.Assert;
@@ -108,9 +107,7 @@ public class PolicyVerificationInFaultInterceptorTest extends Assert {
         EasyMock.expectLastCall();
         EffectivePolicyImpl effectivePolicy = control.createMock(EffectivePolicyImpl.class);        
         EasyMock.expect(engine.getEffectiveClientFaultPolicy(ei, bfi)).andReturn(effectivePolicy);
-        Policy policy = control.createMock(Policy.class);
-        EasyMock.expect(effectivePolicy.getPolicy()).andReturn(policy);
-        aim.checkEffectivePolicy(policy);
+        effectivePolicy.checkAssertions(aim);
         EasyMock.expectLastCall();
         control.replay();
         interceptor.handleMessage(message);
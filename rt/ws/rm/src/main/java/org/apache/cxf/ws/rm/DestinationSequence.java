@@ -30,7 +30,6 @@ import java.util.logging.Logger;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.ws.addressing.v200408.EndpointReferenceType;
-import org.apache.cxf.ws.rm.SequenceAcknowledgement.AcknowledgementRange;
 import org.apache.cxf.ws.rm.manager.AcksPolicyType;
 import org.apache.cxf.ws.rm.manager.DeliveryAssuranceType;
 import org.apache.cxf.ws.rm.persistence.RMStore;
@@ -51,6 +50,8 @@ public class DestinationSequence extends AbstractSequence {
     private List<DeferredAcknowledgment> deferredAcknowledgments;
     private SequenceTermination scheduledTermination;
     private String correlationID;
+    private final MessageNumberSet acknowledged = new MessageNumberSet();
+    private boolean acknowledgementChanged;
     
     public DestinationSequence(Identifier i, EndpointReferenceType a, Destination d) {
         this(i, a, null, null);
@@ -66,6 +67,9 @@ public class DestinationSequence extends AbstractSequence {
         if (null == acknowledgement) {
             acknowledgement = RMUtils.getWSRMFactory().createSequenceAcknowledgement();
             acknowledgement.setIdentifier(id);
+        } else if (!acknowledgement.getAcknowledgementRange().isEmpty()) {
+            acknowledged.addRanges(acknowledgement.getAcknowledgementRange());
+            acknowledgementChanged = true;
         }
         monitor = new SequenceMonitor();
     }
@@ -85,12 +89,29 @@ public class DestinationSequence extends AbstractSequence {
     }
     
     /**
+     * The message numbers received so far are kept in a MessageNumberSet; the sequence
+     * acknowledgement is only rebuilt from it when it is asked for after a change, i.e. when an
+     * acknowledgement header is written or the sequence is persisted. A new object is returned
+     * each time so that a caller may go on serializing the previous one.
+     * 
      * @return the sequence acknowledgement presenting the sequences thus far received by a destination 
      */
-    public SequenceAcknowledgement getAcknowledgment() {
+    public synchronized SequenceAcknowledgement getAcknowledgment() {
+        if (acknowledgementChanged) {
+            SequenceAcknowledgement ack = RMUtils.getWSRMFactory().createSequenceAcknowledgement();
+            ack.setIdentifier(id);
+            acknowledged.writeTo(ack.getAcknowledgementRange());
+            acknowledgement = ack;
+            acknowledgementChanged = false;
+        }
         return acknowledgement;
     }
     
+    @Override
+    public synchronized boolean isAcknowledged(BigInteger m) {
+        return acknowledged.contains(m);
+    }
+    
     /**
      * @return the identifier of the rm destination
      */
@@ -109,38 +130,8 @@ public class DestinationSequence extends AbstractSequence {
         monitor.acknowledgeMessage();
         
         synchronized (this) {
-            boolean done = false;
-            int i = 0;
-            for (; i < acknowledgement.getAcknowledgementRange().size(); i++) {
-                AcknowledgementRange r = acknowledgement.getAcknowledgementRange().get(i);
-                if (r.getLower().compareTo(messageNumber) <= 0 
-                    && r.getUpper().compareTo(messageNumber) >= 0) {
-                    done = true;
-                    break;
-                } else {
-                    BigInteger diff = r.getLower().subtract(messageNumber);
-                    if (diff.signum() == 1) {
-                        if (diff.equals(BigInteger.ONE)) {
-                            r.setLower(messageNumber);
-                            done = true;
-                        }
-                        break;
-                    } else if (messageNumber.subtract(r.getUpper()).equals(BigInteger.ONE)) {
-                        r.setUpper(messageNumber);
-                        done = true;
-                        break;
-                    }
-                }
-            }
-
-            if (!done) {
-                AcknowledgementRange range = RMUtils.getWSRMFactory()
-                    .createSequenceAcknowledgementAcknowledgementRange();
-                range.setLower(messageNumber);
-                range.setUpper(messageNumber);
-                acknowledgement.getAcknowledgementRange().add(i, range);
-            }
-            mergeRanges();
+            acknowledged.add(messageNumber);
+            acknowledgementChanged = true;
             notifyAll();
         }
         
@@ -170,18 +161,6 @@ public class DestinationSequence extends AbstractSequence {
         
     }
     
-    void mergeRanges() {
-        List<AcknowledgementRange> ranges = acknowledgement.getAcknowledgementRange();
-        for (int i = ranges.size() - 1; i > 0; i--) {
-            AcknowledgementRange current = ranges.get(i);
-            AcknowledgementRange previous = ranges.get(i - 1);
-            if (current.getLower().subtract(previous.getUpper()).equals(BigInteger.ONE)) {
-                previous.setUpper(current.getUpper());
-                ranges.remove(i);
-            }
-        }
-    }
-    
     void setDestination(Destination d) {
         destination = d;
     }
@@ -244,9 +223,7 @@ public class DestinationSequence extends AbstractSequence {
     }
     
     synchronized boolean allPredecessorsAcknowledged(BigInteger mn) {
-        return acknowledgement.getAcknowledgementRange().size() == 1
-            && acknowledgement.getAcknowledgementRange().get(0).getLower().equals(BigInteger.ONE)
-            && acknowledgement.getAcknowledgementRange().get(0).getUpper().subtract(mn).signum() >= 0;
+        return acknowledged.containsAllUpTo(mn);
     }
     
     void purgeAcknowledged(BigInteger messageNr) {
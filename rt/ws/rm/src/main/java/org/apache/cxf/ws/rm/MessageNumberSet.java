@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm;
+
+import java.math.BigInteger;
+import java.util.List;
+
+import org.apache.cxf.ws.rm.SequenceAcknowledgement.AcknowledgementRange;
+
+/**
+ * A set of message numbers held as sorted, non-adjacent runs of consecutive numbers in two
+ * parallel long arrays, so that adding and looking up a number is a binary search instead of a
+ * walk over a list of BigInteger ranges. Message numbers are unsigned longs; they are stored
+ * shifted by Long.MIN_VALUE so that plain long comparison orders them.
+ * Instances are not thread safe.
+ */
+public final class MessageNumberSet {
+
+    private static final BigInteger TWO_TO_THE_64 = BigInteger.ONE.shiftLeft(64);
+    private static final long ONE = toKey(BigInteger.ONE);
+
+    private long[] lows = new long[4];
+    private long[] highs = new long[4];
+    private int size;
+
+    /**
+     * Adds a message number.
+     */
+    public void add(BigInteger n) {
+        long key = toKey(n);
+        addKeys(key, key);
+    }
+
+    /**
+     * Adds all message numbers from lower to upper inclusive. Ranges may be added in any order
+     * and may overlap ranges that are already in the set.
+     */
+    public void addRange(BigInteger lower, BigInteger upper) {
+        long lo = toKey(lower);
+        long hi = toKey(upper);
+        if (lo <= hi) {
+            addKeys(lo, hi);
+        }
+    }
+
+    /**
+     * Adds all ranges of a sequence acknowledgement.
+     */
+    public void addRanges(List<AcknowledgementRange> ranges) {
+        for (AcknowledgementRange r : ranges) {
+            addRange(r.getLower(), r.getUpper());
+        }
+    }
+
+    public boolean contains(BigInteger n) {
+        long key = toKey(n);
+        int i = search(key);
+        return i > 0 && highs[i - 1] >= key;
+    }
+
+    /**
+     * @return true if the set holds exactly one run, starting at 1 and extending to at least n
+     */
+    public boolean containsAllUpTo(BigInteger n) {
+        return size == 1 && lows[0] == ONE && highs[0] >= toKey(n);
+    }
+
+    /**
+     * @return the number of ranges the set is made of
+     */
+    public int getRangeCount() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends one acknowledgement range per run, in ascending order, to ranges.
+     */
+    public void writeTo(List<AcknowledgementRange> ranges) {
+        ObjectFactory factory = RMUtils.getWSRMFactory();
+        for (int i = 0; i < size; i++) {
+            AcknowledgementRange r = factory.createSequenceAcknowledgementAcknowledgementRange();
+            r.setLower(toMessageNumber(lows[i]));
+            r.setUpper(toMessageNumber(highs[i]));
+            ranges.add(r);
+        }
+    }
+
+    public String toString() {
+        StringBuilder buf = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(toMessageNumber(lows[i])).append('-').append(toMessageNumber(highs[i]));
+        }
+        return buf.append(']').toString();
+    }
+
+    private void addKeys(long lo, long hi) {
+        // runs [0, from) lie entirely below lo and do not touch it
+        int from = search(lo);
+        if (from > 0 && (highs[from - 1] == Long.MAX_VALUE || highs[from - 1] + 1 >= lo)) {
+            from--;
+        }
+        if (from < size && lows[from] < lo) {
+            lo = lows[from];
+        }
+        // runs [from, to) overlap or touch [lo, hi] and are merged into it
+        int to = from;
+        while (to < size && (hi == Long.MAX_VALUE || lows[to] <= hi + 1)) {
+            if (highs[to] > hi) {
+                hi = highs[to];
+            }
+            to++;
+        }
+        if (from == to) {
+            insert(from, lo, hi);
+        } else {
+            lows[from] = lo;
+            highs[from] = hi;
+            remove(from + 1, to);
+        }
+    }
+
+    /**
+     * @return the index of the first run whose lower bound is greater than key
+     */
+    private int search(long key) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (lows[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void insert(int i, long lo, long hi) {
+        if (size == lows.length) {
+            long[] newLows = new long[size * 2];
+            long[] newHighs = new long[size * 2];
+            System.arraycopy(lows, 0, newLows, 0, size);
+            System.arraycopy(highs, 0, newHighs, 0, size);
+            lows = newLows;
+            highs = newHighs;
+        }
+        System.arraycopy(lows, i, lows, i + 1, size - i);
+        System.arraycopy(highs, i, highs, i + 1, size - i);
+        lows[i] = lo;
+        highs[i] = hi;
+        size++;
+    }
+
+    private void remove(int from, int to) {
+        if (from < to) {
+            System.arraycopy(lows, to, lows, from, size - to);
+            System.arraycopy(highs, to, highs, from, size - to);
+            size -= to - from;
+        }
+    }
+
+    private static long toKey(BigInteger n) {
+        return n.longValue() ^ Long.MIN_VALUE;
+    }
+
+    private static BigInteger toMessageNumber(long key) {
+        long value = key ^ Long.MIN_VALUE;
+        BigInteger n = BigInteger.valueOf(value);
+        return value < 0 ? n.add(TWO_TO_THE_64) : n;
+    }
+}
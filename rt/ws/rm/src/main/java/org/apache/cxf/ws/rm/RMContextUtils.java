@@ -19,6 +19,7 @@
 
 package org.apache.cxf.ws.rm;
 
+import org.apache.cxf.Bus;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.ws.addressing.AddressingProperties;
@@ -44,6 +45,14 @@ public final class RMContextUtils {
         return org.apache.cxf.ws.addressing.ContextUtils.generateUUID();
     }
 
+    /**
+     * @param bus the bus, may be null
+     * @return a UUID generated by the bus IdGenerator, if any
+     */
+    public static String generateUUID(Bus bus) {
+        return org.apache.cxf.ws.addressing.ContextUtils.generateUUID(bus);
+    }
+
     /**
      * Determine if message is currently being processed on server side.
      * 
@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -36,6 +37,7 @@ import javax.xml.namespace.QName;
 import org.apache.cxf.Bus;
 import org.apache.cxf.binding.Binding;
 import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.HashedWheelTimer;
 import org.apache.cxf.endpoint.Client;
 import org.apache.cxf.endpoint.ClientLifeCycleListener;
 import org.apache.cxf.endpoint.ClientLifeCycleManager;
@@ -80,6 +82,7 @@ public class RMManager implements ServerLifeCycleListener, ClientLifeCycleListen
     private RetransmissionQueue retransmissionQueue;
     private Map<Endpoint, RMEndpoint> reliableEndpoints = new HashMap<Endpoint, RMEndpoint>();
     private AtomicReference<Timer> timer = new AtomicReference<Timer>();
+    private AtomicReference<HashedWheelTimer> resendTimer = new AtomicReference<HashedWheelTimer>();
     private RMAssertion rmAssertion;
     private DeliveryAssuranceType deliveryAssurance;
     private SourcePolicyType sourcePolicy;
@@ -172,6 +175,32 @@ public class RMManager implements ServerLifeCycleListener, ClientLifeCycleListen
         return getTimer(true);
     }
 
+    /**
+     * @param create whether to create and start the timer if there is none yet
+     * @return the resend timer, or null if there is none and create is false
+     */
+    public HashedWheelTimer getResendTimer(boolean create) {
+        HashedWheelTimer ret = resendTimer.get();
+        if (ret == null && create) {
+            HashedWheelTimer newt = new HashedWheelTimer("RMManager-ResendTimer-" 
+                                                         + System.identityHashCode(this),
+                                                         100, TimeUnit.MILLISECONDS, 512);
+            if (!resendTimer.compareAndSet(null, newt)) {
+                newt.stop();
+            }
+        }
+        return resendTimer.get();
+    }
+    
+    /**
+     * @return the timer on which the retransmission queue schedules resends. Unlike the
+     * timer returned by {@link #getTimer()} it is meant for large numbers of timeouts that
+     * are mostly cancelled, as resends are when acknowledgements arrive in time.
+     */
+    public HashedWheelTimer getResendTimer() {
+        return getResendTimer(true);
+    }
+
     public BindingFaultFactory getBindingFaultFactory(Binding binding) {
         return new SoapFaultFactory(binding);
     }
@@ -365,6 +394,13 @@ public class RMManager implements ServerLifeCycleListener, ClientLifeCycleListen
             t.purge();
             t.cancel();
         }
+        HashedWheelTimer rt = getResendTimer(false);
+        if (rt != null) {
+            rt.stop();
+        }
+        if (retransmissionQueue instanceof RetransmissionQueueImpl) {
+            ((RetransmissionQueueImpl)retransmissionQueue).shutdown();
+        }
     }
     
     synchronized void shutdownReliableEndpoint(Endpoint e) {
@@ -382,6 +418,9 @@ public class RMManager implements ServerLifeCycleListener, ClientLifeCycleListen
         if (t != null) {
             t.purge();
         }
+        if (retransmissionQueue instanceof RetransmissionQueueImpl) {
+            ((RetransmissionQueueImpl)retransmissionQueue).unregister(e);
+        }
         
         reliableEndpoints.remove(e);
     }
@@ -529,7 +568,7 @@ public class RMManager implements ServerLifeCycleListener, ClientLifeCycleListen
     class DefaultSequenceIdentifierGenerator implements SequenceIdentifierGenerator {
 
         public Identifier generateSequenceIdentifier() {
-            String sequenceID = RMContextUtils.generateUUID();
+            String sequenceID = RMContextUtils.generateUUID(bus);
             Identifier sid = RMUtils.getWSRMFactory().createIdentifier();
             sid.setValue(sequenceID);
             return sid;
@@ -222,7 +222,7 @@ public class SourceSequence extends AbstractSequence {
         return result;
     }
     
-    SequenceAcknowledgement getAcknowledgement() {
+    public SequenceAcknowledgement getAcknowledgement() {
         return acknowledgement;
     }
 
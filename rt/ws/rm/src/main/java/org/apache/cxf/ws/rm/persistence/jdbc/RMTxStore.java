@@ -37,12 +37,14 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
 
 import org.apache.cxf.common.i18n.Message;
 import org.apache.cxf.common.logging.LogUtils;
@@ -59,6 +61,19 @@ import org.apache.cxf.ws.rm.persistence.RMStore;
 import org.apache.cxf.ws.rm.persistence.RMStoreException;
 
 
+/**
+ * JDBC based RMStore.
+ * <p>
+ * By default every write is committed on its own. With a groupCommitSize greater than one the store
+ * runs in group commit mode: writes from concurrent sequences are executed on the shared connection as
+ * they come in, and committed together once groupCommitSize writes have accumulated or the oldest of
+ * them has waited groupCommitInterval milliseconds, whichever happens first. Each caller still only
+ * returns once the transaction holding its write has been committed, so a message that was
+ * acknowledged as persisted is as durable as without group commit; the cost is up to
+ * groupCommitInterval of added latency when there is little concurrency. As the writes of a group
+ * share one transaction, a failing statement or commit rolls back the whole group and all of its
+ * callers get an RMStoreException.
+ */
 public class RMTxStore implements RMStore {
     
     public static final String DEFAULT_DATABASE_NAME = "rmdb";
@@ -119,7 +134,12 @@ public class RMTxStore implements RMStore {
     private static final Logger LOG = LogUtils.getL7dLogger(RMTxStore.class);
     
     private Connection connection;
+    private DataSource dataSource;
     private Lock writeLock = new ReentrantLock();
+    private Condition groupCommitted = writeLock.newCondition();
+    private CommitGroup currentGroup = new CommitGroup();
+    private int groupCommitSize;
+    private long groupCommitInterval = 10;
 
     private PreparedStatement createDestSequenceStmt;
     private PreparedStatement createSrcSequenceStmt;
@@ -178,6 +198,40 @@ public class RMTxStore implements RMStore {
     public void setConnection(Connection c) {
         connection = c;
     }
+
+    /**
+     * Use the given DataSource, typically a pooling one, instead of the driver manager to obtain
+     * the connection.
+     */
+    public void setDataSource(DataSource ds) {
+        dataSource = ds;
+    }
+
+    DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @param size the number of writes committed together, 0 or 1 commits every write on its own
+     */
+    public void setGroupCommitSize(int size) {
+        groupCommitSize = size;
+    }
+
+    int getGroupCommitSize() {
+        return groupCommitSize;
+    }
+
+    /**
+     * @param interval the maximum time in milliseconds a write waits for its group to fill up
+     */
+    public void setGroupCommitInterval(long interval) {
+        groupCommitInterval = interval;
+    }
+
+    long getGroupCommitInterval() {
+        return groupCommitInterval;
+    }
     
     // RMStore interface  
     
@@ -431,12 +485,12 @@ public class RMTxStore implements RMStore {
                 }
             }
 
-            stmt.setString(1, sid.getValue());
-                        
             for (BigInteger messageNr : messageNrs) {
+                stmt.setString(1, sid.getValue());
                 stmt.setBigDecimal(2, new BigDecimal(messageNr));
-                stmt.execute();
+                stmt.addBatch();
             }
+            stmt.executeBatch();
             
             commit();
             
@@ -456,7 +510,11 @@ public class RMTxStore implements RMStore {
     
     protected void commit() throws SQLException {
         try {
-            connection.commit();
+            if (groupCommitSize > 1) {
+                groupCommit();
+            } else {
+                connection.commit();
+            }
         } finally {
             writeLock.unlock();
         }
@@ -468,9 +526,78 @@ public class RMTxStore implements RMStore {
         } catch (SQLException ex) {
             LogUtils.log(LOG, Level.SEVERE, "ABORT_FAILED_MSG", ex);
         } finally {
+            if (groupCommitSize > 1 && currentGroup.size > 0) {
+                // the rollback has discarded the uncommitted writes of the other group members too
+                completeGroup(new SQLException("Group commit aborted"));
+            }
             writeLock.unlock();
         }
     }
+
+    /**
+     * Adds the caller's writes to the current group and waits until the group has been committed,
+     * committing it itself if the group is full or the oldest member has waited long enough.
+     * Must be called holding the write lock.
+     */
+    private void groupCommit() {
+        CommitGroup group = currentGroup;
+        if (group.size++ == 0) {
+            group.deadline = System.nanoTime() + groupCommitInterval * 1000000L;
+        }
+        if (group.size >= groupCommitSize) {
+            completeGroup(null);
+        }
+        while (!group.done) {
+            long remaining = group.deadline - System.nanoTime();
+            if (remaining <= 0) {
+                completeGroup(null);
+                break;
+            }
+            try {
+                groupCommitted.awaitNanos(remaining);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                completeGroup(null);
+            }
+        }
+        if (group.failure != null) {
+            throw new RMStoreException(group.failure);
+        }
+    }
+
+    private void completeGroup(SQLException failure) {
+        CommitGroup group = currentGroup;
+        group.failure = failure;
+        if (failure == null) {
+            try {
+                connection.commit();
+            } catch (SQLException ex) {
+                group.failure = ex;
+                try {
+                    connection.rollback();
+                } catch (SQLException ex2) {
+                    LogUtils.log(LOG, Level.SEVERE, "ABORT_FAILED_MSG", ex2);
+                }
+            }
+        }
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("Completed commit group of " + group.size + " writes"
+                     + (group.failure == null ? "" : ", failed: " + group.failure));
+        }
+        group.done = true;
+        currentGroup = new CommitGroup();
+        groupCommitted.signalAll();
+    }
+
+    /**
+     * The writes that are committed together in group commit mode, guarded by the write lock.
+     */
+    private static class CommitGroup {
+        int size;
+        long deadline;
+        boolean done;
+        SQLException failure;
+    }
     
     // helpers
     
@@ -580,7 +707,14 @@ public class RMTxStore implements RMStore {
     @PostConstruct     
     synchronized void init() {
         
-        if (null == connection) {
+        if (null == connection && null != dataSource) {
+            try {
+                connection = dataSource.getConnection();
+            } catch (SQLException ex) {
+                LogUtils.log(LOG, Level.SEVERE, "CONNECT_EXC", ex);
+                return;
+            }
+        } else if (null == connection) {
             LOG.log(Level.FINE, "Using derby.system.home: {0}", System.getProperty("derby.system.home"));
             assert null != url;
             assert null != driverClassName;
@@ -22,6 +22,7 @@ package org.apache.cxf.ws.rm.soap;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
@@ -36,6 +37,8 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 import javax.xml.namespace.QName;
 import javax.xml.soap.SOAPException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
@@ -45,11 +48,14 @@ import org.w3c.dom.Node;
 import org.apache.cxf.binding.Binding;
 import org.apache.cxf.binding.soap.Soap11;
 import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.SoapVersion;
 import org.apache.cxf.binding.soap.interceptor.AbstractSoapInterceptor;
+import org.apache.cxf.binding.soap.interceptor.StreamingHeaderInterceptor;
 import org.apache.cxf.common.logging.LogUtils;
 import org.apache.cxf.common.util.PackageUtils;
+import org.apache.cxf.databinding.DataBinding;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.headers.Header;
 import org.apache.cxf.helpers.DOMUtils;
@@ -58,6 +64,7 @@ import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.interceptor.Interceptor;
 import org.apache.cxf.interceptor.InterceptorChain;
 import org.apache.cxf.interceptor.WrappedInInterceptor;
+import org.apache.cxf.jaxb.JAXBDataBinding;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageUtils;
@@ -89,13 +96,20 @@ import org.apache.cxf.ws.rm.SequenceType;
  * Protocol Handler responsible for {en|de}coding the RM 
  * Properties for {outgo|incom}ing messages.
  */
-public class RMSoapInterceptor extends AbstractSoapInterceptor {
+public class RMSoapInterceptor extends AbstractSoapInterceptor implements StreamingHeaderInterceptor {
 
     protected static JAXBContext jaxbContext;
 
     private static final Logger LOG = LogUtils.getL7dLogger(RMSoapInterceptor.class);
     private static final String WS_RM_PACKAGE = 
         PackageUtils.getPackageName(SequenceType.class);
+    private static final Set<QName> DECODED_HEADERS = new HashSet<QName>();
+    static {
+        DECODED_HEADERS.add(RMConstants.getSequenceQName());
+        DECODED_HEADERS.add(RMConstants.getSequenceAckQName());
+        DECODED_HEADERS.add(RMConstants.getAckRequestedQName());
+    }
+    private static DataBinding dataBinding;
     
     /**
      * Constructor.
@@ -114,6 +128,38 @@ public class RMSoapInterceptor extends AbstractSoapInterceptor {
     public Set<QName> getUnderstoodHeaders() {
         return RMConstants.getHeaders();
     }
+
+    /**
+     * @return the Sequence, SequenceAcknowledgement and AckRequested headers
+     */
+    public Set<QName> getDecodedHeaders() {
+        return DECODED_HEADERS;
+    }
+
+    /**
+     * Unmarshal the Sequence, SequenceAcknowledgement and AckRequested headers
+     * while the SOAP header is read.
+     */
+    public SoapHeader decodeHeader(QName name, XMLStreamReader reader) throws XMLStreamException {
+        Class<?> clz;
+        String localName = name.getLocalPart();
+        if (RMConstants.getSequenceName().equals(localName)) {
+            clz = SequenceType.class;
+        } else if (RMConstants.getSequenceAckName().equals(localName)) {
+            clz = SequenceAcknowledgement.class;
+        } else {
+            clz = AckRequestedType.class;
+        }
+        try {
+            Object value = getJAXBContext().createUnmarshaller().unmarshal(reader, clz).getValue();
+            return new SoapHeader(name, value, getDataBinding());
+        } catch (JAXBException ex) {
+            LOG.log(Level.WARNING, "SOAP_HEADER_DECODE_FAILURE_MSG", ex);
+            XMLStreamException xse = new XMLStreamException(ex.getMessage());
+            xse.initCause(ex);
+            throw xse;
+        }
+    }
     
     // Interceptor interface
 
@@ -315,7 +361,13 @@ public class RMSoapInterceptor extends AbstractSoapInterceptor {
                 Iterator<Header> iter = header.iterator();
                 while (iter.hasNext()) {
                     Object node = iter.next().getObject();
-                    if (node instanceof Element) {
+                    if (node instanceof SequenceType) {
+                        rmps.setSequence((SequenceType)node);
+                    } else if (node instanceof SequenceAcknowledgement) {
+                        acks.add((SequenceAcknowledgement)node);
+                    } else if (node instanceof AckRequestedType) {
+                        requested.add((AckRequestedType)node);
+                    } else if (node instanceof Element) {
                         Element elem = (Element) node;
                         if (Node.ELEMENT_NODE != elem.getNodeType()) {
                             continue;
@@ -371,6 +423,13 @@ public class RMSoapInterceptor extends AbstractSoapInterceptor {
         return jaxbContext;
     }
     
+    private static synchronized DataBinding getDataBinding() throws JAXBException {
+        if (dataBinding == null) {
+            dataBinding = new JAXBDataBinding(getJAXBContext());
+        }
+        return dataBinding;
+    }
+
     /**
      * Encodes an RM property as a SOAP header.
      *
@@ -26,22 +26,32 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TimerTask;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+
+import org.apache.cxf.Bus;
 import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.HashedWheelTimer;
 import org.apache.cxf.endpoint.ConduitSelector;
 import org.apache.cxf.endpoint.DeferredConduitSelector;
 import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.helpers.IOUtils;
 import org.apache.cxf.io.CachedOutputStream;
 import org.apache.cxf.io.CachedOutputStreamCallback;
+import org.apache.cxf.management.InstrumentationManager;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageUtils;
 import org.apache.cxf.service.model.EndpointInfo;
@@ -59,6 +69,8 @@ import org.apache.cxf.ws.rm.RMProperties;
 import org.apache.cxf.ws.rm.RMUtils;
 import org.apache.cxf.ws.rm.RetransmissionCallback;
 import org.apache.cxf.ws.rm.RetransmissionQueue;
+import org.apache.cxf.ws.rm.SequenceAcknowledgement;
+import org.apache.cxf.ws.rm.SequenceAcknowledgement.AcknowledgementRange;
 import org.apache.cxf.ws.rm.SequenceType;
 import org.apache.cxf.ws.rm.SourceSequence;
 import org.apache.cxf.ws.rm.persistence.RMStore;
@@ -66,13 +78,26 @@ import org.apache.cxf.ws.rm.policy.PolicyUtils;
 import org.apache.cxf.ws.rm.policy.RMAssertion;
 
 /**
+ * Keeps unacknowledged messages for resending until they are acknowledged.
  * 
+ * The candidates of each sequence are kept in their own list, in message number order, and
+ * guarded by the list itself rather than by the queue, so that sequences do not contend with
+ * each other. Resends are scheduled on the {@link RMManager#getResendTimer() resend timer} of the
+ * manager, and resends that fall due together on the executor of their endpoint are taken
+ * from a shared queue by a few tasks rather than by one task each.
  */
 public class RetransmissionQueueImpl implements RetransmissionQueue {
 
     private static final Logger LOG = LogUtils.getL7dLogger(RetransmissionQueueImpl.class);
-
-    private Map<String, List<ResendCandidate>> candidates = new HashMap<String, List<ResendCandidate>>();
+    private static final int MAX_RESEND_WORKERS = 4;
+
+    private ConcurrentMap<String, List<ResendCandidate>> candidates = 
+        new ConcurrentHashMap<String, List<ResendCandidate>>();
+    private ConcurrentMap<Executor, ResendBatch> batches = new ConcurrentHashMap<Executor, ResendBatch>();
+    private ConcurrentMap<Endpoint, RetransmissionQueueImplMBeanWrapper> mbeans =
+        new ConcurrentHashMap<Endpoint, RetransmissionQueueImplMBeanWrapper>();
+    private AtomicInteger dueCount = new AtomicInteger();
+    private AtomicLong resendCount = new AtomicLong();
     private Resender resender;
     private RMManager manager;
 
@@ -90,15 +115,63 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
 
     public void addUnacknowledged(Message message) {
         cacheUnacknowledged(message);
+        register(message.getExchange() == null ? null : message.getExchange().get(Endpoint.class));
     }
 
     /**
      * @param seq the sequence under consideration
      * @return the number of unacknowledged messages for that sequence
      */
-    public synchronized int countUnacknowledged(SourceSequence seq) {
+    public int countUnacknowledged(SourceSequence seq) {
         List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
-        return sequenceCandidates == null ? 0 : sequenceCandidates.size();
+        if (null == sequenceCandidates) {
+            return 0;
+        }
+        synchronized (sequenceCandidates) {
+            return sequenceCandidates.size();
+        }
+    }
+    
+    /**
+     * @return the number of unacknowledged messages over all sequences
+     */
+    public int countUnacknowledged() {
+        int count = 0;
+        for (List<ResendCandidate> sequenceCandidates : candidates.values()) {
+            synchronized (sequenceCandidates) {
+                count += sequenceCandidates.size();
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * @return the number of sequences with unacknowledged messages
+     */
+    public int countSequences() {
+        return candidates.size();
+    }
+    
+    /**
+     * @return the number of resends scheduled on the resend timer of the manager
+     */
+    public int countScheduled() {
+        HashedWheelTimer timer = manager.getResendTimer(false);
+        return null == timer ? 0 : timer.getPendingCount();
+    }
+    
+    /**
+     * @return the number of resends that are due and wait for a thread of their executor
+     */
+    public int countDue() {
+        return dueCount.get();
+    }
+    
+    /**
+     * @return the number of resends attempted so far
+     */
+    public long getResendCount() {
+        return resendCount.get();
     }
 
     /**
@@ -115,25 +188,30 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
      */
     public void purgeAcknowledged(SourceSequence seq) {
         Collection<BigInteger> purged = new ArrayList<BigInteger>();
-        synchronized (this) {
+        List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
+        if (null == sequenceCandidates) {
+            return;
+        }
+        synchronized (sequenceCandidates) {
             LOG.fine("Start purging resend candidates.");
-            List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
-            if (null != sequenceCandidates) {
+            SequenceAcknowledgement ack = seq.getAcknowledgement();
+            if (null != ack) {
+                for (AcknowledgementRange r : ack.getAcknowledgementRange()) {
+                    purgeRange(sequenceCandidates, r.getLower(), r.getUpper(), purged);
+                }
+            } else {
                 for (int i = sequenceCandidates.size() - 1; i >= 0; i--) {
                     ResendCandidate candidate = sequenceCandidates.get(i);
-                    RMProperties properties = RMContextUtils.retrieveRMProperties(candidate.getMessage(),
-                                                                                  true);
-                    SequenceType st = properties.getSequence();
-                    BigInteger m = st.getMessageNumber();
+                    BigInteger m = candidate.getMessageNumber();
                     if (seq.isAcknowledged(m)) {
                         sequenceCandidates.remove(i);
                         candidate.resolved();
                         purged.add(m);
                     }
                 }
-                if (sequenceCandidates.isEmpty()) {
-                    candidates.remove(seq.getIdentifier().getValue());
-                }
+            }
+            if (sequenceCandidates.isEmpty()) {
+                candidates.remove(seq.getIdentifier().getValue(), sequenceCandidates);
             }
             LOG.fine("Completed purging resend candidates.");
         }
@@ -144,6 +222,48 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
             }
         }
     }
+    
+    /**
+     * Removes the candidates with message numbers from lower to upper from a list in message
+     * number order.
+     * @pre called with the lock of the list held
+     */
+    private static void purgeRange(List<ResendCandidate> sequenceCandidates, 
+                                   BigInteger lower, BigInteger upper,
+                                   Collection<BigInteger> purged) {
+        int from = indexOf(sequenceCandidates, lower);
+        int to = indexOf(sequenceCandidates, upper.add(BigInteger.ONE));
+        if (from < to) {
+            List<ResendCandidate> acknowledged = sequenceCandidates.subList(from, to);
+            for (ResendCandidate candidate : acknowledged) {
+                candidate.resolved();
+                purged.add(candidate.getMessageNumber());
+            }
+            acknowledged.clear();
+        }
+    }
+    
+    /**
+     * @return the position of the first candidate in a list in message number order whose 
+     * message number is not less than m
+     */
+    private static int indexOf(List<ResendCandidate> sequenceCandidates, BigInteger m) {
+        int low = 0;
+        int high = sequenceCandidates.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(sequenceCandidates.get(mid).getMessageNumber(), m) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    private static int compare(BigInteger m1, BigInteger m2) {
+        return (null == m1 ? BigInteger.ZERO : m1).compareTo(null == m2 ? BigInteger.ZERO : m2);
+    }
 
     /**
      * Initiate resends.
@@ -163,9 +283,9 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
      * Stops resending messages for the specified source sequence.
      */
     public void stop(SourceSequence seq) {
-        synchronized (this) {
-            List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
-            if (null != sequenceCandidates) {
+        List<ResendCandidate> sequenceCandidates = getSequenceCandidates(seq);
+        if (null != sequenceCandidates) {
+            synchronized (sequenceCandidates) {
                 for (int i = sequenceCandidates.size() - 1; i >= 0; i--) {
                     ResendCandidate candidate = sequenceCandidates.get(i);
                     candidate.cancel();
@@ -175,8 +295,57 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         }
     }
     
-    void stop() {
-        
+    /**
+     * Unregisters the MBeans of the queue, when the manager shuts down.
+     */
+    public void shutdown() {
+        for (Endpoint endpoint : mbeans.keySet()) {
+            unregister(endpoint);
+        }
+    }
+
+    /**
+     * Registers the MBean of the queue for an endpoint, the first time the endpoint hands the
+     * queue a message. The queue is shared by the reliable endpoints of the manager, so each
+     * of them gets an MBean named after it.
+     */
+    private void register(Endpoint endpoint) {
+        if (null == endpoint || null == endpoint.getEndpointInfo() || mbeans.containsKey(endpoint)) {
+            return;
+        }
+        InstrumentationManager im = getInstrumentationManager();
+        if (null == im) {
+            return;
+        }
+        RetransmissionQueueImplMBeanWrapper mbean =
+            new RetransmissionQueueImplMBeanWrapper(this, manager.getBus().getId(), endpoint);
+        if (null == mbeans.putIfAbsent(endpoint, mbean)) {
+            try {
+                im.register(mbean);
+            } catch (JMException jmex) {
+                LOG.log(Level.WARNING, jmex.getMessage(), jmex);
+            }
+        }
+    }
+
+    /**
+     * Unregisters the MBean of the queue for an endpoint that is shut down.
+     */
+    public void unregister(Endpoint endpoint) {
+        RetransmissionQueueImplMBeanWrapper mbean = mbeans.remove(endpoint);
+        InstrumentationManager im = getInstrumentationManager();
+        if (null != mbean && null != im) {
+            try {
+                im.unregister(mbean);
+            } catch (JMException jmex) {
+                LOG.log(Level.WARNING, jmex.getMessage(), jmex);
+            }
+        }
+    }
+
+    private InstrumentationManager getInstrumentationManager() {
+        Bus bus = null == manager ? null : manager.getBus();
+        return null == bus ? null : bus.getExtension(InstrumentationManager.class);
     }
 
     /**
@@ -206,20 +375,42 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         Identifier sid = st.getIdentifier();
         String key = sid.getValue();
         
-        ResendCandidate candidate = null;
+        ResendCandidate candidate = new ResendCandidate(message, st.getMessageNumber());
         
-        synchronized (this) {
+        while (true) {
             List<ResendCandidate> sequenceCandidates = getSequenceCandidates(key);
             if (null == sequenceCandidates) {
                 sequenceCandidates = new ArrayList<ResendCandidate>();
-                candidates.put(key, sequenceCandidates);
+                List<ResendCandidate> existing = candidates.putIfAbsent(key, sequenceCandidates);
+                if (null != existing) {
+                    sequenceCandidates = existing;
+                }
+            }
+            synchronized (sequenceCandidates) {
+                // the list may have been emptied and dropped by a purge in the meantime
+                if (sequenceCandidates == getSequenceCandidates(key)) {
+                    insert(sequenceCandidates, candidate);
+                    break;
+                }
             }
-            candidate = new ResendCandidate(message);
-            sequenceCandidates.add(candidate);
         }
         LOG.fine("Cached unacknowledged message.");
         return candidate;
     }
+    
+    /**
+     * Inserts a candidate into a list in message number order. Messages are usually cached in 
+     * the order of their numbers, so the search starts from the end.
+     * @pre called with the lock of the list held
+     */
+    private static void insert(List<ResendCandidate> sequenceCandidates, ResendCandidate candidate) {
+        BigInteger m = candidate.getMessageNumber();
+        int i = sequenceCandidates.size();
+        while (i > 0 && compare(sequenceCandidates.get(i - 1).getMessageNumber(), m) > 0) {
+            i--;
+        }
+        sequenceCandidates.add(i, candidate);
+    }
 
     /**
      * @return a map relating sequence ID to a lists of un-acknowledged messages
@@ -231,8 +422,8 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
 
     /**
      * @param seq the sequence under consideration
-     * @return the list of resend candidates for that sequence
-     * @pre called with mutex held
+     * @return the list of resend candidates for that sequence, to be accessed with the lock
+     *         of the list held
      */
     protected List<ResendCandidate> getSequenceCandidates(SourceSequence seq) {
         return getSequenceCandidates(seq.getIdentifier().getValue());
@@ -240,8 +431,8 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
 
     /**
      * @param key the sequence identifier under consideration
-     * @return the list of resend candidates for that sequence
-     * @pre called with mutex held
+     * @return the list of resend candidates for that sequence, to be accessed with the lock
+     *         of the list held
      */
     protected List<ResendCandidate> getSequenceCandidates(String key) {
         return candidates.get(key);
@@ -358,8 +549,10 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
      */
     protected class ResendCandidate implements Runnable {
         private Message message;
+        private BigInteger messageNumber;
+        private boolean numbered;
         private Date next;
-        private TimerTask nextTask;
+        private HashedWheelTimer.Timeout nextTask;
         private int resends;
         private long nextInterval;
         private long backoff;
@@ -370,7 +563,18 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
          * @param ctx message context for the unacked message
          */
         protected ResendCandidate(Message m) {
+            this(m, null);
+            numbered = false;
+        }
+        
+        /**
+         * @param ctx message context for the unacked message
+         * @param number the message number of the unacked message
+         */
+        protected ResendCandidate(Message m, BigInteger number) {
             message = m;
+            messageNumber = number;
+            numbered = true;
             resends = 0;
             RMAssertion rma = PolicyUtils.getRMAssertion(manager.getRMAssertion(), message);
             long baseRetransmissionInterval = 
@@ -379,7 +583,7 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
                 ? RetransmissionQueue.DEFAULT_EXPONENTIAL_BACKOFF : 1;
             next = new Date(System.currentTimeMillis() + baseRetransmissionInterval);
             nextInterval = baseRetransmissionInterval * backoff;
-            if (null != manager.getTimer()) {
+            if (null != manager.getResendTimer()) {
                 schedule();
             }
         }
@@ -402,11 +606,7 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
                 LOG.log(Level.FINE, "Using endpoint executor {0}", executor.getClass().getName());
             }
             
-            try {
-                executor.execute(this);
-            } catch (RejectedExecutionException ex) {
-                LOG.log(Level.SEVERE, "RESEND_INITIATION_FAILED_MSG", ex);
-            }
+            dispatch(this, executor);
         }
 
         public void run() {
@@ -414,6 +614,7 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
                 // ensure ACK wasn't received while this task was enqueued
                 // on executor
                 if (isPending()) {
+                    resendCount.incrementAndGet();
                     resender.resend(message, includeAckRequested);
                     includeAckRequested = false;
                 }
@@ -429,6 +630,18 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
             return resends;
         }
 
+        /**
+         * @return the message number of the unacked message
+         */
+        protected synchronized BigInteger getMessageNumber() {
+            if (!numbered) {
+                RMProperties properties = RMContextUtils.retrieveRMProperties(message, true);
+                messageNumber = properties.getSequence().getMessageNumber();
+                numbered = true;
+            }
+            return messageNumber;
+        }
+
         /**
          * @return date of next resend
          */
@@ -484,28 +697,163 @@ public class RetransmissionQueueImpl implements RetransmissionQueue {
         }
 
         protected final synchronized void schedule() {
-            if (null == manager.getTimer()) {
+            HashedWheelTimer timer = manager.getResendTimer();
+            if (null == timer) {
                 return;
             }
-            class ResendTask extends TimerTask {
-                ResendCandidate candidate;
+            Runnable task = new Runnable() {
+                public void run() {
+                    if (!isPending()) {
+                        initiate(includeAckRequested);
+                    }
+                }
+            };
+            long delay = Math.max(0, next.getTime() - System.currentTimeMillis());
+            try {
+                nextTask = timer.newTimeout(task, delay, TimeUnit.MILLISECONDS);
+            } catch (IllegalStateException ex) {
+                LOG.log(Level.WARNING, "SCHEDULE_RESEND_FAILED_MSG", ex);
+            }
+        }
+    }
+    
+    /**
+     * Hands a due resend to the executor of its endpoint. Resends that fall due while a task
+     * for the same executor is waiting to start, or still taking resends, are left to that task.
+     */
+    void dispatch(ResendCandidate candidate, Executor executor) {
+        while (true) {
+            ResendBatch batch = batches.get(executor);
+            if (null == batch) {
+                batch = new ResendBatch(executor);
+                ResendBatch existing = batches.putIfAbsent(executor, batch);
+                if (null != existing) {
+                    batch = existing;
+                }
+            }
+            if (batch.add(candidate)) {
+                return;
+            }
+            // the batch drained and is being dropped, make sure it is gone before starting another
+            batches.remove(executor, batch);
+        }
+    }
 
-                ResendTask(ResendCandidate c) {
-                    candidate = c;
+    /**
+     * @return the number of executors that have resends in hand
+     */
+    int countBatches() {
+        return batches.size();
+    }
+
+    /**
+     * The resends that are due on one executor. They are taken off the queue by tasks on the
+     * executor; another task is only started when every task already started is busy with a
+     * resend, up to MAX_RESEND_WORKERS, so that one slow endpoint does not hold up the resends
+     * of the others sharing the executor. Once the last task finds the queue empty the batch
+     * is dropped, the next resend due on the executor starts a new one.
+     */
+    private final class ResendBatch implements Runnable {
+        private final Executor executor;
+        private final Queue<ResendCandidate> due = new ConcurrentLinkedQueue<ResendCandidate>();
+        // tasks handed to the executor, and how many of them are not busy with a resend
+        private int workers;
+        private int idle;
+        private boolean dropped;
+
+        ResendBatch(Executor e) {
+            executor = e;
+        }
+
+        /**
+         * @return false if the batch has been dropped, the candidate was not added
+         */
+        boolean add(ResendCandidate candidate) {
+            synchronized (this) {
+                if (dropped) {
+                    return false;
                 }
+                due.add(candidate);
+            }
+            dueCount.incrementAndGet();
+            startWorker();
+            return true;
+        }
 
-                @Override
-                public void run() {
-                    if (!candidate.isPending()) {
-                        candidate.initiate(includeAckRequested);
+        public void run() {
+            ResendCandidate candidate = due.poll();
+            while (null != candidate) {
+                dueCount.decrementAndGet();
+                synchronized (this) {
+                    idle--;
+                }
+                if (!due.isEmpty()) {
+                    startWorker();
+                }
+                try {
+                    candidate.run();
+                } catch (RuntimeException ex) {
+                    LOG.log(Level.WARNING, "RESEND_FAILED_MSG", ex);
+                } finally {
+                    synchronized (this) {
+                        idle++;
                     }
                 }
+                candidate = due.poll();
+            }
+            synchronized (this) {
+                workers--;
+                idle--;
+            }
+            // a resend that fell due after the last poll may have counted on this task
+            if (!due.isEmpty()) {
+                startWorker();
+            } else {
+                dropIfDone();
+            }
+        }
+
+        /**
+         * Drops the batch if no task is left and nothing is due, before anything else is added.
+         */
+        private void dropIfDone() {
+            synchronized (this) {
+                if (dropped || 0 != workers || !due.isEmpty()) {
+                    return;
+                }
+                dropped = true;
+            }
+            batches.remove(executor, this);
+        }
+
+        private void startWorker() {
+            synchronized (this) {
+                if (idle > 0 || workers >= MAX_RESEND_WORKERS) {
+                    return;
+                }
+                workers++;
+                idle++;
             }
-            nextTask = new ResendTask(this);
             try {
-                manager.getTimer().schedule(nextTask, next);
-            } catch (IllegalStateException ex) {
-                LOG.log(Level.WARNING, "SCHEDULE_RESEND_FAILED_MSG", ex);
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                LOG.log(Level.SEVERE, "RESEND_INITIATION_FAILED_MSG", ex);
+                boolean none;
+                synchronized (this) {
+                    workers--;
+                    idle--;
+                    none = 0 == workers;
+                }
+                if (none) {
+                    // nobody is left to take them, try again at their next resend interval
+                    ResendCandidate candidate = due.poll();
+                    while (null != candidate) {
+                        dueCount.decrementAndGet();
+                        candidate.attempted();
+                        candidate = due.poll();
+                    }
+                    dropIfDone();
+                }
             }
         }
     }
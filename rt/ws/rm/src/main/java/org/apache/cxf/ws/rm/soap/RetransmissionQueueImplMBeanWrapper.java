@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm.soap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.management.ManagedComponent;
+import org.apache.cxf.management.ManagementConstants;
+import org.apache.cxf.management.annotation.ManagedAttribute;
+import org.apache.cxf.management.annotation.ManagedResource;
+
+/**
+ * The retransmission queue is shared by the reliable endpoints of a manager, the one registered
+ * for each endpoint reports on the whole queue.
+ */
+@ManagedResource(componentName = "RetransmissionQueue", 
+                 description = "The WS-RM retransmission queue", 
+                 currencyTimeLimit = 15, persistPolicy = "OnUpdate", persistPeriod = 200)
+                 
+public class RetransmissionQueueImplMBeanWrapper implements ManagedComponent {
+    private static final String TYPE_VALUE = "WSRM";
+    private static final String NAME_VALUE = "RetransmissionQueue";
+
+    private final RetransmissionQueueImpl queue;
+    private final String busId;
+    private final Endpoint endpoint;
+
+    public RetransmissionQueueImplMBeanWrapper(RetransmissionQueueImpl queue, String busId,
+                                               Endpoint endpoint) {
+        this.queue = queue;
+        this.busId = busId;
+        this.endpoint = endpoint;
+    }
+
+    @ManagedAttribute(description = "Messages waiting for an acknowledgement")
+    public int getUnacknowledgedCount() {
+        return queue.countUnacknowledged();
+    }
+
+    @ManagedAttribute(description = "Sequences with messages waiting for an acknowledgement")
+    public int getSequenceCount() {
+        return queue.countSequences();
+    }
+
+    @ManagedAttribute(description = "Resends scheduled on the resend timer")
+    public int getScheduledCount() {
+        return queue.countScheduled();
+    }
+
+    @ManagedAttribute(description = "Resends that are due and wait for a thread")
+    public int getDueCount() {
+        return queue.countDue();
+    }
+
+    @ManagedAttribute(description = "Resends attempted")
+    public long getResendCount() {
+        return queue.getResendCount();
+    }
+
+    public ObjectName getObjectName() throws JMException {
+        StringBuffer buffer = new StringBuffer();
+        buffer.append(ManagementConstants.DEFAULT_DOMAIN_NAME + ":");
+        buffer.append(ManagementConstants.BUS_ID_PROP + "=" + busId + ",");
+        buffer.append(ManagementConstants.TYPE_PROP + "=" + TYPE_VALUE + ",");
+        buffer.append(ManagementConstants.NAME_PROP + "=" + NAME_VALUE + ",");
+        String serviceName = ObjectName.quote(endpoint.getEndpointInfo().getService().getName().toString());
+        buffer.append(ManagementConstants.SERVICE_NAME_PROP + "=" + serviceName + ",");
+        String endpointName = ObjectName.quote(endpoint.getEndpointInfo().getName().getLocalPart());
+        buffer.append(ManagementConstants.PORT_NAME_PROP + "=" + endpointName);
+        return new ObjectName(buffer.toString());
+    }
+}
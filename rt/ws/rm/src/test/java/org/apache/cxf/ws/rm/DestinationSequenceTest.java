@@ -149,12 +149,14 @@ public class DestinationSequenceTest extends Assert {
         assertEquals(0, ranges.size());
         
         seq.acknowledge(message1);        
+        ranges = seq.getAcknowledgment().getAcknowledgementRange();
         assertEquals(1, ranges.size());
         AcknowledgementRange r1 = ranges.get(0);
         assertEquals(1, r1.getLower().intValue());
         assertEquals(1, r1.getUpper().intValue());
         
         seq.acknowledge(message2);
+        ranges = seq.getAcknowledgment().getAcknowledgementRange();
         assertEquals(1, ranges.size());
         r1 = ranges.get(0);
         assertEquals(1, r1.getLower().intValue());
@@ -198,10 +200,10 @@ public class DestinationSequenceTest extends Assert {
         control.replay();
         
         DestinationSequence seq = new DestinationSequence(id, ref, destination);
-        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
         for (int i = 0; i < messages.length; i++) {
             seq.acknowledge(messages[i]);
         }
+        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
         assertEquals(2, ranges.size());
         AcknowledgementRange r = ranges.get(0);
         assertEquals(1, r.getLower().intValue());
@@ -228,10 +230,10 @@ public class DestinationSequenceTest extends Assert {
         control.replay();
         
         DestinationSequence seq = new DestinationSequence(id, ref, destination);
-        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
         for (int i = 0; i < messages.length; i++) {
             seq.acknowledge(messages[i]);
         }
+        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
         
         assertEquals(3, ranges.size());
         AcknowledgementRange r = ranges.get(0);
@@ -261,10 +263,10 @@ public class DestinationSequenceTest extends Assert {
         control.replay();
         
         DestinationSequence seq = new DestinationSequence(id, ref, destination);
-        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
         for (int i = 0; i < messages.length; i++) {
             seq.acknowledge(messages[i]);
         }
+        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
         assertEquals(2, ranges.size());
         AcknowledgementRange r = ranges.get(0);
         assertEquals(2, r.getLower().intValue());
@@ -278,8 +280,8 @@ public class DestinationSequenceTest extends Assert {
     
     @Test
     public void testMerge() {
-        DestinationSequence seq = new DestinationSequence(id, ref, destination);
-        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
+        SequenceAcknowledgement ack = factory.createSequenceAcknowledgement();
+        List<AcknowledgementRange> ranges = ack.getAcknowledgementRange();
         AcknowledgementRange r;
         for (int i = 0; i < 5; i++) {
             r = new AcknowledgementRange();
@@ -287,22 +289,27 @@ public class DestinationSequenceTest extends Assert {
             r.setUpper(new BigInteger(Integer.toString(3 * i + 3)));
             ranges.add(r);
         }
-        seq.mergeRanges();
+        DestinationSequence seq = new DestinationSequence(id, ref, null, ack);
+        ranges = seq.getAcknowledgment().getAcknowledgementRange();
         assertEquals(1, ranges.size());
         r = ranges.get(0);
         assertEquals(BigInteger.ONE, r.getLower());
         assertEquals(new BigInteger("15"), r.getUpper());
-        ranges.clear();
+        
+        ack = factory.createSequenceAcknowledgement();
+        ranges = ack.getAcknowledgementRange();
         for (int i = 0; i < 5; i++) {
             r = new AcknowledgementRange();
             r.setLower(new BigInteger(Integer.toString(3 * i + 1)));
             r.setUpper(new BigInteger(Integer.toString(3 * i + 2)));
             ranges.add(r);
         }
-        seq.mergeRanges();
-        assertEquals(5, ranges.size());
-        ranges.clear();
-        for (int i = 0; i < 5; i++) {
+        seq = new DestinationSequence(id, ref, null, ack);
+        assertEquals(5, seq.getAcknowledgment().getAcknowledgementRange().size());
+        
+        ack = factory.createSequenceAcknowledgement();
+        ranges = ack.getAcknowledgementRange();
+        for (int i = 4; i >= 0; i--) {
             if (i != 2) {
                 r = new AcknowledgementRange();
                 r.setLower(new BigInteger(Integer.toString(3 * i + 1)));
@@ -310,7 +317,8 @@ public class DestinationSequenceTest extends Assert {
                 ranges.add(r);
             }
         }
-        seq.mergeRanges();
+        seq = new DestinationSequence(id, ref, null, ack);
+        ranges = seq.getAcknowledgment().getAcknowledgementRange();
         assertEquals(2, ranges.size());
         r = ranges.get(0);
         assertEquals(BigInteger.ONE, r.getLower());
@@ -443,10 +451,7 @@ public class DestinationSequenceTest extends Assert {
         setUpDestination();
         
         BigInteger mn = BigInteger.TEN;        
-        SequenceAcknowledgement ack = control.createMock(SequenceAcknowledgement.class);
-        List<AcknowledgementRange> ranges = new ArrayList<AcknowledgementRange>();
-        AcknowledgementRange r = control.createMock(AcknowledgementRange.class);
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges);
+        SequenceAcknowledgement ack = factory.createSequenceAcknowledgement();
         DeliveryAssuranceType da = control.createMock(DeliveryAssuranceType.class);
         EasyMock.expect(manager.getDeliveryAssurance()).andReturn(da);
         EasyMock.expect(da.isSetAtMostOnce()).andReturn(true);                    
@@ -458,13 +463,12 @@ public class DestinationSequenceTest extends Assert {
         control.verify();
         
         control.reset();
-        ranges.add(r);
+        ack.getAcknowledgementRange().add(createRange(5, 15));
+        ds = new DestinationSequence(id, ref, null, ack);
+        ds.setDestination(destination);
         EasyMock.expect(destination.getManager()).andReturn(manager);
         EasyMock.expect(manager.getDeliveryAssurance()).andReturn(da);
         EasyMock.expect(da.isSetAtMostOnce()).andReturn(true);            
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges);
-        EasyMock.expect(r.getLower()).andReturn(new BigInteger("5"));
-        EasyMock.expect(r.getUpper()).andReturn(new BigInteger("15"));
         control.replay();     
         try {
             ds.applyDeliveryAssurance(mn);
@@ -489,13 +493,8 @@ public class DestinationSequenceTest extends Assert {
         EasyMock.expect(da.isSetAtLeastOnce()).andReturn(true);
         EasyMock.expect(da.isSetInOrder()).andReturn(true); 
         
-        SequenceAcknowledgement ack = control.createMock(SequenceAcknowledgement.class);
-        List<AcknowledgementRange> ranges = new ArrayList<AcknowledgementRange>();
-        AcknowledgementRange r = control.createMock(AcknowledgementRange.class);
-        ranges.add(r);
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges).times(3);
-        EasyMock.expect(r.getLower()).andReturn(BigInteger.ONE);
-        EasyMock.expect(r.getUpper()).andReturn(new BigInteger("15"));
+        SequenceAcknowledgement ack = factory.createSequenceAcknowledgement();
+        ack.getAcknowledgementRange().add(createRange(1, 15));
         
         control.replay(); 
         
@@ -576,46 +575,42 @@ public class DestinationSequenceTest extends Assert {
     
     @Test
     public void testAllPredecessorsAcknowledged() {
-
-        SequenceAcknowledgement ack = control.createMock(SequenceAcknowledgement.class);
-        List<AcknowledgementRange> ranges = new ArrayList<AcknowledgementRange>();
-        AcknowledgementRange r = control.createMock(AcknowledgementRange.class);
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges);
-        control.replay();
-        DestinationSequence ds = new DestinationSequence(id, ref, null, ack);
-        ds.setDestination(destination);
-        assertTrue("all predecessors acknowledged", !ds.allPredecessorsAcknowledged(BigInteger.TEN));
-        control.verify();
-        
-        control.reset();
-        ranges.add(r);
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges).times(2);
-        EasyMock.expect(r.getLower()).andReturn(BigInteger.TEN);
-        control.replay();
-        assertTrue("all predecessors acknowledged", !ds.allPredecessorsAcknowledged(BigInteger.TEN));
-        control.verify();
-        
-        control.reset();
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges).times(3);
-        EasyMock.expect(r.getLower()).andReturn(BigInteger.ONE);
-        EasyMock.expect(r.getUpper()).andReturn(new BigInteger("5"));
+        assertTrue("all predecessors acknowledged", 
+                   !createSequence().allPredecessorsAcknowledged(BigInteger.TEN));
+        assertTrue("all predecessors acknowledged", 
+                   !createSequence(10, 10).allPredecessorsAcknowledged(BigInteger.TEN));
+        assertTrue("all predecessors acknowledged", 
+                   !createSequence(1, 5).allPredecessorsAcknowledged(BigInteger.TEN));
+        assertTrue("not all predecessors acknowledged", 
+                   createSequence(1, 10).allPredecessorsAcknowledged(BigInteger.TEN));
+        assertTrue("all predecessors acknowledged", 
+                   !createSequence(1, 5, 7, 10).allPredecessorsAcknowledged(BigInteger.TEN));
+    }
+    
+    @Test
+    public void testAcknowledgeReordered() throws SequenceFault {
+        setUpDestination();
+        int[] order = new int[] {3, 1, 7, 2, 9, 5, 4, 8, 6, 10};
+        Message[] messages = new Message[order.length];
+        for (int i = 0; i < order.length; i++) {
+            messages[i] = setUpMessage(Integer.toString(order[i]));
+        }
         control.replay();
-        assertTrue("all predecessors acknowledged", !ds.allPredecessorsAcknowledged(BigInteger.TEN));
-        control.verify();
         
-        control.reset();
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges).times(3);
-        EasyMock.expect(r.getLower()).andReturn(BigInteger.ONE);
-        EasyMock.expect(r.getUpper()).andReturn(BigInteger.TEN);
-        control.replay();
-        assertTrue("not all predecessors acknowledged", ds.allPredecessorsAcknowledged(BigInteger.TEN));
-        control.verify();
+        DestinationSequence seq = new DestinationSequence(id, ref, destination);
+        for (int i = 0; i < messages.length; i++) {
+            seq.acknowledge(messages[i]);
+            BigInteger mn = new BigInteger(Integer.toString(order[i]));
+            assertTrue(seq.isAcknowledged(mn));
+            assertTrue(seq.getAcknowledgment() == seq.getAcknowledgment());
+        }
+        assertTrue(seq.allPredecessorsAcknowledged(BigInteger.TEN));
+        List<AcknowledgementRange> ranges = seq.getAcknowledgment().getAcknowledgementRange();
+        assertEquals(1, ranges.size());
+        assertEquals(BigInteger.ONE, ranges.get(0).getLower());
+        assertEquals(BigInteger.TEN, ranges.get(0).getUpper());
+        assertTrue(!seq.isAcknowledged(new BigInteger("11")));
         
-        ranges.add(r);
-        control.reset();
-        EasyMock.expect(ack.getAcknowledgementRange()).andReturn(ranges);
-        control.replay();
-        assertTrue("all predecessors acknowledged", !ds.allPredecessorsAcknowledged(BigInteger.TEN));
         control.verify();
     }
     
@@ -804,6 +799,20 @@ public class DestinationSequenceTest extends Assert {
         EasyMock.expect(st.getMessageNumber()).andReturn(val);
         return message;        
     }
-
+    
+    private AcknowledgementRange createRange(int lower, int upper) {
+        AcknowledgementRange r = factory.createSequenceAcknowledgementAcknowledgementRange();
+        r.setLower(new BigInteger(Integer.toString(lower)));
+        r.setUpper(new BigInteger(Integer.toString(upper)));
+        return r;
+    }
+    
+    private DestinationSequence createSequence(int... bounds) {
+        SequenceAcknowledgement ack = factory.createSequenceAcknowledgement();
+        for (int i = 0; i < bounds.length; i += 2) {
+            ack.getAcknowledgementRange().add(createRange(bounds[i], bounds[i + 1]));
+        }
+        return new DestinationSequence(id, ref, null, ack);
+    }
 
 }
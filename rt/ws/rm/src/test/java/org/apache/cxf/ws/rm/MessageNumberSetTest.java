@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.cxf.ws.rm;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.cxf.ws.rm.SequenceAcknowledgement.AcknowledgementRange;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageNumberSetTest extends Assert {
+
+    @Test
+    public void testAdd() {
+        MessageNumberSet set = new MessageNumberSet();
+        assertTrue(set.isEmpty());
+        assertTrue(!set.contains(BigInteger.ONE));
+        
+        add(set, 5, 3, 9);
+        assertEquals("[3-3, 5-5, 9-9]", set.toString());
+        add(set, 4);
+        assertEquals("[3-5, 9-9]", set.toString());
+        add(set, 8, 10, 2, 4);
+        assertEquals("[2-5, 8-10]", set.toString());
+        add(set, 7, 6);
+        assertEquals("[2-10]", set.toString());
+        add(set, 1);
+        assertEquals(1, set.getRangeCount());
+        assertTrue(set.contains(BigInteger.ONE));
+        assertTrue(set.contains(BigInteger.TEN));
+        assertTrue(!set.contains(new BigInteger("11")));
+    }
+    
+    @Test
+    public void testAddRange() {
+        MessageNumberSet set = new MessageNumberSet();
+        addRange(set, 20, 25);
+        addRange(set, 1, 3);
+        addRange(set, 10, 12);
+        assertEquals("[1-3, 10-12, 20-25]", set.toString());
+        addRange(set, 11, 19);
+        assertEquals("[1-3, 10-25]", set.toString());
+        addRange(set, 2, 30);
+        assertEquals("[1-30]", set.toString());
+        addRange(set, 5, 4);
+        assertEquals("[1-30]", set.toString());
+    }
+    
+    @Test
+    public void testContainsAllUpTo() {
+        MessageNumberSet set = new MessageNumberSet();
+        assertTrue(!set.containsAllUpTo(BigInteger.ONE));
+        add(set, 2, 3);
+        assertTrue(!set.containsAllUpTo(BigInteger.ONE));
+        add(set, 1);
+        assertTrue(set.containsAllUpTo(BigInteger.ONE));
+        assertTrue(set.containsAllUpTo(new BigInteger("3")));
+        assertTrue(!set.containsAllUpTo(new BigInteger("4")));
+        add(set, 5);
+        assertTrue(!set.containsAllUpTo(BigInteger.ONE));
+    }
+    
+    @Test
+    public void testUnsignedLongRange() {
+        BigInteger max = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        BigInteger maxSigned = BigInteger.valueOf(Long.MAX_VALUE);
+        MessageNumberSet set = new MessageNumberSet();
+        set.add(max);
+        set.add(maxSigned);
+        set.add(maxSigned.add(BigInteger.ONE));
+        set.add(BigInteger.ONE);
+        assertEquals(3, set.getRangeCount());
+        assertTrue(set.contains(max));
+        assertTrue(!set.contains(max.subtract(BigInteger.ONE)));
+        
+        List<AcknowledgementRange> ranges = new ArrayList<AcknowledgementRange>();
+        set.writeTo(ranges);
+        assertEquals(BigInteger.ONE, ranges.get(0).getLower());
+        assertEquals(maxSigned, ranges.get(1).getLower());
+        assertEquals(maxSigned.add(BigInteger.ONE), ranges.get(1).getUpper());
+        assertEquals(max, ranges.get(2).getLower());
+        assertEquals(max, ranges.get(2).getUpper());
+        
+        set.addRange(maxSigned, max);
+        assertEquals(2, set.getRangeCount());
+    }
+    
+    @Test
+    public void testRandomOrder() {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (int i = 1; i <= 1000; i++) {
+            if (i % 100 != 0) {
+                numbers.add(i);
+            }
+        }
+        Collections.shuffle(numbers, new Random(42));
+        MessageNumberSet set = new MessageNumberSet();
+        for (Integer n : numbers) {
+            add(set, n);
+        }
+        assertEquals(10, set.getRangeCount());
+        List<AcknowledgementRange> ranges = new ArrayList<AcknowledgementRange>();
+        set.writeTo(ranges);
+        for (int i = 0; i < ranges.size() - 1; i++) {
+            assertEquals(100 * i + 1, ranges.get(i).getLower().intValue());
+            assertEquals(100 * i + 99, ranges.get(i).getUpper().intValue());
+        }
+        assertEquals(901, ranges.get(9).getLower().intValue());
+        assertEquals(999, ranges.get(9).getUpper().intValue());
+    }
+    
+    private static void add(MessageNumberSet set, int... numbers) {
+        for (int n : numbers) {
+            set.add(BigInteger.valueOf(n));
+        }
+    }
+    
+    private static void addRange(MessageNumberSet set, int lower, int upper) {
+        set.addRange(BigInteger.valueOf(lower), BigInteger.valueOf(upper));
+    }
+}
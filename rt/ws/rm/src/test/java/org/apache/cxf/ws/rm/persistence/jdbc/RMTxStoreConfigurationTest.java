@@ -44,6 +44,8 @@ public class RMTxStoreConfigurationTest extends Assert {
         assertEquals("scott", store.getUserName());
         assertEquals("tiger", store.getPassword());
         assertEquals("jdbc:derby://localhost:1527/rmdb;create=true", store.getUrl());
+        assertEquals(16, store.getGroupCommitSize());
+        assertEquals(5L, store.getGroupCommitInterval());
     }
    
 }
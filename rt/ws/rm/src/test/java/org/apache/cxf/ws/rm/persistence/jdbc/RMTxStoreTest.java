@@ -24,7 +24,9 @@ import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.cxf.ws.addressing.v200408.EndpointReferenceType;
 import org.apache.cxf.ws.rm.DestinationSequence;
@@ -270,6 +272,50 @@ public class RMTxStoreTest extends Assert {
         store.removeMessages(sid2, messageNrs, true);
     }
     
+    @Test
+    public void testGroupCommit() throws Exception {
+        final Identifier sid = setupSourceSequence("sequence3");
+        final SourceSequence seq = new SourceSequence(sid, null, null, BigInteger.ONE, false);
+        final int count = 10;
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        store.setGroupCommitSize(4);
+        store.setGroupCommitInterval(100);
+        try {
+            Thread[] threads = new Thread[count];
+            for (int i = 0; i < count; i++) {
+                final RMMessage msg = new RMMessage();
+                msg.setMessageNumber(BigInteger.valueOf(i + 1));
+                msg.setContent(("Message " + (i + 1)).getBytes());
+                threads[i] = new Thread() {
+                    public void run() {
+                        try {
+                            store.persistOutgoing(seq, msg);
+                        } catch (Throwable t) {
+                            errors.add(t);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for (Thread t : threads) {
+                t.join(10000);
+            }
+            assertTrue(errors.toString(), errors.isEmpty());
+            // every caller returned, so all writes must be committed
+            assertEquals(count, store.getMessages(sid, true).size());
+
+            Collection<BigInteger> messageNrs = new ArrayList<BigInteger>();
+            for (int i = 0; i < count; i++) {
+                messageNrs.add(BigInteger.valueOf(i + 1));
+            }
+            store.removeMessages(sid, messageNrs, true);
+            assertEquals(0, store.getMessages(sid, true).size());
+        } finally {
+            store.setGroupCommitSize(0);
+            store.removeSourceSequence(sid);
+        }
+    }
+    
     @Test
     public void testUpdateDestinationSequence() throws SQLException, IOException {
         DestinationSequence seq = control.createMock(DestinationSequence.class);
@@ -33,7 +33,9 @@ import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import org.apache.cxf.BusFactory;
 import org.apache.cxf.binding.soap.SoapFault;
@@ -45,6 +47,8 @@ import org.apache.cxf.message.ExchangeImpl;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.message.MessageImpl;
 import org.apache.cxf.message.MessageUtils;
+import org.apache.cxf.phase.PhaseInterceptorChain;
+import org.apache.cxf.phase.PhaseManagerImpl;
 import org.apache.cxf.ws.rm.AckRequestedType;
 import org.apache.cxf.ws.rm.Identifier;
 import org.apache.cxf.ws.rm.RMConstants;
@@ -298,6 +302,33 @@ public class RMSoapInterceptorTest extends Assert {
         assertNull(rmps.getAcks());
     }
 
+    @Test
+    public void testDecodeWhileReadingHeaders() throws XMLStreamException {
+        RMSoapInterceptor codec = new RMSoapInterceptor();
+        SoapMessage message = setUpInboundMessage("resources/Retransmission.xml", codec);
+        int decoded = 0;
+        for (Header header : message.getHeaders()) {
+            if (header.getObject() instanceof SequenceType
+                || header.getObject() instanceof AckRequestedType) {
+                assertNotNull(header.getDataBinding());
+                decoded++;
+            }
+        }
+        assertEquals(2, decoded);
+        // without SAAJ on the chain the decoded headers are not copied into the envelope
+        Document doc = (Document)message.getContent(Node.class);
+        assertEquals(0, doc.getElementsByTagNameNS(RMConstants.getNamespace(),
+                                                   RMConstants.getSequenceName()).getLength());
+
+        codec.handleMessage(message);
+        RMProperties rmps = RMContextUtils.retrieveRMProperties(message, false);
+        assertEquals(1, rmps.getAcksRequested().size());
+        assertEquals(SEQ_IDENTIFIER, rmps.getAcksRequested().iterator().next().getIdentifier().getValue());
+        assertEquals(SEQ_IDENTIFIER, rmps.getSequence().getIdentifier().getValue());
+        assertEquals(MSG2_MESSAGE_NUMBER, rmps.getSequence().getMessageNumber());
+        assertNull(rmps.getAcks());
+    }
+
     private void setUpOutbound() {
         org.apache.cxf.ws.rm.ObjectFactory factory = new org.apache.cxf.ws.rm.ObjectFactory();
         s1 = factory.createSequenceType();
@@ -403,8 +434,18 @@ public class RMSoapInterceptorTest extends Assert {
     }
     
     private SoapMessage setUpInboundMessage(String resource) throws XMLStreamException {
+        return setUpInboundMessage(resource, null);
+    }
+
+    private SoapMessage setUpInboundMessage(String resource, RMSoapInterceptor decoder)
+        throws XMLStreamException {
         Message message = new MessageImpl();
         SoapMessage soapMessage = new SoapMessage(message);
+        if (decoder != null) {
+            PhaseInterceptorChain chain = new PhaseInterceptorChain(new PhaseManagerImpl().getInPhases());
+            chain.add(decoder);
+            soapMessage.setInterceptorChain(chain);
+        }
         InputStream is = RMSoapInterceptorTest.class.getResourceAsStream(resource);
         assertNotNull(is);
         XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
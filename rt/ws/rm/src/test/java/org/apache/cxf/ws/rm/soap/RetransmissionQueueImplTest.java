@@ -22,20 +22,36 @@ package org.apache.cxf.ws.rm.soap;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Executor;
 
+import javax.management.ObjectName;
+import javax.xml.namespace.QName;
+
+import org.apache.cxf.Bus;
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.management.InstrumentationManager;
+import org.apache.cxf.management.ManagedComponent;
+import org.apache.cxf.management.ManagementConstants;
+import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.model.EndpointInfo;
+import org.apache.cxf.service.model.ServiceInfo;
 import org.apache.cxf.ws.policy.AssertionInfoMap;
 import org.apache.cxf.ws.rm.Identifier;
+import org.apache.cxf.ws.rm.RMContextUtils;
 import org.apache.cxf.ws.rm.RMManager;
 import org.apache.cxf.ws.rm.RMMessageConstants;
 import org.apache.cxf.ws.rm.RMProperties;
+import org.apache.cxf.ws.rm.SequenceAcknowledgement;
 import org.apache.cxf.ws.rm.SequenceType;
 import org.apache.cxf.ws.rm.SourceSequence;
 import org.apache.cxf.ws.rm.persistence.RMStore;
 import org.apache.cxf.ws.rm.policy.RMAssertion;
+import org.easymock.Capture;
 import org.easymock.IMocksControl;
 import org.easymock.classextension.EasyMock;
 import org.junit.After;
@@ -269,6 +285,144 @@ public class RetransmissionQueueImplTest extends Assert {
                      sequenceList.size());
     }
     
+    @Test
+    public void testPurgeAcknowledgedRanges() {
+        Identifier id = new Identifier();
+        id.setValue("sequence1");
+        SourceSequence sequence = createMock(SourceSequence.class);
+        EasyMock.expect(sequence.getIdentifier()).andReturn(id).anyTimes();
+        SequenceAcknowledgement ack = new SequenceAcknowledgement();
+        ack.getAcknowledgementRange().add(createRange(1, 2));
+        ack.getAcknowledgementRange().add(createRange(4, 4));
+        EasyMock.expect(sequence.getAcknowledgement()).andReturn(ack);
+        RMStore store = createMock(RMStore.class);
+        EasyMock.expect(manager.getStore()).andReturn(store);
+        store.removeMessages(EasyMock.same(id), 
+                             EasyMock.eq(Arrays.asList(BigInteger.valueOf(1), BigInteger.valueOf(2),
+                                                       BigInteger.valueOf(4))),
+                             EasyMock.eq(true));
+        EasyMock.expectLastCall();
+        setupRMAssertion();
+        ready(false);
+        
+        for (long n : new long[] {2, 1, 3, 5, 4}) {
+            queue.cacheUnacknowledged(createMessage(id, n));
+        }
+        assertEquals(5, queue.countUnacknowledged());
+        
+        queue.purgeAcknowledged(sequence);
+        List<RetransmissionQueueImpl.ResendCandidate> remaining = 
+            queue.getUnacknowledged().get("sequence1");
+        assertEquals(2, remaining.size());
+        assertEquals(BigInteger.valueOf(3), remaining.get(0).getMessageNumber());
+        assertEquals(BigInteger.valueOf(5), remaining.get(1).getMessageNumber());
+        assertEquals(1, queue.countSequences());
+    }
+    
+    @Test
+    public void testDispatchBatchesDueResends() {
+        Message message1 = createMock(Message.class);
+        setupMessagePolicies(message1);
+        Message message2 = createMock(Message.class);
+        setupMessagePolicies(message2);
+        ready(false);
+        RetransmissionQueueImpl.ResendCandidate candidate1 = queue.createResendCandidate(message1);
+        RetransmissionQueueImpl.ResendCandidate candidate2 = queue.createResendCandidate(message2);
+        
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Executor collector = new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        queue.dispatch(candidate1, collector);
+        queue.dispatch(candidate2, collector);
+        assertEquals(1, tasks.size());
+        assertEquals(2, queue.countDue());
+        
+        tasks.get(0).run();
+        assertEquals(0, queue.countDue());
+        assertEquals(1, candidate1.getResends());
+        assertEquals(1, candidate2.getResends());
+        
+        queue.dispatch(candidate1, collector);
+        assertEquals(2, tasks.size());
+
+        tasks.get(1).run();
+        assertEquals(0, queue.countDue());
+        assertEquals("drained batch must be dropped", 0, queue.countBatches());
+        queue.dispatch(candidate2, collector);
+        assertEquals(3, tasks.size());
+        assertEquals(1, queue.countBatches());
+    }
+    
+    @Test
+    public void testFailingResendDoesNotStrandBatch() {
+        Message message1 = createMock(Message.class);
+        setupMessagePolicies(message1);
+        Message message2 = createMock(Message.class);
+        setupMessagePolicies(message2);
+        ready(false);
+        RetransmissionQueueImpl.ResendCandidate candidate1 = queue.new ResendCandidate(message1) {
+            public void run() {
+                super.run();
+                throw new IllegalStateException("resend failed");
+            }
+        };
+        RetransmissionQueueImpl.ResendCandidate candidate2 = queue.createResendCandidate(message2);
+        
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        Executor collector = new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        queue.dispatch(candidate1, collector);
+        queue.dispatch(candidate2, collector);
+        tasks.get(0).run();
+        assertEquals(0, queue.countDue());
+        assertEquals(1, candidate1.getResends());
+        assertEquals(1, candidate2.getResends());
+    }
+    
+    @Test
+    public void testBusyResendStartsAnotherTask() {
+        Message message1 = createMock(Message.class);
+        setupMessagePolicies(message1);
+        Message message2 = createMock(Message.class);
+        setupMessagePolicies(message2);
+        ready(false);
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        final Executor collector = new Executor() {
+            public void execute(Runnable command) {
+                tasks.add(command);
+            }
+        };
+        final RetransmissionQueueImpl.ResendCandidate candidate2 = queue.createResendCandidate(message2);
+        RetransmissionQueueImpl.ResendCandidate candidate1 = queue.new ResendCandidate(message1) {
+            public void run() {
+                // a slow resend, during which another one falls due
+                queue.dispatch(candidate2, collector);
+                super.run();
+            }
+        };
+        queue.dispatch(candidate1, collector);
+        assertEquals(1, tasks.size());
+        tasks.get(0).run();
+        assertEquals("candidate2 must not wait for candidate1", 2, tasks.size());
+        tasks.get(1).run();
+        assertEquals(0, queue.countDue());
+        assertEquals(1, candidate2.getResends());
+    }
+    
+    @Test
+    public void testCountScheduledDoesNotCreateTimer() {
+        EasyMock.expect(manager.getResendTimer()).andThrow(new AssertionError("timer created")).anyTimes();
+        EasyMock.expect(manager.getResendTimer(false)).andReturn(null);
+        ready(false);
+        assertEquals(0, queue.countScheduled());
+    }
+    
     @Test
     public void testIsEmpty() {
         ready(false);
@@ -321,6 +475,41 @@ public class RetransmissionQueueImplTest extends Assert {
         queue.start();
     }
     
+    @Test
+    public void testMBeanRegisteredPerEndpoint() throws Exception {
+        Message message = setUpMessage("sequence1");
+        setupMessagePolicies(message);
+        Exchange exchange = createMock(Exchange.class);
+        EasyMock.expect(message.getExchange()).andReturn(exchange).anyTimes();
+        Endpoint endpoint = createMock(Endpoint.class);
+        EasyMock.expect(exchange.get(Endpoint.class)).andReturn(endpoint).anyTimes();
+        ServiceInfo si = new ServiceInfo();
+        si.setName(new QName("http://cxf.apache.org/greeter", "GreeterService"));
+        EndpointInfo ei = new EndpointInfo(si, null);
+        ei.setName(new QName("http://cxf.apache.org/greeter", "GreeterPort"));
+        EasyMock.expect(endpoint.getEndpointInfo()).andReturn(ei).anyTimes();
+        Bus bus = createMock(Bus.class);
+        EasyMock.expect(manager.getBus()).andReturn(bus).anyTimes();
+        EasyMock.expect(bus.getId()).andReturn("bus1").anyTimes();
+        InstrumentationManager im = createMock(InstrumentationManager.class);
+        EasyMock.expect(bus.getExtension(InstrumentationManager.class)).andReturn(im).anyTimes();
+        Capture<ManagedComponent> mbean = new Capture<ManagedComponent>();
+        EasyMock.expect(im.register(EasyMock.capture(mbean))).andReturn(null);
+        im.unregister(EasyMock.isA(RetransmissionQueueImplMBeanWrapper.class));
+        EasyMock.expectLastCall();
+        ready(false);
+
+        queue.addUnacknowledged(message);
+        ObjectName name = mbean.getValue().getObjectName();
+        assertEquals("bus1", name.getKeyProperty(ManagementConstants.BUS_ID_PROP));
+        assertEquals(ObjectName.quote("{http://cxf.apache.org/greeter}GreeterService"),
+                     name.getKeyProperty(ManagementConstants.SERVICE_NAME_PROP));
+        assertEquals(ObjectName.quote("GreeterPort"),
+                     name.getKeyProperty(ManagementConstants.PORT_NAME_PROP));
+
+        queue.shutdown();
+    }
+
     private Message setUpMessage(String sid) {
         return setUpMessage(sid, null);
     }
@@ -355,6 +544,33 @@ public class RetransmissionQueueImplTest extends Assert {
     }
     
 
+    private void setupRMAssertion() {
+        EasyMock.expect(manager.getRMAssertion()).andReturn(rma).anyTimes();
+        RMAssertion.BaseRetransmissionInterval bri = 
+            createMock(RMAssertion.BaseRetransmissionInterval.class);
+        EasyMock.expect(rma.getBaseRetransmissionInterval()).andReturn(bri).anyTimes();
+        EasyMock.expect(bri.getMilliseconds()).andReturn(new BigInteger("5000")).anyTimes();
+    }
+    
+    private Message createMessage(Identifier id, long messageNumber) {
+        SequenceType st = new SequenceType();
+        st.setIdentifier(id);
+        st.setMessageNumber(BigInteger.valueOf(messageNumber));
+        RMProperties rmps = new RMProperties();
+        rmps.setSequence(st);
+        Message message = new MessageImpl();
+        RMContextUtils.storeRMProperties(message, rmps, true);
+        return message;
+    }
+    
+    private SequenceAcknowledgement.AcknowledgementRange createRange(long lower, long upper) {
+        SequenceAcknowledgement.AcknowledgementRange range = 
+            new SequenceAcknowledgement.AcknowledgementRange();
+        range.setLower(BigInteger.valueOf(lower));
+        range.setUpper(BigInteger.valueOf(upper));
+        return range;
+    }
+
     private void ready(boolean doStart) {
         control.replay();
         if (doStart) {
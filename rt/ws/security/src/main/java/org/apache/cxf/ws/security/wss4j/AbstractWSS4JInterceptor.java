@@ -63,6 +63,15 @@ public abstract class AbstractWSS4JInterceptor extends WSHandler implements Soap
         id = getClass().getName();
     }
 
+    /**
+     * @param doAction the decoded actions
+     * @return true if the actions only read or write the security header, which is the case
+     *         for UsernameToken and Timestamp, so that no SAAJ model of the body is needed
+     */
+    protected static boolean isHeaderOnly(int doAction) {
+        return (doAction & ~(WSConstants.UT | WSConstants.TS)) == 0;
+    }
+
     public Set<URI> getRoles() {
         return null;
     }
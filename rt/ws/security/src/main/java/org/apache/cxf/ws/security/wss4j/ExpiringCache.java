@@ -0,0 +1,94 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.ws.security.wss4j;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded set of keys that each expire some time after they were added. WSS4JInInterceptor
+ * uses it to spot replayed UsernameToken nonces and to remember certificates whose trust
+ * path it has already validated.
+ * <p>
+ * Adding to a full cache first drops the expired keys. Keys that have not expired are never
+ * dropped, so a flood of new keys cannot push out a nonce that must still be rejected; if
+ * nothing has expired the new key is not added.
+ */
+public final class ExpiringCache<K> {
+
+    private final Map<K, Long> entries = new ConcurrentHashMap<K, Long>();
+    private final int maxSize;
+
+    public ExpiringCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key the key to add
+     * @param ttl milliseconds until the key expires
+     * @return true if the key was added, false if it was there already and has not expired
+     *         or if the cache is full of keys that have not expired
+     */
+    public boolean add(K key, long ttl) {
+        long now = System.currentTimeMillis();
+        Long expiry = Long.valueOf(now + ttl);
+        synchronized (this) {
+            Long old = entries.get(key);
+            if (old != null && old.longValue() > now) {
+                return false;
+            }
+            if (old == null && entries.size() >= maxSize) {
+                removeExpired(now);
+                if (entries.size() >= maxSize) {
+                    return false;
+                }
+            }
+            entries.put(key, expiry);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the key is in the cache and has not expired
+     */
+    public boolean contains(K key) {
+        Long expiry = entries.get(key);
+        return expiry != null && expiry.longValue() > System.currentTimeMillis();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private void removeExpired(long now) {
+        for (Iterator<Long> it = entries.values().iterator(); it.hasNext();) {
+            if (it.next().longValue() <= now) {
+                it.remove();
+            }
+        }
+    }
+}
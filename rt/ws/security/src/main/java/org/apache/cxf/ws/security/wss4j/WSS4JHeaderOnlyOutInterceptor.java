@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.ws.security.wss4j;
+
+import java.util.Map;
+import java.util.Vector;
+import java.util.logging.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.binding.soap.SoapHeader;
+import org.apache.cxf.binding.soap.SoapMessage;
+import org.apache.cxf.binding.soap.SoapVersion;
+import org.apache.cxf.common.i18n.Message;
+import org.apache.cxf.common.logging.LogUtils;
+import org.apache.cxf.common.util.StringUtils;
+import org.apache.cxf.helpers.DOMUtils;
+import org.apache.cxf.phase.Phase;
+import org.apache.ws.security.WSSecurityException;
+import org.apache.ws.security.handler.WSHandlerConstants;
+import org.apache.ws.security.util.WSSecurityUtil;
+
+/**
+ * Performs the UsernameToken and Timestamp outbound actions without SAAJOutInterceptor.
+ * These actions only write the security header, so they are performed on a document holding
+ * nothing but an empty envelope, and the resulting security header is added to the message
+ * headers before SoapOutInterceptor writes them. The body is streamed out as usual.
+ * <p>
+ * This is not a general replacement for WSS4JOutInterceptor. Signature, encryption and the
+ * other actions that cover the body are not supported, configuring them throws an
+ * IllegalArgumentException and requesting them through the message fails with a fault.
+ * They still need WSS4JOutInterceptor and SAAJOutInterceptor until the body can be
+ * canonicalized while it is streamed.
+ */
+public class WSS4JHeaderOnlyOutInterceptor extends WSS4JOutInterceptor {
+    private static final Logger LOG = LogUtils.getL7dLogger(WSS4JHeaderOnlyOutInterceptor.class);
+
+    public WSS4JHeaderOnlyOutInterceptor() {
+        super();
+        setPhase(Phase.PRE_PROTOCOL);
+    }
+
+    public WSS4JHeaderOnlyOutInterceptor(Map<String, Object> props) {
+        this();
+        setProperties(props);
+    }
+
+    @Override
+    public void setProperty(String key, String value) {
+        if (WSHandlerConstants.ACTION.equals(key)) {
+            checkActions(value);
+        }
+        super.setProperty(key, value);
+    }
+
+    @Override
+    public void setProperties(Map<String, Object> properties) {
+        Object action = properties.get(WSHandlerConstants.ACTION);
+        if (action instanceof String) {
+            checkActions((String)action);
+        }
+        super.setProperties(properties);
+    }
+
+    private static void checkActions(String action) {
+        try {
+            if (!isHeaderOnly(WSSecurityUtil.decodeAction(action, new Vector()))) {
+                throw new IllegalArgumentException(new Message("HEADER_ONLY_ACTIONS", LOG, action)
+                                                   .toString());
+            }
+        } catch (WSSecurityException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+    }
+
+    protected Document getDocument(SoapMessage mc, int doAction) {
+        SoapVersion version = mc.getVersion();
+        if (!isHeaderOnly(doAction)) {
+            throw new SoapFault(new Message("HEADER_ONLY_ACTIONS", LOG, 
+                                            getString(WSHandlerConstants.ACTION, mc)),
+                                version.getReceiver());
+        }
+        Document doc = DOMUtils.createDocument();
+        Element envelope = createElement(doc, version, version.getEnvelope());
+        envelope.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, 
+                                "xmlns:" + version.getPrefix(), version.getNamespace());
+        envelope.appendChild(createElement(doc, version, version.getHeader()));
+        envelope.appendChild(createElement(doc, version, version.getBody()));
+        doc.appendChild(envelope);
+        return doc;
+    }
+
+    protected void documentSecured(SoapMessage mc, Document doc) {
+        SoapVersion version = mc.getVersion();
+        Element header = DOMUtils.getFirstElement(doc.getDocumentElement());
+        Element el = DOMUtils.getFirstElement(header);
+        while (el != null) {
+            SoapHeader soapHeader = new SoapHeader(new QName(el.getNamespaceURI(), el.getLocalName()), el);
+            String mu = el.getAttributeNS(version.getNamespace(), version.getAttrNameMustUnderstand());
+            String actor = el.getAttributeNS(version.getNamespace(), version.getAttrNameRole());
+            soapHeader.setMustUnderstand(Boolean.valueOf(mu) || "1".equals(mu));
+            if (!StringUtils.isEmpty(actor)) {
+                soapHeader.setActor(actor);
+            }
+            soapHeader.setDirection(SoapHeader.Direction.DIRECTION_OUT);
+            mc.getHeaders().add(soapHeader);
+            el = DOMUtils.getNextElement(el);
+        }
+    }
+
+    private static Element createElement(Document doc, SoapVersion version, QName name) {
+        return doc.createElementNS(name.getNamespaceURI(), version.getPrefix() + ":" + name.getLocalPart());
+    }
+}
@@ -20,6 +20,8 @@ package org.apache.cxf.ws.security.wss4j;
 
 import java.security.Principal;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
@@ -35,6 +37,9 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.dom.DOMSource;
 
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
 import org.apache.cxf.binding.soap.SoapFault;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.SoapVersion;
@@ -51,6 +56,7 @@ import org.apache.ws.security.WSSConfig;
 import org.apache.ws.security.WSSecurityEngine;
 import org.apache.ws.security.WSSecurityEngineResult;
 import org.apache.ws.security.WSSecurityException;
+import org.apache.ws.security.WSUsernameTokenPrincipal;
 import org.apache.ws.security.handler.RequestData;
 import org.apache.ws.security.handler.WSHandlerConstants;
 import org.apache.ws.security.handler.WSHandlerResult;
@@ -60,6 +66,11 @@ import org.apache.ws.security.util.WSSecurityUtil;
 
 /**
  * Performs WS-Security inbound actions.
+ * <p>
+ * The actions normally work on the SAAJ model that SAAJInInterceptor builds. If there
+ * is none and the actions only concern the security header (UsernameToken and Timestamp),
+ * the header is processed on the document ReadHeadersInterceptor parsed it into, and the
+ * body is left in the XMLStreamReader for the databinding to stream.
  * 
  * @author <a href="mailto:tsztelak@gmail.com">Tomasz Sztelak</a>
  */
@@ -69,6 +80,22 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
     public static final String SIGNATURE_RESULT = "wss4j.signature.result";
     public static final String PRINCIPAL_RESULT = "wss4j.principal.result";
     public static final String PROCESSOR_MAP = "wss4j.processor.map";
+    /**
+     * The number of UsernameToken nonces remembered to reject replayed tokens. A nonce is
+     * remembered for the timestamp time to live. Replay detection is off unless this is set
+     * above 0: WS-ReliableMessaging resends a message with the security header it was first
+     * sent with, so do not turn it on for endpoints that accept reliable messages. A message
+     * arriving while the cache is full of unexpired nonces is rejected.
+     */
+    public static final String NONCE_CACHE_SIZE = "wss4j.nonce.cache.size";
+    /**
+     * The number of signing certificates whose trust path is remembered as validated,
+     * 0 turns the cache off. A certificate is remembered for ten minutes.
+     */
+    public static final String TRUST_CACHE_SIZE = "wss4j.trust.cache.size";
+    
+    private static final int DEFAULT_CACHE_SIZE = 10000;
+    private static final long TRUST_CACHE_TTL = 10 * 60 * 1000L;
 
     private static final Logger LOG = LogUtils.getL7dLogger(WSS4JInInterceptor.class);
     private static final Logger TIME_LOG = LogUtils.getL7dLogger(WSS4JInInterceptor.class,
@@ -77,9 +104,11 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
                                                                      + "-Time");
 
     /**
-     *
+     * The engine built from the PROCESSOR_MAP option, together with a copy of that map
      */
-    private WSSecurityEngine secEngineOverride;
+    private volatile EngineOverride secEngineOverride;
+    private volatile ExpiringCache<String> nonceCache;
+    private volatile ExpiringCache<List<Object>> trustCache;
     
     public WSS4JInInterceptor() {
         super();
@@ -91,11 +120,6 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
     public WSS4JInInterceptor(Map<String, Object> properties) {
         this();
         setProperties(properties);
-        final Map<QName, Object> map = CastUtils.cast(
-            (Map)properties.get(PROCESSOR_MAP));
-        if (map != null) {
-            secEngineOverride = createSecurityEngine(map);
-        }
     }
 
     public void handleMessage(SoapMessage msg) throws Fault {
@@ -132,9 +156,16 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
             String actor = (String)getOption(WSHandlerConstants.ACTOR);
 
             SOAPMessage doc = msg.getContent(SOAPMessage.class);
-
-            if (doc == null) {
-                throw new SoapFault(new Message("NO_SAAJ_DOC", LOG), version.getReceiver());
+            Document secDoc;
+            if (doc != null) {
+                secDoc = doc.getSOAPPart();
+            } else {
+                Node headers = msg.getContent(Node.class);
+                if (!(headers instanceof Document) || !isHeaderOnly(doAction)) {
+                    throw new SoapFault(new Message("NO_SAAJ_DOC", LOG), version.getReceiver());
+                }
+                // the envelope up to the body, as read by ReadHeadersInterceptor
+                secDoc = (Document)headers;
             }
 
             CallbackHandler cbHandler = getCallback(reqData, doAction);
@@ -151,7 +182,7 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
             }
 
             wsResult = getSecurityEngine().processSecurityHeader(
-                doc.getSOAPPart(), 
+                secDoc, 
                 actor, 
                 cbHandler, 
                 reqData.getSigCrypto(), 
@@ -165,7 +196,7 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
             if (wsResult == null) { // no security header found
                 if (doAction == WSConstants.NO_SECURITY) {
                     return;
-                } else if (doc.getSOAPPart().getEnvelope().getBody().hasFault()) {
+                } else if (doc != null && doc.getSOAPPart().getEnvelope().getBody().hasFault()) {
                     LOG.warning("Request does not contain required Security header, " 
                                 + "but it's a fault.");
                     return;
@@ -222,6 +253,8 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
             timestampResults = 
                 WSSecurityUtil.fetchAllActionResults(wsResult, WSConstants.TS, timestampResults);
 
+            checkNonces(wsResult, reqData);
+
             if (!timestampResults.isEmpty()) {
                 for (int i = 0; i < timestampResults.size(); i++) {
                     WSSecurityEngineResult result = 
@@ -286,18 +319,20 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
         WSHandlerResult rResult = new WSHandlerResult(actor, wsResult);
         results.add(0, rResult);
 
-        SOAPBody body = doc.getSOAPBody();
-
-        XMLStreamReader reader = StaxUtils.createXMLStreamReader(new DOMSource(body));
-        // advance just past body
-        int evt = reader.next();
-        int i = 0;
-        while (reader.hasNext() && i < 1
-               && (evt != XMLStreamConstants.END_ELEMENT || evt != XMLStreamConstants.START_ELEMENT)) {
-            reader.next();
-            i++;
+        if (doc != null) {
+            SOAPBody body = doc.getSOAPBody();
+    
+            XMLStreamReader reader = StaxUtils.createXMLStreamReader(new DOMSource(body));
+            // advance just past body
+            int evt = reader.next();
+            int i = 0;
+            while (reader.hasNext() && i < 1
+                   && (evt != XMLStreamConstants.END_ELEMENT || evt != XMLStreamConstants.START_ELEMENT)) {
+                reader.next();
+                i++;
+            }
+            msg.setContent(XMLStreamReader.class, reader);
         }
-        msg.setContent(XMLStreamReader.class, reader);
         
         for (WSSecurityEngineResult o : CastUtils.cast(wsResult, WSSecurityEngineResult.class)) {
             final Principal p = (Principal)o.get(WSSecurityEngineResult.TAG_PRINCIPAL);
@@ -320,6 +355,101 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
         }
     }
 
+    /**
+     * Rejects a UsernameToken whose nonce has been seen within the timestamp time to live.
+     */
+    private void checkNonces(Vector wsResult, RequestData reqData) throws WSSecurityException {
+        ExpiringCache<String> cache = getNonceCache();
+        if (cache == null) {
+            return;
+        }
+        Vector utResults = new Vector();
+        WSSecurityUtil.fetchAllActionResults(wsResult, WSConstants.UT, utResults);
+        for (int i = 0; i < utResults.size(); i++) {
+            WSSecurityEngineResult result = (WSSecurityEngineResult)utResults.get(i);
+            Object p = result.get(WSSecurityEngineResult.TAG_PRINCIPAL);
+            if (p instanceof WSUsernameTokenPrincipal) {
+                WSUsernameTokenPrincipal principal = (WSUsernameTokenPrincipal)p;
+                if (principal.getNonce() == null) {
+                    continue;
+                }
+                String key = principal.getName() + ' ' + principal.getNonce();
+                if (!cache.add(key, decodeTimeToLive(reqData) * 1000L)) {
+                    if (cache.contains(key)) {
+                        LOG.warning("The UsernameToken nonce has been used before");
+                    } else {
+                        LOG.warning("The UsernameToken nonce cache is full, " 
+                                    + "the nonce cannot be checked for replay");
+                    }
+                    throw new WSSecurityException(WSSecurityException.FAILED_AUTHENTICATION);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remembers the certificates whose trust path has been validated against the
+     * signature crypto, so that the path is not validated again for every message
+     * signed with the same certificate.
+     */
+    protected boolean verifyTrust(X509Certificate cert, RequestData reqData) throws WSSecurityException {
+        ExpiringCache<List<Object>> cache = getTrustCache();
+        if (cache == null) {
+            return super.verifyTrust(cert, reqData);
+        }
+        List<Object> key = Arrays.asList(new Object[] {reqData.getSigCrypto(), cert});
+        if (cache.contains(key)) {
+            return true;
+        }
+        if (super.verifyTrust(cert, reqData)) {
+            cache.add(key, TRUST_CACHE_TTL);
+            return true;
+        }
+        return false;
+    }
+
+    private ExpiringCache<String> getNonceCache() {
+        ExpiringCache<String> cache = nonceCache;
+        if (cache == null) {
+            int size = getCacheSize(NONCE_CACHE_SIZE, 0);
+            if (size <= 0) {
+                return null;
+            }
+            synchronized (this) {
+                if (nonceCache == null) {
+                    nonceCache = new ExpiringCache<String>(size);
+                }
+                cache = nonceCache;
+            }
+        }
+        return cache;
+    }
+
+    private ExpiringCache<List<Object>> getTrustCache() {
+        ExpiringCache<List<Object>> cache = trustCache;
+        if (cache == null) {
+            int size = getCacheSize(TRUST_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+            if (size <= 0) {
+                return null;
+            }
+            synchronized (this) {
+                if (trustCache == null) {
+                    trustCache = new ExpiringCache<List<Object>>(size);
+                }
+                cache = trustCache;
+            }
+        }
+        return cache;
+    }
+
+    private int getCacheSize(String key, int defaultSize) {
+        Object size = getOption(key);
+        if (size == null) {
+            return defaultSize;
+        }
+        return size instanceof Number ? ((Number)size).intValue() : Integer.parseInt(size.toString().trim());
+    }
+
     private String getAction(SoapMessage msg, SoapVersion version) {
         String action = (String)getOption(WSHandlerConstants.ACTION);
         if (action == null) {
@@ -350,19 +480,42 @@ public class WSS4JInInterceptor extends AbstractWSS4JInterceptor {
      * @return      the WSSecurityEngine in use by this interceptor.
      *              This engine is defined to be the secEngineOverride
      *              instance, if defined in this class (and supplied through
-     *              construction); otherwise, it is taken to be the default
-     *              WSSecEngine instance (currently defined in the WSHandler
-     *              base class).
+     *              construction or the PROCESSOR_MAP property); otherwise, 
+     *              it is taken to be the default WSSecEngine instance 
+     *              (currently defined in the WSHandler base class).
+     *              The override is reused until the PROCESSOR_MAP property
+     *              changes.
      *
      * TODO the WSHandler base class defines secEngine to be static, which
      * is really bad, because the engine has mutable state on it.
      */
     private WSSecurityEngine
     getSecurityEngine() {
-        if (secEngineOverride != null) {
-            return secEngineOverride;
+        final Map<QName, Object> map = CastUtils.cast((Map)getOption(PROCESSOR_MAP));
+        if (map == null) {
+            return secEngine;
+        }
+        EngineOverride override = secEngineOverride;
+        if (override == null || !override.map.equals(map)) {
+            synchronized (this) {
+                override = secEngineOverride;
+                if (override == null || !override.map.equals(map)) {
+                    override = new EngineOverride(map, createSecurityEngine(map));
+                    secEngineOverride = override;
+                }
+            }
+        }
+        return override.engine;
+    }
+
+    private static final class EngineOverride {
+        final Map<QName, Object> map;
+        final WSSecurityEngine engine;
+        
+        EngineOverride(Map<QName, Object> map, WSSecurityEngine engine) {
+            this.map = new HashMap<QName, Object>(map);
+            this.engine = engine;
         }
-        return secEngine;
     }
 
     /**
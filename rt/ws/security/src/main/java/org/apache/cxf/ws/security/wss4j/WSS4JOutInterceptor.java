@@ -145,15 +145,7 @@ public class WSS4JOutInterceptor extends AbstractWSS4JInterceptor {
              * handler in a chain. Now we can perform our security operations on
              * this request.
              */
-            SOAPMessage saaj = mc.getContent(SOAPMessage.class);
-
-            if (saaj == null) {
-                LOG.warning("SAAJOutHandler must be enabled for WS-Security!");
-                throw new SoapFault(new Message("NO_SAAJ_DOC", LOG), version
-                        .getReceiver());
-            }
-
-            Document doc = saaj.getSOAPPart();
+            Document doc = getDocument(mc, doAction);
             /**
              * There is nothing to send...Usually happens when the provider
              * needs to send a HTTP 202 message (with no content)
@@ -168,6 +160,7 @@ public class WSS4JOutInterceptor extends AbstractWSS4JInterceptor {
 
             doSenderAction(doAction, doc, reqData, actions, Boolean.TRUE
                     .equals(getProperty(mc, org.apache.cxf.message.Message.REQUESTOR_ROLE)));
+            documentSecured(mc, doc);
 
             if (doTimeDebug) {
                 t2 = System.currentTimeMillis();
@@ -188,4 +181,28 @@ public class WSS4JOutInterceptor extends AbstractWSS4JInterceptor {
             reqData = null;
         }
     }
+
+    /**
+     * @param mc the outgoing message
+     * @param doAction the decoded actions
+     * @return the document the actions are performed on
+     */
+    protected Document getDocument(SoapMessage mc, int doAction) {
+        SOAPMessage saaj = mc.getContent(SOAPMessage.class);
+
+        if (saaj == null) {
+            LOG.warning("SAAJOutHandler must be enabled for WS-Security!");
+            throw new SoapFault(new Message("NO_SAAJ_DOC", LOG), mc.getVersion()
+                    .getReceiver());
+        }
+        return saaj.getSOAPPart();
+    }
+
+    /**
+     * Called once the actions have been performed on the document returned by
+     * getDocument(). The SAAJ model is written out by SAAJOutInterceptor, so there
+     * is nothing left to do here.
+     */
+    protected void documentSecured(SoapMessage mc, Document doc) {
+    }
 }
@@ -0,0 +1,55 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.cxf.ws.security.wss4j;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpiringCacheTest extends Assert {
+
+    @Test
+    public void testReplayedKeyIsRejectedUntilItExpires() throws Exception {
+        ExpiringCache<String> cache = new ExpiringCache<String>(10);
+        assertTrue(cache.add("nonce", 50));
+        assertTrue(cache.contains("nonce"));
+        assertFalse(cache.add("nonce", 50));
+        Thread.sleep(100);
+        assertFalse(cache.contains("nonce"));
+        assertTrue(cache.add("nonce", 50));
+    }
+
+    @Test
+    public void testFullCacheKeepsUnexpiredKeys() throws Exception {
+        ExpiringCache<Integer> cache = new ExpiringCache<Integer>(4);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(cache.add(i, 60000));
+        }
+        assertTrue(cache.add(3, 50));
+        assertFalse(cache.add(4, 60000));
+        assertFalse(cache.contains(4));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(cache.contains(i));
+        }
+        Thread.sleep(100);
+        // only the expired key makes room
+        assertTrue(cache.add(4, 60000));
+        assertFalse(cache.contains(3));
+        assertEquals(4, cache.size());
+    }
+}
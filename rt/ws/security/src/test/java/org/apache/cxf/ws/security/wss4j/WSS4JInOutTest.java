@@ -38,7 +38,11 @@ import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.dom.DOMSource;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
+import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.binding.soap.SoapHeader;
 import org.apache.cxf.binding.soap.SoapMessage;
 import org.apache.cxf.binding.soap.interceptor.MustUnderstandInterceptor;
 import org.apache.cxf.binding.soap.saaj.SAAJInInterceptor;
@@ -445,6 +449,140 @@ public class WSS4JInOutTest extends AbstractSecurityTest {
         assertEquals(obj.getClass().getName(), CustomProcessor.class.getName());
     }
     
+    @Test
+    public void testHeaderOnlyUsernameTokenAndTimestamp() throws Exception {
+        WSS4JHeaderOnlyOutInterceptor handler = new WSS4JHeaderOnlyOutInterceptor();
+
+        SoapMessage msg = new SoapMessage(new MessageImpl());
+        Exchange ex = new ExchangeImpl();
+        ex.setInMessage(msg);
+
+        msg.put(WSHandlerConstants.ACTION, 
+                WSHandlerConstants.USERNAME_TOKEN + " " + WSHandlerConstants.TIMESTAMP);
+        msg.put(WSHandlerConstants.USER, "myalias");
+        msg.put("password", "myAliasPassword");
+
+        handler.handleMessage(msg);
+
+        // no SAAJ, the security header goes out with the other headers
+        assertNull(msg.getContent(SOAPMessage.class));
+        assertEquals(1, msg.getHeaders().size());
+        SoapHeader header = (SoapHeader)msg.getHeaders().get(0);
+        assertEquals(new QName(WSConstants.WSSE_NS, "Security"), header.getName());
+        assertTrue(header.isMustUnderstand());
+        Document doc = ((Element)header.getObject()).getOwnerDocument();
+        assertValid("//wsse:Security/wsse:UsernameToken/wsse:Username[text()='myalias']", doc);
+        assertValid("//wsse:Security/wsu:Timestamp", doc);
+
+        byte[] docbytes = getMessageBytes(doc);
+        doc = StaxUtils.read(StaxUtils.createXMLStreamReader(new ByteArrayInputStream(docbytes)));
+
+        WSS4JInInterceptor inHandler = new WSS4JInInterceptor();
+
+        SoapMessage inmsg = new SoapMessage(new MessageImpl());
+        ex.setInMessage(inmsg);
+        // what ReadHeadersInterceptor leaves behind, the envelope up to the body
+        inmsg.setContent(Node.class, doc);
+
+        inHandler.setProperty(WSHandlerConstants.ACTION,
+            WSHandlerConstants.USERNAME_TOKEN + " " + WSHandlerConstants.TIMESTAMP);
+        inHandler.setProperty(WSHandlerConstants.PW_CALLBACK_CLASS, TestPwdCallback.class.getName());
+
+        inHandler.handleMessage(inmsg);
+
+        assertNotNull(inmsg.get(WSS4JInInterceptor.PRINCIPAL_RESULT));
+        assertNotNull(inmsg.get(WSS4JInInterceptor.TIMESTAMP_RESULT));
+        assertNull(inmsg.getContent(XMLStreamReader.class));
+    }
+
+    @Test
+    public void testReplayedNonceIsRejected() throws Exception {
+        WSS4JInInterceptor inHandler = new WSS4JInInterceptor();
+        inHandler.setProperty(WSHandlerConstants.ACTION,
+            WSHandlerConstants.USERNAME_TOKEN + " " + WSHandlerConstants.TIMESTAMP);
+        inHandler.setProperty(WSHandlerConstants.PW_CALLBACK_CLASS, TestPwdCallback.class.getName());
+        inHandler.setProperty(WSS4JInInterceptor.NONCE_CACHE_SIZE, "100");
+
+        byte[] docbytes = createUsernameTokenHeader();
+        SoapMessage inmsg = createHeaderOnlyInMessage(docbytes);
+        inHandler.handleMessage(inmsg);
+        assertNotNull(inmsg.get(WSS4JInInterceptor.PRINCIPAL_RESULT));
+
+        try {
+            inHandler.handleMessage(createHeaderOnlyInMessage(docbytes));
+            fail("A replayed nonce must be rejected");
+        } catch (SoapFault f) {
+            // expected
+        }
+
+        inmsg = createHeaderOnlyInMessage(createUsernameTokenHeader());
+        inHandler.handleMessage(inmsg);
+        assertNotNull(inmsg.get(WSS4JInInterceptor.PRINCIPAL_RESULT));
+    }
+
+    @Test
+    public void testReplayedNonceIsAcceptedByDefault() throws Exception {
+        WSS4JInInterceptor inHandler = new WSS4JInInterceptor();
+        inHandler.setProperty(WSHandlerConstants.ACTION,
+            WSHandlerConstants.USERNAME_TOKEN + " " + WSHandlerConstants.TIMESTAMP);
+        inHandler.setProperty(WSHandlerConstants.PW_CALLBACK_CLASS, TestPwdCallback.class.getName());
+
+        // a WS-RM resend carries the security header of the first attempt
+        byte[] docbytes = createUsernameTokenHeader();
+        inHandler.handleMessage(createHeaderOnlyInMessage(docbytes));
+        SoapMessage inmsg = createHeaderOnlyInMessage(docbytes);
+        inHandler.handleMessage(inmsg);
+        assertNotNull(inmsg.get(WSS4JInInterceptor.PRINCIPAL_RESULT));
+    }
+
+    @Test(expected = SoapFault.class)
+    public void testHeaderOnlySignatureNeedsSAAJ() throws Exception {
+        WSS4JHeaderOnlyOutInterceptor handler = new WSS4JHeaderOnlyOutInterceptor();
+
+        SoapMessage msg = new SoapMessage(new MessageImpl());
+        Exchange ex = new ExchangeImpl();
+        ex.setInMessage(msg);
+
+        msg.put(WSHandlerConstants.ACTION, WSHandlerConstants.SIGNATURE);
+        msg.put(WSHandlerConstants.SIG_PROP_FILE, "META-INF/cxf/outsecurity.properties");
+        msg.put(WSHandlerConstants.USER, "myalias");
+        msg.put("password", "myAliasPassword");
+
+        handler.handleMessage(msg);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHeaderOnlyRejectsSignatureConfig() throws Exception {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put(WSHandlerConstants.ACTION, 
+                  WSHandlerConstants.TIMESTAMP + " " + WSHandlerConstants.SIGNATURE);
+        new WSS4JHeaderOnlyOutInterceptor(props);
+    }
+
+    private byte[] createUsernameTokenHeader() throws Exception {
+        WSS4JHeaderOnlyOutInterceptor handler = new WSS4JHeaderOnlyOutInterceptor();
+        SoapMessage msg = new SoapMessage(new MessageImpl());
+        Exchange ex = new ExchangeImpl();
+        ex.setInMessage(msg);
+        msg.put(WSHandlerConstants.ACTION, 
+                WSHandlerConstants.USERNAME_TOKEN + " " + WSHandlerConstants.TIMESTAMP);
+        msg.put(WSHandlerConstants.USER, "myalias");
+        msg.put("password", "myAliasPassword");
+        handler.handleMessage(msg);
+
+        SoapHeader header = (SoapHeader)msg.getHeaders().get(0);
+        return getMessageBytes(((Element)header.getObject()).getOwnerDocument());
+    }
+
+    private SoapMessage createHeaderOnlyInMessage(byte[] docbytes) throws Exception {
+        Document doc = StaxUtils.read(StaxUtils.createXMLStreamReader(new ByteArrayInputStream(docbytes)));
+        SoapMessage inmsg = new SoapMessage(new MessageImpl());
+        Exchange ex = new ExchangeImpl();
+        ex.setInMessage(inmsg);
+        inmsg.setContent(Node.class, doc);
+        return inmsg;
+    }
+
     private byte[] getMessageBytes(Document doc) throws Exception {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         XMLStreamWriter byteArrayWriter = StaxUtils.createXMLStreamWriter(outputStream);